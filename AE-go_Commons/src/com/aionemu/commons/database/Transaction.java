@@ -140,7 +140,7 @@ public class Transaction
 	 * @param rollBackToOnError
 	 *            savepoint that should be used to rollback
 	 * @throws SQLException
-	 *             if something went wrongF
+	 *             if something went wrongF, transaction is rolledback before exception is thrown
 	 */
 	public void commit(Savepoint rollBackToOnError) throws SQLException
 	{
@@ -168,9 +168,45 @@ public class Transaction
 			{
 				log.error("Can't rollback transaction", e1);
 			}
+			throw e;
 		}
+		finally
+		{
+			release();
+		}
+	}
+
+	/**
+	 * Rollbacks whole transaction and releases its connection. Should be called when some query of transaction failed,
+	 * otherwise connection is never returned to pool.
+	 */
+	public void rollback()
+	{
+		try
+		{
+			connection.rollback();
+		}
+		catch(SQLException e)
+		{
+			log.error("Can't rollback transaction", e);
+		}
+
+		release();
+	}
 
-		connection.setAutoCommit(true);
-		connection.close();
+	/**
+	 * Restores autocommit mode and returns connection to pool
+	 */
+	private void release()
+	{
+		try
+		{
+			connection.setAutoCommit(true);
+			connection.close();
+		}
+		catch(SQLException e)
+		{
+			log.error("Can't close connection", e);
+		}
 	}
 }
@@ -0,0 +1,579 @@
+/*
+ * This file is part of aion-emu <aion-emu.com>.
+ *
+ * aion-emu is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aion-emu is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with aion-emu.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.commons.log4j.appenders;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Appender;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.WriterAppender;
+import org.apache.log4j.helpers.AppenderAttachableImpl;
+import org.apache.log4j.helpers.LogLog;
+import org.apache.log4j.spi.AppenderAttachable;
+import org.apache.log4j.spi.Filter;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * This class is appender that passes events to attached appenders in separate thread, so logging thread doesn't
+ * wait for filters and file io of attached appenders.<br>
+ * Events are kept in bounded ring buffer and dispatched in batches, attached file appenders that are {@link Flushable}
+ * are switched to buffered writing and flushed once per batch.
+ * <p/>
+ * When buffer is full, behaviour depends on <tt>overflowPolicy</tt>:
+ * <ul>
+ * <li>BLOCK - logging thread waits for free space</li>
+ * <li>DROP_DEBUG - events with level lower than INFO are dropped, others wait</li>
+ * <li>SAMPLE - one of <tt>sampleRate</tt> events with level lower than ERROR waits, others are dropped; errors always
+ * wait</li>
+ * </ul>
+ * DROP_DEBUG drops only events that pass logger levels, so if debug is disabled it behaves like BLOCK.<br>
+ * Waiting logging thread doesn't hold appender lock, so other threads can still put events when space is freed or
+ * drop them according to policy.<br>
+ * Number of dropped events is logged by attached appenders as warning.
+ * <p/>
+ * Example:
+ * 
+ * <pre>
+ * &lt;appender name=&quot;ASYNC&quot; class=&quot;com.aionemu.commons.log4j.appenders.RingBufferAsyncAppender&quot;&gt;
+ *     &lt;param name=&quot;bufferSize&quot; value=&quot;8192&quot;/&gt;
+ *     &lt;param name=&quot;overflowPolicy&quot; value=&quot;DROP_DEBUG&quot;/&gt;
+ *     &lt;appender-ref ref=&quot;CONSOLE&quot;/&gt;
+ * &lt;/appender&gt;
+ * </pre>
+ */
+public class RingBufferAsyncAppender extends AppenderSkeleton implements AppenderAttachable
+{
+	/**
+	 * What to do with new event when buffer is full
+	 */
+	public static enum OverflowPolicy
+	{
+		BLOCK,
+		DROP_DEBUG,
+		SAMPLE
+	}
+
+	/**
+	 * All active appenders, for statistics
+	 */
+	private static final List<RingBufferAsyncAppender>	appenders		= new CopyOnWriteArrayList<RingBufferAsyncAppender>();
+
+	/**
+	 * Attached appenders, accessed only by dispatcher thread after activation
+	 */
+	private final AppenderAttachableImpl				attached		= new AppenderAttachableImpl();
+
+	private int											bufferSize		= 8192;
+	private int											batchSize		= 128;
+	private OverflowPolicy								overflowPolicy	= OverflowPolicy.BLOCK;
+	private int											sampleRate		= 10;
+	private boolean										locationInfo	= false;
+
+	private ArrayBlockingQueue<LoggingEvent>			buffer;
+	private Thread										dispatcher;
+	private volatile boolean							running;
+
+	private final AtomicLong							appended		= new AtomicLong();
+	private final AtomicLong							dropped			= new AtomicLong();
+	private final AtomicLong							sampleCounter	= new AtomicLong();
+	private volatile int								maxDepth;
+	/**
+	 * Dropped events that weren't reported yet, accessed only by dispatcher thread
+	 */
+	private long										reportedDropped;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void activateOptions()
+	{
+		buffer = new ArrayBlockingQueue<LoggingEvent>(Math.max(1, bufferSize));
+		running = true;
+		dispatcher = new Thread(new Dispatcher(), "AsyncAppender-" + getName());
+		dispatcher.setDaemon(true);
+		dispatcher.start();
+		appenders.add(this);
+
+		/* log events still in buffer when jvm exits */
+		Runtime.getRuntime().addShutdownHook(new Thread("AsyncAppender-" + getName() + "-Shutdown"){
+			@Override
+			public void run()
+			{
+				waitForEmptyBuffer(5000);
+			}
+		});
+	}
+
+	/**
+	 * Same as {@link AppenderSkeleton#doAppend(LoggingEvent)}, but not synchronized. Buffer is thread safe and
+	 * thread waiting for free space mustn't block other logging threads.
+	 */
+	@Override
+	public void doAppend(LoggingEvent event)
+	{
+		if(closed)
+		{
+			LogLog.error("Attempted to append to closed appender named [" + getName() + "].");
+			return;
+		}
+
+		if(!isAsSevereAsThreshold(event.getLevel()))
+			return;
+
+		Filter f = getFilter();
+		while(f != null)
+		{
+			switch(f.decide(event))
+			{
+				case Filter.DENY:
+					return;
+				case Filter.ACCEPT:
+					f = null;
+					break;
+				default:
+					f = f.getNext();
+			}
+		}
+
+		append(event);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void append(LoggingEvent event)
+	{
+		if(buffer == null)
+		{
+			LogLog.error("Appender " + getName() + " is not activated.");
+			return;
+		}
+
+		/* values that depend on logging thread must be taken now */
+		event.getNDC();
+		event.getThreadName();
+		event.getMDCCopy();
+		event.getRenderedMessage();
+		event.getThrowableStrRep();
+		if(locationInfo)
+			event.getLocationInformation();
+
+		if(!buffer.offer(event))
+		{
+			if(shouldDrop(event))
+			{
+				dropped.incrementAndGet();
+				return;
+			}
+			try
+			{
+				buffer.put(event);
+			}
+			catch(InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				dropped.incrementAndGet();
+				return;
+			}
+		}
+		appended.incrementAndGet();
+
+		int depth = buffer.size();
+		if(depth > maxDepth)
+			maxDepth = depth;
+	}
+
+	/**
+	 * Decides if event should be dropped when buffer is full
+	 */
+	private boolean shouldDrop(LoggingEvent event)
+	{
+		switch(overflowPolicy)
+		{
+			case DROP_DEBUG:
+				return !event.getLevel().isGreaterOrEqual(Level.INFO);
+			case SAMPLE:
+				return !event.getLevel().isGreaterOrEqual(Level.ERROR)
+					&& sampleCounter.incrementAndGet() % Math.max(1, sampleRate) != 0;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Waits until dispatcher takes all events from buffer
+	 * 
+	 * @param timeout
+	 *            max waiting time in milliseconds
+	 */
+	private void waitForEmptyBuffer(long timeout)
+	{
+		long end = System.currentTimeMillis() + timeout;
+		while(buffer != null && !buffer.isEmpty() && dispatcher.isAlive() && System.currentTimeMillis() < end)
+		{
+			try
+			{
+				Thread.sleep(10);
+			}
+			catch(InterruptedException e)
+			{
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Stops dispatcher after all buffered events are logged and closes attached appenders.
+	 */
+	@Override
+	public void close()
+	{
+		if(closed)
+			return;
+		closed = true;
+
+		running = false;
+		if(dispatcher != null)
+		{
+			dispatcher.interrupt();
+			try
+			{
+				dispatcher.join(5000);
+			}
+			catch(InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+		appenders.remove(this);
+
+		synchronized(attached)
+		{
+			Enumeration<?> e = attached.getAllAppenders();
+			while(e != null && e.hasMoreElements())
+				((Appender) e.nextElement()).close();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean requiresLayout()
+	{
+		return false;
+	}
+
+	/**
+	 * Adds appender. File appenders that can be flushed are switched to buffered writing.
+	 * 
+	 * @param appender
+	 */
+	@Override
+	public void addAppender(Appender appender)
+	{
+		if(appender instanceof WriterAppender && appender instanceof Flushable)
+			((WriterAppender) appender).setImmediateFlush(false);
+
+		synchronized(attached)
+		{
+			attached.addAppender(appender);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Enumeration<?> getAllAppenders()
+	{
+		synchronized(attached)
+		{
+			return attached.getAllAppenders();
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Appender getAppender(String name)
+	{
+		synchronized(attached)
+		{
+			return attached.getAppender(name);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean isAttached(Appender appender)
+	{
+		synchronized(attached)
+		{
+			return attached.isAttached(appender);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void removeAllAppenders()
+	{
+		synchronized(attached)
+		{
+			attached.removeAllAppenders();
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void removeAppender(Appender appender)
+	{
+		synchronized(attached)
+		{
+			attached.removeAppender(appender);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void removeAppender(String name)
+	{
+		synchronized(attached)
+		{
+			attached.removeAppender(name);
+		}
+	}
+
+	/**
+	 * @return current number of events in buffer
+	 */
+	public int getQueueDepth()
+	{
+		return buffer == null ? 0 : buffer.size();
+	}
+
+	/**
+	 * @return max number of events that were in buffer
+	 */
+	public int getMaxQueueDepth()
+	{
+		return maxDepth;
+	}
+
+	/**
+	 * @return number of events put into buffer
+	 */
+	public long getAppendedCount()
+	{
+		return appended.get();
+	}
+
+	/**
+	 * @return number of dropped events
+	 */
+	public long getDroppedCount()
+	{
+		return dropped.get();
+	}
+
+	/**
+	 * @return human readable statistics of all async appenders: buffer depth, appended and dropped events.
+	 */
+	public static List<String> getStats()
+	{
+		List<String> list = new ArrayList<String>();
+		for(RingBufferAsyncAppender appender : appenders)
+		{
+			list.add("Async appender " + appender.getName() + " [" + appender.overflowPolicy + "]:");
+			list.add("=================================================");
+			list.add("\tqueue depth: ......... " + appender.getQueueDepth() + "/" + appender.bufferSize);
+			list.add("\tmax queue depth: ..... " + appender.getMaxQueueDepth());
+			list.add("\tappended events: ..... " + appender.getAppendedCount());
+			list.add("\tdropped events: ...... " + appender.getDroppedCount());
+		}
+		return list;
+	}
+
+	/**
+	 * Takes events from buffer in batches and passes them to attached appenders
+	 */
+	private class Dispatcher implements Runnable
+	{
+		@Override
+		public void run()
+		{
+			List<LoggingEvent> batch = new ArrayList<LoggingEvent>(batchSize);
+			while(running || !buffer.isEmpty())
+			{
+				try
+				{
+					LoggingEvent event = running ? buffer.poll(1, TimeUnit.SECONDS) : buffer.poll();
+					if(event == null)
+						continue;
+					batch.add(event);
+				}
+				catch(InterruptedException e)
+				{
+					/* close() was called, rest of buffer is drained */
+					continue;
+				}
+				buffer.drainTo(batch, batchSize - 1);
+				dispatch(batch);
+				batch.clear();
+			}
+		}
+
+		private void dispatch(List<LoggingEvent> batch)
+		{
+			synchronized(attached)
+			{
+				for(int i = 0, n = batch.size(); i < n; i++)
+				{
+					try
+					{
+						attached.appendLoopOnAppenders(batch.get(i));
+					}
+					catch(RuntimeException e)
+					{
+						LogLog.error("Error in async appender " + getName(), e);
+					}
+				}
+
+				long droppedNow = dropped.get();
+				if(droppedNow != reportedDropped)
+				{
+					LoggingEvent warning = new LoggingEvent(Logger.class.getName(), Logger.getLogger(getClass()),
+						Level.WARN, (droppedNow - reportedDropped) + " log events dropped by async appender "
+							+ getName(), null);
+					reportedDropped = droppedNow;
+					attached.appendLoopOnAppenders(warning);
+				}
+
+				Enumeration<?> e = attached.getAllAppenders();
+				while(e != null && e.hasMoreElements())
+				{
+					Object appender = e.nextElement();
+					if(appender instanceof Flushable)
+					{
+						try
+						{
+							((Flushable) appender).flush();
+						}
+						catch(IOException ex)
+						{
+							LogLog.error("Can't flush appender " + ((Appender) appender).getName(), ex);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return size of ring buffer
+	 */
+	public int getBufferSize()
+	{
+		return bufferSize;
+	}
+
+	/**
+	 * @param bufferSize
+	 *            size of ring buffer
+	 */
+	public void setBufferSize(int bufferSize)
+	{
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * @return max number of events dispatched at once
+	 */
+	public int getBatchSize()
+	{
+		return batchSize;
+	}
+
+	/**
+	 * @param batchSize
+	 *            max number of events dispatched at once
+	 */
+	public void setBatchSize(int batchSize)
+	{
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	/**
+	 * @return overflow policy name
+	 */
+	public String getOverflowPolicy()
+	{
+		return overflowPolicy.name();
+	}
+
+	/**
+	 * @param overflowPolicy
+	 *            BLOCK, DROP_DEBUG or SAMPLE
+	 */
+	public void setOverflowPolicy(String overflowPolicy)
+	{
+		this.overflowPolicy = OverflowPolicy.valueOf(overflowPolicy.trim().toUpperCase());
+	}
+
+	/**
+	 * @return one of how many events is kept by SAMPLE policy
+	 */
+	public int getSampleRate()
+	{
+		return sampleRate;
+	}
+
+	/**
+	 * @param sampleRate
+	 *            one of how many events is kept by SAMPLE policy
+	 */
+	public void setSampleRate(int sampleRate)
+	{
+		this.sampleRate = sampleRate;
+	}
+
+	/**
+	 * @return true if location of logging call is taken before event is buffered
+	 */
+	public boolean getLocationInfo()
+	{
+		return locationInfo;
+	}
+
+	/**
+	 * @param locationInfo
+	 *            true if location of logging call (%L, %F, %M in layouts) is needed by attached appenders
+	 */
+	public void setLocationInfo(boolean locationInfo)
+	{
+		this.locationInfo = locationInfo;
+	}
+}
@@ -19,6 +19,7 @@ package com.aionemu.commons.log4j.appenders;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.Flushable;
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.text.SimpleDateFormat;
@@ -41,10 +42,13 @@ import com.aionemu.commons.log4j.exceptions.AppenderInitializationError;
  * 
  * Unfortunaltely, UNIX systems doesn't support file creation date, so we have to use lastModified(), windows only
  * solution is not good.
+ * <p/>
+ * If <tt>immediateFlush</tt> is false, {@link #flush()} can be used to write buffered events, it's done by
+ * {@link RingBufferAsyncAppender} after every batch.
  * 
  * @author SoulKeeper
  */
-public class TruncateToZipFileAppender extends FileAppender
+public class TruncateToZipFileAppender extends FileAppender implements Flushable
 {
 	/**
 	 * String that points to root directory for backups
@@ -181,6 +185,16 @@ public class TruncateToZipFileAppender extends FileAppender
 		}
 	}
 
+	/**
+	 * Writes events buffered by writer to file
+	 */
+	@Override
+	public void flush()
+	{
+		if(qw != null)
+			qw.flush();
+	}
+
 	/**
 	 * Returns root directory for backups
 	 * 
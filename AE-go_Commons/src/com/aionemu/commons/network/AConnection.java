@@ -18,7 +18,6 @@ package com.aionemu.commons.network;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 
@@ -62,13 +61,19 @@ public abstract class AConnection
 	 */
 	protected final Object		guard	= new Object();
 	/**
-	 * ByteBuffer for io write.
+	 * ByteBuffer for io write - borrowed from BufferPool of Dispatcher only while there are data to send, otherwise
+	 * null.
 	 */
-	public final ByteBuffer		writeBuffer;
+	ByteBuffer					writeBuffer;
 	/**
-	 * ByteBuffer for io read.
+	 * ByteBuffer for io read - borrowed from BufferPool of Dispatcher only while there is not fully received packet,
+	 * otherwise null.
 	 */
-	public final ByteBuffer		readBuffer;
+	ByteBuffer					readBuffer;
+	/**
+	 * Size of read buffer that will be borrowed by next read - adjusted by observed traffic.
+	 */
+	int							readBufferSize;
 
 	/**
 	 * Caching ip address to make sure that {@link #getIP()} method works even after disconnection
@@ -80,6 +85,11 @@ public abstract class AConnection
 	 */
 	private boolean				locked	= false;
 
+	/**
+	 * Used only for QueuedPacketProcessor - packets of this connection waiting for execution.
+	 */
+	private final ConnectionPacketQueue	packetQueue	= new ConnectionPacketQueue();
+
 	/**
 	 * Constructor
 	 * 
@@ -91,12 +101,6 @@ public abstract class AConnection
 	{
 		socketChannel = sc;
 		dispatcher = d;
-		writeBuffer = ByteBuffer.allocate(8192 * 2);
-		writeBuffer.flip();
-		writeBuffer.order(ByteOrder.LITTLE_ENDIAN);
-		readBuffer = ByteBuffer.allocate(8192 * 2);
-		readBuffer.order(ByteOrder.LITTLE_ENDIAN);
-
 		dispatcher.register(socketChannel, SelectionKey.OP_READ, this);
 
 		this.ip = socketChannel.socket().getInetAddress().getHostAddress();
@@ -240,6 +244,16 @@ public abstract class AConnection
 		locked = false;
 	}
 
+	/**
+	 * Used only for QueuedPacketProcessor.
+	 * 
+	 * @return packets of this connection waiting for execution.
+	 */
+	final ConnectionPacketQueue getPacketQueue()
+	{
+		return packetQueue;
+	}
+
 	/**
 	 * @param data
 	 * @return True if data was processed correctly, False if some error occurred and connection should be closed NOW.
@@ -247,10 +261,13 @@ public abstract class AConnection
 	abstract protected boolean processData(ByteBuffer data);
 
 	/**
-	 * This method will be called by Dispatcher, and will be repeated till return false.
+	 * This method will be called by Dispatcher, and will be repeated till return false. Each call should append one
+	 * packet at current position of given buffer, so many packets can be send by one socket write. If next packet
+	 * does not fit into remaining space it must not be written (and stay in queue) and False must be returned.
 	 * 
 	 * @param data
-	 * @return True if data was written to buffer, False indicating that there are not any more data to write.
+	 * @return True if data was written to buffer, False indicating that there are not any more data to write or that
+	 *         buffer is full.
 	 */
 	abstract protected boolean writeData(ByteBuffer data);
 
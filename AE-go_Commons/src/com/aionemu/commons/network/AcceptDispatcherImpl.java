@@ -37,7 +37,7 @@ public class AcceptDispatcherImpl extends Dispatcher
 	 */
 	public AcceptDispatcherImpl(String name) throws IOException
 	{
-		super(name, null);
+		super(name, null, null);
 	}
 
 	/**
@@ -48,7 +48,7 @@ public class AcceptDispatcherImpl extends Dispatcher
 	@Override
 	void dispatch() throws IOException
 	{
-		if(selector.select() != 0)
+		if(select() != 0)
 		{
 			Iterator<SelectionKey> selectedKeys = this.selector.selectedKeys().iterator();
 			while(selectedKeys.hasNext())
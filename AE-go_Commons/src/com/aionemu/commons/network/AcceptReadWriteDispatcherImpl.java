@@ -37,16 +37,20 @@ public class AcceptReadWriteDispatcherImpl extends Dispatcher
 	private final List<AConnection>	pendingClose	= new ArrayList<AConnection>();
 
 	/**
-	 * Constructor that accept <code>String</code> name and <code>DisconnectionThreadPool</code> dcPool as parameter.
+	 * Constructor that accept <code>String</code> name, <code>BufferPool</code> bufferPool and
+	 * <code>DisconnectionThreadPool</code> dcPool as parameter.
 	 * 
 	 * @param name
+	 * @param bufferPool
 	 * @param dcPool
 	 * @throws IOException
+	 * @see com.aionemu.commons.network.BufferPool
 	 * @see com.aionemu.commons.network.DisconnectionThreadPool
 	 */
-	public AcceptReadWriteDispatcherImpl(String name, DisconnectionThreadPool dcPool) throws IOException
+	public AcceptReadWriteDispatcherImpl(String name, BufferPool bufferPool, DisconnectionThreadPool dcPool)
+		throws IOException
 	{
-		super(name, dcPool);
+		super(name, bufferPool, dcPool);
 	}
 
 	/**
@@ -57,7 +61,7 @@ public class AcceptReadWriteDispatcherImpl extends Dispatcher
 	@Override
 	void dispatch() throws IOException
 	{
-		int selected = selector.select();
+		int selected = select();
 
 		processPendingClose();
 
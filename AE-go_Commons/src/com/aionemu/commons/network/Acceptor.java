@@ -30,6 +30,7 @@ import java.nio.channels.SocketChannel;
  * <code>ConnectionFactory.create(SocketChannel socket)</code><br>
  * representing accepted socket, register it into one of ReadWrite <code>Dispatcher</code><br>
  * <code>Selector</code> as ready for io read operations.<br>
+ * Sockets not allowed by <code>IPFilter</code> are closed right after accept.<br>
  * 
  * @author -Nemesiss-
  * @see com.aionemu.commons.network.Dispatcher
@@ -51,6 +52,13 @@ public class Acceptor
 	 */
 	private final ConnectionFactory	factory;
 
+	/**
+	 * <code>IPFilter</code> that decides if accepted socket will be kept, may be null.
+	 * 
+	 * @see com.aionemu.commons.network.IPFilter
+	 */
+	private final IPFilter			filter;
+
 	/**
 	 * <code>NioServer</code> that created this Acceptor.
 	 * 
@@ -63,6 +71,8 @@ public class Acceptor
 	 * 
 	 * @param factory
 	 *            <code>ConnectionFactory</code> that will be used to<br>
+	 * @param filter
+	 *            <code>IPFilter</code> for accepted sockets, may be null<br>
 	 * @param nioServer
 	 *            <code>NioServer</code> that created this Acceptor object<br>
 	 *            creating new <code>AConnection</code> instances.
@@ -70,9 +80,10 @@ public class Acceptor
 	 * @see com.aionemu.commons.network.NioServer
 	 * @see com.aionemu.commons.network.AConnection
 	 */
-	Acceptor(ConnectionFactory factory, NioServer nioServer)
+	Acceptor(ConnectionFactory factory, IPFilter filter, NioServer nioServer)
 	{
 		this.factory = factory;
+		this.filter = filter;
 		this.nioServer = nioServer;
 	}
 
@@ -101,6 +112,15 @@ public class Acceptor
 		ServerSocketChannel serverSocketChannel = (ServerSocketChannel) key.channel();
 		/** Accept the connection and make it non-blocking */
 		SocketChannel socketChannel = serverSocketChannel.accept();
+		if(socketChannel == null)
+			return;
+
+		/** Drop not allowed connection before any buffers are allocated for it */
+		if(filter != null && !filter.isAllowed(socketChannel.socket().getInetAddress()))
+		{
+			socketChannel.close();
+			return;
+		}
 		socketChannel.configureBlocking(false);
 
 		Dispatcher dispatcher = nioServer.getReadWriteDispatcher();
@@ -0,0 +1,186 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.commons.network;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Pool of read and write buffers of connections handled by one <code>Dispatcher</code>. Connection borrows buffer only
+ * while it have pending io [not fully received packet or not yet sent data] and returns it when idle, so idle
+ * connections are not holding any buffers. Buffers are cut from bigger slabs and never released.<br>
+ * <br>
+ * In adaptive mode buffers are allocated in more sizes [from {@link #MIN_BUFFER_SIZE} to {@link #MAX_BUFFER_SIZE}] and
+ * read buffer size of connection follows its observed traffic, otherwise all buffers have {@link #MAX_BUFFER_SIZE}.<br>
+ * <br>
+ * This class is not thread safe - only {@link #getStats()} may be called by other thread than owning Dispatcher.
+ */
+public class BufferPool
+{
+	/**
+	 * Size of the biggest buffer - every packet must fit into it.
+	 */
+	public static final int		MAX_BUFFER_SIZE	= 8192 * 2;
+
+	/**
+	 * Size of the smallest buffer used in adaptive mode.
+	 */
+	public static final int		MIN_BUFFER_SIZE	= 1024;
+
+	/**
+	 * Size of one slab from witch buffers are cut.
+	 */
+	private static final int	SLAB_SIZE		= MAX_BUFFER_SIZE * 4;
+
+	/**
+	 * Buffer sizes of this pool ordered from smallest.
+	 */
+	private final SizeClass[]	sizeClasses;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param adaptive
+	 *            - if true buffers of more sizes will be used, otherwise all buffers have {@link #MAX_BUFFER_SIZE}.
+	 */
+	public BufferPool(boolean adaptive)
+	{
+		List<SizeClass> list = new ArrayList<SizeClass>();
+		for(int size = adaptive ? MIN_BUFFER_SIZE : MAX_BUFFER_SIZE; size <= MAX_BUFFER_SIZE; size <<= 1)
+			list.add(new SizeClass(size));
+		sizeClasses = list.toArray(new SizeClass[list.size()]);
+	}
+
+	/**
+	 * Returns cleared little endian buffer with capacity at least of given size [but not bigger than
+	 * {@link #MAX_BUFFER_SIZE}]. Buffer must be given back by {@link #recycle(ByteBuffer)}.
+	 * 
+	 * @param size
+	 * @return buffer
+	 */
+	public final ByteBuffer getBuffer(int size)
+	{
+		SizeClass sc = getSizeClass(size);
+		ByteBuffer buf = sc.free.pollFirst();
+		if(buf == null)
+		{
+			sc.allocateSlab();
+			buf = sc.free.pollFirst();
+		}
+		sc.used++;
+
+		buf.clear();
+		buf.order(ByteOrder.LITTLE_ENDIAN);
+		return buf;
+	}
+
+	/**
+	 * Give back buffer borrowed by {@link #getBuffer(int)}.
+	 * 
+	 * @param buf
+	 */
+	public final void recycle(ByteBuffer buf)
+	{
+		SizeClass sc = getSizeClass(buf.capacity());
+		sc.used--;
+		/** last recycled buffer will be reused first - its memory is most likely still in cpu cache */
+		sc.free.addFirst(buf);
+	}
+
+	/**
+	 * @param size
+	 * @return the smallest size class that can hold given size or the biggest one.
+	 */
+	private SizeClass getSizeClass(int size)
+	{
+		for(SizeClass sc : sizeClasses)
+		{
+			if(sc.size >= size)
+				return sc;
+		}
+		return sizeClasses[sizeClasses.length - 1];
+	}
+
+	/**
+	 * @return human readable pool occupancy: buffers in use / allocated buffers for every buffer size.
+	 */
+	public final List<String> getStats()
+	{
+		List<String> list = new ArrayList<String>();
+		long allocatedBytes = 0;
+		for(SizeClass sc : sizeClasses)
+		{
+			int allocated = sc.allocated;
+			allocatedBytes += (long) allocated * sc.size;
+			String name = "\tbuffers " + sc.size + ": ";
+			StringBuilder sb = new StringBuilder(name);
+			for(int i = name.length(); i < 23; i++)
+				sb.append('.');
+			list.add(sb.append(' ').append(sc.used).append('/').append(allocated).toString());
+		}
+		list.add("\tbuffers memory [KB]: . " + allocatedBytes / 1024);
+		return list;
+	}
+
+	/**
+	 * Free buffers of one size.
+	 */
+	private static final class SizeClass
+	{
+		/**
+		 * Capacity of buffers.
+		 */
+		private final int				size;
+
+		/**
+		 * Buffers ready to be borrowed.
+		 */
+		private final Deque<ByteBuffer>	free	= new ArrayDeque<ByteBuffer>();
+
+		/**
+		 * Statistics - changed only by Dispatcher Thread.
+		 */
+		private volatile int			allocated;
+		private volatile int			used;
+
+		/**
+		 * @param size
+		 */
+		private SizeClass(int size)
+		{
+			this.size = size;
+		}
+
+		/**
+		 * Allocate new slab and cut it to free buffers.
+		 */
+		private void allocateSlab()
+		{
+			ByteBuffer slab = ByteBuffer.allocate(SLAB_SIZE);
+			for(int offset = 0; offset < SLAB_SIZE; offset += size)
+			{
+				slab.limit(offset + size).position(offset);
+				free.addLast(slab.slice());
+			}
+			allocated += SLAB_SIZE / size;
+		}
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.commons.network;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.aionemu.commons.network.packet.BaseClientPacket;
+
+/**
+ * Lock-free queue of client packets of one <code>AConnection</code> waiting for execution by
+ * <code>QueuedPacketProcessor</code>. Many threads may add packets, but only the thread that owns the connection (the
+ * one that made it ready) may poll.
+ * 
+ * @see com.aionemu.commons.network.QueuedPacketProcessor
+ */
+final class ConnectionPacketQueue
+{
+	/**
+	 * Packets waiting for execution in received order.
+	 */
+	private final Queue<Entry>	entries	= new ConcurrentLinkedQueue<Entry>();
+	/**
+	 * Number of packets added but not yet released. Connection is owned by one worker while this is > 0.
+	 */
+	private final AtomicInteger	size	= new AtomicInteger();
+
+	/**
+	 * Add packet to this queue.
+	 * 
+	 * @param packet
+	 * @return true if queue was empty - caller must then make connection ready for execution.
+	 */
+	boolean offer(BaseClientPacket<?> packet)
+	{
+		entries.offer(new Entry(packet, System.nanoTime()));
+		return size.getAndIncrement() == 0;
+	}
+
+	/**
+	 * May be called only by owner of the connection.
+	 * 
+	 * @return next packet to execute.
+	 */
+	Entry poll()
+	{
+		return entries.poll();
+	}
+
+	/**
+	 * Called by owner of the connection after execution of polled packet.
+	 * 
+	 * @return true if there are more packets and connection must stay ready for execution.
+	 */
+	boolean release()
+	{
+		return size.decrementAndGet() > 0;
+	}
+
+	/**
+	 * @return number of packets waiting or being executed.
+	 */
+	int size()
+	{
+		return size.get();
+	}
+
+	/**
+	 * Queued packet with time when it was received.
+	 */
+	static final class Entry
+	{
+		final BaseClientPacket<?>	packet;
+		final long					enqueueTime;
+
+		private Entry(BaseClientPacket<?> packet, long enqueueTime)
+		{
+			this.packet = packet;
+			this.enqueueTime = enqueueTime;
+		}
+	}
+}
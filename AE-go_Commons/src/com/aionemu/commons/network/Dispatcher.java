@@ -24,6 +24,10 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 import java.nio.channels.spi.SelectorProvider;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 
@@ -51,22 +55,52 @@ public abstract class Dispatcher extends Thread
 	 * ThreadPool on witch disconnection tasks will be executed.
 	 */
 	private final DisconnectionThreadPool	dcPool;
+
+	/**
+	 * Pool of read and write buffers for connections of this Dispatcher.
+	 */
+	private final BufferPool				bufferPool;
 	/**
 	 * Object on witch register vs selector.select are synchronized
 	 */
 	private final Object					gate	= new Object();
 
+	/**
+	 * Number of connections registered to this Dispatcher.
+	 */
+	private final AtomicInteger				connections	= new AtomicInteger();
+
+	/**
+	 * Statistics - changed only by this Dispatcher Thread.
+	 */
+	private volatile long					selects;
+	private volatile long					bytesRead;
+	private volatile long					bytesWritten;
+	private volatile long					readTime;
+	private volatile long					writeTime;
+	private volatile long					socketWrites;
+	private volatile long					packetsWritten;
+
+	/**
+	 * Object on witch {@link #getStats()} is synchronized and values of last call of it.
+	 */
+	private final Object					statsLock	= new Object();
+	private long							lastStatsTime	= System.nanoTime();
+	private long							lastSelects;
+
 	/**
 	 * Constructor.
 	 * 
 	 * @param name
+	 * @param bufferPool
 	 * @param dcPool
 	 * @throws IOException
 	 */
-	public Dispatcher(String name, DisconnectionThreadPool dcPool) throws IOException
+	public Dispatcher(String name, BufferPool bufferPool, DisconnectionThreadPool dcPool) throws IOException
 	{
 		super(name);
 		this.selector = SelectorProvider.provider().openSelector();
+		this.bufferPool = bufferPool;
 		this.dcPool = dcPool;
 	}
 
@@ -87,6 +121,61 @@ public abstract class Dispatcher extends Thread
 	 */
 	abstract void dispatch() throws IOException;
 
+	/**
+	 * Select keys that are ready for io operations.
+	 * 
+	 * @return number of selected keys.
+	 * @throws IOException
+	 */
+	final int select() throws IOException
+	{
+		int selected = selector.select();
+		selects++;
+		return selected;
+	}
+
+	/**
+	 * @return number of connections registered to this Dispatcher.
+	 */
+	public final int getConnectionCount()
+	{
+		return connections.get();
+	}
+
+	/**
+	 * @return human readable statistics of this Dispatcher: selects/sec since last call, bytes in/out, time spent in
+	 *         read and write, average number of packets sent by one socket write and buffer pool occupancy.
+	 */
+	public final List<String> getStats()
+	{
+		List<String> list = new ArrayList<String>();
+		synchronized(statsLock)
+		{
+			long now = System.nanoTime();
+			long selectsNow = selects;
+			long interval = Math.max(1, now - lastStatsTime);
+			long selectsPerSec = (selectsNow - lastSelects) * TimeUnit.SECONDS.toNanos(1) / interval;
+			long writes = socketWrites;
+			float packetsPerWrite = writes == 0 ? 0 : (float) packetsWritten / writes;
+			lastStatsTime = now;
+			lastSelects = selectsNow;
+
+			list.add(getName() + ":");
+			list.add("\tconnections: ......... " + getConnectionCount());
+			list.add("\tselects/sec: ......... " + selectsPerSec);
+			list.add("\tbytes in: ............ " + bytesRead);
+			list.add("\tbytes out: ........... " + bytesWritten);
+			list.add("\tread time [ms]: ...... " + TimeUnit.NANOSECONDS.toMillis(readTime));
+			list.add("\twrite time [ms]: ..... " + TimeUnit.NANOSECONDS.toMillis(writeTime));
+			list.add("\tsocket writes: ....... " + writes);
+			list.add("\tpackets written: ..... " + packetsWritten);
+			list.add("\tpackets/write: ....... " + String.format("%.2f", packetsPerWrite));
+		}
+		if(bufferPool != null)
+			list.addAll(bufferPool.getStats());
+		return list;
+	}
+
 	/**
 	 * @return Selector of this Dispatcher
 	 */
@@ -136,6 +225,7 @@ public abstract class Dispatcher extends Thread
 			selector.wakeup();
 			att.setKey(ch.register(selector, ops, att));
 		}
+		connections.incrementAndGet();
 	}
 
 	/**
@@ -180,11 +270,30 @@ public abstract class Dispatcher extends Thread
 	 * @param key
 	 */
 	final void read(SelectionKey key)
+	{
+		long begin = System.nanoTime();
+		try
+		{
+			doRead(key);
+		}
+		finally
+		{
+			readTime += System.nanoTime() - begin;
+		}
+	}
+
+	/**
+	 * @param key
+	 * @see #read(SelectionKey)
+	 */
+	private void doRead(SelectionKey key)
 	{
 		SocketChannel socketChannel = (SocketChannel) key.channel();
 		AConnection con = (AConnection) key.attachment();
 
 		ByteBuffer rb = con.readBuffer;
+		if(rb == null)
+			rb = con.readBuffer = bufferPool.getBuffer(con.readBufferSize);
 
 		/**
 		 * Test if this build should use assertion. If NetworkAssertion == false javac will remove this code block
@@ -216,9 +325,13 @@ public abstract class Dispatcher extends Thread
 		}
 		else if(numRead == 0)
 		{
+			if(rb.position() == 0)
+				recycleReadBuffer(con, 0);
 			return;
 		}
 
+		bytesRead += numRead;
+
 		rb.flip();
 		while(rb.remaining() > 2 && rb.remaining() >= rb.getShort(rb.position()))
 		{
@@ -231,7 +344,12 @@ public abstract class Dispatcher extends Thread
 		}
 		if(rb.hasRemaining())
 		{
-			con.readBuffer.compact();
+			rb.compact();
+
+			/** not fully received packet may need bigger buffer */
+			int size = rb.position() < 2 ? 0 : rb.getShort(0);
+			if(!rb.hasRemaining() || size > rb.capacity())
+				growReadBuffer(con, size);
 
 			/**
 			 * Test if this build should use assertion. If NetworkAssertion == false javac will remove this code block
@@ -242,7 +360,52 @@ public abstract class Dispatcher extends Thread
 			}
 		}
 		else
-			rb.clear();
+			recycleReadBuffer(con, numRead);
+	}
+
+	/**
+	 * Replace read buffer of given connection by bigger one [if there is bigger one] with the same data.
+	 * 
+	 * @param con
+	 * @param size
+	 *            size of not fully received packet
+	 */
+	private void growReadBuffer(AConnection con, int size)
+	{
+		ByteBuffer rb = con.readBuffer;
+		ByteBuffer bigger = bufferPool.getBuffer(Math.max(size, rb.capacity() + 1));
+		if(bigger.capacity() <= rb.capacity())
+		{
+			bufferPool.recycle(bigger);
+			return;
+		}
+
+		rb.flip();
+		bigger.put(rb);
+		bufferPool.recycle(rb);
+		con.readBuffer = bigger;
+		con.readBufferSize = bigger.capacity();
+	}
+
+	/**
+	 * Give back read buffer of given connection that doesn't hold any data and choose size of next one by number of
+	 * bytes read last time.
+	 * 
+	 * @param con
+	 * @param numRead
+	 */
+	private void recycleReadBuffer(AConnection con, int numRead)
+	{
+		ByteBuffer rb = con.readBuffer;
+		if(numRead == rb.capacity())
+			con.readBufferSize = rb.capacity() * 2;
+		else if(numRead * 4 <= rb.capacity())
+			con.readBufferSize = rb.capacity() / 2;
+		else
+			con.readBufferSize = rb.capacity();
+
+		bufferPool.recycle(rb);
+		con.readBuffer = null;
 	}
 
 	/**
@@ -284,14 +447,31 @@ public abstract class Dispatcher extends Thread
 	 * @param key
 	 */
 	final void write(SelectionKey key)
+	{
+		long begin = System.nanoTime();
+		try
+		{
+			doWrite(key);
+		}
+		finally
+		{
+			writeTime += System.nanoTime() - begin;
+		}
+	}
+
+	/**
+	 * @param key
+	 * @see #write(SelectionKey)
+	 */
+	private void doWrite(SelectionKey key)
 	{
 		SocketChannel socketChannel = (SocketChannel) key.channel();
 		AConnection con = (AConnection) key.attachment();
 
 		int numWrite;
 		ByteBuffer wb = con.writeBuffer;
-		/** We have not writted data */
-		if(wb.hasRemaining())
+		/** We have not writted data [write buffer is borrowed only while it holds data] */
+		if(wb != null)
 		{
 			try
 			{
@@ -302,6 +482,8 @@ public abstract class Dispatcher extends Thread
 				closeConnectionImpl(con);
 				return;
 			}
+			socketWrites++;
+			bytesWritten += numWrite;
 
 			if(numWrite == 0)
 			{
@@ -313,17 +495,27 @@ public abstract class Dispatcher extends Thread
 			if(wb.hasRemaining())
 				return;
 		}
+		else
+			wb = con.writeBuffer = bufferPool.getBuffer(BufferPool.MAX_BUFFER_SIZE);
 
 		while(true)
 		{
 			wb.clear();
-			boolean writeFailed = !con.writeData(wb);
 
-			if(writeFailed)
+			/** Pack as many queued packets as will fit into buffer, so they will be send by one socket write */
+			int packets = 0;
+			while(con.writeData(wb))
+				packets++;
+
+			if(packets == 0)
 			{
-				wb.limit(0);
+				/** nothing more to send - connection doesn't need write buffer till next write */
+				bufferPool.recycle(wb);
+				con.writeBuffer = null;
 				break;
 			}
+			wb.flip();
+			packetsWritten += packets;
 
 			/** Attempt to write to the channel */
 			try
@@ -335,6 +527,8 @@ public abstract class Dispatcher extends Thread
 				closeConnectionImpl(con);
 				return;
 			}
+			socketWrites++;
+			bytesWritten += numWrite;
 
 			if(numWrite == 0)
 			{
@@ -352,7 +546,7 @@ public abstract class Dispatcher extends Thread
 		 */
 		if(Assertion.NetworkAssertion)
 		{
-			assert !wb.hasRemaining();
+			assert con.writeBuffer == null;
 		}
 
 		/**
@@ -381,6 +575,29 @@ public abstract class Dispatcher extends Thread
 			assert Thread.currentThread() == this;
 
 		if(con.onlyClose())
+		{
+			recycleBuffers(con);
+			connections.decrementAndGet();
 			dcPool.scheduleDisconnection(new DisconnectionTask(con), con.getDisconnectionDelay());
+		}
+	}
+
+	/**
+	 * Give back buffers of closed connection to the pool.
+	 * 
+	 * @param con
+	 */
+	private void recycleBuffers(AConnection con)
+	{
+		if(con.readBuffer != null)
+		{
+			bufferPool.recycle(con.readBuffer);
+			con.readBuffer = null;
+		}
+		if(con.writeBuffer != null)
+		{
+			bufferPool.recycle(con.writeBuffer);
+			con.writeBuffer = null;
+		}
 	}
 }
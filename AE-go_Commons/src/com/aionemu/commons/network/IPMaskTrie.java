@@ -0,0 +1,305 @@
+/*
+ * This file is part of aion-emu <aion-emu.com>.
+ *
+ *  aion-emu is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-emu is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-emu.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.commons.network;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compiled set of IPv4 masks in format used by {@link com.aionemu.commons.utils.NetworkUtils#checkIPMatching}:
+ * <code>*</code>, <code>*.*.*.*</code>, <code>192.168.1.*</code>, <code>192.168.1.0-255</code> etc. Missing octets are
+ * matched as <code>*</code>.<br>
+ * <br>
+ * Masks are parsed once into trie with one level per octet: exact octets are stored in sorted array searched by binary search, ranges
+ * (and <code>*</code> as range 0-255) are stored as list of edges. Every mask ends in a leaf with its expiration time,
+ * so address lookup is few array/list checks per level and no string parsing of masks.<br>
+ * <br>
+ * Trie is not thread safe for modification, it should be filled completely and then published (for example by
+ * assignment to volatile field), after that it may be read by any number of threads.
+ */
+public class IPMaskTrie
+{
+	/**
+	 * Expiration time of masks that never expire
+	 */
+	public static final long	NEVER_EXPIRES	= Long.MAX_VALUE;
+
+	/**
+	 * Root of the trie, level of first octet
+	 */
+	private final Node			root			= new Node();
+
+	/**
+	 * Number of added masks
+	 */
+	private int					size;
+
+	/**
+	 * Adds mask to this trie.
+	 * 
+	 * @param mask
+	 *            ip mask
+	 * @param expireTime
+	 *            time in milliseconds when mask expires, {@link #NEVER_EXPIRES} - never
+	 * @return false if mask can't be parsed
+	 */
+	public boolean add(String mask, long expireTime)
+	{
+		String[] octets = mask.trim().split("\\.");
+		if(octets.length > 4)
+			return false;
+
+		int[] min = new int[4];
+		int[] max = new int[4];
+		for(int i = 0; i < 4; i++)
+		{
+			String octet = i < octets.length ? octets[i].trim() : "*";
+			try
+			{
+				if(octet.equals("*"))
+				{
+					min[i] = 0;
+					max[i] = 255;
+				}
+				else if(octet.contains("-"))
+				{
+					int idx = octet.indexOf('-');
+					min[i] = Integer.parseInt(octet.substring(0, idx).trim());
+					max[i] = Integer.parseInt(octet.substring(idx + 1).trim());
+				}
+				else
+				{
+					min[i] = max[i] = Integer.parseInt(octet);
+				}
+			}
+			catch(NumberFormatException e)
+			{
+				return false;
+			}
+			if(min[i] < 0 || max[i] > 255 || min[i] > max[i])
+				return false;
+		}
+
+		Node node = root;
+		for(int i = 0; i < 4; i++)
+			node = node.child(min[i], max[i]);
+
+		if(node.expireTime < expireTime)
+			node.expireTime = expireTime;
+		size++;
+		return true;
+	}
+
+	/**
+	 * Checks if address matches any not expired mask.
+	 * 
+	 * @param address
+	 *            IPv4 address as returned by {@link #toInt}
+	 * @param now
+	 *            current time in milliseconds
+	 * @return true if address matches
+	 */
+	public boolean matches(int address, long now)
+	{
+		return root.matches(address, 0, now);
+	}
+
+	/**
+	 * Checks if address matches any not expired mask.
+	 * 
+	 * @param address
+	 *            IPv4 address in dotted format
+	 * @return true if address matches, false if it doesn't or it's not IPv4 address
+	 */
+	public boolean matches(String address)
+	{
+		long addr = toInt(address);
+		return addr >= 0 && matches((int) addr, System.currentTimeMillis());
+	}
+
+	/**
+	 * Checks if address matches any not expired mask.
+	 * 
+	 * @param address
+	 *            raw address, as returned by {@link java.net.InetAddress#getAddress()}
+	 * @return true if address matches, false if it doesn't or it's not IPv4 address
+	 */
+	public boolean matches(byte[] address)
+	{
+		if(address.length != 4)
+			return false;
+
+		int addr = (address[0] & 0xFF) << 24 | (address[1] & 0xFF) << 16 | (address[2] & 0xFF) << 8
+			| (address[3] & 0xFF);
+		return matches(addr, System.currentTimeMillis());
+	}
+
+	/**
+	 * @return number of masks added to this trie
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Parses IPv4 address in dotted format, without creating any objects.
+	 * 
+	 * @param address
+	 *            address to parse
+	 * @return address as unsigned int, -1 if it is not valid IPv4 address
+	 */
+	public static long toInt(String address)
+	{
+		long result = 0;
+		int octet = -1;
+		int octets = 0;
+		for(int i = 0, n = address.length(); i < n; i++)
+		{
+			char c = address.charAt(i);
+			if(c >= '0' && c <= '9')
+			{
+				octet = (octet < 0 ? 0 : octet * 10) + c - '0';
+				if(octet > 255)
+					return -1;
+			}
+			else if(c == '.' && octet >= 0 && octets < 3)
+			{
+				result = result << 8 | octet;
+				octet = -1;
+				octets++;
+			}
+			else
+				return -1;
+		}
+		if(octet < 0 || octets != 3)
+			return -1;
+		return result << 8 | octet;
+	}
+
+	/**
+	 * One level of the trie
+	 */
+	private static class Node
+	{
+		/**
+		 * Sorted exact octets, created when first exact octet is added
+		 */
+		private byte[]		octets;
+		/**
+		 * Children for exact octets, in order of {@link #octets}
+		 */
+		private Node[]		exact;
+		/**
+		 * Children for octet ranges
+		 */
+		private List<Range>	ranges;
+		/**
+		 * Expiration time if this node is a leaf
+		 */
+		private long		expireTime;
+
+		private Node child(int min, int max)
+		{
+			if(min == max)
+			{
+				if(octets == null)
+				{
+					octets = new byte[0];
+					exact = new Node[0];
+				}
+				int idx = indexOf(min);
+				if(idx >= 0)
+					return exact[idx];
+
+				idx = -idx - 1;
+				byte[] newOctets = new byte[octets.length + 1];
+				Node[] newExact = new Node[exact.length + 1];
+				System.arraycopy(octets, 0, newOctets, 0, idx);
+				System.arraycopy(exact, 0, newExact, 0, idx);
+				System.arraycopy(octets, idx, newOctets, idx + 1, octets.length - idx);
+				System.arraycopy(exact, idx, newExact, idx + 1, exact.length - idx);
+				newOctets[idx] = (byte) (min - 128);
+				newExact[idx] = new Node();
+				octets = newOctets;
+				exact = newExact;
+				return newExact[idx];
+			}
+
+			if(ranges == null)
+				ranges = new ArrayList<Range>(1);
+			for(Range range : ranges)
+			{
+				if(range.min == min && range.max == max)
+					return range.node;
+			}
+			Range range = new Range(min, max);
+			ranges.add(range);
+			return range.node;
+		}
+
+		private boolean matches(int address, int level, long now)
+		{
+			if(level == 4)
+				return expireTime > now;
+
+			int octet = (address >>> (24 - level * 8)) & 0xFF;
+			if(octets != null)
+			{
+				int idx = indexOf(octet);
+				if(idx >= 0 && exact[idx].matches(address, level + 1, now))
+					return true;
+			}
+
+			if(ranges != null)
+			{
+				for(int i = 0, n = ranges.size(); i < n; i++)
+				{
+					Range range = ranges.get(i);
+					if(octet >= range.min && octet <= range.max && range.node.matches(address, level + 1, now))
+						return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Octets are stored shifted by -128, so signed bytes are sorted in the same order as octets
+		 */
+		private int indexOf(int octet)
+		{
+			return Arrays.binarySearch(octets, (byte) (octet - 128));
+		}
+	}
+
+	/**
+	 * Edge of the trie for octet range
+	 */
+	private static class Range
+	{
+		private final int	min;
+		private final int	max;
+		private final Node	node	= new Node();
+
+		private Range(int min, int max)
+		{
+			this.min = min;
+			this.max = max;
+		}
+	}
+}
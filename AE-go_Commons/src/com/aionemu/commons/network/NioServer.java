@@ -66,6 +66,10 @@ public class NioServer
 	 * 
 	 */
 	private int								readWriteThreads;
+	/**
+	 * If true read buffers of connections will be sized by observed traffic.
+	 */
+	private final boolean					adaptiveBuffers;
 	/**
 	 * 
 	 */
@@ -75,13 +79,17 @@ public class NioServer
 	 * Constructor.
 	 * 
 	 * @param readWriteThreads
-	 *            - number of threads that will be used for handling read and write.
+	 *            - number of threads that will be used for handling read and write. 0 means that accept thread will
+	 *            handle read and write too, negative value means one thread per available processor.
+	 * @param adaptiveBuffers
+	 *            - if true read buffers of connections will be sized by observed traffic, otherwise all buffers have
+	 *            {@link BufferPool#MAX_BUFFER_SIZE}.
 	 * @param dcPool
 	 *            - ThreadPool on witch Disconnection tasks will be executed.
 	 * @param cfgs
 	 *            - Server Configurations
 	 */
-	public NioServer(int readWriteThreads, DisconnectionThreadPool dcPool, ServerCfg... cfgs)
+	public NioServer(int readWriteThreads, boolean adaptiveBuffers, DisconnectionThreadPool dcPool, ServerCfg... cfgs)
 	{
 		/**
 		 * Test if this build should use assertion and enforce it. If NetworkAssertion == false javac will remove this
@@ -96,7 +104,8 @@ public class NioServer
 					"This is unstable build. Assertion must be enabled! Add -ea to your start script or consider using stable build instead.");
 		}
 		this.dcPool = dcPool;
-		this.readWriteThreads = readWriteThreads;
+		this.readWriteThreads = readWriteThreads < 0 ? Runtime.getRuntime().availableProcessors() : readWriteThreads;
+		this.adaptiveBuffers = adaptiveBuffers;
 		this.cfgs = cfgs;
 	}
 
@@ -133,7 +142,7 @@ public class NioServer
 				 * Register the server socket channel, indicating an interest in accepting new connections
 				 */
 				SelectionKey acceptKey = getAcceptDispatcher().register(serverChannel, SelectionKey.OP_ACCEPT,
-					new Acceptor(cfg.factory, this));
+					new Acceptor(cfg.factory, cfg.filter, this));
 				serverChannelKeys.add(acceptKey);
 			}
 		}
@@ -153,9 +162,12 @@ public class NioServer
 	}
 
 	/**
+	 * Returns ReadWrite Dispatcher with the least connections. If more Dispatchers have the same number of connections
+	 * they are used round robin.
+	 * 
 	 * @return one of ReadWrite Dispatcher or Accept Dispatcher if readWriteThreads was set to 0.
 	 */
-	public final Dispatcher getReadWriteDispatcher()
+	public final synchronized Dispatcher getReadWriteDispatcher()
 	{
 		if(readWriteDispatchers == null)
 			return acceptDispatcher;
@@ -163,9 +175,20 @@ public class NioServer
 		if(readWriteDispatchers.length == 1)
 			return readWriteDispatchers[0];
 
-		if(currentReadWriteDispatcher >= readWriteDispatchers.length)
-			currentReadWriteDispatcher = 0;
-		return readWriteDispatchers[currentReadWriteDispatcher++];
+		Dispatcher result = null;
+		int resultIndex = 0;
+		for(int i = 0; i < readWriteDispatchers.length; i++)
+		{
+			int index = (currentReadWriteDispatcher + i) % readWriteDispatchers.length;
+			Dispatcher d = readWriteDispatchers[index];
+			if(result == null || d.getConnectionCount() < result.getConnectionCount())
+			{
+				result = d;
+				resultIndex = index;
+			}
+		}
+		currentReadWriteDispatcher = resultIndex + 1;
+		return result;
 	}
 
 	/**
@@ -179,7 +202,8 @@ public class NioServer
 	{
 		if(readWriteThreads <= 0)
 		{
-			acceptDispatcher = new AcceptReadWriteDispatcherImpl("AcceptReadWrite Dispatcher", dcPool);
+			acceptDispatcher = new AcceptReadWriteDispatcherImpl("AcceptReadWrite Dispatcher", new BufferPool(adaptiveBuffers),
+				dcPool);
 			acceptDispatcher.start();
 		}
 		else
@@ -190,7 +214,8 @@ public class NioServer
 			readWriteDispatchers = new Dispatcher[readWriteThreads];
 			for(int i = 0; i < readWriteDispatchers.length; i++)
 			{
-				readWriteDispatchers[i] = new AcceptReadWriteDispatcherImpl("ReadWrite-" + i + " Dispatcher", dcPool);
+				readWriteDispatchers[i] = new AcceptReadWriteDispatcherImpl("ReadWrite-" + i + " Dispatcher",
+					new BufferPool(adaptiveBuffers), dcPool);
 				readWriteDispatchers[i].start();
 			}
 		}
@@ -214,6 +239,24 @@ public class NioServer
 		return count;
 	}
 
+	/**
+	 * @return human readable statistics of all Dispatchers.
+	 */
+	public final List<String> getStats()
+	{
+		List<String> list = new ArrayList<String>();
+		list.add("NioServer:");
+		list.add("=================================================");
+		list.add("\tactive connections: .. " + getActiveConnections());
+		list.addAll(acceptDispatcher.getStats());
+		if(readWriteDispatchers != null)
+		{
+			for(Dispatcher d : readWriteDispatchers)
+				list.addAll(d.getStats());
+		}
+		return list;
+	}
+
 	/**
 	 * Shutdown.
 	 */
@@ -0,0 +1,202 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.commons.network;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of client packet execution: how long packets waited in queue and how long they were running, per opcode.
+ */
+public final class PacketExecutionStats
+{
+	/**
+	 * Stats per opcode.
+	 */
+	private final ConcurrentMap<Integer, OpcodeStat>	opcodeStats	= new ConcurrentHashMap<Integer, OpcodeStat>();
+	/**
+	 * Totals for all opcodes.
+	 */
+	private final OpcodeStat							total		= new OpcodeStat(-1, "ALL");
+
+	/**
+	 * Register execution of one packet.
+	 * 
+	 * @param opcode
+	 * @param name
+	 * @param waitTime
+	 *            time in ns packet was waiting in queue.
+	 * @param runTime
+	 *            time in ns of packet execution.
+	 */
+	public void handleStats(int opcode, String name, long waitTime, long runTime)
+	{
+		Integer key = opcode;
+		OpcodeStat stat = opcodeStats.get(key);
+		if(stat == null)
+		{
+			stat = new OpcodeStat(opcode, name);
+			OpcodeStat old = opcodeStats.putIfAbsent(key, stat);
+			if(old != null)
+				stat = old;
+		}
+		stat.handleStats(waitTime, runTime);
+		total.handleStats(waitTime, runTime);
+	}
+
+	/**
+	 * @return totals for all opcodes.
+	 */
+	public OpcodeStat getTotal()
+	{
+		return total;
+	}
+
+	/**
+	 * @return stats for all opcodes sorted by total run time, biggest first.
+	 */
+	public List<OpcodeStat> getOpcodeStats()
+	{
+		List<OpcodeStat> list = new ArrayList<OpcodeStat>(opcodeStats.values());
+		Collections.sort(list, new Comparator<OpcodeStat>(){
+			@Override
+			public int compare(OpcodeStat o1, OpcodeStat o2)
+			{
+				long t1 = o1.getTotalRunTime();
+				long t2 = o2.getTotalRunTime();
+				return t1 < t2 ? 1 : (t1 == t2 ? 0 : -1);
+			}
+		});
+		return list;
+	}
+
+	/**
+	 * @param lines
+	 *            where stats will be added as human readable lines.
+	 */
+	public void appendStats(List<String> lines)
+	{
+		lines.add("\tpackets: count / avg wait / max wait / avg run / max run [us]");
+		lines.add("\t" + total);
+		for(OpcodeStat stat : getOpcodeStats())
+			lines.add("\t" + stat);
+	}
+
+	/**
+	 * Execution stats of one opcode.
+	 */
+	public static final class OpcodeStat
+	{
+		private final int			opcode;
+		private final String		name;
+
+		private final AtomicLong	count			= new AtomicLong();
+		private final AtomicLong	totalWaitTime	= new AtomicLong();
+		private final AtomicLong	maxWaitTime		= new AtomicLong();
+		private final AtomicLong	totalRunTime	= new AtomicLong();
+		private final AtomicLong	maxRunTime		= new AtomicLong();
+
+		private OpcodeStat(int opcode, String name)
+		{
+			this.opcode = opcode;
+			this.name = name;
+		}
+
+		private void handleStats(long waitTime, long runTime)
+		{
+			count.incrementAndGet();
+			totalWaitTime.addAndGet(waitTime);
+			totalRunTime.addAndGet(runTime);
+			updateMax(maxWaitTime, waitTime);
+			updateMax(maxRunTime, runTime);
+		}
+
+		private static void updateMax(AtomicLong max, long value)
+		{
+			for(;;)
+			{
+				long current = max.get();
+				if(value <= current || max.compareAndSet(current, value))
+					return;
+			}
+		}
+
+		public int getOpcode()
+		{
+			return opcode;
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+
+		public long getCount()
+		{
+			return count.get();
+		}
+
+		/**
+		 * @return total wait time in ns
+		 */
+		public long getTotalWaitTime()
+		{
+			return totalWaitTime.get();
+		}
+
+		/**
+		 * @return max wait time in ns
+		 */
+		public long getMaxWaitTime()
+		{
+			return maxWaitTime.get();
+		}
+
+		/**
+		 * @return total run time in ns
+		 */
+		public long getTotalRunTime()
+		{
+			return totalRunTime.get();
+		}
+
+		/**
+		 * @return max run time in ns
+		 */
+		public long getMaxRunTime()
+		{
+			return maxRunTime.get();
+		}
+
+		@Override
+		public String toString()
+		{
+			long c = Math.max(1, getCount());
+			String id = opcode < 0 ? name : String.format("0x%02X %s", opcode, name);
+			return id + ": " + getCount() + " / " + TimeUnit.NANOSECONDS.toMicros(getTotalWaitTime() / c) + " / "
+				+ TimeUnit.NANOSECONDS.toMicros(getMaxWaitTime()) + " / "
+				+ TimeUnit.NANOSECONDS.toMicros(getTotalRunTime() / c) + " / "
+				+ TimeUnit.NANOSECONDS.toMicros(getMaxRunTime());
+		}
+	}
+}
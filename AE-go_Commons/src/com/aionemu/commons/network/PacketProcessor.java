@@ -37,7 +37,7 @@ import com.aionemu.commons.network.packet.BaseClientPacket;
  *            AConnection - owner of client packets.
  * 
  */
-public class PacketProcessor<T extends AConnection>
+public class PacketProcessor<T extends AConnection> implements PacketExecutor<T>
 {
 	/**
 	 * Logger for PacketProcessor
@@ -155,6 +155,7 @@ public class PacketProcessor<T extends AConnection>
 	 * @param packet
 	 *            that will be executed.
 	 */
+	@Override
 	public final void executePacket(BaseClientPacket<T> packet)
 	{
 		lock.lock();
@@ -169,6 +170,20 @@ public class PacketProcessor<T extends AConnection>
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<String> getStats()
+	{
+		List<String> list = new ArrayList<String>();
+		list.add("PacketProcessor:");
+		list.add("=================================================");
+		list.add("\tthreads: ............. " + threads.size() + " [" + minThreads + " - " + maxThreads + "]");
+		list.add("\tpending packets: ..... " + packets.size());
+		return list;
+	}
+
 	/**
 	 * Return first packet available for execution with respecting rules: - 1 packet / client at one time. - execute
 	 * packets in received order.
@@ -0,0 +1,339 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.commons.network;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import com.aionemu.commons.network.packet.BaseClientPacket;
+
+/**
+ * Packet Processor responsible for executing packets in correct order with respecting rules: - 1 packet / client at one
+ * time. - execute packets in received order.<br>
+ * Unlike {@link PacketProcessor} every <code>AConnection</code> has its own lock-free packet queue and only connections
+ * that have packets to execute are put into ready queue, so taking next packet is O(1) no matter how many packets are
+ * waiting. Connection is owned by one working thread from the moment it enters the ready queue till its packet was
+ * executed, after that it is put back at the end of the ready queue if more packets are waiting.
+ * 
+ * @param <T>
+ *            AConnection - owner of client packets.
+ */
+public class QueuedPacketProcessor<T extends AConnection> implements PacketExecutor<T>
+{
+	/**
+	 * Logger for QueuedPacketProcessor
+	 */
+	private static final Logger				log					= Logger.getLogger(QueuedPacketProcessor.class);
+	/**
+	 * How often CheckerTask should do check [ms].
+	 */
+	private final static int				checkInterval		= 5 * 1000;
+	/**
+	 * Average wait time [ms] below witch one working thread should be killed.
+	 */
+	private final static long				reduceThreshold		= 1;
+	/**
+	 * Average wait time [ms] above witch one working thread should be created.
+	 */
+	private final static long				increaseThreshold	= 50;
+
+	/**
+	 * Connections that have packets waiting for execution.
+	 */
+	private final BlockingQueue<AConnection>	readyQueue			= new LinkedBlockingQueue<AConnection>();
+
+	/**
+	 * Number of packets waiting for execution.
+	 */
+	private final AtomicInteger				pendingPackets		= new AtomicInteger();
+
+	/**
+	 * Execution statistics.
+	 */
+	private final PacketExecutionStats		stats				= new PacketExecutionStats();
+
+	/**
+	 * Working threads.
+	 */
+	private final List<Thread>				threads				= new ArrayList<Thread>();
+
+	/**
+	 * Name used for working threads.
+	 */
+	private final String					name;
+
+	/**
+	 * minimum number of working Threads
+	 */
+	private final int						minThreads;
+
+	/**
+	 * maximum number of working Threads
+	 */
+	private final int						maxThreads;
+
+	/**
+	 * Create and start QueuedPacketProcessor responsible for executing packets.
+	 * 
+	 * @param name
+	 *            - name of working Threads.
+	 * @param minThreads
+	 *            - minimum number of working Threads.
+	 * @param maxThreads
+	 *            - maximum number of working Threads.
+	 */
+	public QueuedPacketProcessor(String name, int minThreads, int maxThreads)
+	{
+		if(minThreads <= 0)
+			minThreads = 1;
+		if(maxThreads < minThreads)
+			maxThreads = minThreads;
+
+		this.name = name;
+		this.minThreads = minThreads;
+		this.maxThreads = maxThreads;
+
+		for(int i = 0; i < minThreads; i++)
+			newThread();
+
+		if(minThreads != maxThreads)
+			startCheckerThread();
+	}
+
+	/**
+	 * Start Checker Thread. Checker is responsible for increasing / reducing working Thread count based on average
+	 * time packets are waiting for execution.
+	 */
+	private void startCheckerThread()
+	{
+		Thread t = new Thread(new CheckerTask(), name + ":Checker");
+		t.setDaemon(true);
+		t.start();
+	}
+
+	/**
+	 * Create and start new working Thread, but only if there wont be more working Threads than "maxThreads"
+	 * 
+	 * @return true if new Thread was created.
+	 */
+	private synchronized boolean newThread()
+	{
+		if(threads.size() >= maxThreads)
+			return false;
+
+		String threadName = name + ":" + threads.size();
+		log.debug("Creating new " + name + " Thread: " + threadName);
+
+		Thread t = new Thread(new ProcessorTask(), threadName);
+		threads.add(t);
+		t.start();
+
+		return true;
+	}
+
+	/**
+	 * Kill one working Thread, but only if there are more working Threads than "minThreads"
+	 */
+	private synchronized void killThread()
+	{
+		if(threads.size() > minThreads)
+		{
+			Thread t = threads.remove((threads.size() - 1));
+			log.debug("Killing " + name + " Thread: " + t.getName());
+			t.interrupt();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final void executePacket(BaseClientPacket<T> packet)
+	{
+		AConnection con = packet.getConnection();
+		pendingPackets.incrementAndGet();
+		if(con.getPacketQueue().offer(packet))
+			readyQueue.offer(con);
+	}
+
+	/**
+	 * @return number of packets waiting for execution.
+	 */
+	public final int getPendingPackets()
+	{
+		return pendingPackets.get();
+	}
+
+	/**
+	 * @return number of connections that have packets waiting for execution.
+	 */
+	public final int getReadyConnections()
+	{
+		return readyQueue.size();
+	}
+
+	/**
+	 * @return execution statistics.
+	 */
+	public final PacketExecutionStats getExecutionStats()
+	{
+		return stats;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<String> getStats()
+	{
+		List<String> list = new ArrayList<String>();
+		list.add(name + ":");
+		list.add("=================================================");
+		synchronized(this)
+		{
+			list.add("\tthreads: ............. " + threads.size() + " [" + minThreads + " - " + maxThreads + "]");
+		}
+		list.add("\tready connections: ... " + getReadyConnections());
+		list.add("\tpending packets: ..... " + getPendingPackets());
+		stats.appendStats(list);
+		return list;
+	}
+
+	/**
+	 * Execute one packet of given connection and make connection ready again if it has more packets.
+	 * 
+	 * @param con
+	 */
+	private void execute(AConnection con)
+	{
+		ConnectionPacketQueue queue = con.getPacketQueue();
+		ConnectionPacketQueue.Entry entry = queue.poll();
+		BaseClientPacket<?> packet = entry.packet;
+
+		long begin = System.nanoTime();
+		try
+		{
+			packet.run();
+		}
+		catch(Throwable t)
+		{
+			log.error("Error while executing packet " + packet, t);
+		}
+		finally
+		{
+			long end = System.nanoTime();
+			stats.handleStats(packet.getOpcode(), packet.getPacketName(), begin - entry.enqueueTime, end - begin);
+			pendingPackets.decrementAndGet();
+
+			if(queue.release())
+				readyQueue.offer(con);
+		}
+	}
+
+	/**
+	 * Task that takes connection from ready queue and executes its first packet.
+	 */
+	private final class ProcessorTask implements Runnable
+	{
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void run()
+		{
+			for(;;)
+			{
+				AConnection con;
+				try
+				{
+					con = readyQueue.take();
+				}
+				catch(InterruptedException e)
+				{
+					/* thread killed */
+					return;
+				}
+				execute(con);
+			}
+		}
+	}
+
+	/**
+	 * Checking average time packets were waiting for execution since last check and increasing / reducing numbers of
+	 * threads.
+	 */
+	private final class CheckerTask implements Runnable
+	{
+		/**
+		 * Executed packets count on last check.
+		 */
+		private long	lastCount		= 0;
+		/**
+		 * Total wait time on last check.
+		 */
+		private long	lastWaitTime	= 0;
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void run()
+		{
+			for(;;)
+			{
+				try
+				{
+					Thread.sleep(checkInterval);
+				}
+				catch(InterruptedException e)
+				{
+					return;
+				}
+
+				long count = stats.getTotal().getCount();
+				long waitTime = stats.getTotal().getTotalWaitTime();
+				long executed = count - lastCount;
+				long avgWait = executed == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis((waitTime - lastWaitTime)
+					/ executed);
+
+				lastCount = count;
+				lastWaitTime = waitTime;
+
+				if(avgWait > increaseThreshold)
+				{
+					// too low threads
+					if(!newThread() && avgWait >= increaseThreshold * 3)
+						log.info("Lagg detected! [client packets are waiting " + avgWait + " ms on average, "
+							+ getPendingPackets()
+							+ " are waiting for execution]. You should consider increasing " + name
+							+ " maxThreads or hardware upgrade.");
+				}
+				else if(avgWait < reduceThreshold && getPendingPackets() == 0)
+				{
+					// too much threads
+					killThread();
+				}
+			}
+		}
+	}
+}
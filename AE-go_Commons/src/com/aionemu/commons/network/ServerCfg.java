@@ -45,6 +45,12 @@ public class ServerCfg
 	 * @see com.aionemu.commons.network.AConnection
 	 */
 	public final ConnectionFactory	factory;
+	/**
+	 * <code>IPFilter</code> that decides if accepted socket will be kept, null - all sockets are kept.
+	 * 
+	 * @see com.aionemu.commons.network.Acceptor
+	 */
+	public final IPFilter			filter;
 
 	/**
 	 * Constructor
@@ -59,10 +65,30 @@ public class ServerCfg
 	 *            <code>ConnectionFactory</code> that will create <code>AConection</code> object
 	 */
 	public ServerCfg(String hostName, int port, String connectionName, ConnectionFactory factory)
+	{
+		this(hostName, port, connectionName, factory, null);
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param hostName
+	 *            - Host Name on witch we will listen for connections.
+	 * @param port
+	 *            - Port number on witch we will listen for connections.
+	 * @param connectionName
+	 *            - only for logging purposes.
+	 * @param factory
+	 *            <code>ConnectionFactory</code> that will create <code>AConection</code> object
+	 * @param filter
+	 *            <code>IPFilter</code> that decides if accepted socket will be kept, may be null
+	 */
+	public ServerCfg(String hostName, int port, String connectionName, ConnectionFactory factory, IPFilter filter)
 	{
 		this.hostName = hostName;
 		this.port = port;
 		this.connectionName = connectionName;
 		this.factory = factory;
+		this.filter = filter;
 	}
 }
@@ -17,9 +17,14 @@
 package com.aionemu.commons.scripting.impl;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
@@ -29,6 +34,8 @@ import com.aionemu.commons.scripting.ScriptCompiler;
 import com.aionemu.commons.scripting.ScriptContext;
 import com.aionemu.commons.scripting.classlistener.ClassListener;
 import com.aionemu.commons.scripting.classlistener.DefaultClassListener;
+import com.aionemu.commons.scripting.impl.javacompiler.CompiledClassCache;
+import com.aionemu.commons.scripting.impl.javacompiler.ScriptCompilerImpl;
 
 /**
  * This class is actual implementation of {@link com.aionemu.commons.scripting.ScriptContext}
@@ -62,6 +69,16 @@ public class ScriptContextImpl implements ScriptContext
 	 */
 	private CompilationResult	compilationResult;
 
+	/**
+	 * Result of compilation that was done by {@link #precompile(Collection)} and not yet used by {@link #init()}
+	 */
+	private CompilationResult	precompiledResult;
+
+	/**
+	 * Error of compilation that was done by {@link #precompile(Collection)}, rethrown by {@link #init()}
+	 */
+	private RuntimeException	precompileError;
+
 	/**
 	 * List of child script contexts
 	 */
@@ -133,6 +150,41 @@ public class ScriptContextImpl implements ScriptContext
 			return;
 		}
 
+		if(precompiledResult != null)
+		{
+			compilationResult = precompiledResult;
+			precompiledResult = null;
+		}
+		else if(precompileError != null)
+		{
+			RuntimeException e = precompileError;
+			precompileError = null;
+			throw e;
+		}
+		else
+		{
+			compilationResult = compile();
+		}
+
+		getClassListener().postLoad(compilationResult.getCompiledClasses());
+
+		if(childScriptContexts != null)
+		{
+			precompile(childScriptContexts);
+			for(ScriptContext context : childScriptContexts)
+			{
+				context.init();
+			}
+		}
+	}
+
+	/**
+	 * Compiles sources of this script context. Classes are not processed by class listener.
+	 * 
+	 * @return result of compilation
+	 */
+	protected CompilationResult compile()
+	{
 		ScriptCompiler scriptCompiler = instantiateCompiler();
 
 		@SuppressWarnings("unchecked")
@@ -143,18 +195,92 @@ public class ScriptContextImpl implements ScriptContext
 			scriptCompiler.setParentClassLoader(parentScriptContext.getCompilationResult().getClassLoader());
 		}
 
+		if(scriptCompiler instanceof ScriptCompilerImpl)
+		{
+			((ScriptCompilerImpl) scriptCompiler).setClassCache(CompiledClassCache.forContext(root));
+		}
+
 		scriptCompiler.setLibraires(libraries);
-		compilationResult = scriptCompiler.compile(files);
+		return scriptCompiler.compile(files);
+	}
 
-		getClassListener().postLoad(compilationResult.getCompiledClasses());
+	/**
+	 * Compiles not initialized contexts in parallel, one thread per context. Compiled classes are kept by context and
+	 * loaded on {@link #init()}, so class listeners are still called sequentially and in usual order.<br>
+	 * Contexts that are not instances of ScriptContextImpl are ignored.
+	 * 
+	 * @param contexts
+	 *            contexts to compile. Parents of them must be initialized.
+	 */
+	public static void precompile(Collection<? extends ScriptContext> contexts)
+	{
+		final List<ScriptContextImpl> list = new ArrayList<ScriptContextImpl>();
+		for(ScriptContext context : contexts)
+		{
+			if(context instanceof ScriptContextImpl && !context.isInitialized())
+			{
+				list.add((ScriptContextImpl) context);
+			}
+		}
 
-		if(childScriptContexts != null)
+		if(list.size() < 2)
 		{
-			for(ScriptContext context : childScriptContexts)
+			return;
+		}
+
+		int threads = Math.min(list.size(), Runtime.getRuntime().availableProcessors());
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try
+		{
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for(final ScriptContextImpl context : list)
 			{
-				context.init();
+				futures.add(executor.submit(new Runnable(){
+					@Override
+					public void run()
+					{
+						context.doPrecompile();
+					}
+				}));
+			}
+
+			for(Future<?> f : futures)
+			{
+				try
+				{
+					f.get();
+				}
+				catch(Exception e)
+				{
+					log.error("Error while waiting for compilation of script context", e);
+				}
 			}
 		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Compiles this context and keeps result till {@link #init()}
+	 */
+	private synchronized void doPrecompile()
+	{
+		if(compilationResult != null || precompiledResult != null)
+		{
+			return;
+		}
+
+		try
+		{
+			precompiledResult = compile();
+			precompileError = null;
+		}
+		catch(RuntimeException e)
+		{
+			precompileError = e;
+		}
 	}
 
 	/**
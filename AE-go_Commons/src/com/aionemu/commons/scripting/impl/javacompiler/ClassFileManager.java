@@ -18,6 +18,7 @@ package com.aionemu.commons.scripting.impl.javacompiler;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -170,6 +171,30 @@ public class ClassFileManager extends ForwardingJavaFileManager<JavaFileManager>
 		return compiledClasses;
 	}
 
+	/**
+	 * Adds class that was compiled earlier, so it can be loaded by classloader of this ClassFileManager
+	 * 
+	 * @param className
+	 *            name of the class
+	 * @param data
+	 *            bytecode of the class
+	 */
+	public void addCompiledClass(String className, byte[] data)
+	{
+		BinaryClass co = new BinaryClass(className);
+		try
+		{
+			OutputStream os = co.openOutputStream();
+			os.write(data);
+			os.close();
+		}
+		catch(IOException e)
+		{
+			throw new RuntimeException(e);
+		}
+		compiledClasses.put(className, co);
+	}
+
 	/**
 	 * This method overrides class resolving procedure for compiler. It uses classloaders to resolve classes that
 	 * compiler may need during compilation.
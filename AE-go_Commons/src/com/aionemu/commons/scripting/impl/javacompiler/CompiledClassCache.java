@@ -0,0 +1,333 @@
+/*
+ * This file is part of aion-emu <aion-emu.com>.
+ *
+ * aion-emu is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aion-emu is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with aion-emu.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.commons.scripting.impl.javacompiler;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * On-disk cache of classes compiled for one script context.<br>
+ * Cache file contains key and bytecode of all classes compiled from context. Key is SHA-1 hash of everything that
+ * affects compilation: content of source files, libraries, classes of parent context and application classpath. If
+ * key of current sources is equal to the cached one, classes are loaded from cache instead of compiling them.
+ * <p/>
+ * Cache directory is set by system property {@value #CACHE_DIR_PROPERTY}, default is {@value #DEFAULT_CACHE_DIR}.
+ * Empty value disables cache.
+ */
+public class CompiledClassCache
+{
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger	log					= Logger.getLogger(CompiledClassCache.class);
+
+	/**
+	 * System property with cache directory
+	 */
+	public static final String	CACHE_DIR_PROPERTY	= "aion.scripts.cache";
+
+	/**
+	 * Default cache directory
+	 */
+	public static final String	DEFAULT_CACHE_DIR	= "./cache/scripts";
+
+	/**
+	 * Name of zip entry with key
+	 */
+	private static final String	KEY_ENTRY			= "KEY";
+
+	/**
+	 * Cache file of context
+	 */
+	private final File			file;
+
+	/**
+	 * Creates cache for context with given root directory
+	 * 
+	 * @param file
+	 *            cache file
+	 */
+	private CompiledClassCache(File file)
+	{
+		this.file = file;
+	}
+
+	/**
+	 * Returns cache of script context.
+	 * 
+	 * @param root
+	 *            root directory of script context
+	 * @return cache or null if cache is disabled
+	 */
+	public static CompiledClassCache forContext(File root)
+	{
+		String dir = System.getProperty(CACHE_DIR_PROPERTY, DEFAULT_CACHE_DIR).trim();
+		if(dir.length() == 0)
+		{
+			return null;
+		}
+
+		String path;
+		try
+		{
+			path = root.getCanonicalPath();
+		}
+		catch(IOException e)
+		{
+			path = root.getAbsolutePath();
+		}
+		String name = root.getName() + "-" + toHex(digest(path.getBytes())).substring(0, 8) + ".zip";
+		return new CompiledClassCache(new File(dir, name));
+	}
+
+	/**
+	 * Computes key of compilation
+	 * 
+	 * @param sources
+	 *            source files
+	 * @param libraries
+	 *            libraries, may be null
+	 * @param parent
+	 *            parent class loader, may be null
+	 * @param options
+	 *            compiler options
+	 * @return key
+	 * @throws IOException
+	 *             if source file can't be read
+	 */
+	public String computeKey(Iterable<File> sources, Iterable<File> libraries, ClassLoader parent,
+		List<String> options) throws IOException
+	{
+		MessageDigest md = newDigest();
+		update(md, System.getProperty("java.version"));
+		update(md, options.toString());
+
+		Map<String, File> sorted = new TreeMap<String, File>();
+		for(File f : sources)
+		{
+			sorted.put(f.getCanonicalPath(), f);
+		}
+		for(Map.Entry<String, File> e : sorted.entrySet())
+		{
+			update(md, e.getKey());
+			md.update(FileUtils.readFileToByteArray(e.getValue()));
+		}
+
+		if(libraries != null)
+		{
+			for(File f : libraries)
+			{
+				updateFileInfo(md, f);
+			}
+		}
+
+		if(parent instanceof ScriptClassLoaderImpl)
+		{
+			ScriptClassLoaderImpl scl = (ScriptClassLoaderImpl) parent;
+			List<String> classes = new ArrayList<String>(scl.getCompiledClasses());
+			Collections.sort(classes);
+			for(String className : classes)
+			{
+				update(md, className);
+				md.update(scl.getByteCode(className));
+			}
+		}
+
+		// scripts are compiled against application classes, changes of them require recompilation
+		for(String entry : System.getProperty("java.class.path", "").split(File.pathSeparator))
+		{
+			if(entry.length() > 0)
+			{
+				updateFileInfo(md, new File(entry));
+			}
+		}
+
+		return toHex(md.digest());
+	}
+
+	/**
+	 * Loads classes from cache
+	 * 
+	 * @param key
+	 *            key of current sources
+	 * @return bytecode of classes by class name or null if cache doesn't exist or has different key
+	 */
+	public Map<String, byte[]> load(String key)
+	{
+		if(!file.isFile())
+		{
+			return null;
+		}
+
+		ZipInputStream zis = null;
+		try
+		{
+			zis = new ZipInputStream(new FileInputStream(file));
+			ZipEntry entry = zis.getNextEntry();
+			if(entry == null || !KEY_ENTRY.equals(entry.getName()) || !key.equals(new String(IOUtils.toByteArray(zis))))
+			{
+				return null;
+			}
+
+			Map<String, byte[]> classes = new HashMap<String, byte[]>();
+			while((entry = zis.getNextEntry()) != null)
+			{
+				classes.put(entry.getName(), IOUtils.toByteArray(zis));
+			}
+			return classes;
+		}
+		catch(IOException e)
+		{
+			log.warn("Can't read compiled class cache " + file.getPath(), e);
+			return null;
+		}
+		finally
+		{
+			IOUtils.closeQuietly(zis);
+		}
+	}
+
+	/**
+	 * Stores compiled classes, replacing previous content of cache
+	 * 
+	 * @param key
+	 *            key of sources
+	 * @param classes
+	 *            compiled classes
+	 */
+	public void store(String key, Map<String, BinaryClass> classes)
+	{
+		File dir = file.getParentFile();
+		if(!dir.isDirectory() && !dir.mkdirs())
+		{
+			log.warn("Can't create compiled class cache directory " + dir.getPath());
+			return;
+		}
+
+		File tmp = new File(dir, file.getName() + ".tmp");
+		ZipOutputStream zos = null;
+		try
+		{
+			zos = new ZipOutputStream(new FileOutputStream(tmp));
+			zos.putNextEntry(new ZipEntry(KEY_ENTRY));
+			zos.write(key.getBytes());
+			for(Map.Entry<String, BinaryClass> e : classes.entrySet())
+			{
+				zos.putNextEntry(new ZipEntry(e.getKey()));
+				zos.write(e.getValue().getBytes());
+			}
+			zos.close();
+			zos = null;
+
+			if((file.exists() && !file.delete()) || !tmp.renameTo(file))
+			{
+				log.warn("Can't replace compiled class cache " + file.getPath());
+				tmp.delete();
+			}
+		}
+		catch(IOException e)
+		{
+			log.warn("Can't write compiled class cache " + file.getPath(), e);
+			IOUtils.closeQuietly(zos);
+			tmp.delete();
+		}
+	}
+
+	/**
+	 * @return cache file
+	 */
+	public File getFile()
+	{
+		return file;
+	}
+
+	/**
+	 * Updates digest by path, size and modification time of file. Content of directories is included recursively.
+	 */
+	private static void updateFileInfo(MessageDigest md, File file)
+	{
+		update(md, file.getAbsolutePath());
+		if(file.isDirectory())
+		{
+			File[] files = file.listFiles();
+			if(files != null)
+			{
+				List<File> list = new ArrayList<File>();
+				Collections.addAll(list, files);
+				Collections.sort(list);
+				for(File f : list)
+				{
+					updateFileInfo(md, f);
+				}
+			}
+		}
+		else
+		{
+			update(md, file.length() + ":" + file.lastModified());
+		}
+	}
+
+	private static void update(MessageDigest md, String s)
+	{
+		md.update(s.getBytes());
+		md.update((byte) 0);
+	}
+
+	private static MessageDigest newDigest()
+	{
+		try
+		{
+			return MessageDigest.getInstance("SHA-1");
+		}
+		catch(NoSuchAlgorithmException e)
+		{
+			throw new Error("SHA-1 is not available", e);
+		}
+	}
+
+	private static byte[] digest(byte[] data)
+	{
+		return newDigest().digest(data);
+	}
+
+	private static String toHex(byte[] data)
+	{
+		StringBuilder sb = new StringBuilder(data.length * 2);
+		for(byte b : data)
+		{
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+}
@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import javax.tools.DiagnosticListener;
 import javax.tools.JavaCompiler;
@@ -44,7 +45,12 @@ public class ScriptCompilerImpl implements ScriptCompiler
 	/**
 	 * Logger for this class
 	 */
-	private static final Logger		log	= Logger.getLogger(ScriptCompilerImpl.class);
+	private static final Logger		log		= Logger.getLogger(ScriptCompilerImpl.class);
+
+	/**
+	 * Options that are passed to compiler
+	 */
+	private static final List<String>	OPTIONS	= Arrays.asList("-encoding", "UTF-8", "-g");
 
 	/**
 	 * Instance of JavaCompiler that will be used to compile classes
@@ -61,6 +67,11 @@ public class ScriptCompilerImpl implements ScriptCompiler
 	 */
 	protected ScriptClassLoader		parentClassLoader;
 
+	/**
+	 * Cache of compiled classes, null if classes are always compiled
+	 */
+	protected CompiledClassCache	classCache;
+
 	/**
 	 * Creates new instance of JavaCompilerImpl. If system compiler is not available - throws RuntimeExcetion
 	 * 
@@ -104,6 +115,18 @@ public class ScriptCompilerImpl implements ScriptCompiler
 		libraries = files;
 	}
 
+	/**
+	 * Sets cache that is used by {@link #compile(Iterable)}. If sources, libraries and parent classes were not changed
+	 * since last compilation - classes are loaded from cache.
+	 * 
+	 * @param classCache
+	 *            cache of compiled classes, null to disable cache
+	 */
+	public void setClassCache(CompiledClassCache classCache)
+	{
+		this.classCache = classCache;
+	}
+
 	/**
 	 * Compiles given class.
 	 * 
@@ -166,6 +189,26 @@ public class ScriptCompilerImpl implements ScriptCompiler
 	@Override
 	public CompilationResult compile(Iterable<File> compilationUnits)
 	{
+		String key = null;
+		if(classCache != null)
+		{
+			try
+			{
+				key = classCache.computeKey(compilationUnits, libraries, parentClassLoader, OPTIONS);
+				Map<String, byte[]> cached = classCache.load(key);
+				if(cached != null)
+				{
+					log.debug("Loaded " + cached.size() + " classes from " + classCache.getFile().getPath());
+					return loadCompiled(cached);
+				}
+			}
+			catch(IOException e)
+			{
+				log.warn("Can't compute key of compiled class cache", e);
+				key = null;
+			}
+		}
+
 		List<JavaFileObject> list = new ArrayList<JavaFileObject>();
 
 		for(File f : compilationUnits)
@@ -173,7 +216,13 @@ public class ScriptCompilerImpl implements ScriptCompiler
 			list.add(new JavaSourceFromFile(f, JavaFileObject.Kind.SOURCE));
 		}
 
-		return doCompilation(list);
+		CompilationResult result = doCompilation(list);
+		if(key != null)
+		{
+			ScriptClassLoaderImpl cl = (ScriptClassLoaderImpl) result.getClassLoader();
+			classCache.store(key, cl.getClassFileManager().getCompiledClasses());
+		}
+		return result;
 	}
 
 	/**
@@ -189,8 +238,54 @@ public class ScriptCompilerImpl implements ScriptCompiler
 	@SuppressWarnings("unchecked")
 	protected CompilationResult doCompilation(Iterable<JavaFileObject> compilationUnits)
 	{
-		List<String> options = Arrays.asList("-encoding", "UTF-8", "-g");
 		DiagnosticListener<JavaFileObject> listener = new ErrorListener();
+		ClassFileManager manager = createFileManager(listener);
+
+		JavaCompiler.CompilationTask task = javaCompiler.getTask(null, manager, listener, OPTIONS, null,
+			compilationUnits);
+
+		if(!task.call())
+		{
+			throw new RuntimeException("Error while compiling classes");
+		}
+
+		ScriptClassLoader cl = manager.getClassLoader(null);
+		Class[] compiledClasses = classNamesToClasses(manager.getCompiledClasses().keySet(), cl);
+		return new CompilationResult(compiledClasses, cl);
+	}
+
+	/**
+	 * Creates CompilationResult from previously compiled classes without invoking compiler
+	 * 
+	 * @param classes
+	 *            bytecode of classes by class name
+	 * @return CompilationResult with classes
+	 * @throws RuntimeException
+	 *             if classes can't be loaded
+	 */
+	@SuppressWarnings("unchecked")
+	protected CompilationResult loadCompiled(Map<String, byte[]> classes)
+	{
+		ClassFileManager manager = createFileManager(new ErrorListener());
+		for(Map.Entry<String, byte[]> e : classes.entrySet())
+		{
+			manager.addCompiledClass(e.getKey(), e.getValue());
+		}
+
+		ScriptClassLoader cl = manager.getClassLoader(null);
+		Class<?>[] compiledClasses = classNamesToClasses(manager.getCompiledClasses().keySet(), cl);
+		return new CompilationResult(compiledClasses, cl);
+	}
+
+	/**
+	 * Creates file manager with parent classloader and libraries of this compiler
+	 * 
+	 * @param listener
+	 *            listener of compilation errors
+	 * @return file manager
+	 */
+	protected ClassFileManager createFileManager(DiagnosticListener<JavaFileObject> listener)
+	{
 		ClassFileManager manager = new ClassFileManager(javaCompiler, listener);
 		manager.setParentClassLoader(parentClassLoader);
 
@@ -205,18 +300,7 @@ public class ScriptCompilerImpl implements ScriptCompiler
 				log.error("Can't set libraries for compiler.", e);
 			}
 		}
-
-		JavaCompiler.CompilationTask task = javaCompiler.getTask(null, manager, listener, options, null,
-			compilationUnits);
-
-		if(!task.call())
-		{
-			throw new RuntimeException("Error while compiling classes");
-		}
-
-		ScriptClassLoader cl = manager.getClassLoader(null);
-		Class[] compiledClasses = classNamesToClasses(manager.getCompiledClasses().keySet(), cl);
-		return new CompilationResult(compiledClasses, cl);
+		return manager;
 	}
 
 	/**
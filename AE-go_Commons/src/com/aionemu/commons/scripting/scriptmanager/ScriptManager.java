@@ -17,9 +17,11 @@
 package com.aionemu.commons.scripting.scriptmanager;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import javax.xml.bind.JAXBContext;
@@ -31,6 +33,7 @@ import com.aionemu.commons.callbacks.Enhancable;
 import com.aionemu.commons.scripting.ScriptContext;
 import com.aionemu.commons.scripting.ScriptContextFactory;
 import com.aionemu.commons.scripting.classlistener.ClassListener;
+import com.aionemu.commons.scripting.impl.ScriptContextImpl;
 import com.aionemu.commons.scripting.scriptmanager.listener.ContextCreationListener;
 import com.aionemu.commons.scripting.scriptmanager.listener.ContextReloadListener;
 import com.aionemu.commons.scripting.scriptmanager.listener.ReloadListener;
@@ -88,15 +91,23 @@ public class ScriptManager
 
 		ScriptList list = (ScriptList) u.unmarshal(scriptDescriptor);
 
+		List<ScriptContext> created = new ArrayList<ScriptContext>();
 		for(ScriptInfo si : list.getScriptInfos())
 		{
 			ScriptContext context = createContext(si, null);
 			if(context != null)
 			{
 				contexts.add(context);
-				context.init();
+				created.add(context);
 			}
 		}
+
+		// independent root contexts are compiled in parallel, classes are loaded in order of descriptor
+		ScriptContextImpl.precompile(created);
+		for(ScriptContext context : created)
+		{
+			context.init();
+		}
 	}
 
 	/**
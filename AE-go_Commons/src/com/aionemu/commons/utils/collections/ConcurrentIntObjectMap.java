@@ -0,0 +1,566 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.commons.utils.collections;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Concurrent hash map with primitive <tt>int</tt> keys, so object ids don't have to be boxed on every access.<br>
+ * <br>
+ * Map is divided into segments, each guarded by its own lock - writes to different segments don't block each other.
+ * Segment keeps int keys and values in arrays with open addressing index, reads are not locked at all. Segments are
+ * created when first key is written to them, so map with many segments but few entries stays small.<br>
+ * <br>
+ * Null values are not allowed. Iterators are weakly consistent - they never throw
+ * {@link java.util.ConcurrentModificationException} and may or may not reflect changes made during iteration.
+ * 
+ * 
+ * @param <V>
+ *            type of values
+ */
+public class ConcurrentIntObjectMap<V>
+{
+	/**
+	 * Maximal number of segments.
+	 */
+	private static final int					MAX_SEGMENTS		= 1 << 16;
+
+	/**
+	 * Maximal number of entries of one segment.
+	 */
+	private static final int					MAX_CAPACITY		= 1 << 29;
+
+	/**
+	 * Marker of removed value.
+	 */
+	private static final Object					REMOVED				= new Object();
+
+	/**
+	 * Segments, null until first write.
+	 */
+	private final AtomicReferenceArray<Segment>	segments;
+
+	/**
+	 * Segment is selected by low bits of hash, the rest selects slot in segment.
+	 */
+	private final int							segmentBits;
+	private final int							segmentMask;
+
+	/**
+	 * Initial capacity of new segment.
+	 */
+	private final int							segmentCapacity;
+
+	/**
+	 * Lazy created view of values.
+	 */
+	private Collection<V>						values;
+
+	/**
+	 * Creates map with initial capacity 16 and 16 segments.
+	 */
+	public ConcurrentIntObjectMap()
+	{
+		this(16, 16);
+	}
+
+	/**
+	 * Creates map.
+	 * 
+	 * @param initialCapacity
+	 *            expected number of entries
+	 * @param concurrencyLevel
+	 *            expected number of concurrently writing threads [number of segments]
+	 */
+	public ConcurrentIntObjectMap(int initialCapacity, int concurrencyLevel)
+	{
+		if(initialCapacity < 0 || concurrencyLevel <= 0)
+			throw new IllegalArgumentException();
+
+		int shift = 0;
+		int count = 1;
+		while(count < concurrencyLevel && count < MAX_SEGMENTS)
+		{
+			count <<= 1;
+			shift++;
+		}
+		segments = new AtomicReferenceArray<Segment>(count);
+		segmentBits = shift;
+		segmentMask = count - 1;
+
+		int capacity = 2;
+		while(capacity * count < initialCapacity && capacity < MAX_CAPACITY)
+			capacity <<= 1;
+		segmentCapacity = capacity;
+	}
+
+	/**
+	 * Object ids are mostly sequential, so they are used almost directly - consecutive ids go to consecutive segments
+	 * and then to consecutive slots without collisions.
+	 * 
+	 * @param key
+	 * @return hash of key
+	 */
+	private static int hash(int key)
+	{
+		return key ^ (key >>> 16);
+	}
+
+	/**
+	 * @param hash
+	 * @return segment for given hash or null if it wasn't created yet
+	 */
+	private Segment segmentFor(int hash)
+	{
+		return segments.get(hash & segmentMask);
+	}
+
+	/**
+	 * @param hash
+	 * @return segment for given hash, created if needed
+	 */
+	private Segment ensureSegmentFor(int hash)
+	{
+		int index = hash & segmentMask;
+		Segment segment = segments.get(index);
+		if(segment == null)
+		{
+			segment = new Segment(segmentCapacity, segmentBits);
+			if(!segments.compareAndSet(index, null, segment))
+				segment = segments.get(index);
+		}
+		return segment;
+	}
+
+	/**
+	 * Returns value mapped to given key.
+	 * 
+	 * @param key
+	 * @return value or null if there is no mapping for key
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int key)
+	{
+		int hash = hash(key);
+		Segment segment = segmentFor(hash);
+		return segment == null ? null : (V) segment.get(key, hash >>> segmentBits);
+	}
+
+	/**
+	 * Checks if map contains given key.
+	 * 
+	 * @param key
+	 * @return true if there is mapping for key
+	 */
+	public boolean containsKey(int key)
+	{
+		return get(key) != null;
+	}
+
+	/**
+	 * Maps key to value.
+	 * 
+	 * @param key
+	 * @param value
+	 * @return previous value or null if there was no mapping for key
+	 * @throws NullPointerException
+	 *             if value is null
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(int key, V value)
+	{
+		if(value == null)
+			throw new NullPointerException();
+		int hash = hash(key);
+		return (V) ensureSegmentFor(hash).put(key, hash >>> segmentBits, value, false);
+	}
+
+	/**
+	 * Maps key to value if there is no mapping for key yet.
+	 * 
+	 * @param key
+	 * @param value
+	 * @return current value or null if value was added
+	 * @throws NullPointerException
+	 *             if value is null
+	 */
+	@SuppressWarnings("unchecked")
+	public V putIfAbsent(int key, V value)
+	{
+		if(value == null)
+			throw new NullPointerException();
+		int hash = hash(key);
+		return (V) ensureSegmentFor(hash).put(key, hash >>> segmentBits, value, true);
+	}
+
+	/**
+	 * Removes mapping for given key.
+	 * 
+	 * @param key
+	 * @return removed value or null if there was no mapping for key
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(int key)
+	{
+		int hash = hash(key);
+		Segment segment = segmentFor(hash);
+		return segment == null ? null : (V) segment.remove(key, hash >>> segmentBits);
+	}
+
+	/**
+	 * Removes all mappings.
+	 */
+	public void clear()
+	{
+		for(int i = 0; i < segments.length(); i++)
+		{
+			Segment segment = segments.get(i);
+			if(segment != null)
+				segment.clear();
+		}
+	}
+
+	/**
+	 * Returns number of mappings. Not atomic if map is modified concurrently.
+	 * 
+	 * @return size of map
+	 */
+	public int size()
+	{
+		long size = 0;
+		for(int i = 0; i < segments.length(); i++)
+		{
+			Segment segment = segments.get(i);
+			if(segment != null)
+				size += segment.count;
+		}
+		return (int) Math.min(size, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @return true if map contains no mappings
+	 */
+	public boolean isEmpty()
+	{
+		for(int i = 0; i < segments.length(); i++)
+		{
+			Segment segment = segments.get(i);
+			if(segment != null && segment.count != 0)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns collection view of values. Removing from collection [or its iterator] removes mapping from map.
+	 * 
+	 * @return values of this map
+	 */
+	public Collection<V> values()
+	{
+		Collection<V> v = values;
+		if(v == null)
+		{
+			v = new AbstractCollection<V>(){
+				@Override
+				public Iterator<V> iterator()
+				{
+					return new ValueIterator();
+				}
+
+				@Override
+				public int size()
+				{
+					return ConcurrentIntObjectMap.this.size();
+				}
+
+				@Override
+				public boolean isEmpty()
+				{
+					return ConcurrentIntObjectMap.this.isEmpty();
+				}
+
+				@Override
+				public void clear()
+				{
+					ConcurrentIntObjectMap.this.clear();
+				}
+			};
+			values = v;
+		}
+		return v;
+	}
+
+	/**
+	 * Table of one segment. Entries are appended to keys/values arrays in insertion order, open addressing index maps
+	 * hash to entry position. Removed value is replaced by {@link #REMOVED} marker and its position is reused only by
+	 * the same key, so key of once published position never changes. Positions are reclaimed by rehash, which creates
+	 * new table.
+	 */
+	private static final class Table
+	{
+		/**
+		 * Entry position + 1, 0 for free slot. Twice longer than keys, so there are always free slots.
+		 */
+		private final int[]							index;
+		private final int[]							keys;
+		/**
+		 * Value is written after key [volatile], reader that has seen value sees its key too.
+		 */
+		private final AtomicReferenceArray<Object>	values;
+		/**
+		 * Number of used positions.
+		 */
+		private volatile int						size;
+
+		private Table(int capacity)
+		{
+			index = new int[capacity << 1];
+			keys = new int[capacity];
+			values = new AtomicReferenceArray<Object>(capacity);
+		}
+	}
+
+	/**
+	 * Part of map guarded by one lock.
+	 */
+	private static final class Segment
+	{
+		/**
+		 * Number of live entries.
+		 */
+		private volatile int	count;
+
+		private volatile Table	table;
+
+		/**
+		 * Number of hash bits used to select segment.
+		 */
+		private final int		segmentBits;
+
+		private Segment(int capacity, int segmentBits)
+		{
+			this.segmentBits = segmentBits;
+			this.table = new Table(capacity);
+		}
+
+		private Object get(int key, int hash)
+		{
+			Table t = table;
+			int mask = t.index.length - 1;
+			for(int i = hash & mask;; i = (i + 1) & mask)
+			{
+				int pos = t.index[i] - 1;
+				if(pos < 0)
+					return null;
+
+				Object value = t.values.get(pos);
+				if(value != null && t.keys[pos] == key)
+					return value == REMOVED ? null : value;
+			}
+		}
+
+		private synchronized Object put(int key, int hash, Object value, boolean onlyIfAbsent)
+		{
+			Table t = table;
+			if(t.size == t.keys.length)
+				t = rehash();
+
+			int mask = t.index.length - 1;
+			int i = hash & mask;
+			for(;; i = (i + 1) & mask)
+			{
+				int pos = t.index[i] - 1;
+				if(pos < 0)
+					break;
+				if(t.keys[pos] != key)
+					continue;
+
+				Object oldValue = t.values.get(pos);
+				if(oldValue == REMOVED)
+				{
+					t.values.set(pos, value);
+					count++;
+					return null;
+				}
+				if(!onlyIfAbsent)
+					t.values.set(pos, value);
+				return oldValue;
+			}
+
+			int pos = t.size;
+			t.keys[pos] = key;
+			t.values.set(pos, value);
+			t.index[i] = pos + 1;
+			t.size = pos + 1;
+			count++;
+			return null;
+		}
+
+		private synchronized Object remove(int key, int hash)
+		{
+			Table t = table;
+			int mask = t.index.length - 1;
+			for(int i = hash & mask;; i = (i + 1) & mask)
+			{
+				int pos = t.index[i] - 1;
+				if(pos < 0)
+					return null;
+				if(t.keys[pos] != key)
+					continue;
+
+				Object value = t.values.get(pos);
+				if(value == REMOVED)
+					return null;
+				t.values.set(pos, REMOVED);
+				count--;
+				return value;
+			}
+		}
+
+		private synchronized void clear()
+		{
+			if(table.size == 0)
+				return;
+
+			table = new Table(table.keys.length);
+			count = 0;
+		}
+
+		/**
+		 * Copy live entries into new table - twice bigger if more than half of entries is live, same size otherwise.
+		 * Old table is not changed, so its readers are not disturbed.
+		 * 
+		 * @return new table
+		 */
+		private Table rehash()
+		{
+			Table oldTable = table;
+			int capacity = oldTable.keys.length;
+			if(count > capacity / 2 && capacity < MAX_CAPACITY)
+				capacity <<= 1;
+
+			Table newTable = new Table(capacity);
+			int mask = newTable.index.length - 1;
+			int size = 0;
+			for(int pos = 0; pos < oldTable.size; pos++)
+			{
+				Object value = oldTable.values.get(pos);
+				if(value == REMOVED)
+					continue;
+
+				int key = oldTable.keys[pos];
+				int i = (hash(key) >>> segmentBits) & mask;
+				while(newTable.index[i] != 0)
+					i = (i + 1) & mask;
+				newTable.keys[size] = key;
+				newTable.values.lazySet(size, value);
+				newTable.index[i] = ++size;
+			}
+			newTable.size = size;
+			table = newTable;
+			return newTable;
+		}
+	}
+
+	/**
+	 * Weakly consistent iterator over values.
+	 */
+	private final class ValueIterator implements Iterator<V>
+	{
+		private int		segmentIndex	= 0;
+		private Table	currentTable;
+		private int		currentSize;
+		private int		pos;
+		private int		nextKey;
+		private Object	nextValue;
+		private int		lastKey;
+		private boolean	canRemove;
+
+		private ValueIterator()
+		{
+			advance();
+		}
+
+		/**
+		 * Find next live entry.
+		 */
+		private void advance()
+		{
+			for(;;)
+			{
+				while(pos < currentSize)
+				{
+					Object value = currentTable.values.get(pos);
+					if(value != REMOVED)
+					{
+						nextKey = currentTable.keys[pos++];
+						nextValue = value;
+						return;
+					}
+					pos++;
+				}
+				if(segmentIndex >= segments.length())
+				{
+					nextValue = null;
+					return;
+				}
+				Segment segment = segments.get(segmentIndex++);
+				if(segment != null && segment.count != 0)
+				{
+					currentTable = segment.table;
+					currentSize = currentTable.size;
+				}
+				else
+					currentSize = 0;
+				pos = 0;
+			}
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return nextValue != null;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public V next()
+		{
+			if(nextValue == null)
+				throw new NoSuchElementException();
+			V value = (V) nextValue;
+			lastKey = nextKey;
+			canRemove = true;
+			advance();
+			return value;
+		}
+
+		@Override
+		public void remove()
+		{
+			if(!canRemove)
+				throw new IllegalStateException();
+			ConcurrentIntObjectMap.this.remove(lastKey);
+			canRemove = false;
+		}
+	}
+}
@@ -0,0 +1,602 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.commons.utils.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Hashed hierarchical timer wheel. Time is divided into ticks of fixed length, level 0 has one bucket for each of next
+ * 256 ticks, every next level has 64 buckets each covering whole previous level. Tasks are kept in doubly linked lists
+ * of buckets, so scheduling and cancelling is O(1). When lower level wraps around, tasks from next bucket of higher
+ * level are redistributed [cascaded] to lower levels.<br>
+ * Timer thread only moves tasks between buckets, due tasks are executed by given executor. Periodic tasks are
+ * scheduled again after they finish [fixed rate, executions never overlap].<br>
+ * Task is never executed before its time, but it may be executed up to one tick later.
+ */
+public class TimerWheel
+{
+	private static final Logger	log					= Logger.getLogger(TimerWheel.class);
+
+	/**
+	 * Shift of bucket index of every level, level 0 has 256 buckets, others 64.
+	 */
+	private static final int[]	LEVEL_SHIFTS		= { 0, 8, 14, 20 };
+	private static final int[]	LEVEL_MASKS			= { 255, 63, 63, 63 };
+	private static final int	LEVELS				= LEVEL_SHIFTS.length;
+
+	/**
+	 * Tasks with longer delay wait in the highest level and are cascaded again.
+	 */
+	private static final long	MAX_TICKS			= 1L << 26;
+
+	/**
+	 * Upper bounds of lateness histogram buckets [ms], last bucket has no bound.
+	 */
+	private static final long[]	LATENESS_BOUNDS		= { 1, 5, 10, 25, 50, 100, 250, 1000 };
+
+	private static final int	WAITING				= 0;
+	private static final int	RUNNING				= 1;
+	private static final int	CANCELLED			= 2;
+	private static final int	DONE				= 3;
+
+	private final String		name;
+	private final long			tickNanos;
+	private final Executor		executor;
+	private final long			startTime			= nanoTime();
+
+	/**
+	 * Levels of buckets, guarded by this.
+	 */
+	private final Bucket[][]	levels				= new Bucket[LEVELS][];
+
+	/**
+	 * Next tick to process, guarded by this.
+	 */
+	private long				nextTick;
+
+	/**
+	 * Statistics, counters are guarded by this.
+	 */
+	private final AtomicLongArray	lateness		= new AtomicLongArray(LATENESS_BOUNDS.length + 1);
+	private long				scheduled;
+	private long				cascaded;
+
+	/**
+	 * Due tasks of processed ticks, used only by thread that calls {@link #advance()}.
+	 */
+	private final List<Timeout>	expired				= new ArrayList<Timeout>();
+
+	private final Thread		thread;
+	private volatile boolean	shutdown;
+
+	/**
+	 * @param name
+	 *            name of timer thread
+	 * @param tickMillis
+	 *            length of one tick
+	 * @param executor
+	 *            executor of due tasks, if null tasks are executed directly by timer thread
+	 */
+	public TimerWheel(String name, long tickMillis, Executor executor)
+	{
+		this.name = name;
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+		this.executor = executor;
+
+		for(int level = 0; level < LEVELS; level++)
+		{
+			levels[level] = new Bucket[LEVEL_MASKS[level] + 1];
+			for(int i = 0; i < levels[level].length; i++)
+				levels[level][i] = new Bucket();
+		}
+
+		thread = new Thread(new Runnable(){
+			@Override
+			public void run()
+			{
+				runTimer();
+			}
+		}, name);
+		thread.setDaemon(true);
+	}
+
+	/**
+	 * Start timer thread.
+	 */
+	public void start()
+	{
+		thread.start();
+	}
+
+	/**
+	 * Stop timer thread, tasks that are not due yet will never be executed.
+	 */
+	public void shutdown()
+	{
+		shutdown = true;
+		LockSupport.unpark(thread);
+	}
+
+	/**
+	 * Schedule one time task.
+	 * 
+	 * @param r
+	 * @param delay
+	 *            in ms
+	 * @return ScheduledFuture of the task
+	 */
+	public ScheduledFuture<?> schedule(Runnable r, long delay)
+	{
+		return schedule(r, delay, 0);
+	}
+
+	/**
+	 * Schedule periodic task, next execution is scheduled period after previous one was due.
+	 * 
+	 * @param r
+	 * @param delay
+	 *            in ms
+	 * @param period
+	 *            in ms
+	 * @return ScheduledFuture of the task
+	 */
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable r, long delay, long period)
+	{
+		return schedule(r, delay, Math.max(1, period));
+	}
+
+	private ScheduledFuture<?> schedule(Runnable r, long delay, long period)
+	{
+		Timeout timeout = new Timeout(r, nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delay)),
+			TimeUnit.MILLISECONDS.toNanos(period));
+		synchronized(this)
+		{
+			add(timeout);
+			scheduled++;
+		}
+		return timeout;
+	}
+
+	/**
+	 * Put task into bucket by its deadline. Should be called under lock.
+	 * 
+	 * @param timeout
+	 */
+	private void add(Timeout timeout)
+	{
+		/** round up - task must not be executed earlier */
+		long deadlineTick = (timeout.deadline - startTime + tickNanos - 1) / tickNanos;
+		long ticks = Math.min(Math.max(0, deadlineTick - nextTick), MAX_TICKS - 1);
+		long tick = nextTick + ticks;
+
+		int level = 0;
+		while(level < LEVELS - 1 && ticks >= 1L << LEVEL_SHIFTS[level + 1])
+			level++;
+
+		levels[level][(int) (tick >>> LEVEL_SHIFTS[level]) & LEVEL_MASKS[level]].add(timeout);
+	}
+
+	/**
+	 * Timer thread loop: process all ticks that passed, then sleep till the next one.
+	 */
+	private void runTimer()
+	{
+		while(!shutdown)
+		{
+			long currentTick = advance();
+
+			long sleep;
+			while(!shutdown && (sleep = startTime + (currentTick + 1) * tickNanos - nanoTime()) > 0)
+				LockSupport.parkNanos(sleep);
+		}
+	}
+
+	/**
+	 * Process all ticks that passed and execute [or pass to executor] their due tasks. Called by timer thread, or
+	 * directly by tests that don't start it.
+	 * 
+	 * @return current tick
+	 */
+	long advance()
+	{
+		long currentTick = (nanoTime() - startTime) / tickNanos;
+		synchronized(this)
+		{
+			while(nextTick <= currentTick)
+			{
+				processTick(expired);
+				nextTick++;
+			}
+		}
+
+		for(Timeout timeout : expired)
+		{
+			try
+			{
+				if(executor != null)
+					executor.execute(timeout);
+				else
+					timeout.run();
+			}
+			catch(Exception e)
+			{
+				log.error("Exception in " + name + " while executing task", e);
+			}
+		}
+		expired.clear();
+		return currentTick;
+	}
+
+	/**
+	 * Source of time of this wheel, overridden by tests to advance time manually.
+	 * 
+	 * @return current time in ns
+	 */
+	long nanoTime()
+	{
+		return System.nanoTime();
+	}
+
+	/**
+	 * Cascade higher levels if level 0 wrapped around and take all tasks of current bucket. Should be called under lock.
+	 * 
+	 * @param expired
+	 *            list to add due tasks to
+	 */
+	private void processTick(List<Timeout> expired)
+	{
+		int index = (int) nextTick & LEVEL_MASKS[0];
+		if(index == 0)
+		{
+			for(int level = 1; level < LEVELS; level++)
+			{
+				int levelIndex = (int) (nextTick >>> LEVEL_SHIFTS[level]) & LEVEL_MASKS[level];
+				Timeout timeout = levels[level][levelIndex].clear();
+				while(timeout != null)
+				{
+					Timeout next = timeout.next;
+					timeout.next = null;
+					add(timeout);
+					cascaded++;
+					timeout = next;
+				}
+				if(levelIndex != 0)
+					break;
+			}
+		}
+
+		Timeout timeout = levels[0][index].clear();
+		while(timeout != null)
+		{
+			Timeout next = timeout.next;
+			timeout.next = null;
+			expired.add(timeout);
+			timeout = next;
+		}
+	}
+
+	/**
+	 * @return human readable statistics: tasks and used buckets of every level and lateness histogram of executed tasks
+	 */
+	public List<String> getStats()
+	{
+		List<String> list = new ArrayList<String>();
+		list.add(name + ":");
+		list.add("=================================================");
+		list.add("\ttick [ms]: ........... " + TimeUnit.NANOSECONDS.toMillis(tickNanos));
+		synchronized(this)
+		{
+			list.add("\tscheduled: ........... " + scheduled);
+			list.add("\tcascaded: ............ " + cascaded);
+			for(int level = 0; level < LEVELS; level++)
+			{
+				int tasks = 0;
+				int used = 0;
+				for(Bucket bucket : levels[level])
+				{
+					tasks += bucket.size;
+					if(bucket.size > 0)
+						used++;
+				}
+				list.add("\tlevel " + level + " tasks/buckets: " + tasks + " in " + used + "/" + levels[level].length);
+			}
+		}
+		list.add("\tlateness [ms]:");
+		for(int i = 0; i < lateness.length(); i++)
+		{
+			String bound = i < LATENESS_BOUNDS.length ? "<= " + LATENESS_BOUNDS[i] : "> "
+				+ LATENESS_BOUNDS[LATENESS_BOUNDS.length - 1];
+			list.add("\t\t" + bound + ": " + lateness.get(i));
+		}
+		return list;
+	}
+
+	/**
+	 * @param nanos
+	 *            how late was task started
+	 */
+	private void recordLateness(long nanos)
+	{
+		long millis = TimeUnit.NANOSECONDS.toMillis(Math.max(0, nanos));
+		int i = 0;
+		while(i < LATENESS_BOUNDS.length && millis > LATENESS_BOUNDS[i])
+			i++;
+		lateness.incrementAndGet(i);
+	}
+
+	/**
+	 * Doubly linked list of tasks. Guarded by wheel lock.
+	 */
+	private static final class Bucket
+	{
+		private Timeout	head;
+		private int		size;
+
+		private void add(Timeout timeout)
+		{
+			timeout.bucket = this;
+			timeout.prev = null;
+			timeout.next = head;
+			if(head != null)
+				head.prev = timeout;
+			head = timeout;
+			size++;
+		}
+
+		private void remove(Timeout timeout)
+		{
+			if(timeout.prev != null)
+				timeout.prev.next = timeout.next;
+			else
+				head = timeout.next;
+			if(timeout.next != null)
+				timeout.next.prev = timeout.prev;
+			timeout.bucket = null;
+			timeout.prev = null;
+			timeout.next = null;
+			size--;
+		}
+
+		/**
+		 * Detach all tasks.
+		 * 
+		 * @return first task, others are linked by next
+		 */
+		private Timeout clear()
+		{
+			Timeout first = head;
+			for(Timeout timeout = head; timeout != null; timeout = timeout.next)
+			{
+				timeout.bucket = null;
+				timeout.prev = null;
+			}
+			head = null;
+			size = 0;
+			return first;
+		}
+	}
+
+	/**
+	 * Scheduled task. Links and state are guarded by wheel lock.
+	 */
+	private final class Timeout implements ScheduledFuture<Object>, Runnable
+	{
+		private final Runnable	task;
+		private final long		period;
+		private volatile long	deadline;
+		private volatile int	state	= WAITING;
+
+		/**
+		 * Exception thrown by one time task, guarded by this.
+		 */
+		private Throwable		failure;
+
+		private Bucket			bucket;
+		private Timeout			prev;
+		private Timeout			next;
+
+		private Timeout(Runnable task, long deadline, long period)
+		{
+			this.task = task;
+			this.deadline = deadline;
+			this.period = period;
+		}
+
+		/**
+		 * Executes task and schedules it again if it's periodic.
+		 */
+		@Override
+		public void run()
+		{
+			synchronized(TimerWheel.this)
+			{
+				if(state != WAITING)
+					return;
+				if(period == 0)
+					state = RUNNING;
+			}
+
+			recordLateness(nanoTime() - deadline);
+			if(period == 0)
+			{
+				try
+				{
+					task.run();
+				}
+				catch(RuntimeException e)
+				{
+					complete(e);
+					throw e;
+				}
+				catch(Error e)
+				{
+					complete(e);
+					throw e;
+				}
+				complete(null);
+				return;
+			}
+
+			try
+			{
+				task.run();
+			}
+			finally
+			{
+				synchronized(TimerWheel.this)
+				{
+					if(state == WAITING)
+					{
+						deadline += period;
+						add(this);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Mark one time task done and wake up waiters of {@link #get()}.
+		 * 
+		 * @param failure
+		 *            exception thrown by task or null
+		 */
+		private synchronized void complete(Throwable failure)
+		{
+			this.failure = failure;
+			state = DONE;
+			notifyAll();
+		}
+
+		/**
+		 * Remove task from wheel. Running execution is never interrupted.
+		 * 
+		 * @see java.util.concurrent.Future#cancel(boolean)
+		 */
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning)
+		{
+			synchronized(TimerWheel.this)
+			{
+				if(state != WAITING)
+					return false;
+				state = CANCELLED;
+				if(bucket != null)
+					bucket.remove(this);
+			}
+
+			synchronized(this)
+			{
+				notifyAll();
+			}
+			return true;
+		}
+
+		@Override
+		public boolean isCancelled()
+		{
+			return state == CANCELLED;
+		}
+
+		@Override
+		public boolean isDone()
+		{
+			return state >= CANCELLED;
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit)
+		{
+			return unit.convert(deadline - nanoTime(), TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed o)
+		{
+			long diff = getDelay(TimeUnit.NANOSECONDS) - o.getDelay(TimeUnit.NANOSECONDS);
+			return diff < 0 ? -1 : diff > 0 ? 1 : 0;
+		}
+
+		/**
+		 * Waits until one time task is executed or cancelled. Periodic task is done only when it's cancelled.
+		 * 
+		 * @return null
+		 * @throws CancellationException
+		 *             if task was cancelled
+		 * @throws ExecutionException
+		 *             if task threw exception
+		 * @see java.util.concurrent.Future#get()
+		 */
+		@Override
+		public synchronized Object get() throws InterruptedException, ExecutionException
+		{
+			while(!isDone())
+				wait();
+			return result();
+		}
+
+		/**
+		 * Waits until one time task is executed or cancelled, at most given time.
+		 * 
+		 * @return null
+		 * @throws CancellationException
+		 *             if task was cancelled
+		 * @throws ExecutionException
+		 *             if task threw exception
+		 * @throws TimeoutException
+		 *             if task is not done in given time
+		 * @see java.util.concurrent.Future#get(long, java.util.concurrent.TimeUnit)
+		 */
+		@Override
+		public synchronized Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException,
+			TimeoutException
+		{
+			long end = System.nanoTime() + unit.toNanos(timeout);
+			while(!isDone())
+			{
+				long nanos = end - System.nanoTime();
+				if(nanos <= 0)
+					throw new TimeoutException();
+				TimeUnit.NANOSECONDS.timedWait(this, nanos);
+			}
+			return result();
+		}
+
+		/**
+		 * Should be called under lock of this, when task is done.
+		 */
+		private Object result() throws ExecutionException
+		{
+			if(state == CANCELLED)
+				throw new CancellationException();
+			if(failure != null)
+				throw new ExecutionException(failure);
+			return null;
+		}
+	}
+}
@@ -0,0 +1,306 @@
+/*
+ * This file is part of aion-emu <aion-emu.com>.
+ *
+ * aion-emu is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * aion-emu is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with aion-emu.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.commons.log4j.appenders;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.Test;
+
+/**
+ * Dispatcher is stopped inside attached appender, so buffer can be filled and overflow policies checked.
+ */
+public class RingBufferAsyncAppenderTest
+{
+	private static final int	BUFFER_SIZE	= 4;
+
+	@Test
+	public void testBlock() throws Exception
+	{
+		GateAppender target = new GateAppender();
+		RingBufferAsyncAppender appender = fill("BLOCK", target);
+
+		Thread blocked = appendLater(appender, Level.DEBUG, "blocked");
+		waitUntilWaiting(blocked);
+		Assert.assertEquals(BUFFER_SIZE, appender.getQueueDepth());
+		Assert.assertEquals(BUFFER_SIZE + 1, appender.getAppendedCount());
+		Assert.assertEquals(0, appender.getDroppedCount());
+
+		target.gate.countDown();
+		blocked.join(5000);
+		appender.close();
+
+		Assert.assertEquals(BUFFER_SIZE + 2, appender.getAppendedCount());
+		Assert.assertEquals(0, appender.getDroppedCount());
+		Assert.assertEquals(messages(BUFFER_SIZE + 1, "blocked"), target.getMessages());
+	}
+
+	@Test
+	public void testDropDebug() throws Exception
+	{
+		GateAppender target = new GateAppender();
+		RingBufferAsyncAppender appender = fill("DROP_DEBUG", target);
+
+		appender.doAppend(event(Level.DEBUG, "dropped"));
+		Assert.assertEquals(BUFFER_SIZE + 1, appender.getAppendedCount());
+		Assert.assertEquals(1, appender.getDroppedCount());
+
+		Thread blocked = appendLater(appender, Level.INFO, "kept");
+		waitUntilWaiting(blocked);
+		Assert.assertEquals(BUFFER_SIZE + 1, appender.getAppendedCount());
+
+		target.gate.countDown();
+		blocked.join(5000);
+		appender.close();
+
+		Assert.assertEquals(BUFFER_SIZE + 2, appender.getAppendedCount());
+		Assert.assertEquals(1, appender.getDroppedCount());
+		Assert.assertEquals(messages(BUFFER_SIZE + 1, "kept"), target.getMessages());
+		Assert.assertEquals("1 log events dropped by async appender DROP_DEBUG", target.getWarnings().get(0));
+	}
+
+	@Test
+	public void testWaitingThreadDoesNotBlockOthers() throws Exception
+	{
+		GateAppender target = new GateAppender();
+		RingBufferAsyncAppender appender = fill("DROP_DEBUG", target);
+
+		Thread blocked = appendLater(appender, Level.INFO, "kept");
+		waitUntilWaiting(blocked);
+
+		/* would wait for blocked thread if appender lock was held */
+		Thread dropping = appendLater(appender, Level.DEBUG, "dropped");
+		dropping.join(5000);
+		Assert.assertFalse(dropping.isAlive());
+		Assert.assertEquals(1, appender.getDroppedCount());
+
+		target.gate.countDown();
+		blocked.join(5000);
+		appender.close();
+
+		Assert.assertEquals(messages(BUFFER_SIZE + 1, "kept"), target.getMessages());
+	}
+
+	@Test
+	public void testThreshold() throws Exception
+	{
+		GateAppender target = new GateAppender();
+		RingBufferAsyncAppender appender = new RingBufferAsyncAppender();
+		appender.setName("THRESHOLD");
+		appender.setThreshold(Level.INFO);
+		appender.addAppender(target);
+		appender.activateOptions();
+
+		appender.doAppend(event(Level.DEBUG, "ignored"));
+		appender.doAppend(event(Level.INFO, "0"));
+		target.gate.countDown();
+		appender.close();
+
+		Assert.assertEquals(1, appender.getAppendedCount());
+		Assert.assertEquals(messages(1), target.getMessages());
+	}
+
+	@Test
+	public void testSample() throws Exception
+	{
+		GateAppender target = new GateAppender();
+		RingBufferAsyncAppender appender = new RingBufferAsyncAppender();
+		appender.setSampleRate(3);
+		fill(appender, "SAMPLE", target);
+
+		appender.doAppend(event(Level.DEBUG, "dropped1"));
+		appender.doAppend(event(Level.WARN, "dropped2"));
+		Assert.assertEquals(BUFFER_SIZE + 1, appender.getAppendedCount());
+		Assert.assertEquals(2, appender.getDroppedCount());
+
+		/* every third event waits for space */
+		Thread sampled = appendLater(appender, Level.DEBUG, "sampled");
+		waitUntilWaiting(sampled);
+		Assert.assertEquals(BUFFER_SIZE + 1, appender.getAppendedCount());
+
+		target.gate.countDown();
+		sampled.join(5000);
+
+		/* errors are never dropped */
+		appender.doAppend(event(Level.ERROR, "error"));
+		appender.close();
+
+		Assert.assertEquals(BUFFER_SIZE + 3, appender.getAppendedCount());
+		Assert.assertEquals(2, appender.getDroppedCount());
+		Assert.assertEquals(messages(BUFFER_SIZE + 1, "sampled", "error"), target.getMessages());
+		Assert.assertEquals("2 log events dropped by async appender SAMPLE", target.getWarnings().get(0));
+	}
+
+	@Test
+	public void testCloseDrainsBuffer() throws Exception
+	{
+		GateAppender target = new GateAppender();
+		RingBufferAsyncAppender appender = new RingBufferAsyncAppender();
+		appender.setName("CLOSE");
+		appender.setBufferSize(64);
+		appender.setBatchSize(8);
+		appender.addAppender(target);
+		appender.activateOptions();
+
+		appender.doAppend(event(Level.INFO, "0"));
+		Assert.assertTrue(target.entered.await(5, TimeUnit.SECONDS));
+		for(int i = 1; i <= 50; i++)
+			appender.doAppend(event(Level.INFO, String.valueOf(i)));
+		Assert.assertEquals(50, appender.getQueueDepth());
+
+		target.gate.countDown();
+		appender.close();
+
+		Assert.assertEquals(0, appender.getQueueDepth());
+		Assert.assertEquals(messages(51), target.getMessages());
+		Assert.assertTrue(target.closed);
+	}
+
+	/**
+	 * Creates appender, whose dispatcher waits in attached appender and whose buffer is full
+	 */
+	private RingBufferAsyncAppender fill(String policy, GateAppender target) throws Exception
+	{
+		RingBufferAsyncAppender appender = new RingBufferAsyncAppender();
+		fill(appender, policy, target);
+		return appender;
+	}
+
+	private void fill(RingBufferAsyncAppender appender, String policy, GateAppender target) throws Exception
+	{
+		appender.setName(policy);
+		appender.setBufferSize(BUFFER_SIZE);
+		appender.setBatchSize(1);
+		appender.setOverflowPolicy(policy);
+		appender.addAppender(target);
+		appender.activateOptions();
+
+		appender.doAppend(event(Level.INFO, "0"));
+		Assert.assertTrue(target.entered.await(5, TimeUnit.SECONDS));
+		for(int i = 1; i <= BUFFER_SIZE; i++)
+			appender.doAppend(event(Level.INFO, String.valueOf(i)));
+		Assert.assertEquals(BUFFER_SIZE, appender.getQueueDepth());
+		Assert.assertEquals(BUFFER_SIZE + 1, appender.getAppendedCount());
+	}
+
+	private static LoggingEvent event(Level level, String message)
+	{
+		return new LoggingEvent(Logger.class.getName(), Logger.getLogger(RingBufferAsyncAppenderTest.class), level,
+			message, null);
+	}
+
+	/**
+	 * @return messages "0" to count-1 followed by others
+	 */
+	private static List<String> messages(int count, String... others)
+	{
+		List<String> list = new ArrayList<String>();
+		for(int i = 0; i < count; i++)
+			list.add(String.valueOf(i));
+		Collections.addAll(list, others);
+		return list;
+	}
+
+	private static Thread appendLater(final RingBufferAsyncAppender appender, final Level level, final String message)
+	{
+		Thread thread = new Thread(){
+			@Override
+			public void run()
+			{
+				appender.doAppend(event(level, message));
+			}
+		};
+		thread.start();
+		return thread;
+	}
+
+	private static void waitUntilWaiting(Thread thread) throws InterruptedException
+	{
+		long end = System.currentTimeMillis() + 5000;
+		while(thread.getState() != Thread.State.WAITING && System.currentTimeMillis() < end)
+			Thread.sleep(1);
+		Assert.assertEquals(Thread.State.WAITING, thread.getState());
+	}
+
+	/**
+	 * Records events, first event waits until gate is opened
+	 */
+	private static class GateAppender extends AppenderSkeleton
+	{
+		private final CountDownLatch	entered		= new CountDownLatch(1);
+		private final CountDownLatch	gate		= new CountDownLatch(1);
+		private final List<String>		messages	= new ArrayList<String>();
+		private final List<String>		warnings	= new ArrayList<String>();
+		private volatile boolean		closed;
+
+		@Override
+		protected void append(LoggingEvent event)
+		{
+			synchronized(this)
+			{
+				if(event.getLevel() == Level.WARN && event.getRenderedMessage().contains("dropped by"))
+					warnings.add(event.getRenderedMessage());
+				else
+					messages.add(event.getRenderedMessage());
+			}
+			entered.countDown();
+			while(true)
+			{
+				try
+				{
+					gate.await();
+					return;
+				}
+				catch(InterruptedException e)
+				{
+					/* close() interrupts dispatcher */
+				}
+			}
+		}
+
+		private synchronized List<String> getMessages()
+		{
+			return new ArrayList<String>(messages);
+		}
+
+		private synchronized List<String> getWarnings()
+		{
+			return new ArrayList<String>(warnings);
+		}
+
+		@Override
+		public void close()
+		{
+			closed = true;
+		}
+
+		@Override
+		public boolean requiresLayout()
+		{
+			return false;
+		}
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.commons.network;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.aionemu.commons.utils.NetworkUtils;
+
+public class IPMaskTrieTest
+{
+	@Test
+	public void testSameAsNetworkUtils()
+	{
+		String[] masks = { "*", "*.*.*.*", "10.2.88.12-13", "10.2.88.13-125", "192.168.*.1", "172.16", "1.2.3.4" };
+		String[] addresses = { "10.2.88.12", "10.2.88.14", "10.2.88.126", "192.168.5.1", "192.168.5.2", "172.16.0.1",
+			"172.17.0.1", "1.2.3.4", "1.2.3.5", "200.2.3.4" };
+		for(String mask : masks)
+		{
+			IPMaskTrie trie = new IPMaskTrie();
+			Assert.assertTrue(trie.add(mask, IPMaskTrie.NEVER_EXPIRES));
+			for(String address : addresses)
+				Assert.assertEquals(mask + " " + address, NetworkUtils.checkIPMatching(mask, address), trie
+					.matches(address));
+		}
+	}
+
+	@Test
+	public void testManyMasks()
+	{
+		IPMaskTrie trie = new IPMaskTrie();
+		trie.add("10.0.0.1-3", IPMaskTrie.NEVER_EXPIRES);
+		trie.add("10.0.*.7", IPMaskTrie.NEVER_EXPIRES);
+		trie.add("10.0.1.*", IPMaskTrie.NEVER_EXPIRES);
+		Assert.assertTrue(trie.matches("10.0.0.2"));
+		Assert.assertTrue(trie.matches("10.0.5.7"));
+		Assert.assertTrue(trie.matches("10.0.1.200"));
+		Assert.assertFalse(trie.matches("10.0.0.4"));
+		Assert.assertFalse(trie.matches("10.0.2.8"));
+		Assert.assertTrue(trie.matches(new byte[] { 10, 0, 1, (byte) 255 }));
+	}
+
+	@Test
+	public void testExpiredAndInvalid()
+	{
+		IPMaskTrie trie = new IPMaskTrie();
+		trie.add("1.1.1.1", 1000);
+		Assert.assertTrue(trie.matches((int) IPMaskTrie.toInt("1.1.1.1"), 999));
+		Assert.assertFalse(trie.matches((int) IPMaskTrie.toInt("1.1.1.1"), 1000));
+		Assert.assertFalse(trie.add("1.1.1.256", IPMaskTrie.NEVER_EXPIRES));
+		Assert.assertFalse(trie.add("1.1.x.1", IPMaskTrie.NEVER_EXPIRES));
+		Assert.assertEquals(-1, IPMaskTrie.toInt("1.1.1"));
+		Assert.assertEquals(-1, IPMaskTrie.toInt("::1"));
+		Assert.assertFalse(trie.matches(new byte[16]));
+	}
+}
@@ -0,0 +1,179 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.commons.utils.collections;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import javolution.util.FastMap;
+
+/**
+ * Compares {@link ConcurrentIntObjectMap} with FastMap.shared() and ConcurrentHashMap under read/write mix of world
+ * object registries [mostly lookups, spawn/despawn and known list changes as writes].<br>
+ * Run as standalone application: java com.aionemu.commons.utils.collections.ConcurrentIntObjectMapBenchmark
+ */
+public class ConcurrentIntObjectMapBenchmark
+{
+	private static final int	KEYS		= 10000;
+	private static final int	OPERATIONS	= 2000000;
+	/** percentage of lookups, rest is split between put and remove */
+	private static final int	READS		= 80;
+	private static final int	ROUNDS		= 5;
+	private static final int	SCRIPT		= 1 << 16;
+
+	public static void main(String[] args) throws Exception
+	{
+		int maxThreads = Runtime.getRuntime().availableProcessors();
+		System.out.println("keys: " + KEYS + ", reads: " + READS + "%, operations/thread: " + OPERATIONS);
+		System.out.println("threads\tFastMap.shared\tConcurrentHashMap\tConcurrentIntObjectMap [ops/ms]");
+		for(int threads = 1; threads <= maxThreads; threads <<= 1)
+		{
+			long fastMap = 0, chm = 0, intMap = 0;
+			for(int round = 0; round < ROUNDS; round++)
+			{
+				fastMap = Math.max(fastMap, run(new BoxedMap(new FastMap<Integer, Object>().shared()), threads));
+				chm = Math.max(chm, run(new BoxedMap(new ConcurrentHashMap<Integer, Object>()), threads));
+				intMap = Math.max(intMap, run(new IntMap(), threads));
+			}
+			System.out.println(threads + "\t" + fastMap + "\t\t" + chm + "\t\t\t" + intMap);
+		}
+	}
+
+	/**
+	 * @return best throughput in ops/ms
+	 */
+	private static long run(final TestedMap map, int threads) throws InterruptedException
+	{
+		for(int i = 0; i < KEYS; i += 2)
+			map.put(i, Boolean.TRUE);
+
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(threads);
+		for(int t = 0; t < threads; t++)
+		{
+			/** operations are generated in advance - random generator would be measured too */
+			Random rnd = new Random(t);
+			final int[] keys = new int[SCRIPT];
+			final int[] ops = new int[SCRIPT];
+			for(int i = 0; i < SCRIPT; i++)
+			{
+				keys[i] = rnd.nextInt(KEYS);
+				ops[i] = rnd.nextInt(100);
+			}
+			new Thread(){
+				@Override
+				public void run()
+				{
+					try
+					{
+						start.await();
+					}
+					catch(InterruptedException e)
+					{
+						return;
+					}
+					int found = 0;
+					for(int i = 0; i < OPERATIONS; i++)
+					{
+						int key = keys[i & (SCRIPT - 1)];
+						int op = ops[i & (SCRIPT - 1)];
+						if(op < READS)
+						{
+							if(map.get(key) != null)
+								found++;
+						}
+						else if((op & 1) == 0)
+							map.put(key, Boolean.TRUE);
+						else
+							map.remove(key);
+					}
+					if(found < 0)
+						System.out.println(found);
+					done.countDown();
+				}
+			}.start();
+		}
+
+		long begin = System.nanoTime();
+		start.countDown();
+		done.await();
+		long millis = Math.max(1, (System.nanoTime() - begin) / 1000000);
+		return (long) OPERATIONS * threads / millis;
+	}
+
+	private interface TestedMap
+	{
+		Object get(int key);
+
+		void put(int key, Object value);
+
+		void remove(int key);
+	}
+
+	private static class BoxedMap implements TestedMap
+	{
+		private final Map<Integer, Object>	map;
+
+		private BoxedMap(Map<Integer, Object> map)
+		{
+			this.map = map;
+		}
+
+		@Override
+		public Object get(int key)
+		{
+			return map.get(key);
+		}
+
+		@Override
+		public void put(int key, Object value)
+		{
+			map.put(key, value);
+		}
+
+		@Override
+		public void remove(int key)
+		{
+			map.remove(key);
+		}
+	}
+
+	private static class IntMap implements TestedMap
+	{
+		private final ConcurrentIntObjectMap<Object>	map	= new ConcurrentIntObjectMap<Object>();
+
+		@Override
+		public Object get(int key)
+		{
+			return map.get(key);
+		}
+
+		@Override
+		public void put(int key, Object value)
+		{
+			map.put(key, value);
+		}
+
+		@Override
+		public void remove(int key)
+		{
+			map.remove(key);
+		}
+	}
+}
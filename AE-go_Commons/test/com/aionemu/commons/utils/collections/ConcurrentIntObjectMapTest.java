@@ -0,0 +1,153 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.commons.utils.collections;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class ConcurrentIntObjectMapTest
+{
+	@Test
+	public void testPutGetRemove()
+	{
+		ConcurrentIntObjectMap<String> map = new ConcurrentIntObjectMap<String>(1, 4);
+		for(int i = -500; i < 5000; i++)
+			Assert.assertNull(map.put(i, "v" + i));
+		Assert.assertEquals(5500, map.size());
+
+		Assert.assertEquals("v42", map.put(42, "x"));
+		Assert.assertEquals("x", map.putIfAbsent(42, "y"));
+		Assert.assertEquals("x", map.get(42));
+
+		for(int i = -500; i < 5000; i += 2)
+			Assert.assertNotNull(map.remove(i));
+		Assert.assertNull(map.remove(-500));
+		Assert.assertEquals(2750, map.size());
+
+		for(int i = -500; i < 5000; i++)
+			Assert.assertEquals(i % 2 != 0, map.containsKey(i));
+
+		map.clear();
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertNull(map.get(43));
+	}
+
+	@Test
+	public void testValues()
+	{
+		ConcurrentIntObjectMap<Integer> map = new ConcurrentIntObjectMap<Integer>();
+		Assert.assertFalse(map.values().iterator().hasNext());
+
+		for(int i = 0; i < 1000; i++)
+			map.put(i, i);
+
+		Set<Integer> seen = new HashSet<Integer>();
+		for(Iterator<Integer> it = map.values().iterator(); it.hasNext();)
+		{
+			Integer value = it.next();
+			Assert.assertTrue(seen.add(value));
+			if(value % 3 == 0)
+				it.remove();
+		}
+		Assert.assertEquals(1000, seen.size());
+		Assert.assertEquals(666, map.values().size());
+		Assert.assertNull(map.get(999));
+		Assert.assertNotNull(map.get(998));
+	}
+
+	@Test
+	public void testConcurrentWriters() throws Exception
+	{
+		final ConcurrentIntObjectMap<Integer> map = new ConcurrentIntObjectMap<Integer>();
+		Thread[] threads = new Thread[4];
+		for(int t = 0; t < threads.length; t++)
+		{
+			final int offset = t * 100000;
+			threads[t] = new Thread(){
+				@Override
+				public void run()
+				{
+					for(int i = 0; i < 20000; i++)
+						map.put(offset + i, i);
+					for(int i = 0; i < 20000; i += 2)
+						map.remove(offset + i);
+				}
+			};
+			threads[t].start();
+		}
+		for(Thread thread : threads)
+			thread.join();
+
+		Assert.assertEquals(threads.length * 10000, map.size());
+		for(int t = 0; t < threads.length; t++)
+		{
+			for(int i = 0; i < 20000; i++)
+				Assert.assertEquals(i % 2 != 0, map.containsKey(t * 100000 + i));
+		}
+	}
+
+	@Test
+	public void testReadersDuringRehash() throws Exception
+	{
+		final ConcurrentIntObjectMap<Integer> map = new ConcurrentIntObjectMap<Integer>(1, 2);
+		/** even keys stay in map all the time, odd keys are added and removed */
+		for(int i = 0; i < 1000; i += 2)
+			map.put(i, i);
+
+		final boolean[] failed = new boolean[1];
+		final Thread writer = new Thread(){
+			@Override
+			public void run()
+			{
+				for(int round = 0; round < 200; round++)
+				{
+					for(int i = 1; i < 20000; i += 2)
+						map.put(i, i);
+					for(int i = 1; i < 20000; i += 2)
+						map.remove(i);
+				}
+			}
+		};
+		Thread reader = new Thread(){
+			@Override
+			public void run()
+			{
+				while(writer.isAlive())
+				{
+					for(int i = 0; i < 1000; i += 2)
+					{
+						Integer value = map.get(i);
+						if(value == null || value != i)
+							failed[0] = true;
+					}
+				}
+			}
+		};
+		writer.start();
+		reader.start();
+		writer.join();
+		reader.join();
+
+		Assert.assertFalse(failed[0]);
+		Assert.assertEquals(500, map.size());
+	}
+}
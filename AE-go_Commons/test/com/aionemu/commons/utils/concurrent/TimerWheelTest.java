@@ -0,0 +1,329 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.commons.utils.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class TimerWheelTest
+{
+	@Test
+	public void testNotExecutedEarly() throws Exception
+	{
+		TimerWheel wheel = new TimerWheel("TestTimer", 1, null);
+		wheel.start();
+		try
+		{
+			/** 300 and 700 ticks are cascaded from level 1 */
+			long[] delays = { 0, 3, 50, 255, 300, 700 };
+			final long[] executed = new long[delays.length];
+			final CountDownLatch latch = new CountDownLatch(delays.length);
+			long begin = System.nanoTime();
+			for(int i = 0; i < delays.length; i++)
+			{
+				final int index = i;
+				wheel.schedule(new Runnable(){
+					@Override
+					public void run()
+					{
+						executed[index] = System.nanoTime();
+						latch.countDown();
+					}
+				}, delays[i]);
+			}
+			Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+			for(int i = 0; i < delays.length; i++)
+				Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(executed[i] - begin) >= delays[i]);
+		}
+		finally
+		{
+			wheel.shutdown();
+		}
+	}
+
+	@Test
+	public void testCancel() throws Exception
+	{
+		TimerWheel wheel = new TimerWheel("TestTimer", 1, null);
+		wheel.start();
+		try
+		{
+			final AtomicInteger executed = new AtomicInteger();
+			Runnable r = new Runnable(){
+				@Override
+				public void run()
+				{
+					executed.incrementAndGet();
+				}
+			};
+			Future<?> cancelled = wheel.schedule(r, 20);
+			Future<?> cancelledLong = wheel.schedule(r, 400);
+			Future<?> done = wheel.schedule(r, 10);
+
+			Assert.assertTrue(cancelled.cancel(false));
+			Assert.assertTrue(cancelledLong.cancel(false));
+			Assert.assertFalse(cancelled.cancel(false));
+			Assert.assertTrue(cancelled.isCancelled());
+
+			Thread.sleep(500);
+			Assert.assertEquals(1, executed.get());
+			Assert.assertTrue(done.isDone());
+			Assert.assertFalse(done.cancel(false));
+		}
+		finally
+		{
+			wheel.shutdown();
+		}
+	}
+
+	@Test
+	public void testFixedRate() throws Exception
+	{
+		TimerWheel wheel = new TimerWheel("TestTimer", 1, null);
+		wheel.start();
+		try
+		{
+			final CountDownLatch latch = new CountDownLatch(5);
+			Future<?> task = wheel.scheduleAtFixedRate(new Runnable(){
+				@Override
+				public void run()
+				{
+					latch.countDown();
+				}
+			}, 0, 20);
+			Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+			Assert.assertTrue(task.cancel(false));
+			Assert.assertTrue(task.isDone());
+		}
+		finally
+		{
+			wheel.shutdown();
+		}
+	}
+
+	@Test
+	public void testStats() throws Exception
+	{
+		TimerWheel wheel = new TimerWheel("TestTimer", 10, null);
+		Runnable r = new Runnable(){
+			@Override
+			public void run()
+			{
+			}
+		};
+		wheel.schedule(r, 100);
+		wheel.schedule(r, 5000);
+		wheel.schedule(r, 5000);
+
+		List<String> stats = wheel.getStats();
+		Assert.assertTrue(stats.contains("\tlevel 0 tasks/buckets: 1 in 1/256"));
+		Assert.assertTrue(stats.contains("\tlevel 1 tasks/buckets: 2 in 1/64"));
+	}
+
+	@Test
+	public void testCascadeFromHigherLevels() throws Exception
+	{
+		ManualTimerWheel wheel = new ManualTimerWheel(1);
+
+		/** level 2, level 2 after several level 1 wraps, level 3 and beyond the highest level */
+		final long[] delays = { (1 << 14) + 7, 3 * (1 << 14) + 100, (1 << 20) + 33, (1L << 26) + 5 };
+		final List<Long> executed = new ArrayList<Long>();
+		for(long delay : delays)
+		{
+			final ManualTimerWheel w = wheel;
+			wheel.schedule(new Runnable(){
+				@Override
+				public void run()
+				{
+					executed.add(TimeUnit.NANOSECONDS.toMillis(w.now));
+				}
+			}, delay);
+		}
+
+		for(int i = 0; i < delays.length; i++)
+		{
+			wheel.advanceTo(delays[i] - 1);
+			Assert.assertEquals(i, executed.size());
+			wheel.advanceTo(delays[i]);
+			Assert.assertEquals(i + 1, executed.size());
+			Assert.assertEquals(delays[i], executed.get(i).longValue());
+		}
+	}
+
+	@Test
+	public void testFixedRateTicks() throws Exception
+	{
+		ManualTimerWheel wheel = new ManualTimerWheel(10);
+		final AtomicInteger executed = new AtomicInteger();
+		Future<?> task = wheel.scheduleAtFixedRate(new Runnable(){
+			@Override
+			public void run()
+			{
+				executed.incrementAndGet();
+			}
+		}, 100, 3000);
+
+		wheel.advanceTo(99);
+		Assert.assertEquals(0, executed.get());
+		wheel.advanceTo(100);
+		Assert.assertEquals(1, executed.get());
+		wheel.advanceTo(3099);
+		Assert.assertEquals(1, executed.get());
+		wheel.advanceTo(3100);
+		Assert.assertEquals(2, executed.get());
+		for(long time = 3100; time <= 60100; time += 10)
+			wheel.advanceTo(time);
+		Assert.assertEquals(21, executed.get());
+
+		Assert.assertTrue(task.cancel(false));
+		wheel.advanceTo(70000);
+		Assert.assertEquals(21, executed.get());
+	}
+
+	@Test
+	public void testGet() throws Exception
+	{
+		ManualTimerWheel wheel = new ManualTimerWheel(10);
+		Runnable r = new Runnable(){
+			@Override
+			public void run()
+			{
+			}
+		};
+		final Future<?> task = wheel.schedule(r, 100);
+		try
+		{
+			task.get(10, TimeUnit.MILLISECONDS);
+			Assert.fail();
+		}
+		catch(TimeoutException e)
+		{
+		}
+
+		final CountDownLatch waiting = new CountDownLatch(1);
+		final CountDownLatch returned = new CountDownLatch(1);
+		new Thread(){
+			@Override
+			public void run()
+			{
+				try
+				{
+					waiting.countDown();
+					task.get();
+					returned.countDown();
+				}
+				catch(Exception e)
+				{
+				}
+			}
+		}.start();
+		Assert.assertTrue(waiting.await(5, TimeUnit.SECONDS));
+		Assert.assertFalse(returned.await(50, TimeUnit.MILLISECONDS));
+		wheel.advanceTo(100);
+		Assert.assertTrue(returned.await(5, TimeUnit.SECONDS));
+		Assert.assertNull(task.get());
+
+		Future<?> failed = wheel.schedule(new Runnable(){
+			@Override
+			public void run()
+			{
+				throw new IllegalStateException("test");
+			}
+		}, 100);
+		wheel.advanceTo(200);
+		try
+		{
+			failed.get();
+			Assert.fail();
+		}
+		catch(ExecutionException e)
+		{
+			Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+
+		Future<?> cancelled = wheel.schedule(r, 100);
+		Assert.assertTrue(cancelled.cancel(false));
+		assertCancelled(cancelled);
+
+		Future<?> periodic = wheel.scheduleAtFixedRate(r, 0, 100);
+		wheel.advanceTo(1000);
+		Assert.assertFalse(periodic.isDone());
+		try
+		{
+			periodic.get(10, TimeUnit.MILLISECONDS);
+			Assert.fail();
+		}
+		catch(TimeoutException e)
+		{
+		}
+		Assert.assertTrue(periodic.cancel(false));
+		assertCancelled(periodic);
+	}
+
+	private static void assertCancelled(Future<?> task) throws Exception
+	{
+		try
+		{
+			task.get();
+			Assert.fail();
+		}
+		catch(CancellationException e)
+		{
+		}
+	}
+
+	/**
+	 * Wheel without timer thread, time is moved by test.
+	 */
+	private static class ManualTimerWheel extends TimerWheel
+	{
+		private volatile long	now;
+
+		private ManualTimerWheel(long tickMillis)
+		{
+			super("ManualTimer", tickMillis, null);
+		}
+
+		@Override
+		long nanoTime()
+		{
+			return now;
+		}
+
+		/**
+		 * Set time and process all ticks till it.
+		 * 
+		 * @param millis
+		 */
+		private void advanceTo(long millis)
+		{
+			now = TimeUnit.MILLISECONDS.toNanos(millis);
+			advance();
+		}
+	}
+}
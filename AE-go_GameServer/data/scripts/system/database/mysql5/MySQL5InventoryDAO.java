@@ -20,13 +20,17 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 
 import com.aionemu.commons.database.DB;
 import com.aionemu.commons.database.IUStH;
 import com.aionemu.commons.database.ParamReadStH;
+import com.aionemu.commons.database.Transaction;
+import com.aionemu.commons.utils.collections.ConcurrentIntObjectMap;
 import com.aionemu.gameserver.dao.InventoryDAO;
 import com.aionemu.gameserver.model.gameobjects.Item;
 import com.aionemu.gameserver.model.gameobjects.PersistentState;
@@ -50,6 +54,11 @@ public class MySQL5InventoryDAO extends InventoryDAO
 	public static final String DELETE_CLEAN_QUERY = "DELETE FROM inventory WHERE itemOwner=? AND (itemLocation=0 OR itemLocation=1)";
 	public static final String SELECT_ACCOUNT_QUERY = "SELECT `account_id` FROM `players` WHERE `id`=?";
 
+	/**
+	 * Player id -> account id, account of character never changes.
+	 */
+	private final ConcurrentIntObjectMap<Integer> accountIds = new ConcurrentIntObjectMap<Integer>();
+
 	@Override
 	public Storage loadStorage(Player player, StorageType storageType)
 	{
@@ -138,6 +147,10 @@ public class MySQL5InventoryDAO extends InventoryDAO
 
 	public int getPlayerAccountId(final int playerId)
 	{
+		Integer accountId = accountIds.get(playerId);
+		if(accountId != null)
+			return accountId;
+
 		final List<Integer> owner = new ArrayList<Integer>();
 		DB.select(SELECT_ACCOUNT_QUERY, new ParamReadStH()
 		{
@@ -156,23 +169,164 @@ public class MySQL5InventoryDAO extends InventoryDAO
 				}
 			}
 		});
+		accountIds.put(playerId, owner.get(0));
 		return owner.get(0);
 	}
 
 	@Override
 	public boolean store(Player player)
 	{
-		int playerId = player.getObjectId();
-		
-		List<Item> allPlayerItems = player.getDirtyItemsToUpdate();
+		return store(Collections.singletonMap(player.getObjectId(), player.getDirtyItemsToUpdate()));
+	}
+
+	@Override
+	public boolean store(Map<Integer, List<Item>> items)
+	{
+		final List<Item> insertItems = new ArrayList<Item>();
+		final List<Integer> insertOwners = new ArrayList<Integer>();
+		final List<Integer> insertVersions = new ArrayList<Integer>();
+		final List<Item> updateItems = new ArrayList<Item>();
+		final List<Integer> updateOwners = new ArrayList<Integer>();
+		final List<Integer> updateVersions = new ArrayList<Integer>();
+		final List<Item> deleteItems = new ArrayList<Item>();
+		final List<Integer> deleteVersions = new ArrayList<Integer>();
+
+		for(Map.Entry<Integer, List<Item>> entry : items.entrySet())
+		{
+			for(Item item : entry.getValue())
+			{
+				if(item == null)
+					continue;
+
+				// version first - change made after it keeps item dirty
+				int version = item.getStateVersion();
+				switch(item.getPersistentState())
+				{
+					case NEW:
+						insertItems.add(item);
+						insertOwners.add(getItemOwnerId(item, entry.getKey()));
+						insertVersions.add(version);
+						break;
+					case UPDATE_REQUIRED:
+						updateItems.add(item);
+						updateOwners.add(getItemOwnerId(item, entry.getKey()));
+						updateVersions.add(version);
+						break;
+					case DELETED:
+						deleteItems.add(item);
+						deleteVersions.add(version);
+						break;
+				}
+			}
+		}
 
-		boolean resultSuccess = true;
-		for(Item item : allPlayerItems)
+		if(insertItems.isEmpty() && updateItems.isEmpty() && deleteItems.isEmpty())
+			return true;
+
+		Transaction transaction = null;
+		try
+		{
+			transaction = DB.beginTransaction();
+			if(!deleteItems.isEmpty())
+			{
+				transaction.insertUpdate(DELETE_QUERY, new IUStH() {
+					@Override
+					public void handleInsertUpdate(PreparedStatement stmt) throws SQLException
+					{
+						for(Item item : deleteItems)
+						{
+							stmt.setInt(1, item.getObjectId());
+							stmt.addBatch();
+						}
+						stmt.executeBatch();
+					}
+				});
+			}
+			if(!insertItems.isEmpty())
+			{
+				transaction.insertUpdate(INSERT_QUERY, new IUStH() {
+					@Override
+					public void handleInsertUpdate(PreparedStatement stmt) throws SQLException
+					{
+						for(int i = 0; i < insertItems.size(); i++)
+						{
+							setInsertParams(stmt, insertItems.get(i), insertOwners.get(i));
+							stmt.addBatch();
+						}
+						stmt.executeBatch();
+					}
+				});
+			}
+			if(!updateItems.isEmpty())
+			{
+				transaction.insertUpdate(UPDATE_QUERY, new IUStH() {
+					@Override
+					public void handleInsertUpdate(PreparedStatement stmt) throws SQLException
+					{
+						for(int i = 0; i < updateItems.size(); i++)
+						{
+							setUpdateParams(stmt, updateItems.get(i), updateOwners.get(i));
+							stmt.addBatch();
+						}
+						stmt.executeBatch();
+					}
+				});
+			}
+		}
+		catch(SQLException e)
+		{
+			log.error("Can't store items, new: " + insertItems.size() + ", updated: " + updateItems.size()
+				+ ", deleted: " + deleteItems.size(), e);
+			if(transaction != null)
+				transaction.rollback();
+			return false;
+		}
+
+		try
+		{
+			transaction.commit();
+		}
+		catch(SQLException e)
 		{
-			if(item != null)
-				resultSuccess = store(item, playerId);
-		} 
-		return resultSuccess;
+			log.error("Can't commit items, new: " + insertItems.size() + ", updated: " + updateItems.size()
+				+ ", deleted: " + deleteItems.size(), e);
+			return false;
+		}
+
+		// items are clean only when transaction is commited, otherwise they are stored by next flush
+		markStored(insertItems, insertVersions, PersistentState.NEW);
+		markStored(updateItems, updateVersions, PersistentState.UPDATE_REQUIRED);
+		markStored(deleteItems, deleteVersions, PersistentState.DELETED);
+		return true;
+	}
+
+	/**
+	 * Marks stored items as updated. Item that was changed again while it was stored is left dirty.
+	 * 
+	 * @param items
+	 * @param versions
+	 *            state versions of items taken when they were collected
+	 * @param storedState
+	 *            state in witch items were stored
+	 */
+	private void markStored(List<Item> items, List<Integer> versions, PersistentState storedState)
+	{
+		for(int i = 0; i < items.size(); i++)
+			items.get(i).markStored(storedState, versions.get(i));
+	}
+
+	/**
+	 * Account warehouse items belong to account, all other items to player [or legion].
+	 * 
+	 * @param item
+	 * @param ownerId
+	 * @return owner id stored in db
+	 */
+	private int getItemOwnerId(Item item, int ownerId)
+	{
+		if(item.getItemLocation() == StorageType.ACCOUNT_WAREHOUSE.getId())
+			return getPlayerAccountId(ownerId);
+		return ownerId;
 	}
 
 	/**
@@ -185,18 +339,13 @@ public class MySQL5InventoryDAO extends InventoryDAO
 	{   
 		boolean result = false;
 
-		if(item.getItemLocation() == StorageType.ACCOUNT_WAREHOUSE.getId())
-		{
-			ownerId = getPlayerAccountId(ownerId);
-		}
-
 		switch(item.getPersistentState())
 		{
 			case NEW:
-				result = insertItem(item, ownerId);
+				result = insertItem(item, getItemOwnerId(item, ownerId));
 				break;
 			case UPDATE_REQUIRED:
-				result = updateItem(item, ownerId);
+				result = updateItem(item, getItemOwnerId(item, ownerId));
 				break;
 			case DELETED:
 				result = deleteItem(item);
@@ -217,20 +366,33 @@ public class MySQL5InventoryDAO extends InventoryDAO
 			@Override
 			public void handleInsertUpdate(PreparedStatement stmt) throws SQLException
 			{
-				stmt.setInt(1, item.getObjectId());
-				stmt.setInt(2, item.getItemTemplate().getTemplateId());
-				stmt.setInt(3, item.getItemCount());
-				stmt.setInt(4, item.getItemColor());
-				stmt.setInt(5, ownerId);
-				stmt.setBoolean(6, item.isEquipped());
-				stmt.setInt(7, item.getEquipmentSlot());
-				stmt.setInt(8, item.getItemLocation());
-				stmt.setInt(9, item.getEchantLevel());
+				setInsertParams(stmt, item, ownerId);
 				stmt.execute();
 			}
 		});
 	}
 
+	/**
+	 * Set parameters of {@link #INSERT_QUERY}
+	 * 
+	 * @param stmt
+	 * @param item
+	 * @param ownerId
+	 * @throws SQLException
+	 */
+	private void setInsertParams(PreparedStatement stmt, Item item, int ownerId) throws SQLException
+	{
+		stmt.setInt(1, item.getObjectId());
+		stmt.setInt(2, item.getItemTemplate().getTemplateId());
+		stmt.setInt(3, item.getItemCount());
+		stmt.setInt(4, item.getItemColor());
+		stmt.setInt(5, ownerId);
+		stmt.setBoolean(6, item.isEquipped());
+		stmt.setInt(7, item.getEquipmentSlot());
+		stmt.setInt(8, item.getItemLocation());
+		stmt.setInt(9, item.getEchantLevel());
+	}
+
 	/**
 	 * @param item
 	 * @return
@@ -241,19 +403,32 @@ public class MySQL5InventoryDAO extends InventoryDAO
 			@Override
 			public void handleInsertUpdate(PreparedStatement stmt) throws SQLException
 			{
-				stmt.setInt(1, item.getItemCount());
-				stmt.setInt(2, item.getItemColor());
-				stmt.setInt(3, ownerId);
-				stmt.setBoolean(4, item.isEquipped());
-				stmt.setInt(5, item.getEquipmentSlot());
-				stmt.setInt(6, item.getItemLocation());
-				stmt.setInt(7, item.getEchantLevel());
-				stmt.setInt(8, item.getObjectId());
+				setUpdateParams(stmt, item, ownerId);
 				stmt.execute();
 			}
 		});
 	}
 
+	/**
+	 * Set parameters of {@link #UPDATE_QUERY}
+	 * 
+	 * @param stmt
+	 * @param item
+	 * @param ownerId
+	 * @throws SQLException
+	 */
+	private void setUpdateParams(PreparedStatement stmt, Item item, int ownerId) throws SQLException
+	{
+		stmt.setInt(1, item.getItemCount());
+		stmt.setInt(2, item.getItemColor());
+		stmt.setInt(3, ownerId);
+		stmt.setBoolean(4, item.isEquipped());
+		stmt.setInt(5, item.getEquipmentSlot());
+		stmt.setInt(6, item.getItemLocation());
+		stmt.setInt(7, item.getEchantLevel());
+		stmt.setInt(8, item.getObjectId());
+	}
+
 	/**
 	 * 
 	 * @param item
@@ -276,6 +451,7 @@ public class MySQL5InventoryDAO extends InventoryDAO
 	@Override
 	public boolean deletePlayerItems(final int playerId)
 	{
+		accountIds.remove(playerId);
 		return DB.insertUpdate(DELETE_CLEAN_QUERY, new IUStH() {
 			@Override
 			public void handleInsertUpdate(PreparedStatement stmt) throws SQLException
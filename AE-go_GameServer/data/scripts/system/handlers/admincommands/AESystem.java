@@ -18,15 +18,24 @@ package admincommands;
 
 import java.util.List;
 
+import com.aionemu.commons.log4j.appenders.RingBufferAsyncAppender;
+import com.aionemu.commons.network.NioServer;
 import com.aionemu.commons.utils.AEInfos;
 import com.aionemu.gameserver.ShutdownHook;
 import com.aionemu.gameserver.ShutdownHook.ShutdownMode;
 import com.aionemu.gameserver.configs.administration.AdminConfig;
 import com.aionemu.gameserver.model.gameobjects.player.Player;
+import com.aionemu.gameserver.network.aion.AionConnection;
+import com.aionemu.gameserver.services.InstanceService;
+import com.aionemu.gameserver.services.LoginQueueService;
+import com.aionemu.gameserver.services.PeriodicSaveService;
+import com.aionemu.gameserver.services.PlayerLoadService;
 import com.aionemu.gameserver.utils.AEVersions;
 import com.aionemu.gameserver.utils.PacketSendUtility;
 import com.aionemu.gameserver.utils.ThreadPoolManager;
 import com.aionemu.gameserver.utils.chathandlers.AdminCommand;
+import com.aionemu.gameserver.utils.collections.cachemap.CacheMapFactory;
+import com.aionemu.gameserver.world.WorldTickEngine;
 import com.google.inject.Inject;
 
 /**
@@ -38,11 +47,35 @@ import com.google.inject.Inject;
  * //sys shutdown <seconds> <announceInterval> - Shutdowner
  * //sys restart <seconds> <announceInterval> - Restarter
  * //sys threadpool - Thread pools info
+ * //sys packets - Client packet execution info
+ * //sys network - Network dispatchers info
+ * //sys world - World tick threads info
+ * //sys save - Periodic item flush info
+ * //sys instance - Instances info
+ * //sys playerload - Character load stages info
+ * //sys cache - Bounded caches info
+ * //sys loginqueue - Login queue info
+ * //sys log - Async log appenders info
  */
 public class AESystem extends AdminCommand
 {
 	@Inject
 	private ShutdownHook shutdownHook;
+
+	@Inject
+	private NioServer nioServer;
+
+	@Inject
+	private PeriodicSaveService periodicSaveService;
+
+	@Inject
+	private InstanceService instanceService;
+
+	@Inject
+	private PlayerLoadService playerLoadService;
+
+	@Inject
+	private LoginQueueService loginQueueService;
 	
 	public AESystem()
 	{
@@ -155,5 +188,68 @@ public class AESystem extends AdminCommand
 				PacketSendUtility.sendMessage(admin, stat.replaceAll("\t", ""));
 			}
 		}
+		else if(params[0].equals("network"))
+		{
+			for(String stat : nioServer.getStats())
+			{
+				PacketSendUtility.sendMessage(admin, stat.replaceAll("\t", ""));
+			}
+		}
+		else if(params[0].equals("world"))
+		{
+			for(String stat : WorldTickEngine.getInstance().getStats())
+			{
+				PacketSendUtility.sendMessage(admin, stat.replaceAll("\t", ""));
+			}
+		}
+		else if(params[0].equals("save"))
+		{
+			for(String stat : periodicSaveService.getStats())
+			{
+				PacketSendUtility.sendMessage(admin, stat.replaceAll("\t", ""));
+			}
+		}
+		else if(params[0].equals("instance"))
+		{
+			for(String stat : instanceService.getStats())
+			{
+				PacketSendUtility.sendMessage(admin, stat.replaceAll("\t", ""));
+			}
+		}
+		else if(params[0].equals("playerload"))
+		{
+			for(String stat : playerLoadService.getStats())
+			{
+				PacketSendUtility.sendMessage(admin, stat.replaceAll("\t", ""));
+			}
+		}
+		else if(params[0].equals("loginqueue"))
+		{
+			for(String stat : loginQueueService.getStats())
+			{
+				PacketSendUtility.sendMessage(admin, stat.replaceAll("\t", ""));
+			}
+		}
+		else if(params[0].equals("log"))
+		{
+			for(String stat : RingBufferAsyncAppender.getStats())
+			{
+				PacketSendUtility.sendMessage(admin, stat.replaceAll("\t", ""));
+			}
+		}
+		else if(params[0].equals("cache"))
+		{
+			for(String stat : CacheMapFactory.getStats())
+			{
+				PacketSendUtility.sendMessage(admin, stat.replaceAll("\t", ""));
+			}
+		}
+		else if(params[0].equals("packets"))
+		{
+			for(String stat : AionConnection.getPacketProcessorStats())
+			{
+				PacketSendUtility.sendMessage(admin, stat.replaceAll("\t", ""));
+			}
+		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1 @@
+CREATE INDEX item_owner ON inventory(itemOwner, itemLocation, isEquiped);
\ No newline at end of file
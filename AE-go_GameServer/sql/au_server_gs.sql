@@ -187,7 +187,8 @@ CREATE TABLE IF NOT EXISTS `inventory` (
   `slot` INT NOT NULL DEFAULT '0',
   `itemLocation` TINYINT(1) DEFAULT '0',
   `enchant` TINYINT(1) DEFAULT '0',
-  PRIMARY KEY (`itemUniqueId`)
+  PRIMARY KEY (`itemUniqueId`),
+  INDEX `item_owner` (`itemOwner`, `itemLocation`, `isEquiped`)
 ) ENGINE=InnoDB  DEFAULT CHARSET=utf8;
 
 -- ----------------------------
@@ -47,6 +47,7 @@ import com.aionemu.gameserver.utils.guice.DataInjectionModule;
 import com.aionemu.gameserver.utils.guice.IDFactoriesInjectionModule;
 import com.aionemu.gameserver.utils.guice.NetworkInjectionModule;
 import com.aionemu.gameserver.utils.guice.ObjectFactoryInjectionModule;
+import com.aionemu.gameserver.world.WorldTickEngine;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 
@@ -104,6 +105,7 @@ public class GameServer
 
 		Util.printSection("TaskManagers");
 		PacketBroadcaster.getInstance();
+		WorldTickEngine.getInstance();
 
 		Util.printSection("System");
 		AEVersions.printFullVersionInfo();
@@ -26,6 +26,7 @@ import com.aionemu.gameserver.model.gameobjects.player.Player;
 import com.aionemu.gameserver.network.aion.serverpackets.SM_SYSTEM_MESSAGE;
 import com.aionemu.gameserver.network.loginserver.LoginServer;
 import com.aionemu.gameserver.services.PeriodicSaveService;
+import com.aionemu.gameserver.services.PlayerLoadService;
 import com.aionemu.gameserver.services.PlayerService;
 import com.aionemu.gameserver.utils.ThreadPoolManager;
 import com.aionemu.gameserver.utils.gametime.GameTimeManager;
@@ -48,6 +49,8 @@ public class ShutdownHook extends Thread
 	private LoginServer			loginServer;
 	@Inject
 	private PeriodicSaveService	playerUpdateService;
+	@Inject
+	private PlayerLoadService	playerLoadService;
 
 	@Override
 	public void run()
@@ -157,6 +160,9 @@ public class ShutdownHook extends Thread
 		// Disconnect login server from game.
 		loginServer.gameServerDisconnected();
 
+		// Finish characters being loaded, so they are disconnected too.
+		playerLoadService.shutdown();
+
 		// Disconnect all players.
 		Iterator<Player> onlinePlayers;
 		onlinePlayers = world.getPlayersIterator();
@@ -31,7 +31,7 @@ import com.aionemu.gameserver.ai.state.AIState;
 import com.aionemu.gameserver.ai.state.handler.StateHandler;
 import com.aionemu.gameserver.model.gameobjects.Creature;
 import com.aionemu.gameserver.model.gameobjects.player.Player;
-import com.aionemu.gameserver.utils.ThreadPoolManager;
+import com.aionemu.gameserver.world.WorldTickEngine;
 
 public abstract class AI<T extends Creature> implements Runnable
 {	
@@ -157,7 +157,7 @@ public abstract class AI<T extends Creature> implements Runnable
 	{
 		if(!isScheduled())
 		{
-			aiTask = ThreadPoolManager.getInstance().scheduleAiAtFixedRate(this, 1000, 1000);
+			aiTask = WorldTickEngine.getInstance().scheduleAiAtFixedRate(owner, this, 1000, 1000);
 		}	
 	}
 
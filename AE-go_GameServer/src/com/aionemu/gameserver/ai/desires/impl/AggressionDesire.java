@@ -30,6 +30,7 @@ import com.aionemu.gameserver.network.aion.serverpackets.SM_ATTACK;
 import com.aionemu.gameserver.utils.MathUtil;
 import com.aionemu.gameserver.utils.PacketSendUtility;
 import com.aionemu.gameserver.utils.ThreadPoolManager;
+import com.aionemu.gameserver.world.MapRegion;
 
 /**
  * @author KKnD
@@ -48,7 +49,12 @@ public final class AggressionDesire extends AbstractDesire
 	public boolean handleDesire(AI<?> ai)
 	{
 		if (npc == null) return false;
-		
+
+		/** no player on region or its neighbours - nobody to aggro */
+		MapRegion region = npc.getActiveRegion();
+		if(region != null && !region.isActive())
+			return true;
+
 		for(VisibleObject visibleObject : npc.getKnownList())
 		{
 			if (visibleObject == null)
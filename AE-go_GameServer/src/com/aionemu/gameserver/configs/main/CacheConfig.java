@@ -42,6 +42,25 @@ public class CacheConfig
 	@Property(key = "gameserver.cache.players", defaultValue = "false")
 	public static boolean	CACHE_PLAYERS		= false;
 
+	/**
+	 * Max number of cached {@link Player} objects
+	 */
+	@Property(key = "gameserver.cache.players.size", defaultValue = "1000")
+	public static int		PLAYERS_CACHE_SIZE	= 1000;
+
+	/**
+	 * Time in minutes after which not used {@link Player} is removed from cache, 0 - never
+	 */
+	@Property(key = "gameserver.cache.players.idle", defaultValue = "30")
+	public static int		PLAYERS_CACHE_IDLE	= 30;
+
+	/**
+	 * If true then bounded caches admit new value only if it is requested more often than value it would replace
+	 * (W-TinyLFU), otherwise least recently used value is always replaced (LRU)
+	 */
+	@Property(key = "gameserver.cache.tinylfu", defaultValue = "true")
+	public static boolean	TINYLFU_ADMISSION	= true;
+
 	/**
 	 * If true then whole {@link PlayerCommonData} objects are cached as long as there is memory for them
 	 */
@@ -49,8 +68,20 @@ public class CacheConfig
 	public static boolean	CACHE_COMMONDATA	= false;
 
 	/**
-	 * If true then whole {@link Account} objects are cached as long as there is memory for them
+	 * If true then {@link Account} objects (with character list shown on character selection screen) are cached
+	 */
+	@Property(key = "gameserver.cache.accounts", defaultValue = "true")
+	public static boolean	CACHE_ACCOUNTS		= true;
+
+	/**
+	 * Max number of cached {@link Account} objects
+	 */
+	@Property(key = "gameserver.cache.accounts.size", defaultValue = "5000")
+	public static int		ACCOUNTS_CACHE_SIZE	= 5000;
+
+	/**
+	 * Time in minutes after which not used {@link Account} is removed from cache, 0 - never
 	 */
-	@Property(key = "gameserver.cache.accounts", defaultValue = "false")
-	public static boolean	CACHE_ACCOUNTS		= false;
+	@Property(key = "gameserver.cache.accounts.idle", defaultValue = "60")
+	public static int		ACCOUNTS_CACHE_IDLE	= 60;
 }
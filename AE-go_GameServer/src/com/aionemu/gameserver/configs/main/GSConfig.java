@@ -45,4 +45,40 @@ public class GSConfig
 	 */
 	@Property(key = "gameserver.mode", defaultValue = "1")
 	public static int		SERVER_MODE;
+
+	/**
+	 * Number of threads loading static data, 0 - one thread per available processor
+	 */
+	@Property(key = "gameserver.staticdata.threads", defaultValue = "0")
+	public static int		STATIC_DATA_THREADS;
+
+	/**
+	 * Number of threads spawning npcs on server start, 0 - one thread per available processor
+	 */
+	@Property(key = "gameserver.spawn.threads", defaultValue = "0")
+	public static int		SPAWN_THREADS;
+
+	/**
+	 * Max number of characters entering world at once, others wait in login queue, 0 - no queue
+	 */
+	@Property(key = "gameserver.login.queue.limit", defaultValue = "32")
+	public static int		LOGIN_QUEUE_LIMIT;
+
+	/**
+	 * Min number of characters entering world at once, limit is never lowered under it
+	 */
+	@Property(key = "gameserver.login.queue.minlimit", defaultValue = "2")
+	public static int		LOGIN_QUEUE_MIN_LIMIT;
+
+	/**
+	 * Target time of character load in milliseconds, limit is lowered when loads take longer
+	 */
+	@Property(key = "gameserver.login.queue.latency", defaultValue = "500")
+	public static int		LOGIN_QUEUE_LATENCY;
+
+	/**
+	 * Interval in seconds in which queued clients are informed about their position
+	 */
+	@Property(key = "gameserver.login.queue.update", defaultValue = "5")
+	public static int		LOGIN_QUEUE_UPDATE;
 }
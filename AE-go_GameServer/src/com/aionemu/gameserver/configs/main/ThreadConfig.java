@@ -33,6 +33,21 @@ public class ThreadConfig
 	@Property(key = "thread.runtime", defaultValue = "5000")
 	public static long MAXIMUM_RUNTIME_IN_MILLISEC_WITHOUT_WARNING;
 	
+	@Property(key = "thread.worldtick.enable", defaultValue = "true")
+	public static boolean WORLD_TICK_ENABLED;
+	
+	@Property(key = "thread.worldtick.period", defaultValue = "200")
+	public static int WORLD_TICK_PERIOD;
+	
+	@Property(key = "thread.worldtick.threads", defaultValue = "0")
+	public static int WORLD_TICK_THREADS;
+	
+	@Property(key = "thread.effecttimer.tick", defaultValue = "10")
+	public static int EFFECT_TIMER_TICK;
+	
+	@Property(key = "thread.playerload.threads", defaultValue = "8")
+	public static int PLAYER_LOAD_THREADS;
+	
 	public static int THREAD_POOL_SIZE;
 	
 	public static void load()
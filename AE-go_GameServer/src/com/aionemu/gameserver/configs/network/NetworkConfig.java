@@ -59,9 +59,10 @@ public class NetworkConfig
 	public static String			LOGIN_PASSWORD;
 
 	/**
-	 * Number of Threads that will handle io read (>= 0)
+	 * Number of Threads that will handle io read and write. 0 - accept Thread handles io too, -1 - one Thread per
+	 * available processor
 	 */
-	@Property(key = "gameserver.network.nio.threads.read", defaultValue = "0")
+	@Property(key = "gameserver.network.nio.threads.read", defaultValue = "-1")
 	public static int				NIO_READ_THREADS;
 
 	/**
@@ -70,6 +71,30 @@ public class NetworkConfig
 	@Property(key = "gameserver.network.nio.threads.write", defaultValue = "0")
 	public static int				NIO_WRITE_THREADS;
 
+	/**
+	 * If true read buffers of connections are sized by observed traffic, otherwise all buffers have 16 KB
+	 */
+	@Property(key = "gameserver.network.nio.buffers.adaptive", defaultValue = "false")
+	public static boolean			NIO_ADAPTIVE_BUFFERS;
+
+	/**
+	 * If true client packets are executed by QueuedPacketProcessor (per connection queues) instead of PacketProcessor
+	 */
+	@Property(key = "gameserver.network.packetprocessor.queued", defaultValue = "false")
+	public static boolean			PACKET_PROCESSOR_QUEUED;
+
+	/**
+	 * Minimum number of Threads that will execute client packets
+	 */
+	@Property(key = "gameserver.network.packetprocessor.threads.min", defaultValue = "1")
+	public static int				PACKET_PROCESSOR_MIN_THREADS;
+
+	/**
+	 * Maximum number of Threads that will execute client packets
+	 */
+	@Property(key = "gameserver.network.packetprocessor.threads.max", defaultValue = "8")
+	public static int				PACKET_PROCESSOR_MAX_THREADS;
+
 	/**
 	 * Number of Threads that will handle io write (>= 0)
 	 */
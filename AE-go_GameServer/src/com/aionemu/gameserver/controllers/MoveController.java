@@ -27,7 +27,7 @@ import com.aionemu.gameserver.model.gameobjects.stats.StatEnum;
 import com.aionemu.gameserver.network.aion.serverpackets.SM_MOVE;
 import com.aionemu.gameserver.utils.MathUtil;
 import com.aionemu.gameserver.utils.PacketSendUtility;
-import com.aionemu.gameserver.utils.ThreadPoolManager;
+import com.aionemu.gameserver.world.WorldTickEngine;
 
 /**
  * @author ATracer
@@ -139,7 +139,7 @@ public class MoveController
 		if(speed == 0)
 			speed = owner.getGameStats().getCurrentStat(StatEnum.SPEED) / 1000;
 		
-		moveTask = ThreadPoolManager.getInstance().scheduleAiAtFixedRate(new Runnable(){
+		moveTask = WorldTickEngine.getInstance().scheduleAiAtFixedRate(owner, new Runnable(){
 
 			@Override
 			public void run()
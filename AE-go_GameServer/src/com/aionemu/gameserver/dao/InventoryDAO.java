@@ -16,6 +16,9 @@
  */
 package com.aionemu.gameserver.dao;
 
+import java.util.List;
+import java.util.Map;
+
 import com.aionemu.gameserver.model.gameobjects.Item;
 import com.aionemu.gameserver.model.gameobjects.player.Equipment;
 import com.aionemu.gameserver.model.gameobjects.player.Player;
@@ -50,6 +53,15 @@ public abstract class InventoryDAO implements IDFactoryAwareDAO
 	 */
 	public abstract boolean store(Item item, int playerId);
 
+	/**
+	 * Store items of many owners in one transaction, using JDBC batches.
+	 * 
+	 * @param items
+	 *            owner object id [player or legion] -> items
+	 * @return true if all items were stored, otherwise items are left dirty
+	 */
+	public abstract boolean store(Map<Integer, List<Item>> items);
+
 	/**
 	 * @param playerId
 	 */
@@ -148,6 +148,7 @@ public final class DataManager
 		long start = System.currentTimeMillis();
 		StaticData data = loader.loadStaticData();
 		long time = System.currentTimeMillis() - start;
+		data.logLoadedData();
 
 		WORLD_MAPS_DATA = data.worldMapsData;
 		PLAYER_EXPERIENCE_TABLE = data.playerExperienceTable;
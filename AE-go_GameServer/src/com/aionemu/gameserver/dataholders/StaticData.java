@@ -16,7 +16,6 @@
  */
 package com.aionemu.gameserver.dataholders;
 
-import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
@@ -116,9 +115,10 @@ public class StaticData
 	@XmlElement(name = "npc_skill_templates")
 	public NpcSkillData				npcSkillData;
 
-	// JAXB callback
-	@SuppressWarnings("unused")
-	private void afterUnmarshal(Unmarshaller unmarshaller, Object parent)
+	/**
+	 * Logs sizes of loaded data. It's not done in afterUnmarshal, as data holders may be unmarshalled separately.
+	 */
+	void logLoadedData()
 	{
 		DataManager.log.info("Loaded world maps data: " + worldMapsData.size() + " maps");
 		DataManager.log.info("Loaded player exp table: " + playerExperienceTable.getMaxLevel() + " levels");
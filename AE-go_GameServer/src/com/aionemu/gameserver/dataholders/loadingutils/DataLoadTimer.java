@@ -0,0 +1,63 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.dataholders.loadingutils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+/**
+ * Filter that measures how long it takes to process each child of root element, that is each data holder of static
+ * data.
+ */
+public class DataLoadTimer extends XMLFilterImpl
+{
+	private final Map<String, Long>	times	= new LinkedHashMap<String, Long>();
+
+	private int						depth;
+	private long					start;
+
+	@Override
+	public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException
+	{
+		if(++depth == 2)
+			start = System.nanoTime();
+		super.startElement(uri, localName, qName, atts);
+	}
+
+	@Override
+	public void endElement(String uri, String localName, String qName) throws SAXException
+	{
+		super.endElement(uri, localName, qName);
+		if(depth-- == 2)
+		{
+			Long time = times.get(localName);
+			times.put(localName, (time == null ? 0 : time) + System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * @return processing time in nanoseconds by name of data holder element, in order of document
+	 */
+	public Map<String, Long> getTimes()
+	{
+		return times;
+	}
+}
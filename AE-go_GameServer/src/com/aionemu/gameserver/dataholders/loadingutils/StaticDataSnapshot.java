@@ -0,0 +1,705 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.dataholders.loadingutils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+/**
+ * Binary snapshot of merged static data xml. It contains SAX events of already merged and validated document, with
+ * element and attribute names stored only once, so loading it requires neither {@link XmlMerger}, nor xml parsing,
+ * nor schema validation - events are replayed directly to JAXB unmarshaller.<br>
+ * Snapshot starts with hash of all files in static data directory and is used only when the hash matches.<br>
+ * Every section (child of root element) is stored with its own names, so sections can be replayed separately and in
+ * parallel.
+ */
+public class StaticDataSnapshot
+{
+	private static final Logger		log				= Logger.getLogger(StaticDataSnapshot.class);
+
+	private static final int		MAGIC			= 0x41455344;
+	private static final int		VERSION			= 1;
+
+	private static final Charset	UTF8			= Charset.forName("UTF-8");
+
+	private static final byte		END_DOCUMENT	= 0;
+	private static final byte		START_ELEMENT	= 1;
+	private static final byte		END_ELEMENT		= 2;
+	private static final byte		CHARACTERS		= 3;
+	private static final byte		START_PREFIX	= 4;
+	private static final byte		END_PREFIX		= 5;
+
+	/**
+	 * Computes hash of names and contents of all files in given directory and its subdirectories.
+	 * 
+	 * @param directory
+	 * @return hash
+	 * @throws IOException
+	 */
+	public static byte[] hash(File directory) throws IOException
+	{
+		MessageDigest digest;
+		try
+		{
+			digest = MessageDigest.getInstance("MD5");
+		}
+		catch(NoSuchAlgorithmException e)
+		{
+			throw new IOException("MD5 is not supported: " + e.getMessage());
+		}
+		hash(digest, directory, "", new byte[65536]);
+		return digest.digest();
+	}
+
+	private static void hash(MessageDigest digest, File directory, String path, byte[] buffer) throws IOException
+	{
+		File[] files = directory.listFiles();
+		if(files == null)
+			throw new IOException("Can't list files of " + directory);
+		Arrays.sort(files);
+
+		for(File file : files)
+		{
+			String name = path + "/" + file.getName();
+			if(file.isDirectory())
+			{
+				hash(digest, file, name, buffer);
+				continue;
+			}
+			digest.update(name.getBytes(UTF8));
+			InputStream in = new FileInputStream(file);
+			try
+			{
+				int read;
+				while((read = in.read(buffer)) != -1)
+					digest.update(buffer, 0, read);
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+	}
+
+	/**
+	 * @param snapshot
+	 * @param hash
+	 *            hash of static data files
+	 * @return true if snapshot exists and was created from static data files with given hash
+	 */
+	public static boolean isUpToDate(File snapshot, byte[] hash)
+	{
+		if(!snapshot.isFile())
+			return false;
+		try
+		{
+			RandomAccessFile file = new RandomAccessFile(snapshot, "r");
+			try
+			{
+				if(file.readInt() != MAGIC || file.readInt() != VERSION)
+					return false;
+				byte[] snapshotHash = new byte[file.readUnsignedByte()];
+				file.readFully(snapshotHash);
+				return Arrays.equals(hash, snapshotHash);
+			}
+			finally
+			{
+				file.close();
+			}
+		}
+		catch(IOException e)
+		{
+			log.warn("Can't read header of static data snapshot " + snapshot, e);
+			return false;
+		}
+	}
+
+	private final ByteBuffer	buf;
+	private final int			prologStart;
+	private final int			prologEnd;
+	private final List<Section>	sections	= new ArrayList<Section>();
+	private final int			epilogStart;
+	private final int			epilogEnd;
+
+	/**
+	 * Maps snapshot file to memory.
+	 * 
+	 * @param snapshot
+	 * @throws IOException
+	 */
+	public StaticDataSnapshot(File snapshot) throws IOException
+	{
+		RandomAccessFile file = new RandomAccessFile(snapshot, "r");
+		try
+		{
+			buf = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+		}
+		finally
+		{
+			file.close();
+		}
+
+		if(buf.getInt() != MAGIC || buf.getInt() != VERSION)
+			throw new IOException("Not a static data snapshot: " + snapshot);
+		int hashLength = buf.get() & 0xFF;
+		prologStart = buf.position() + hashLength;
+
+		buf.position(buf.getInt(buf.limit() - 4));
+		prologEnd = buf.getInt();
+		for(int i = buf.getInt(); i > 0; i--)
+			sections.add(new Section(new Replayer(buf, null).readString(), buf.getInt(), buf.getInt()));
+		epilogStart = buf.getInt();
+		epilogEnd = buf.getInt();
+	}
+
+	/**
+	 * @return sections of document, in order of document
+	 */
+	public List<Section> getSections()
+	{
+		return sections;
+	}
+
+	/**
+	 * Replays whole document to given handler.
+	 * 
+	 * @param handler
+	 * @throws SAXException
+	 * @throws IOException
+	 */
+	public void replay(ContentHandler handler) throws SAXException, IOException
+	{
+		replay(handler, null);
+	}
+
+	/**
+	 * Replays document to given handler, with only given sections as children of root element. Can be called by
+	 * many threads at once.
+	 * 
+	 * @param handler
+	 * @param names
+	 *            names of sections to replay, null for all sections
+	 * @throws SAXException
+	 * @throws IOException
+	 */
+	public void replay(ContentHandler handler, Collection<String> names) throws SAXException, IOException
+	{
+		Replayer replayer = new Replayer(buf.duplicate(), handler);
+		handler.startDocument();
+		replayer.replay(prologStart, prologEnd);
+		int prologNames = replayer.names.size();
+		for(Section section : sections)
+		{
+			if(names == null || names.contains(section.name))
+			{
+				replayer.resetNames(prologNames);
+				replayer.replay(section.start, section.end);
+			}
+		}
+		replayer.resetNames(prologNames);
+		replayer.replay(epilogStart, epilogEnd);
+	}
+
+	/**
+	 * Child of root element
+	 */
+	public static class Section
+	{
+		private final String	name;
+		private final int		start;
+		private final int		end;
+
+		private Section(String name, int start, int end)
+		{
+			this.name = name;
+			this.start = start;
+			this.end = end;
+		}
+
+		/**
+		 * @return name of element
+		 */
+		public String getName()
+		{
+			return name;
+		}
+
+		/**
+		 * @return size in bytes
+		 */
+		public int getSize()
+		{
+			return end - start;
+		}
+	}
+
+	/**
+	 * Reads events from snapshot buffer
+	 */
+	private static class Replayer
+	{
+		private final ByteBuffer		buf;
+		private final ContentHandler	handler;
+		private final List<String>		names		= new ArrayList<String>();
+		private final AttributesImpl	attributes	= new AttributesImpl();
+		private byte[]					bytes		= new byte[1024];
+
+		private Replayer(ByteBuffer buf, ContentHandler handler)
+		{
+			this.buf = buf;
+			this.handler = handler;
+		}
+
+		private void replay(int start, int end) throws IOException, SAXException
+		{
+			buf.position(start);
+			while(buf.position() < end)
+			{
+				byte event = buf.get();
+				switch(event)
+				{
+					case START_ELEMENT:
+						String uri = readName();
+						String localName = readName();
+						String qName = readName();
+						attributes.clear();
+						for(int i = readInt(); i > 0; i--)
+							attributes.addAttribute(readName(), readName(), readName(), readName(), readString());
+						handler.startElement(uri, localName, qName, attributes);
+						break;
+					case END_ELEMENT:
+						handler.endElement(readName(), readName(), readName());
+						break;
+					case CHARACTERS:
+						char[] chars = readString().toCharArray();
+						handler.characters(chars, 0, chars.length);
+						break;
+					case START_PREFIX:
+						handler.startPrefixMapping(readName(), readName());
+						break;
+					case END_PREFIX:
+						handler.endPrefixMapping(readName());
+						break;
+					case END_DOCUMENT:
+						handler.endDocument();
+						break;
+					default:
+						throw new IOException("Corrupted static data snapshot, unknown event " + event);
+				}
+			}
+		}
+
+		private void resetNames(int count)
+		{
+			while(names.size() > count)
+				names.remove(names.size() - 1);
+		}
+
+		private int readInt()
+		{
+			int value = 0;
+			for(int shift = 0;; shift += 7)
+			{
+				byte b = buf.get();
+				value |= (b & 0x7F) << shift;
+				if(b >= 0)
+					return value;
+			}
+		}
+
+		private String readString()
+		{
+			int length = readInt();
+			if(length > bytes.length)
+				bytes = new byte[length];
+			buf.get(bytes, 0, length);
+			return new String(bytes, 0, length, UTF8);
+		}
+
+		/**
+		 * Names are stored only first time they are used, later only by index.
+		 */
+		private String readName()
+		{
+			int index = readInt();
+			if(index != 0)
+				return names.get(index - 1);
+
+			String name = readString().intern();
+			names.add(name);
+			return name;
+		}
+	}
+
+	/**
+	 * Filter that passes all events to its content handler and writes them to snapshot file. Whitespaces between
+	 * elements are not written, as JAXB ignores them anyway, neither is text directly inside of root element.<br>
+	 * Snapshot is written to temporary file, which replaces target file in {@link #commit()}. Errors while writing are
+	 * logged and only turn off recording, so document is processed as without the filter.
+	 */
+	public static class Recorder extends XMLFilterImpl
+	{
+		private final File					target;
+		private final File					temp;
+		private final Map<String, Integer>	names		= new HashMap<String, Integer>();
+		private final List<String>			nameList	= new ArrayList<String>();
+		private final StringBuilder			text		= new StringBuilder();
+
+		private DataOutputStream			out;
+		private int							depth;
+		/** Whether current element has child elements */
+		private boolean						hasChildren;
+
+		/** Names defined before first section */
+		private int							prologNames	= -1;
+		private int							prologEnd	= -1;
+		private final List<Section>			sections	= new ArrayList<Section>();
+		private boolean						sectionStarted;
+		private String						sectionName;
+		private int							sectionStart;
+		/** Whether end of section element was written, its end of prefix mappings may follow */
+		private boolean						sectionEnded;
+
+		/**
+		 * @param target
+		 *            snapshot file
+		 * @param hash
+		 *            hash of static data files
+		 * @see StaticDataSnapshot#hash(File)
+		 */
+		public Recorder(File target, byte[] hash)
+		{
+			this.target = target;
+			this.temp = new File(target.getPath() + ".tmp");
+			try
+			{
+				out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 65536));
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeByte(hash.length);
+				out.write(hash);
+			}
+			catch(IOException e)
+			{
+				fail(e);
+			}
+		}
+
+		/**
+		 * Replaces snapshot file with recorded one. Should be called after whole document was successfully processed.
+		 * 
+		 * @return true if snapshot was written
+		 */
+		public boolean commit()
+		{
+			if(out == null)
+				return false;
+			try
+			{
+				out.close();
+				out = null;
+				if(target.exists() && !target.delete() || !temp.renameTo(target))
+					throw new IOException("Can't rename " + temp + " to " + target);
+				return true;
+			}
+			catch(IOException e)
+			{
+				fail(e);
+				return false;
+			}
+		}
+
+		@Override
+		public void startPrefixMapping(String prefix, String uri) throws SAXException
+		{
+			if(out != null)
+			{
+				try
+				{
+					endSection();
+					if(depth == 1 && !sectionStarted)
+						startSection(null);
+					out.writeByte(START_PREFIX);
+					writeName(prefix);
+					writeName(uri);
+				}
+				catch(IOException e)
+				{
+					fail(e);
+				}
+			}
+			super.startPrefixMapping(prefix, uri);
+		}
+
+		@Override
+		public void endPrefixMapping(String prefix) throws SAXException
+		{
+			if(out != null)
+			{
+				try
+				{
+					out.writeByte(END_PREFIX);
+					writeName(prefix);
+				}
+				catch(IOException e)
+				{
+					fail(e);
+				}
+			}
+			super.endPrefixMapping(prefix);
+		}
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException
+		{
+			depth++;
+			if(out != null)
+			{
+				try
+				{
+					endSection();
+					if(depth == 2)
+					{
+						text.setLength(0);
+						startSection(localName);
+					}
+					else
+						writeText(false);
+					out.writeByte(START_ELEMENT);
+					writeName(uri);
+					writeName(localName);
+					writeName(qName);
+					writeInt(atts.getLength());
+					for(int i = 0; i < atts.getLength(); i++)
+					{
+						writeName(atts.getURI(i));
+						writeName(atts.getLocalName(i));
+						writeName(atts.getQName(i));
+						writeName(atts.getType(i));
+						writeString(atts.getValue(i));
+					}
+				}
+				catch(IOException e)
+				{
+					fail(e);
+				}
+			}
+			hasChildren = false;
+			super.startElement(uri, localName, qName, atts);
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName) throws SAXException
+		{
+			if(out != null)
+			{
+				try
+				{
+					endSection();
+					if(depth == 1)
+						text.setLength(0);
+					else
+						writeText(!hasChildren);
+					out.writeByte(END_ELEMENT);
+					writeName(uri);
+					writeName(localName);
+					writeName(qName);
+					if(depth == 2)
+						sectionEnded = true;
+				}
+				catch(IOException e)
+				{
+					fail(e);
+				}
+			}
+			depth--;
+			hasChildren = true;
+			super.endElement(uri, localName, qName);
+		}
+
+		@Override
+		public void characters(char[] ch, int start, int length) throws SAXException
+		{
+			if(out != null)
+				text.append(ch, start, length);
+			super.characters(ch, start, length);
+		}
+
+		@Override
+		public void endDocument() throws SAXException
+		{
+			if(out != null)
+			{
+				try
+				{
+					endSection();
+					if(prologEnd == -1)
+						prologEnd = out.size();
+					int epilogStart = sections.isEmpty() ? prologEnd : sections.get(sections.size() - 1).end;
+					out.writeByte(END_DOCUMENT);
+					int epilogEnd = out.size();
+
+					out.writeInt(prologEnd);
+					out.writeInt(sections.size());
+					for(Section section : sections)
+					{
+						writeString(section.name);
+						out.writeInt(section.start);
+						out.writeInt(section.end);
+					}
+					out.writeInt(epilogStart);
+					out.writeInt(epilogEnd);
+					out.writeInt(epilogEnd);
+				}
+				catch(IOException e)
+				{
+					fail(e);
+				}
+			}
+			super.endDocument();
+		}
+
+		/**
+		 * Section starts at its element or at prefix mappings before it. Names of section are not used by other
+		 * sections.
+		 */
+		private void startSection(String name)
+		{
+			if(!sectionStarted)
+			{
+				if(prologEnd == -1)
+				{
+					prologEnd = out.size();
+					prologNames = nameList.size();
+				}
+				sectionStart = out.size();
+				sectionStarted = true;
+			}
+			if(name != null)
+				sectionName = name;
+		}
+
+		private void endSection()
+		{
+			if(!sectionEnded)
+				return;
+			sections.add(new Section(sectionName, sectionStart, out.size()));
+			sectionStarted = false;
+			sectionName = null;
+			sectionEnded = false;
+			while(nameList.size() > prologNames)
+				names.remove(nameList.remove(nameList.size() - 1));
+		}
+
+		/**
+		 * Writes collected text, text made only of whitespaces is written only if it is content of element without
+		 * children.
+		 */
+		private void writeText(boolean keepWhitespaces) throws IOException
+		{
+			if(text.length() == 0)
+				return;
+			if(keepWhitespaces || text.toString().trim().length() != 0)
+			{
+				out.writeByte(CHARACTERS);
+				writeString(text.toString());
+			}
+			text.setLength(0);
+		}
+
+		private void writeInt(int value) throws IOException
+		{
+			while((value & ~0x7F) != 0)
+			{
+				out.writeByte(value & 0x7F | 0x80);
+				value >>>= 7;
+			}
+			out.writeByte(value);
+		}
+
+		private void writeString(String value) throws IOException
+		{
+			byte[] data = value.getBytes(UTF8);
+			writeInt(data.length);
+			out.write(data);
+		}
+
+		private void writeName(String name) throws IOException
+		{
+			Integer index = names.get(name);
+			if(index != null)
+			{
+				writeInt(index);
+				return;
+			}
+			nameList.add(name);
+			names.put(name, nameList.size());
+			writeInt(0);
+			writeString(name);
+		}
+
+		private void fail(IOException e)
+		{
+			log.warn("Error while writing static data snapshot " + temp, e);
+			abort();
+		}
+
+		/**
+		 * Closes and deletes recorded file, if snapshot was not committed. Should be called in finally block of parsing,
+		 * so the file is not left open and partially written when parsing fails.
+		 */
+		public void abort()
+		{
+			if(out == null)
+				return;
+
+			try
+			{
+				out.close();
+			}
+			catch(IOException ignored)
+			{
+			}
+			out = null;
+			temp.delete();
+		}
+	}
+}
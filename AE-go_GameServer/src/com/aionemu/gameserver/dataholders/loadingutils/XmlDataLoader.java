@@ -17,42 +17,75 @@
 package com.aionemu.gameserver.dataholders.loadingutils;
 
 import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.XMLConstants;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.UnmarshallerHandler;
+import javax.xml.bind.annotation.XmlIDREF;
+import javax.xml.parsers.SAXParserFactory;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.ValidatorHandler;
 
 import org.apache.log4j.Logger;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.XMLReader;
 
+import com.aionemu.gameserver.configs.main.GSConfig;
 import com.aionemu.gameserver.dataholders.StaticData;
+import com.aionemu.gameserver.utils.ThreadPoolManager.PriorityThreadFactory;
 import com.google.inject.Inject;
 
 /**
  * This class is responsible for loading xml files. It uses JAXB to do the job.<br>
- * In addition, it uses @{link {@link XmlMerger} to create input file from all xml files.
+ * In addition, it uses @{link {@link XmlMerger} to create input file from all xml files.<br>
+ * Merged and validated document is saved as {@link StaticDataSnapshot}, which is loaded instead of xml files until
+ * any of them changes.
  * 
  * @author Luno
  * 
  */
 public class XmlDataLoader
 {
-	private static final Logger	log				= Logger.getLogger(XmlDataLoader.class);
+	private static final Logger	log					= Logger.getLogger(XmlDataLoader.class);
 
 	/** File containing xml schema declaration */
-	private final static String	XML_SCHEMA_FILE	= "./data/static_data/static_data.xsd";
+	private final static String	XML_SCHEMA_FILE		= "./data/static_data/static_data.xsd";
 
-	private static final String	CACHE_DIRECTORY	= "./cache/";
-	private static final String	CACHE_XML_FILE	= "./cache/static_data.xml";
-	private static final String	MAIN_XML_FILE	= "./data/static_data/static_data.xml";
+	private static final String	CACHE_DIRECTORY		= "./cache/";
+	private static final String	CACHE_XML_FILE		= "./cache/static_data.xml";
+	private static final String	CACHE_SNAPSHOT_FILE	= "./cache/static_data.bin";
+	private static final String	STATIC_DATA_DIR		= "./data/static_data/";
+	private static final String	MAIN_XML_FILE		= "./data/static_data/static_data.xml";
+
+	/**
+	 * Sections that reference ids ({@link XmlIDREF}) of other section have to be unmarshalled together with it
+	 */
+	private static final String[][]	LINKED_SECTIONS		= { { "item_templates", "player_initial_data", "npc_templates" } };
 
 	@Inject
 	private XmlServiceProxy serviceProxy;
 	
 	/**
-	 * Creates {@link StaticData} object based on xml files, starting from static_data.xml
+	 * Creates {@link StaticData} object based on xml files, starting from static_data.xml. If snapshot of these files
+	 * is up to date, it is loaded instead.
 	 * 
 	 * @return StaticData object, containing all game data defined in xml files
 	 */
@@ -60,6 +93,31 @@ public class XmlDataLoader
 	{
 		makeCacheDirectory();
 
+		int threads = GSConfig.STATIC_DATA_THREADS > 0 ? GSConfig.STATIC_DATA_THREADS : Runtime.getRuntime()
+			.availableProcessors();
+		File snapshot = new File(CACHE_SNAPSHOT_FILE);
+		byte[] hash = null;
+		try
+		{
+			hash = StaticDataSnapshot.hash(new File(STATIC_DATA_DIR));
+		}
+		catch(IOException e)
+		{
+			log.warn("Error while computing hash of static data, snapshot won't be used", e);
+		}
+
+		if(hash != null && StaticDataSnapshot.isUpToDate(snapshot, hash))
+		{
+			try
+			{
+				return loadSnapshot(snapshot, threads);
+			}
+			catch(Exception e)
+			{
+				log.warn("Error while loading static data snapshot, loading xml files", e);
+			}
+		}
+
 		File cachedXml = new File(CACHE_XML_FILE);
 		File cleanMainXml = new File(MAIN_XML_FILE);
 
@@ -67,11 +125,10 @@ public class XmlDataLoader
 
 		try
 		{
-			JAXBContext jc = JAXBContext.newInstance(StaticData.class);
-			Unmarshaller un = jc.createUnmarshaller();
-			un.setSchema(getSchema());
-			un.setAdapter(serviceProxy);
-			return (StaticData) un.unmarshal(new File(CACHE_XML_FILE));
+			// sections can be unmarshalled in parallel only from snapshot
+			if(hash != null && threads > 1 && createSnapshot(cachedXml, new StaticDataSnapshot.Recorder(snapshot, hash)))
+				return loadSnapshot(snapshot, threads);
+			return loadXml(cachedXml, hash != null ? new StaticDataSnapshot.Recorder(snapshot, hash) : null);
 		}
 		catch(Exception e)
 		{
@@ -80,6 +137,247 @@ public class XmlDataLoader
 		}
 	}
 
+	/**
+	 * Parses and validates merged xml file.
+	 * 
+	 * @param xml
+	 * @param recorder
+	 *            recorder of snapshot or null
+	 * @return StaticData object
+	 */
+	private StaticData loadXml(File xml, StaticDataSnapshot.Recorder recorder) throws Exception
+	{
+		Unmarshaller un = JAXBContext.newInstance(StaticData.class).createUnmarshaller();
+		un.setAdapter(serviceProxy);
+		un.setSchema(getSchema());
+		UnmarshallerHandler handler = un.getUnmarshallerHandler();
+		DataLoadTimer timer = new DataLoadTimer();
+		timer.setContentHandler(handler);
+
+		XMLReader reader = createReader();
+		if(recorder != null)
+		{
+			recorder.setContentHandler(timer);
+			reader.setContentHandler(recorder);
+		}
+		else
+			reader.setContentHandler(timer);
+		try
+		{
+			reader.parse(new InputSource(xml.toURI().toString()));
+
+			StaticData data = (StaticData) handler.getResult();
+			logTimes(timer);
+			if(recorder != null && recorder.commit())
+				log.info("Static data snapshot saved to " + CACHE_SNAPSHOT_FILE);
+			return data;
+		}
+		finally
+		{
+			if(recorder != null)
+				recorder.abort();
+		}
+	}
+
+	/**
+	 * Parses and validates merged xml file only to record its snapshot.
+	 * 
+	 * @param xml
+	 * @param recorder
+	 * @return true if snapshot was saved
+	 */
+	private boolean createSnapshot(File xml, StaticDataSnapshot.Recorder recorder) throws Exception
+	{
+		// validator only gets events, not to record default attributes it would add
+		ValidatorHandler validator = getSchema().newValidatorHandler();
+		validator.setErrorHandler(new ErrorHandler(){
+			@Override
+			public void warning(SAXParseException exception)
+			{
+				log.warn("Warning while validating static data", exception);
+			}
+
+			@Override
+			public void error(SAXParseException exception) throws SAXException
+			{
+				throw exception;
+			}
+
+			@Override
+			public void fatalError(SAXParseException exception) throws SAXException
+			{
+				throw exception;
+			}
+		});
+		recorder.setContentHandler(validator);
+		XMLReader reader = createReader();
+		reader.setContentHandler(recorder);
+		try
+		{
+			reader.parse(new InputSource(xml.toURI().toString()));
+
+			if(!recorder.commit())
+				return false;
+			log.info("Static data snapshot saved to " + CACHE_SNAPSHOT_FILE);
+			return true;
+		}
+		finally
+		{
+			recorder.abort();
+		}
+	}
+
+	/**
+	 * Replays snapshot, without merging or validation of xml files. Sections of snapshot are unmarshalled by given
+	 * number of threads, the largest first.
+	 * 
+	 * @param file
+	 * @param threads
+	 * @return StaticData object
+	 */
+	private StaticData loadSnapshot(File file, int threads) throws Exception
+	{
+		log.info("Loading static data from snapshot " + CACHE_SNAPSHOT_FILE);
+		StaticDataSnapshot snapshot = new StaticDataSnapshot(file);
+		JAXBContext jc = JAXBContext.newInstance(StaticData.class);
+
+		Map<String, String> linked = new HashMap<String, String>();
+		for(String[] sections : LINKED_SECTIONS)
+		{
+			for(String section : sections)
+				linked.put(section, sections[0]);
+		}
+
+		Map<String, SectionLoader> loaders = new HashMap<String, SectionLoader>();
+		Map<String, SectionLoader> groups = new HashMap<String, SectionLoader>();
+		for(StaticDataSnapshot.Section section : snapshot.getSections())
+		{
+			String group = threads <= 1 ? "" : linked.containsKey(section.getName()) ? linked.get(section.getName())
+				: section.getName();
+			SectionLoader loader = groups.get(group);
+			if(loader == null)
+			{
+				loader = new SectionLoader(jc, snapshot);
+				groups.put(group, loader);
+			}
+			loader.add(section);
+			loaders.put(section.getName(), loader);
+		}
+
+		List<SectionLoader> tasks = new ArrayList<SectionLoader>(groups.values());
+		Collections.sort(tasks);
+		StaticData data = new StaticData();
+		if(tasks.size() <= 1)
+		{
+			SectionLoader loader = tasks.isEmpty() ? new SectionLoader(jc, snapshot) : tasks.get(0);
+			copyDataHolders(loader.call(), data);
+		}
+		else
+		{
+			ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, tasks.size()),
+				new PriorityThreadFactory("StaticDataLoader", Thread.NORM_PRIORITY, true));
+			try
+			{
+				for(Future<StaticData> result : pool.invokeAll(tasks))
+					copyDataHolders(result.get(), data);
+			}
+			finally
+			{
+				pool.shutdown();
+			}
+		}
+
+		SectionLoader critical = null;
+		for(StaticDataSnapshot.Section section : snapshot.getSections())
+		{
+			SectionLoader loader = loaders.get(section.getName());
+			log.info("Load time of " + section.getName() + ": " + loader.timer.getTimes().get(section.getName())
+				/ 1000000 + " ms");
+			if(critical == null || loader.time > critical.time)
+				critical = loader;
+		}
+		if(tasks.size() > 1)
+			log.info("Static data loaded by " + Math.min(threads, tasks.size()) + " threads, critical path: "
+				+ critical.timer.getTimes().keySet() + " " + critical.time / 1000000 + " ms");
+		return data;
+	}
+
+	/**
+	 * Copies all loaded data holders
+	 */
+	private static void copyDataHolders(StaticData from, StaticData to) throws IllegalAccessException
+	{
+		for(Field field : StaticData.class.getFields())
+		{
+			Object holder = field.get(from);
+			if(holder != null)
+				field.set(to, holder);
+		}
+	}
+
+	private XMLReader createReader() throws Exception
+	{
+		SAXParserFactory factory = SAXParserFactory.newInstance();
+		factory.setNamespaceAware(true);
+		return factory.newSAXParser().getXMLReader();
+	}
+
+	private void logTimes(DataLoadTimer timer)
+	{
+		for(Map.Entry<String, Long> entry : timer.getTimes().entrySet())
+			log.info("Load time of " + entry.getKey() + ": " + entry.getValue() / 1000000 + " ms");
+	}
+
+	/**
+	 * Unmarshals some sections of snapshot as {@link StaticData} with only their data holders.
+	 */
+	private class SectionLoader implements Callable<StaticData>, Comparable<SectionLoader>
+	{
+		private final JAXBContext			jc;
+		private final StaticDataSnapshot	snapshot;
+		private final Set<String>			sections	= new HashSet<String>();
+		private long						size;
+
+		private final DataLoadTimer			timer		= new DataLoadTimer();
+		private long						time;
+
+		private SectionLoader(JAXBContext jc, StaticDataSnapshot snapshot)
+		{
+			this.jc = jc;
+			this.snapshot = snapshot;
+		}
+
+		private void add(StaticDataSnapshot.Section section)
+		{
+			sections.add(section.getName());
+			size += section.getSize();
+		}
+
+		@Override
+		public StaticData call() throws Exception
+		{
+			long start = System.nanoTime();
+			Unmarshaller un = jc.createUnmarshaller();
+			un.setAdapter(serviceProxy);
+			UnmarshallerHandler handler = un.getUnmarshallerHandler();
+			timer.setContentHandler(handler);
+			snapshot.replay(timer, sections);
+
+			StaticData data = (StaticData) handler.getResult();
+			time = System.nanoTime() - start;
+			return data;
+		}
+
+		/**
+		 * Larger first
+		 */
+		@Override
+		public int compareTo(SectionLoader o)
+		{
+			return size > o.size ? -1 : size < o.size ? 1 : 0;
+		}
+	}
+
 	/**
 	 * Creates and returns {@link Schema} object representing xml schema of xml files
 	 * 
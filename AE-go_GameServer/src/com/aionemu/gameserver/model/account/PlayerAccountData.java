@@ -126,6 +126,14 @@ public class PlayerAccountData
 		return legionMember.getLegion();
 	}
 	
+	/**
+	 * @param legionMember the legionMember to set
+	 */
+	public void setLegionMember(LegionMember legionMember)
+	{
+		this.legionMember = legionMember;
+	}
+
 	/**
 	 * Returns true if player is a legion member
 	 * @return true or false
@@ -16,6 +16,9 @@
  */
 package com.aionemu.gameserver.model.gameobjects;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import org.apache.log4j.Logger;
 
 import com.aionemu.gameserver.ai.AI;
@@ -35,6 +38,7 @@ import com.aionemu.gameserver.skillengine.effect.EffectId;
 import com.aionemu.gameserver.skillengine.model.Skill;
 import com.aionemu.gameserver.taskmanager.tasks.PacketBroadcaster;
 import com.aionemu.gameserver.taskmanager.tasks.PacketBroadcaster.BroadcastMode;
+import com.aionemu.gameserver.world.TickTask;
 import com.aionemu.gameserver.world.WorldPosition;
 
 /**
@@ -66,6 +70,11 @@ public abstract class Creature extends VisibleObject
 	
 	private int transformedModelId;
 	private ObserveController 	observeController;
+	
+	/**
+	 * Periodic tasks executed by WorldTickEngine
+	 */
+	private final List<TickTask> tickTasks = new CopyOnWriteArrayList<TickTask>();
 
 	/**
 	 * 
@@ -387,6 +396,14 @@ public abstract class Creature extends VisibleObject
 		return observeController;
 	}
 	
+	/**
+	 * @return periodic tasks of this creature executed by WorldTickEngine
+	 */
+	public List<TickTask> getTickTasks()
+	{
+		return tickTasks;
+	}
+	
 	/**
 	 * 
 	 * @param visibleObject
@@ -44,6 +44,11 @@ public class Item extends AionObject
 
 	private PersistentState persistentState;
 
+	/**
+	 * Incremented on every change of persistent state, so store can tell if item was changed while it was stored
+	 */
+	private volatile int stateVersion;
+
 	private Set<ManaStone> manaStones;
 	
 	private GodStone godStone;
@@ -322,8 +327,9 @@ public class Item extends AionObject
 	 *  UPDATED -> UPDATE_REQUIRED
 	 * @param persistentState the persistentState to set
 	 */
-	public void setPersistentState(PersistentState persistentState)
+	public synchronized void setPersistentState(PersistentState persistentState)
 	{
+		stateVersion++;
 		switch(persistentState)
 		{
 			case DELETED:
@@ -341,6 +347,38 @@ public class Item extends AionObject
 
 	}
 
+	/**
+	 * @return version of persistent state, must be taken before the state itself
+	 */
+	public int getStateVersion()
+	{
+		return stateVersion;
+	}
+
+	/**
+	 * Called when item was stored. Item is marked UPDATED only if it wasn't changed since given version was taken.
+	 * Inserted item that was changed meanwhile is already in db, so it has to be updated [or deleted] next time.
+	 * 
+	 * @param storedState
+	 *            state in which item was stored
+	 * @param version
+	 *            version of state taken before item was stored
+	 */
+	public synchronized void markStored(PersistentState storedState, int version)
+	{
+		if(version == stateVersion)
+		{
+			this.persistentState = PersistentState.UPDATED;
+		}
+		else if(storedState == PersistentState.NEW)
+		{
+			if(this.persistentState == PersistentState.NEW)
+				this.persistentState = PersistentState.UPDATE_REQUIRED;
+			else if(this.persistentState == PersistentState.NOACTION)
+				this.persistentState = PersistentState.DELETED;
+		}
+	}
+
 	public void setItemLocation(int storageType)
 	{
 		this.itemLocation = storageType;
@@ -16,6 +16,10 @@
  */
 package com.aionemu.gameserver.model.gameobjects.stats;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.TreeSet;
 import java.util.Map.Entry;
@@ -36,6 +40,9 @@ import com.aionemu.gameserver.model.gameobjects.stats.modifiers.StatModifier;
 import com.aionemu.gameserver.model.items.ItemSlot;
 
 /**
+ * Stats of creature. Modifiers of active effects are indexed by the stat they modify, so adding or ending an effect
+ * recomputes only stats touched by that effect.
+ * 
  * @author xavier
  * 
  */
@@ -46,8 +53,37 @@ public class CreatureGameStats<T extends Creature>
 
 	private static final int								ATTACK_MAX_COUNTER	= Integer.MAX_VALUE;
 
-	protected FastMap<StatEnum, Stat>						stats;
+	private static final StatModifierPriority[]				PRIORITIES			= StatModifierPriority.values();
+
+	/**
+	 * Stat ordinal -> stat
+	 */
+	protected Stat[]										stats;
+	/**
+	 * Stat ordinal -> current value. Written under write lock, read without locking.
+	 */
+	private final int[]										currentStats;
 	protected FastMap<StatEffectId, TreeSet<StatModifier>>	statsModifiers;
+	/**
+	 * Stat ordinal -> effects modifying the stat [in order of adding] and their modifiers of the stat
+	 */
+	private final List<FastMap<StatEffectId, List<StatModifier>>>	modifiersByStat;
+	/**
+	 * Stat ordinal -> count of effects setting base value of the stat to 0
+	 */
+	private final int[]										zeroBaseCounts;
+	/**
+	 * Effect -> stats touched by the effect
+	 */
+	private final FastMap<StatEffectId, EffectStats>		effectStats;
+	/**
+	 * Stats that have to be recomputed
+	 */
+	private final EnumSet<StatEnum>							dirtyStats;
+	/**
+	 * Whether owner had off hand weapon when modifiers were indexed
+	 */
+	private boolean											offHandWeapon;
 
 	private int												attackCounter		= 0;
 	protected T												owner				= null;
@@ -59,9 +95,16 @@ public class CreatureGameStats<T extends Creature>
 	 */
 	protected CreatureGameStats(T owner)
 	{
+		int statCount = StatEnum.values().length;
 		this.owner = owner;
-		this.stats = new FastMap<StatEnum,Stat> ();
+		this.stats = new Stat[statCount];
+		this.currentStats = new int[statCount];
 		this.statsModifiers = new FastMap<StatEffectId, TreeSet<StatModifier>>();
+		this.modifiersByStat = new ArrayList<FastMap<StatEffectId, List<StatModifier>>>(Collections.nCopies(statCount,
+			(FastMap<StatEffectId, List<StatModifier>>) null));
+		this.zeroBaseCounts = new int[statCount];
+		this.effectStats = new FastMap<StatEffectId, EffectStats>();
+		this.dirtyStats = EnumSet.noneOf(StatEnum.class);
 	}
 	
 	/**
@@ -128,9 +171,10 @@ public class CreatureGameStats<T extends Creature>
 		lock.readLock().lock();
 		try
 		{
-			if(stats.containsKey(stat))
+			Stat oStat = stats[stat.ordinal()];
+			if(oStat != null)
 			{
-				value = stats.get(stat).getBase();
+				value = oStat.getBase();
 			}
 		}
 		finally
@@ -151,9 +195,10 @@ public class CreatureGameStats<T extends Creature>
 		lock.readLock().lock();
 		try
 		{
-			if (stats.containsKey(stat))
+			Stat oStat = stats[stat.ordinal()];
+			if(oStat != null)
 			{
-				value = stats.get(stat).getBonus();
+				value = oStat.getBonus();
 			}
 		}
 		finally
@@ -164,28 +209,14 @@ public class CreatureGameStats<T extends Creature>
 	}
 	
 	/**
+	 * Current value of stat, read without locking - it may be stale by recomputation running at the same time.
 	 * 
 	 * @param stat
 	 * @return
 	 */
 	public int getCurrentStat(StatEnum stat)
 	{
-		int value = 0;
-
-		lock.readLock().lock();
-		try
-		{
-			if (stats.containsKey(stat))
-			{
-				value = stats.get(stat).getCurrent();
-			}
-		}
-		finally
-		{
-			lock.readLock().unlock();
-		}
-
-		return value;
+		return currentStats[stat.ordinal()];
 	}
 
 	/**
@@ -200,12 +231,21 @@ public class CreatureGameStats<T extends Creature>
 			return;
 		}
 
-		if (statsModifiers.containsKey(id))
+		lock.writeLock().lock();
+		try
 		{
-			throw new IllegalArgumentException("Effect "+id+" already active");
-		}
+			if (statsModifiers.containsKey(id))
+			{
+				throw new IllegalArgumentException("Effect "+id+" already active");
+			}
 
-		statsModifiers.put(id, modifiers);
+			statsModifiers.put(id, modifiers);
+			indexModifiers(id, modifiers);
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
 		recomputeStats();
 	}
 	
@@ -214,79 +254,49 @@ public class CreatureGameStats<T extends Creature>
 	 */
 	public boolean effectAlreadyAdded(StatEffectId id)
 	{
-		return statsModifiers.containsKey(id);
+		lock.readLock().lock();
+		try
+		{
+			return statsModifiers.containsKey(id);
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
 	}
 	
 	
 	/**
-	 * Recomputation of all stats
+	 * Recomputation of stats changed since last recomputation
 	 * Additional logic is in StatChangeListener callbacks
 	 */
 	@Enhancable(callback = StatChangeListener.class)
 	protected void recomputeStats()
 	{
-		//need check this lock, may be remove
 		lock.writeLock().lock();
 		try
 		{
-			resetStats();
-			FastMap<StatEnum, StatModifiers> orderedModifiers = new FastMap<StatEnum, StatModifiers>();
+			/**
+			 * stats modified by main or sub hand depend on off hand weapon
+			 */
+			if(owner instanceof Player && hasOffHandWeapon() != offHandWeapon)
+				invalidateStats();
 
-			for(Entry<StatEffectId, TreeSet<StatModifier>> modifiers : statsModifiers.entrySet())
+			for(StatEnum stat : dirtyStats)
 			{
-				StatEffectId eid = modifiers.getKey();
-				int slots;
-				
-				if(modifiers.getValue() == null)
-					continue;
-				
-				for(StatModifier modifier : modifiers.getValue())
-				{
-					slots = ItemSlot.NONE.getSlotIdMask();
-					if(eid instanceof ItemStatEffectId)
-					{
-						slots = ((ItemStatEffectId) eid).getSlot();
-					}
-
-					if(modifier.getStat().isMainOrSubHandStat() && owner instanceof Player)
-					{
-						if(slots != ItemSlot.MAIN_HAND.getSlotIdMask() && slots != ItemSlot.SUB_HAND.getSlotIdMask())
-						{
-							if(((Player) owner).getEquipment().getOffHandWeaponType() != null)
-								slots = ItemSlot.MAIN_OR_SUB.getSlotIdMask();
-							else
-							{
-								slots = ItemSlot.MAIN_HAND.getSlotIdMask();
-								setStat(StatEnum.OFF_HAND_ACCURACY, 0, false);
-							}
-						}
-						else if(slots == ItemSlot.MAIN_HAND.getSlotIdMask())
-							setStat(StatEnum.MAIN_HAND_POWER, 0);
-					}
-
-					List<ItemSlot> oSlots = ItemSlot.getSlotsFor(slots);
-					for(ItemSlot slot : oSlots)
-					{
-						StatEnum statToModify = modifier.getStat().getMainOrSubHandStat(slot);
-						if(!orderedModifiers.containsKey(statToModify))
-						{
-							orderedModifiers.put(statToModify, new StatModifiers());
-						}
-						orderedModifiers.get(statToModify).add(modifier);
-					}
-				}
+				recomputeStat(stat);
 			}
 
-			for(Entry<StatEnum, StatModifiers> entry : orderedModifiers.entrySet())
+			if(dirtyStats.contains(StatEnum.ATTACK_SPEED) || dirtyStats.contains(StatEnum.MAIN_HAND_ATTACK_SPEED)
+				|| dirtyStats.contains(StatEnum.OFF_HAND_ATTACK_SPEED))
 			{
-				applyModifiers(entry.getKey(), entry.getValue());
+				setStat(StatEnum.ATTACK_SPEED, Math.round(getBaseStat(StatEnum.MAIN_HAND_ATTACK_SPEED)
+														+ getBaseStat(StatEnum.OFF_HAND_ATTACK_SPEED) * 0.25f), false);
+				
+				setStat(StatEnum.ATTACK_SPEED, getStatBonus(StatEnum.MAIN_HAND_ATTACK_SPEED) 
+											 + getStatBonus(StatEnum.OFF_HAND_ATTACK_SPEED), true);
 			}
-			
-			setStat(StatEnum.ATTACK_SPEED, Math.round(getBaseStat(StatEnum.MAIN_HAND_ATTACK_SPEED)
-													+ getBaseStat(StatEnum.OFF_HAND_ATTACK_SPEED) * 0.25f), false);
-			
-			setStat(StatEnum.ATTACK_SPEED, getStatBonus(StatEnum.MAIN_HAND_ATTACK_SPEED) 
-										 + getStatBonus(StatEnum.OFF_HAND_ATTACK_SPEED), true);
+			dirtyStats.clear();
 		}
 		finally
 		{
@@ -300,70 +310,216 @@ public class CreatureGameStats<T extends Creature>
 	 */
 	public void endEffect(StatEffectId id)
 	{
-		statsModifiers.remove(id);
+		lock.writeLock().lock();
+		try
+		{
+			statsModifiers.remove(id);
+			unindexModifiers(id);
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
 		recomputeStats();
 	}
 
 	/**
+	 * Index modifiers of effect by stats they modify and mark those stats dirty.<br>
+	 * Should be called under write lock.
 	 * 
-	 * @param element
-	 * @return
+	 * @param id
+	 * @param modifiers
 	 */
-	public int getMagicalDefenseFor(SkillElement element)
+	private void indexModifiers(StatEffectId id, TreeSet<StatModifier> modifiers)
 	{
-		switch(element)
+		EffectStats touched = new EffectStats();
+		for(StatModifier modifier : modifiers)
 		{
-			case EARTH:
-				return getCurrentStat(StatEnum.EARTH_RESISTANCE);
-			case FIRE:
-				return getCurrentStat(StatEnum.FIRE_RESISTANCE);
-			case WATER:
-				return getCurrentStat(StatEnum.WATER_RESISTANCE);
-			case WIND:
-				return getCurrentStat(StatEnum.WIND_RESISTANCE);
-			default:
-				return 0;
+			int slots = ItemSlot.NONE.getSlotIdMask();
+			if(id instanceof ItemStatEffectId)
+			{
+				slots = ((ItemStatEffectId) id).getSlot();
+			}
+
+			if(modifier.getStat().isMainOrSubHandStat() && owner instanceof Player)
+			{
+				if(slots != ItemSlot.MAIN_HAND.getSlotIdMask() && slots != ItemSlot.SUB_HAND.getSlotIdMask())
+				{
+					if(offHandWeapon)
+						slots = ItemSlot.MAIN_OR_SUB.getSlotIdMask();
+					else
+					{
+						slots = ItemSlot.MAIN_HAND.getSlotIdMask();
+						touched.zeroBase.add(StatEnum.OFF_HAND_ACCURACY);
+					}
+				}
+				else if(slots == ItemSlot.MAIN_HAND.getSlotIdMask())
+					touched.zeroBase.add(StatEnum.MAIN_HAND_POWER);
+			}
+
+			for(ItemSlot slot : ItemSlot.getSlotsFor(slots))
+			{
+				StatEnum statToModify = modifier.getStat().getMainOrSubHandStat(slot);
+				FastMap<StatEffectId, List<StatModifier>> statModifiers = modifiersByStat.get(statToModify.ordinal());
+				if(statModifiers == null)
+				{
+					statModifiers = new FastMap<StatEffectId, List<StatModifier>>();
+					modifiersByStat.set(statToModify.ordinal(), statModifiers);
+				}
+				List<StatModifier> effectModifiers = statModifiers.get(id);
+				if(effectModifiers == null)
+				{
+					effectModifiers = new ArrayList<StatModifier>(2);
+					statModifiers.put(id, effectModifiers);
+				}
+				effectModifiers.add(modifier);
+				touched.stats.add(statToModify);
+			}
+		}
+
+		for(StatEnum stat : touched.zeroBase)
+		{
+			zeroBaseCounts[stat.ordinal()]++;
 		}
+		dirtyStats.addAll(touched.stats);
+		dirtyStats.addAll(touched.zeroBase);
+		effectStats.put(id, touched);
 	}
-	
+
+	/**
+	 * Remove modifiers of effect from index and mark stats touched by it dirty.<br>
+	 * Should be called under write lock.
+	 * 
+	 * @param id
+	 */
+	private void unindexModifiers(StatEffectId id)
+	{
+		EffectStats touched = effectStats.remove(id);
+		if(touched == null)
+			return;
+
+		for(StatEnum stat : touched.stats)
+		{
+			modifiersByStat.get(stat.ordinal()).remove(id);
+		}
+		for(StatEnum stat : touched.zeroBase)
+		{
+			zeroBaseCounts[stat.ordinal()]--;
+		}
+		dirtyStats.addAll(touched.stats);
+		dirtyStats.addAll(touched.zeroBase);
+	}
+
 	/**
-	 *  Reset all stats
-	 *  No need to syncronized becaused guarded by recompute() write lock
+	 * Rebuild modifiers index from all active effects and mark all stats dirty, so next recomputeStats() will
+	 * recompute everything.
 	 */
-	protected void resetStats()
+	protected void invalidateStats()
 	{
-		for(Stat stat : stats.values())
+		lock.writeLock().lock();
+		try
 		{
-			stat.reset();
+			Collections.fill(modifiersByStat, null);
+			Arrays.fill(zeroBaseCounts, 0);
+			effectStats.clear();
+			offHandWeapon = owner instanceof Player && hasOffHandWeapon();
+
+			for(Entry<StatEffectId, TreeSet<StatModifier>> modifiers : statsModifiers.entrySet())
+			{
+				if(modifiers.getValue() != null)
+					indexModifiers(modifiers.getKey(), modifiers.getValue());
+			}
+			dirtyStats.addAll(EnumSet.allOf(StatEnum.class));
+		}
+		finally
+		{
+			lock.writeLock().unlock();
 		}
 	}
-	
+
 	/**
+	 * @return true if owner, which has to be player, has weapon in off hand
+	 */
+	private boolean hasOffHandWeapon()
+	{
+		return ((Player) owner).getEquipment() != null && ((Player) owner).getEquipment().getOffHandWeaponType() != null;
+	}
+
+	/**
+	 * Reset stat and apply all modifiers of this stat.<br>
+	 * Should be called under write lock.
 	 * 
 	 * @param stat
-	 * @param modifiers
 	 */
-	protected void applyModifiers(StatEnum stat, StatModifiers modifiers)
+	private void recomputeStat(StatEnum stat)
 	{
-		if(modifiers == null)
-			return;
+		int ordinal = stat.ordinal();
+		FastMap<StatEffectId, List<StatModifier>> statModifiers = modifiersByStat.get(ordinal);
+		boolean modified = statModifiers != null && !statModifiers.isEmpty();
 
-		if(!stats.containsKey(stat))
+		Stat oStat = stats[ordinal];
+		if(oStat == null)
 		{
-			initStat(stat, 0);
+			if(!modified && zeroBaseCounts[ordinal] == 0)
+				return;
+			oStat = new Stat(stat, 0);
+			stats[ordinal] = oStat;
 		}
 
-		Stat oStat = stats.get(stat);
-		for(StatModifierPriority priority : StatModifierPriority.values())
+		oStat.reset();
+		if(zeroBaseCounts[ordinal] > 0)
+			oStat.set(0, false);
+
+		if(modified)
 		{
-			for(StatModifier modifier : modifiers.getModifiers(priority))
+			for(StatModifierPriority priority : PRIORITIES)
 			{
-				int newValue = modifier.apply(oStat.getBase(), oStat.getCurrent());
-				oStat.increase(newValue, modifier.isBonus());
+				for(List<StatModifier> modifiers : statModifiers.values())
+				{
+					for(StatModifier modifier : modifiers)
+					{
+						if(modifier.getPriority() != priority)
+							continue;
+						int newValue = modifier.apply(oStat.getBase(), oStat.getCurrent());
+						oStat.increase(newValue, modifier.isBonus());
+					}
+				}
 			}
 		}
+		currentStats[ordinal] = oStat.getCurrent();
 	}
 
+	/**
+	 * 
+	 * @param element
+	 * @return
+	 */
+	public int getMagicalDefenseFor(SkillElement element)
+	{
+		switch(element)
+		{
+			case EARTH:
+				return getCurrentStat(StatEnum.EARTH_RESISTANCE);
+			case FIRE:
+				return getCurrentStat(StatEnum.FIRE_RESISTANCE);
+			case WATER:
+				return getCurrentStat(StatEnum.WATER_RESISTANCE);
+			case WIND:
+				return getCurrentStat(StatEnum.WIND_RESISTANCE);
+			default:
+				return 0;
+		}
+	}
+	
+	/**
+	 *  Remove all stats, modifiers of active effects will be applied again on next recomputeStats()
+	 */
+	protected void clearStats()
+	{
+		Arrays.fill(stats, null);
+		Arrays.fill(currentStats, 0);
+		invalidateStats();
+	}
 	
 	/**
 	 * 
@@ -372,15 +528,19 @@ public class CreatureGameStats<T extends Creature>
 	 */
 	protected void initStat(StatEnum stat, int value)
 	{
-		if(!stats.containsKey(stat))
+		Stat oStat = stats[stat.ordinal()];
+		if(oStat == null)
 		{
-			stats.put(stat, new Stat(stat, value));
+			oStat = new Stat(stat, value);
+			stats[stat.ordinal()] = oStat;
 		}
 		else
 		{
-			stats.get(stat).reset();
-			stats.get(stat).set(value, false);
+			oStat.reset();
+			oStat.set(value, false);
 		}
+		currentStats[stat.ordinal()] = oStat.getCurrent();
+		dirtyStats.add(stat);
 	}
 	
 	/**
@@ -391,11 +551,14 @@ public class CreatureGameStats<T extends Creature>
 	 */
 	protected void setStat(StatEnum stat, int value, boolean bonus)
 	{
-		if(!stats.containsKey(stat))
+		Stat oStat = stats[stat.ordinal()];
+		if(oStat == null)
 		{
-			stats.put(stat, new Stat(stat, 0));
+			oStat = new Stat(stat, 0);
+			stats[stat.ordinal()] = oStat;
 		}
-		stats.get(stat).set(value, bonus);
+		oStat.set(value, bonus);
+		currentStats[stat.ordinal()] = oStat.getCurrent();
 	}
 	
 	@Override
@@ -404,11 +567,27 @@ public class CreatureGameStats<T extends Creature>
 		StringBuilder sb = new StringBuilder();
 		sb.append('{');
 		sb.append("owner:" + owner.getObjectId());
-		for(Stat stat : stats.values())
+		for(Stat stat : stats)
 		{
-			sb.append(stat);
+			if(stat != null)
+				sb.append(stat);
 		}
 		sb.append('}');
 		return sb.toString();
 	}
+
+	/**
+	 * Stats touched by one effect
+	 */
+	private static class EffectStats
+	{
+		/**
+		 * Stats modified by the effect
+		 */
+		private final EnumSet<StatEnum>	stats		= EnumSet.noneOf(StatEnum.class);
+		/**
+		 * Stats of which base value is set to 0 by the effect
+		 */
+		private final EnumSet<StatEnum>	zeroBase	= EnumSet.noneOf(StatEnum.class);
+	}
 }
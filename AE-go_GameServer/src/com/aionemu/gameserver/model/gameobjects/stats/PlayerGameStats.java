@@ -140,7 +140,7 @@ public class PlayerGameStats extends CreatureGameStats<Player>
 	 */
 	protected void initStats(int maxHp, int maxMp, int power, int health, int agility, int accuracy, int knowledge, int will, int mainHandAttack, int mainHandCritRate, int attackSpeed, int attackRange, int runSpeed, int flySpeed)
 	{
-		stats.clear();
+		clearStats();
 		initStat(StatEnum.MAXHP, maxHp);
 		initStat(StatEnum.MAXMP, maxMp);
 		initStat(StatEnum.POWER, power);
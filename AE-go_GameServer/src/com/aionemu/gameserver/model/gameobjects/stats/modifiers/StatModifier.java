@@ -16,6 +16,8 @@
  */
 package com.aionemu.gameserver.model.gameobjects.stats.modifiers;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAttribute;
@@ -38,7 +40,10 @@ public abstract class StatModifier implements Comparable<StatModifier>
 	@XmlAttribute
 	private boolean bonus;
 	
-	protected static int MODIFIER_ID = 0;
+	/**
+	 * Modifiers are unmarshalled by several static data loader threads at once
+	 */
+	private static final AtomicInteger MODIFIER_ID = new AtomicInteger();
 	
 	protected int id;
 	
@@ -59,8 +64,14 @@ public abstract class StatModifier implements Comparable<StatModifier>
 	
 	protected void nextId()
 	{
-		MODIFIER_ID = (MODIFIER_ID + 1) % Integer.MAX_VALUE;
-		id = MODIFIER_ID;
+		int current, next;
+		do
+		{
+			current = MODIFIER_ID.get();
+			next = (current + 1) % Integer.MAX_VALUE;
+		}
+		while(!MODIFIER_ID.compareAndSet(current, next));
+		id = next;
 	}
 	
 	public StatEnum getStat ()
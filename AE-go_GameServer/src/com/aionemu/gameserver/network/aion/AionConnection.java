@@ -17,21 +17,27 @@
 package com.aionemu.gameserver.network.aion;
 
 import java.io.IOException;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayDeque;
 import java.util.Deque;
+import java.util.List;
 
 import org.apache.log4j.Logger;
 
 import com.aionemu.commons.network.AConnection;
 import com.aionemu.commons.network.Dispatcher;
+import com.aionemu.commons.network.PacketExecutor;
 import com.aionemu.commons.network.PacketProcessor;
+import com.aionemu.commons.network.QueuedPacketProcessor;
+import com.aionemu.gameserver.configs.network.NetworkConfig;
 import com.aionemu.gameserver.model.account.Account;
 import com.aionemu.gameserver.model.gameobjects.player.Player;
 import com.aionemu.gameserver.network.Crypt;
 import com.aionemu.gameserver.network.aion.serverpackets.SM_KEY;
 import com.aionemu.gameserver.network.loginserver.LoginServer;
+import com.aionemu.gameserver.services.LoginQueueService;
 import com.aionemu.gameserver.services.PlayerService;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
@@ -50,7 +56,14 @@ public class AionConnection extends AConnection
 	/**
 	 * PacketProcessor for executing packets.
 	 */
-	private final static PacketProcessor<AionConnection>	processor	= new PacketProcessor<AionConnection>(1, 8);
+	private final static PacketExecutor<AionConnection>	processor	= NetworkConfig.PACKET_PROCESSOR_QUEUED
+																			? new QueuedPacketProcessor<AionConnection>(
+																				"PacketProcessor",
+																				NetworkConfig.PACKET_PROCESSOR_MIN_THREADS,
+																				NetworkConfig.PACKET_PROCESSOR_MAX_THREADS)
+																			: new PacketProcessor<AionConnection>(
+																				NetworkConfig.PACKET_PROCESSOR_MIN_THREADS,
+																				NetworkConfig.PACKET_PROCESSOR_MAX_THREADS);
 
 	/**
 	 * Possible states of AionConnection
@@ -99,6 +112,7 @@ public class AionConnection extends AConnection
 	private LoginServer						loginServer;
 	private AionPacketHandler				aionPacketHandler;
 	private PlayerService					playerService;
+	private LoginQueueService				loginQueueService;
 	private long                     		lastPingTimeMS;
 
 	/**
@@ -110,13 +124,15 @@ public class AionConnection extends AConnection
 	 */
 	@Inject
 	public AionConnection(@Assisted SocketChannel sc, @Assisted Dispatcher d, LoginServer loginServer,
-		AionPacketHandler aionPacketHandler, PlayerService playerService) throws IOException
+		AionPacketHandler aionPacketHandler, PlayerService playerService, LoginQueueService loginQueueService)
+		throws IOException
 	{
 		super(sc, d);
 
 		this.loginServer = loginServer;
 		this.aionPacketHandler = aionPacketHandler;
 		this.playerService = playerService;
+		this.loginQueueService = loginQueueService;
 
 		state = State.CONNECTED;
 
@@ -127,6 +143,14 @@ public class AionConnection extends AConnection
 		sendPacket(new SM_KEY());
 	}
 
+	/**
+	 * @return statistics of client packet execution.
+	 */
+	public static List<String> getPacketProcessorStats()
+	{
+		return processor.getStats();
+	}
+
 	/**
 	 * Enable crypt key - generate random key that will be used to encrypt second server packet [first one is
 	 * unencrypted] and decrypt client packets. This method is called from SM_KEY server packet, that packet sends key
@@ -180,22 +204,42 @@ public class AionConnection extends AConnection
 	}
 
 	/**
-	 * This method will be called by Dispatcher, and will be repeated till return false.
+	 * This method will be called by Dispatcher, and will be repeated till return false. Next packet from queue is
+	 * appended to given buffer, if it does not fit it stays in queue and will be written by next socket write.
 	 * 
 	 * @param data
-	 * @return True if data was written to buffer, False indicating that there are not any more data to write.
+	 * @return True if data was written to buffer, False indicating that there are not any more data to write or that
+	 *         buffer is full.
 	 */
 	@Override
 	protected final boolean writeData(ByteBuffer data)
 	{
 		synchronized(guard)
 		{
-			AionServerPacket packet = sendMsgQueue.pollFirst();
-			if(packet == null)
-				return false;
-
-			packet.write(this, data);
-			return true;
+			for(;;)
+			{
+				AionServerPacket packet = sendMsgQueue.pollFirst();
+				if(packet == null)
+					return false;
+
+				int position = data.position();
+				try
+				{
+					packet.write(this, data);
+					return true;
+				}
+				catch(BufferOverflowException e)
+				{
+					data.position(position);
+					if(position > 0)
+					{
+						sendMsgQueue.addFirst(packet);
+						return false;
+					}
+					/** packet is bigger than whole write buffer, it will never be send */
+					log.warn("Packet " + packet + " doesn't fit into write buffer, dropped!", e);
+				}
+			}
 		}
 	}
 
@@ -221,6 +265,7 @@ public class AionConnection extends AConnection
 		 */
 		if(getAccount() != null)
 			loginServer.aionClientDisconnected(getAccount().getId());
+		loginQueueService.remove(this);
 		if(getActivePlayer() != null)
 		{
 			Player player = getActivePlayer();
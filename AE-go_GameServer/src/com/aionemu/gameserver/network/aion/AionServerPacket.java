@@ -17,6 +17,7 @@
 package com.aionemu.gameserver.network.aion;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import com.aionemu.commons.network.packet.BaseServerPacket;
 import com.aionemu.gameserver.network.Crypt;
@@ -28,6 +29,26 @@ import com.aionemu.gameserver.network.Crypt;
  */
 public abstract class AionServerPacket extends BaseServerPacket
 {
+	/**
+	 * Buffer used to write packets that will be broadcast - one per thread.
+	 */
+	private static final ThreadLocal<ByteBuffer>	broadcastBuffer	= new ThreadLocal<ByteBuffer>(){
+																		@Override
+																		protected ByteBuffer initialValue()
+																		{
+																			ByteBuffer buf = ByteBuffer
+																				.allocate(8192 * 2);
+																			buf.order(ByteOrder.LITTLE_ENDIAN);
+																			return buf;
+																		}
+																	};
+
+	/**
+	 * Opcode and data of this packet written once by {@link #prepareBroadcast()} and shared by all connections this
+	 * packet is sent to. Null if packet is written separately for each connection.
+	 */
+	private volatile byte[]						broadcastData;
+
 	/**
 	 * Constructs new server packet
 	 */
@@ -57,21 +78,63 @@ public abstract class AionServerPacket extends BaseServerPacket
 	}
 
 	/**
-	 * Write and encrypt this packet data for given connection, to given buffer.
+	 * Write and encrypt this packet data for given connection, to given buffer. Packet is written at current position
+	 * of buffer and position is moved to the end of it.
 	 * 
 	 * @param con
 	 * @param buf
 	 */
 	public final void write(AionConnection con, ByteBuffer buf)
 	{
+		int start = buf.position();
 		buf.putShort((short) 0);
+		byte[] data = broadcastData;
+		if(data != null)
+			buf.put(data);
+		else
+		{
+			writeOP(buf, getOpcode());
+			writeImpl(con, buf);
+		}
+		int end = buf.position();
+		buf.putShort(start, (short) (end - start));
+		ByteBuffer b = buf.duplicate();
+		b.position(start + 2).limit(end);
+		con.encrypt(b.slice());
+	}
+
+	/**
+	 * Write opcode and data of this packet only once, so sending it to many connections will only copy them and
+	 * encrypt with key of each connection instead of calling {@link #writeImpl(AionConnection, ByteBuffer)} for every
+	 * connection. Does nothing if this packet is not broadcastable.
+	 * 
+	 * @see #isBroadcastable()
+	 */
+	public final void prepareBroadcast()
+	{
+		if(broadcastData != null || !isBroadcastable())
+			return;
+
+		ByteBuffer buf = broadcastBuffer.get();
+		buf.clear();
 		writeOP(buf, getOpcode());
-		writeImpl(con, buf);
+		writeImpl(null, buf);
 		buf.flip();
-		buf.putShort((short) buf.limit());
-		ByteBuffer b = buf.slice();
-		buf.position(0);
-		con.encrypt(b);
+
+		byte[] data = new byte[buf.remaining()];
+		buf.get(data);
+		broadcastData = data;
+	}
+
+	/**
+	 * Packets that write different data depending on connection they are sent to must return false, so they will be
+	 * written separately for each connection even if broadcast.
+	 * 
+	 * @return true if data of this packet does not depend on connection it is sent to.
+	 */
+	protected boolean isBroadcastable()
+	{
+		return true;
 	}
 
 	/**
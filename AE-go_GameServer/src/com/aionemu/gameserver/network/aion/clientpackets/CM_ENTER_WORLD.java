@@ -50,6 +50,7 @@ import com.aionemu.gameserver.network.aion.serverpackets.unk.SM_UNK5E;
 import com.aionemu.gameserver.services.ClassChangeService;
 import com.aionemu.gameserver.services.GroupService;
 import com.aionemu.gameserver.services.LegionService;
+import com.aionemu.gameserver.services.LoginQueueService;
 import com.aionemu.gameserver.services.MailService;
 import com.aionemu.gameserver.services.PlayerService;
 import com.aionemu.gameserver.services.PunishmentService;
@@ -86,7 +87,9 @@ public class CM_ENTER_WORLD extends AionClientPacket
 	@Inject
 	private MailService			mailService;
 	@Inject
-	private StigmaService		stigmaService;;
+	private StigmaService		stigmaService;
+	@Inject
+	private LoginQueueService	loginQueueService;
 
 	/**
 	 * Constructs new instance of <tt>CM_ENTER_WORLD </tt> packet
@@ -114,7 +117,6 @@ public class CM_ENTER_WORLD extends AionClientPacket
 	protected void runImpl()
 	{
 		AionConnection client = getConnection();
-		Account account = client.getAccount();
 		PlayerAccountData playerAccData = client.getAccount().getPlayerAccountData(objectId);
 
 		if(playerAccData == null)
@@ -123,6 +125,28 @@ public class CM_ENTER_WORLD extends AionClientPacket
 			return;
 		}
 
+		/*
+		 * Character is loaded when login queue admits it.
+		 */
+		loginQueueService.enter(client, new Runnable(){
+			@Override
+			public void run()
+			{
+				enterWorld();
+			}
+		});
+	}
+
+	/**
+	 * Loads character and sends it into world.
+	 */
+	private void enterWorld()
+	{
+		AionConnection client = getConnection();
+		Account account = client.getAccount();
+		if(client.getActivePlayer() != null)
+			return;
+
 		Player player = playerService.getPlayer(objectId, account);
 
 		if(player != null && client.setActivePlayer(player))
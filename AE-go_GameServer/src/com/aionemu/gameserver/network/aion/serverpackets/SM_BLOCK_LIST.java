@@ -31,6 +31,15 @@ import com.aionemu.gameserver.network.aion.AionServerPacket;
  */
 public class SM_BLOCK_LIST extends AionServerPacket
 {
+	/**
+	 * Not broadcastable: block list is taken from active player of connection.
+	 */
+	@Override
+	protected boolean isBroadcastable()
+	{
+		return false;
+	}
+
 	@Override
 	protected void writeImpl(AionConnection con, ByteBuffer buf)
 	{
@@ -44,6 +44,15 @@ public class SM_CHARACTER_LIST extends PlayerInfo
 		this.playOk2 = playOk2;
 	}
 
+	/**
+	 * Not broadcastable: characters are taken from account of connection.
+	 */
+	@Override
+	protected boolean isBroadcastable()
+	{
+		return false;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -32,6 +32,15 @@ public class SM_FRIEND_LIST extends AionServerPacket
 {
 	
 	
+	/**
+	 * Not broadcastable: friend list is taken from active player of connection.
+	 */
+	@Override
+	protected boolean isBroadcastable()
+	{
+		return false;
+	}
+
 	@Override
 	protected void writeImpl(AionConnection con, ByteBuffer buf)
 	{
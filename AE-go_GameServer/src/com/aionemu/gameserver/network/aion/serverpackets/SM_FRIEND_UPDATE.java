@@ -39,6 +39,15 @@ public class SM_FRIEND_UPDATE extends AionServerPacket
 		this.friendObjId = friendObjId;
 	}
 	
+	/**
+	 * Not broadcastable: friend is taken from friend list of active player of connection.
+	 */
+	@Override
+	protected boolean isBroadcastable()
+	{
+		return false;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -28,6 +28,15 @@ import com.aionemu.gameserver.network.aion.AionServerPacket;
 public class SM_KEY extends AionServerPacket
 {
 
+	/**
+	 * Not broadcastable: crypt key is enabled and written for connection.
+	 */
+	@Override
+	protected boolean isBroadcastable()
+	{
+		return false;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -30,11 +30,19 @@ public class SM_LOGIN_QUEUE extends AionServerPacket
 	private int		waitingTime; // Per waiting position in seconds
 	private int		waitingCount; // How many are waiting in line
 
-	private SM_LOGIN_QUEUE()
+	/**
+	 * @param waitingPosition
+	 *            position of player in line, starting from 1
+	 * @param waitingTime
+	 *            estimated waiting time per position in seconds
+	 * @param waitingCount
+	 *            number of players in line
+	 */
+	public SM_LOGIN_QUEUE(int waitingPosition, int waitingTime, int waitingCount)
 	{
-		this.waitingPosition = 5;
-		this.waitingTime = 60;
-		this.waitingCount = 50;
+		this.waitingPosition = waitingPosition;
+		this.waitingTime = waitingTime;
+		this.waitingCount = waitingCount;
 	}
 
 	@Override
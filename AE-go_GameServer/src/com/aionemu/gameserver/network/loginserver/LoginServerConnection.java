@@ -17,6 +17,7 @@
 package com.aionemu.gameserver.network.loginserver;
 
 import java.io.IOException;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayDeque;
@@ -117,22 +118,42 @@ public class LoginServerConnection extends AConnection
 	}
 
 	/**
-	 * This method will be called by Dispatcher, and will be repeated till return false.
+	 * This method will be called by Dispatcher, and will be repeated till return false. Next packet from queue is
+	 * appended to given buffer, if it does not fit it stays in queue and will be written by next socket write.
 	 * 
 	 * @param data
-	 * @return True if data was written to buffer, False indicating that there are not any more data to write.
+	 * @return True if data was written to buffer, False indicating that there are not any more data to write or that
+	 *         buffer is full.
 	 */
 	@Override
 	protected final boolean writeData(ByteBuffer data)
 	{
 		synchronized(guard)
 		{
-			LsServerPacket packet = sendMsgQueue.pollFirst();
-			if(packet == null)
-				return false;
+			for(;;)
+			{
+				LsServerPacket packet = sendMsgQueue.pollFirst();
+				if(packet == null)
+					return false;
 
-			packet.write(this, data);
-			return true;
+				int position = data.position();
+				try
+				{
+					packet.write(this, data);
+					return true;
+				}
+				catch(BufferOverflowException e)
+				{
+					data.position(position);
+					if(position > 0)
+					{
+						sendMsgQueue.addFirst(packet);
+						return false;
+					}
+					/** packet is bigger than whole write buffer, it will never be send */
+					log.warn("Packet " + packet + " doesn't fit into write buffer, dropped!", e);
+				}
+			}
 		}
 	}
 
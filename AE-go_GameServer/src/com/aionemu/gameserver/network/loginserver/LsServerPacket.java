@@ -40,18 +40,18 @@ public abstract class LsServerPacket extends BaseServerPacket
 	}
 
 	/**
-	 * Write this packet data for given connection, to given buffer.
+	 * Write this packet data for given connection, to given buffer. Packet is written at current position of buffer
+	 * and position is moved to the end of it.
 	 * 
 	 * @param con
 	 * @param buf
 	 */
 	public final void write(LoginServerConnection con, ByteBuffer buf)
 	{
+		int start = buf.position();
 		buf.putShort((short) 0);
 		writeImpl(con, buf);
-		buf.flip();
-		buf.putShort((short) buf.limit());
-		buf.position(0);
+		buf.putShort(start, (short) (buf.position() - start));
 	}
 
 	/**
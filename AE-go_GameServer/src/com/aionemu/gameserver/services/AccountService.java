@@ -54,7 +54,8 @@ public class AccountService
 {
 	private static final Logger			log			= Logger.getLogger(AccountService.class);
 
-	private CacheMap<Integer, Account>	accountsMap	= CacheMapFactory.createSoftCacheMap("Account", "account");
+	private CacheMap<Integer, Account>	accountsMap	= CacheMapFactory.createBoundedCacheMap("Account", "account",
+		CacheConfig.ACCOUNTS_CACHE_SIZE, CacheConfig.ACCOUNTS_CACHE_IDLE * 60 * 1000L);
 
 	@Inject
 	private World						world;
@@ -16,9 +16,12 @@
  */
 package com.aionemu.gameserver.services;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
 
@@ -55,30 +58,51 @@ public class InstanceService
 	@Inject
 	private TeleportService teleportService;
 
+	/** Number of existing instances */
+	private final AtomicInteger	liveInstances		= new AtomicInteger();
+	/** Number of created instances */
+	private final AtomicInteger	createdInstances	= new AtomicInteger();
+	/** Number of created instances which reused destroyed one */
+	private final AtomicInteger	reusedInstances		= new AtomicInteger();
+	/** Total and max time of instance creation in nanoseconds */
+	private final AtomicLong	creationTime		= new AtomicLong();
+	private final AtomicLong	maxCreationTime		= new AtomicLong();
+
 	/**
+	 * Creates new instance, objects of instance are spawned when first player comes near them.
+	 * 
 	 * @param worldId
 	 * @param destroyTime
 	 * @return
 	 */
-	public synchronized WorldMapInstance getNextAvailableInstance(int worldId, int destroyTime)
+	public WorldMapInstance getNextAvailableInstance(int worldId, int destroyTime)
 	{
+		long start = System.nanoTime();
 		WorldMap map = world.getWorldMap(worldId);
 
 		if(!map.isInstanceType())
 			throw new UnsupportedOperationException("Invalid call for next available instance  of " + worldId);
 
-		int nextInstanceId = map.getNextInstanceId();
-
-		log.info("Creating new instance: " + worldId + " " + nextInstanceId);
+		boolean reused = map.getFreeInstanceCount() > 0;
+		WorldMapInstance worldMapInstance = map.createInstance();
+		log.info("Creating new instance: " + worldId + " " + worldMapInstance.getInstanceId());
 
-		WorldMapInstance worldMapInstance = new WorldMapInstance(map, nextInstanceId);
-		map.addInstance(nextInstanceId, worldMapInstance);
-		spawnEngine.spawnInstance(worldId, worldMapInstance.getInstanceId());
+		spawnEngine.spawnInstanceLazily(worldMapInstance);
 		
 		if(destroyTime == 0)
 			destroyTime = 60 * 30;//TODO take from template
 		
 		setDestroyTime(worldMapInstance, destroyTime);
+
+		long time = System.nanoTime() - start;
+		liveInstances.incrementAndGet();
+		createdInstances.incrementAndGet();
+		if(reused)
+			reusedInstances.incrementAndGet();
+		creationTime.addAndGet(time);
+		long max = maxCreationTime.get();
+		while(time > max && !maxCreationTime.compareAndSet(max, time))
+			max = maxCreationTime.get();
 		return worldMapInstance;
 	}
 
@@ -123,6 +147,7 @@ public class InstanceService
 
 		WorldMap map = world.getWorldMap(worldId);
 		map.removeWorldMapInstance(instanceId);
+		liveInstances.decrementAndGet();
 
 		log.info("Destroying instance:" + worldId + " " + instanceId);
 
@@ -142,6 +167,26 @@ public class InstanceService
 			}
 				
 		}
+
+		/* players teleported with delay are still there, such instance is left to gc */
+		map.recycleInstance(instance);
+	}
+
+	/**
+	 * @return human readable statistics of instances: live instances, created and reused instances and creation time.
+	 */
+	public List<String> getStats()
+	{
+		long count = Math.max(1, createdInstances.get());
+		List<String> list = new ArrayList<String>();
+		list.add("Instances:");
+		list.add("=================================================");
+		list.add("\tlive instances: ...... " + liveInstances.get());
+		list.add("\tcreated: ............. " + createdInstances.get());
+		list.add("\treused: .............. " + reusedInstances.get());
+		list.add("\tavg creation [ms]: ... " + String.format("%.3f", creationTime.get() / count / 1000000.0));
+		list.add("\tmax creation [ms]: ... " + String.format("%.3f", maxCreationTime.get() / 1000000.0));
+		return list;
 	}
 	
 	/**
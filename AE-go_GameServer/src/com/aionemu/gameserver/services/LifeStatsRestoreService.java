@@ -21,7 +21,7 @@ import java.util.concurrent.Future;
 import com.aionemu.gameserver.model.gameobjects.Creature;
 import com.aionemu.gameserver.model.gameobjects.stats.CreatureLifeStats;
 import com.aionemu.gameserver.model.gameobjects.stats.PlayerLifeStats;
-import com.aionemu.gameserver.utils.ThreadPoolManager;
+import com.aionemu.gameserver.world.WorldTickEngine;
 
 /**
  * @author ATracer
@@ -43,7 +43,7 @@ public class LifeStatsRestoreService
 	 */
 	public Future<?> scheduleRestoreTask(final CreatureLifeStats<? extends Creature> lifeStats)
 	{
-		return ThreadPoolManager.getInstance().scheduleAtFixedRate((new Runnable(){
+		return WorldTickEngine.getInstance().scheduleAtFixedRate(lifeStats.getOwner(), (new Runnable(){
 			@Override
 			public void run()
 			{
@@ -69,7 +69,7 @@ public class LifeStatsRestoreService
 	 */
 	public Future<?> scheduleFpReduceTask(final PlayerLifeStats lifeStats)
 	{
-		return ThreadPoolManager.getInstance().scheduleAtFixedRate((new Runnable(){
+		return WorldTickEngine.getInstance().scheduleAtFixedRate(lifeStats.getOwner(), (new Runnable(){
 			@Override
 			public void run()
 			{
@@ -103,7 +103,7 @@ public class LifeStatsRestoreService
 	 */
 	public Future<?> scheduleFpRestoreTask(final PlayerLifeStats lifeStats)
 	{
-		return ThreadPoolManager.getInstance().scheduleAtFixedRate((new Runnable(){
+		return WorldTickEngine.getInstance().scheduleAtFixedRate(lifeStats.getOwner(), (new Runnable(){
 			@Override
 			public void run()
 			{
@@ -0,0 +1,334 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.services;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import com.aionemu.gameserver.configs.main.GSConfig;
+import com.aionemu.gameserver.network.aion.AionConnection;
+import com.aionemu.gameserver.network.aion.serverpackets.SM_LOGIN_QUEUE;
+import com.aionemu.gameserver.utils.ThreadPoolManager;
+
+/**
+ * Admission control of characters entering world. Only limited number of characters is loaded at once, others wait
+ * in queue and are informed about their position by {@link SM_LOGIN_QUEUE}.<br>
+ * <br>
+ * Limit adapts to observed load time: while loads finish within <tt>gameserver.login.queue.latency</tt> limit grows
+ * by one per limit loads, when load takes longer limit is lowered by a quarter (at most once per target latency), so
+ * database is not swamped after server restart.
+ */
+public class LoginQueueService
+{
+	private static final Logger						log		= Logger.getLogger(LoginQueueService.class);
+
+	/**
+	 * Clients waiting for admission, in order of arrival
+	 */
+	private final Map<AionConnection, Runnable>	queue	= new LinkedHashMap<AionConnection, Runnable>();
+
+	private final int								maxLimit;
+	private final int								minLimit;
+	private final long								targetLatency;
+
+	private double									limit;
+	private int										active;
+	private long									lastDecrease;
+	/**
+	 * Moving average of load time in nanoseconds
+	 */
+	private double									avgLoadTime;
+
+	private long									admitted;
+	private long									queued;
+	private long									dequeued;
+	private long									totalWaitTime;
+	private int										maxQueueSize;
+	private long									lastAdmitted;
+	private long									lastRateTime	= System.currentTimeMillis();
+	private double									admissionRate;
+
+	public LoginQueueService()
+	{
+		this(GSConfig.LOGIN_QUEUE_LIMIT, GSConfig.LOGIN_QUEUE_MIN_LIMIT, GSConfig.LOGIN_QUEUE_LATENCY);
+
+		if(maxLimit > 0)
+		{
+			long interval = Math.max(1, GSConfig.LOGIN_QUEUE_UPDATE) * 1000L;
+			ThreadPoolManager.getInstance().scheduleGeneralAtFixedRate(new Runnable(){
+				@Override
+				public void run()
+				{
+					update();
+				}
+			}, interval, interval);
+		}
+	}
+
+	/**
+	 * Creates queue without periodic update of queued clients
+	 * 
+	 * @param maxLimit
+	 *            max number of loads at once, 0 - queue disabled
+	 * @param minLimit
+	 *            limit is never lowered below this value
+	 * @param targetLatency
+	 *            load time in milliseconds
+	 */
+	LoginQueueService(int maxLimit, int minLimit, int targetLatency)
+	{
+		this.maxLimit = maxLimit;
+		this.minLimit = Math.max(1, Math.min(minLimit, maxLimit));
+		this.targetLatency = targetLatency * 1000000L;
+		this.limit = maxLimit;
+	}
+
+	/**
+	 * Executes task of entering world now if limit allows it, otherwise puts client into queue. Repeated requests of
+	 * queued client are ignored.
+	 * 
+	 * @param client
+	 * @param task
+	 *            loads character and sends it into world
+	 */
+	public void enter(AionConnection client, Runnable task)
+	{
+		if(maxLimit <= 0)
+		{
+			task.run();
+			return;
+		}
+
+		synchronized(this)
+		{
+			if(queue.containsKey(client))
+				return;
+
+			if(!queue.isEmpty() || active >= (int) limit)
+			{
+				queue.put(client, new QueuedTask(task));
+				queued++;
+				maxQueueSize = Math.max(maxQueueSize, queue.size());
+				client.sendPacket(new SM_LOGIN_QUEUE(queue.size(), getWaitingTime(), queue.size()));
+				return;
+			}
+			active++;
+			admitted++;
+		}
+		run(task);
+	}
+
+	/**
+	 * Removes client from queue, called when client disconnects.
+	 * 
+	 * @param client
+	 */
+	public synchronized void remove(AionConnection client)
+	{
+		queue.remove(client);
+	}
+
+	private void run(Runnable task)
+	{
+		long start = nanoTime();
+		try
+		{
+			task.run();
+		}
+		finally
+		{
+			release(nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Executes admitted task in other thread, so the thread that released slot isn't delayed. Character load does db
+	 * queries, so it goes to long running pool and doesn't hold threads of instant pool used by effects.
+	 * 
+	 * @param task
+	 */
+	void execute(Runnable task)
+	{
+		ThreadPoolManager.getInstance().executeLongRunning(task);
+	}
+
+	/**
+	 * @return current time in nanoseconds, overridden by tests
+	 */
+	long nanoTime()
+	{
+		return System.nanoTime();
+	}
+
+	/**
+	 * Frees slot of finished load, adapts limit and starts queued loads that fit into it.
+	 * 
+	 * @param loadTime
+	 */
+	private void release(long loadTime)
+	{
+		List<Runnable> next = new ArrayList<Runnable>();
+		synchronized(this)
+		{
+			active--;
+			avgLoadTime = avgLoadTime == 0 ? loadTime : avgLoadTime * 0.8 + loadTime * 0.2;
+
+			if(loadTime <= targetLatency)
+			{
+				limit = Math.min(maxLimit, limit + 1 / limit);
+			}
+			else
+			{
+				long now = nanoTime();
+				if(now - lastDecrease > targetLatency)
+				{
+					limit = Math.max(minLimit, limit * 0.75);
+					lastDecrease = now;
+					if(log.isDebugEnabled())
+						log.debug("Login limit lowered to " + (int) limit + ", load time " + loadTime / 1000000 + " ms");
+				}
+			}
+
+			Iterator<Runnable> it = queue.values().iterator();
+			while(it.hasNext() && active < (int) limit)
+			{
+				next.add(it.next());
+				it.remove();
+				active++;
+				admitted++;
+			}
+		}
+
+		for(final Runnable task : next)
+		{
+			execute(new Runnable(){
+				@Override
+				public void run()
+				{
+					LoginQueueService.this.run(task);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Sends current positions to queued clients and computes admission rate
+	 */
+	private void update()
+	{
+		synchronized(this)
+		{
+			long now = System.currentTimeMillis();
+			admissionRate = (admitted - lastAdmitted) * 1000.0 / Math.max(1, now - lastRateTime);
+			lastAdmitted = admitted;
+			lastRateTime = now;
+
+			int position = 0;
+			int size = queue.size();
+			int waitingTime = getWaitingTime();
+			for(AionConnection client : queue.keySet())
+				client.sendPacket(new SM_LOGIN_QUEUE(++position, waitingTime, size));
+		}
+	}
+
+	/**
+	 * @return estimated waiting time per position in seconds
+	 */
+	private int getWaitingTime()
+	{
+		return (int) Math.max(1, Math.ceil(avgLoadTime / limit / 1000000000L));
+	}
+
+	/**
+	 * @return current limit of loads at once
+	 */
+	synchronized int getLimit()
+	{
+		return (int) limit;
+	}
+
+	/**
+	 * @return number of loads in progress
+	 */
+	synchronized int getActiveCount()
+	{
+		return active;
+	}
+
+	/**
+	 * @return number of queued clients
+	 */
+	synchronized int getQueueSize()
+	{
+		return queue.size();
+	}
+
+	/**
+	 * @return human readable statistics of login queue: queue length, limit and admission rate.
+	 */
+	public synchronized List<String> getStats()
+	{
+		List<String> list = new ArrayList<String>();
+		list.add("Login queue:");
+		list.add("=================================================");
+		if(maxLimit <= 0)
+		{
+			list.add("\tdisabled");
+			return list;
+		}
+		list.add("\tqueue length: ........ " + queue.size());
+		list.add("\tmax queue length: .... " + maxQueueSize);
+		list.add("\tloading: ............. " + active);
+		list.add("\tlimit: ............... " + (int) limit + " [" + minLimit + " - " + maxLimit + "]");
+		list.add("\tadmitted: ............ " + admitted);
+		list.add("\tqueued: .............. " + queued);
+		list.add("\tadmission rate [/s]: . " + String.format("%.2f", admissionRate));
+		list.add("\tavg load time [ms]: .. " + String.format("%.2f", avgLoadTime / 1000000));
+		list.add("\tavg queue wait [ms]: . " + (dequeued == 0 ? 0 : totalWaitTime / dequeued));
+		return list;
+	}
+
+	/**
+	 * Task waiting in queue, remembers when it was queued
+	 */
+	private class QueuedTask implements Runnable
+	{
+		private final Runnable	task;
+		private final long		queueTime	= System.currentTimeMillis();
+
+		private QueuedTask(Runnable task)
+		{
+			this.task = task;
+		}
+
+		@Override
+		public void run()
+		{
+			synchronized(LoginQueueService.this)
+			{
+				dequeued++;
+				totalWaitTime += System.currentTimeMillis() - queueTime;
+			}
+			task.run();
+		}
+	}
+}
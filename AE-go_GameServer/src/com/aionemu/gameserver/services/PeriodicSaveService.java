@@ -16,8 +16,13 @@
  */
 package com.aionemu.gameserver.services;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Future;
 
@@ -32,7 +37,9 @@ import com.aionemu.gameserver.dao.PlayerDAO;
 import com.aionemu.gameserver.dao.PlayerQuestListDAO;
 import com.aionemu.gameserver.dao.PlayerSkillListDAO;
 import com.aionemu.gameserver.model.gameobjects.Item;
+import com.aionemu.gameserver.model.gameobjects.PersistentState;
 import com.aionemu.gameserver.model.gameobjects.player.Player;
+import com.aionemu.gameserver.model.gameobjects.player.StorageType;
 import com.aionemu.gameserver.model.items.GodStone;
 import com.aionemu.gameserver.model.items.ManaStone;
 import com.aionemu.gameserver.model.legion.Legion;
@@ -52,6 +59,15 @@ public class PeriodicSaveService
 	private LegionService		legionService;
 	
 	private Future<?>			legionWhUpdateTask;
+
+	/**
+	 * Item flush statistics.
+	 */
+	private long				flushes;
+	private long				flushedItems;
+	private int					maxFlushedItems;
+	private long				flushTime;
+	private long				maxFlushTime;
 	
 	@Inject
 	public PeriodicSaveService(World world, LegionService legionService)
@@ -99,6 +115,9 @@ public class PeriodicSaveService
 		}
 	}
 
+	/**
+	 * Dirty items of all online players are collected and stored in one flush, item stones are stored after that.
+	 */
 	private class ItemUpdateTask implements Runnable
 	{
 		@Override
@@ -107,13 +126,33 @@ public class PeriodicSaveService
 			log.info("Player item update task started.");
 			long startTime = System.currentTimeMillis();
 			Iterator<Player> playersIterator = world.getPlayersIterator();
-			int playersUpdated = 0;
+			List<Player> players = new ArrayList<Player>();
+			Map<Integer, List<Item>> dirtyItems = new HashMap<Integer, List<Item>>();
 			while(playersIterator.hasNext())
 			{
 				Player player = playersIterator.next();
+				players.add(player);
+				dirtyItems.put(player.getObjectId(), player.getDirtyItemsToUpdate());
+			}
+
+			Set<Integer> failed = flushItems(dirtyItems);
+			for(Player player : players)
+			{
+				// storages were marked clean while their items were collected
+				if(failed.contains(player.getObjectId()))
+				{
+					player.getStorage(StorageType.CUBE.getId()).setPersistentState(PersistentState.UPDATE_REQUIRED);
+					player.getStorage(StorageType.REGULAR_WAREHOUSE.getId()).setPersistentState(
+						PersistentState.UPDATE_REQUIRED);
+					player.getStorage(StorageType.ACCOUNT_WAREHOUSE.getId()).setPersistentState(
+						PersistentState.UPDATE_REQUIRED);
+				}
+			}
+
+			for(Player player : players)
+			{
 				try
 				{
-					DAOManager.getDAO(InventoryDAO.class).store(player);
 					DAOManager.getDAO(ItemStoneListDAO.class).save(player);
 				}
 				catch(Exception ex)
@@ -121,11 +160,9 @@ public class PeriodicSaveService
 					log.error("Exception during periodic saving of player items " + ex.getCause() != null ? ex.getCause()
 						.getMessage() : "null");
 				}
-
-				playersUpdated++;
 			}
 			long workTime = System.currentTimeMillis() - startTime;
-			log.info("Player item update: " + workTime + " ms, players: " + playersUpdated + ".");
+			log.info("Player item update: " + workTime + " ms, players: " + players.size() + ".");
 		}
 	}
 	
@@ -137,21 +174,23 @@ public class PeriodicSaveService
 			log.info("Legion WH update task started.");
 			long startTime = System.currentTimeMillis();
 			Iterator<Legion> legionsIterator = legionService.getCachedLegionIterator();
-			int legionWhUpdated = 0;
+			Map<Integer, List<Item>> legionItems = new HashMap<Integer, List<Item>>();
 			while(legionsIterator.hasNext())
 			{
 				Legion legion = legionsIterator.next();
-				List<Item> allItems = legion.getLegionWarehouse().getAllItems();
+				legionItems.put(legion.getLegionId(), legion.getLegionWarehouse().getAllItems());
+			}
+
+			/**
+			 * 1. save items first
+			 */
+			flushItems(legionItems);
+
+			int legionWhUpdated = 0;
+			for(List<Item> allItems : legionItems.values())
+			{
 				try
 				{
-					/**
-					 * 1. save items first
-					 */
-					for(Item item : allItems)
-					{
-						DAOManager.getDAO(InventoryDAO.class).store(item, legion.getLegionId());
-					}
-					
 					/**
 					 * 2. save item stones
 					 */
@@ -182,6 +221,75 @@ public class PeriodicSaveService
 		}
 	}
 	
+	/**
+	 * Store items of many owners in one flush and update statistics. If the flush fails, items are stored per owner,
+	 * so one bad item doesn't keep items of all owners unsaved.
+	 * 
+	 * @param items
+	 *            owner id -> items
+	 * @return ids of owners whose items weren't stored, their items are left dirty
+	 */
+	private Set<Integer> flushItems(Map<Integer, List<Item>> items)
+	{
+		int dirty = 0;
+		for(List<Item> ownerItems : items.values())
+		{
+			for(Item item : ownerItems)
+			{
+				if(item == null)
+					continue;
+
+				PersistentState state = item.getPersistentState();
+				if(state == PersistentState.NEW || state == PersistentState.UPDATE_REQUIRED
+					|| state == PersistentState.DELETED)
+					dirty++;
+			}
+		}
+
+		long begin = System.nanoTime();
+		Set<Integer> failed = new HashSet<Integer>();
+		InventoryDAO dao = DAOManager.getDAO(InventoryDAO.class);
+		if(!dao.store(items))
+		{
+			log.error("Periodic item flush failed, items: " + dirty + ", storing per owner");
+			for(Map.Entry<Integer, List<Item>> entry : items.entrySet())
+			{
+				if(!dao.store(Collections.singletonMap(entry.getKey(), entry.getValue())))
+					failed.add(entry.getKey());
+			}
+			if(!failed.isEmpty())
+				log.error("Items of owners " + failed + " were not stored");
+		}
+		long time = System.nanoTime() - begin;
+
+		synchronized(this)
+		{
+			flushes++;
+			flushedItems += dirty;
+			maxFlushedItems = Math.max(maxFlushedItems, dirty);
+			flushTime += time;
+			maxFlushTime = Math.max(maxFlushTime, time);
+		}
+		return failed;
+	}
+
+	/**
+	 * @return human readable statistics of item flushes: count, items per flush and flush duration.
+	 */
+	public synchronized List<String> getStats()
+	{
+		long count = Math.max(1, flushes);
+		List<String> list = new ArrayList<String>();
+		list.add("Item flushes:");
+		list.add("=================================================");
+		list.add("\tflushes: ............. " + flushes);
+		list.add("\titems/flush: ......... " + flushedItems / count);
+		list.add("\tmax items/flush: ..... " + maxFlushedItems);
+		list.add("\tavg flush [ms]: ...... " + String.format("%.3f", flushTime / count / 1000000.0));
+		list.add("\tmax flush [ms]: ...... " + String.format("%.3f", maxFlushTime / 1000000.0));
+		return list;
+	}
+
 	/**
 	 * Save data on shutdown
 	 */
@@ -0,0 +1,220 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.services;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.aionemu.gameserver.configs.main.ThreadConfig;
+import com.aionemu.gameserver.utils.ThreadPoolManager.PriorityThreadFactory;
+
+/**
+ * Runs independent database reads of character load in parallel and keeps timings of every load stage.<br>
+ * Every stage is executed on its own pooled connection, so the load takes as long as the slowest stage instead of sum
+ * of all of them. If <tt>thread.playerload.threads</tt> is 0, stages are executed sequentially by the calling thread.
+ */
+public class PlayerLoadService
+{
+	private static final Logger				log		= Logger.getLogger(PlayerLoadService.class);
+
+	private final ExecutorService			executor;
+
+	/**
+	 * Timings of load stages in order of first execution
+	 */
+	private final Map<String, StageStats>	stages	= new LinkedHashMap<String, StageStats>();
+
+	public PlayerLoadService()
+	{
+		int threads = ThreadConfig.PLAYER_LOAD_THREADS;
+		executor = threads > 0 ? new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>(), new PriorityThreadFactory("PlayerLoadPool", Thread.NORM_PRIORITY, true))
+			: null;
+	}
+
+	/**
+	 * Stops load threads. Loads already started are finished, new ones are rejected. Called by ShutdownHook.
+	 */
+	public void shutdown()
+	{
+		if(executor == null)
+			return;
+
+		executor.shutdown();
+		try
+		{
+			if(!executor.awaitTermination(10, TimeUnit.SECONDS))
+				log.warn("PlayerLoadService: " + executor.shutdownNow().size() + " load stages not finished");
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Starts load stage. Result must be taken by {@link #get(Future)}.
+	 * 
+	 * @param stage
+	 *            name of stage
+	 * @param task
+	 * @return future result of stage
+	 */
+	public <T> Future<T> submit(String stage, Callable<T> task)
+	{
+		FutureTask<T> future = new FutureTask<T>(new TimedStage<T>(stage, task));
+		if(executor != null)
+			executor.execute(future);
+		else
+			future.run();
+		return future;
+	}
+
+	/**
+	 * Starts load stage without result.
+	 * 
+	 * @param stage
+	 *            name of stage
+	 * @param task
+	 * @return future to wait for by {@link #get(Future)}
+	 */
+	public Future<Object> submit(String stage, Runnable task)
+	{
+		return submit(stage, Executors.callable(task));
+	}
+
+	/**
+	 * Waits for result of load stage. Exception thrown by stage is rethrown.
+	 * 
+	 * @param future
+	 * @return result of stage
+	 */
+	public <T> T get(Future<T> future)
+	{
+		try
+		{
+			return future.get();
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while loading player", e);
+		}
+		catch(ExecutionException e)
+		{
+			if(e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if(e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw new RuntimeException("Player load failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Records time of stage, that was not executed by {@link #submit(String, Callable)}.
+	 * 
+	 * @param stage
+	 * @param time
+	 *            in nanoseconds
+	 */
+	public void record(String stage, long time)
+	{
+		synchronized(stages)
+		{
+			StageStats stats = stages.get(stage);
+			if(stats == null)
+			{
+				stats = new StageStats();
+				stages.put(stage, stats);
+			}
+			stats.count++;
+			stats.time += time;
+			stats.maxTime = Math.max(stats.maxTime, time);
+		}
+	}
+
+	/**
+	 * @return human readable statistics of character load: count, average and max time of every stage.
+	 */
+	public List<String> getStats()
+	{
+		List<String> list = new ArrayList<String>();
+		list.add("Player load stages [count, avg ms, max ms]:");
+		list.add("=================================================");
+		synchronized(stages)
+		{
+			for(Map.Entry<String, StageStats> entry : stages.entrySet())
+			{
+				StageStats stats = entry.getValue();
+				StringBuilder sb = new StringBuilder("\t").append(entry.getKey()).append(": ");
+				for(int i = sb.length(); i < 23; i++)
+					sb.append('.');
+				sb.append(' ').append(stats.count);
+				sb.append(String.format(", %.3f", stats.time / Math.max(1, stats.count) / 1000000.0));
+				sb.append(String.format(", %.3f", stats.maxTime / 1000000.0));
+				list.add(sb.toString());
+			}
+		}
+		return list;
+	}
+
+	private static class StageStats
+	{
+		private long	count;
+		private long	time;
+		private long	maxTime;
+	}
+
+	private class TimedStage<T> implements Callable<T>
+	{
+		private final String		stage;
+		private final Callable<T>	task;
+
+		private TimedStage(String stage, Callable<T> task)
+		{
+			this.stage = stage;
+			this.task = task;
+		}
+
+		@Override
+		public T call() throws Exception
+		{
+			long start = System.nanoTime();
+			try
+			{
+				return task.call();
+			}
+			finally
+			{
+				record(stage, System.nanoTime() - start);
+			}
+		}
+	}
+}
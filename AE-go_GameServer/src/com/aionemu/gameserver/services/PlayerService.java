@@ -18,6 +18,8 @@ package com.aionemu.gameserver.services;
 
 import java.sql.Timestamp;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 
@@ -52,14 +54,20 @@ import com.aionemu.gameserver.model.account.Account;
 import com.aionemu.gameserver.model.account.PlayerAccountData;
 import com.aionemu.gameserver.model.gameobjects.Item;
 import com.aionemu.gameserver.model.gameobjects.PersistentState;
+import com.aionemu.gameserver.model.gameobjects.player.BlockList;
 import com.aionemu.gameserver.model.gameobjects.player.Equipment;
+import com.aionemu.gameserver.model.gameobjects.player.FriendList;
 import com.aionemu.gameserver.model.gameobjects.player.MacroList;
 import com.aionemu.gameserver.model.gameobjects.player.Mailbox;
 import com.aionemu.gameserver.model.gameobjects.player.Player;
 import com.aionemu.gameserver.model.gameobjects.player.PlayerAppearance;
 import com.aionemu.gameserver.model.gameobjects.player.PlayerCommonData;
+import com.aionemu.gameserver.model.gameobjects.player.QuestStateList;
+import com.aionemu.gameserver.model.gameobjects.player.RecipeList;
+import com.aionemu.gameserver.model.gameobjects.player.SkillList;
 import com.aionemu.gameserver.model.gameobjects.player.Storage;
 import com.aionemu.gameserver.model.gameobjects.player.StorageType;
+import com.aionemu.gameserver.model.gameobjects.player.TitleList;
 import com.aionemu.gameserver.model.gameobjects.stats.PlayerGameStats;
 import com.aionemu.gameserver.model.gameobjects.stats.PlayerLifeStats;
 import com.aionemu.gameserver.model.gameobjects.stats.listeners.TitleChangeListener;
@@ -88,7 +96,8 @@ import com.google.inject.Inject;
 public class PlayerService
 {
 	private static final Logger			log			= Logger.getLogger(PlayerService.class);
-	private CacheMap<Integer, Player>	playerCache	= CacheMapFactory.createSoftCacheMap("Player", "player");
+	private CacheMap<Integer, Player>	playerCache	= CacheMapFactory.createBoundedCacheMap("Player",
+															"player", CacheConfig.PLAYERS_CACHE_SIZE, CacheConfig.PLAYERS_CACHE_IDLE * 60 * 1000L);
 
 	private World						world;
 	private ItemService					itemService;
@@ -102,13 +111,14 @@ public class PlayerService
 	private PlayerStatsData				playerStatsData;
 	private PlayerInitialData			playerInitialData;
 	private InstanceService				instanceService;
+	private PlayerLoadService			playerLoadService;
 
 	@Inject
 	public PlayerService(World world, ItemService itemService,
 		LegionService legionService, TeleportService teleportService, ObjectControllerFactory controllerFactory,
 		SkillLearnService skillLearnService, GroupService groupService, PunishmentService punishmentService,
 		DuelService duelService, PlayerStatsData playerStatsData, PlayerInitialData playerInitialData,
-		InstanceService instanceService)
+		InstanceService instanceService, PlayerLoadService playerLoadService)
 	{
 		this.world = world;
 		this.itemService = itemService;
@@ -122,6 +132,7 @@ public class PlayerService
 		this.playerStatsData = playerStatsData;
 		this.playerInitialData = playerInitialData;
 		this.instanceService = instanceService;
+		this.playerLoadService = playerLoadService;
 	}
 
 	/**
@@ -190,12 +201,13 @@ public class PlayerService
 	 * @param account 
 	 * @return Player
 	 */
-	public Player getPlayer(int playerObjId, Account account)
+	public Player getPlayer(final int playerObjId, Account account)
 	{
-		Player player = playerCache.get(playerObjId);
-		if(player != null)
-			return player;
+		Player cached = playerCache.get(playerObjId);
+		if(cached != null)
+			return cached;
 		
+		long start = System.nanoTime();
 		/**
 		 * Player common data and appearance should be already loaded in account
 		 */
@@ -204,8 +216,89 @@ public class PlayerService
 		PlayerCommonData pcd = playerAccountData.getPlayerCommonData();
 		PlayerAppearance appearance = playerAccountData.getAppereance();
 
-		player = new Player(controllerFactory.playerController(), pcd, appearance);		
+		final Player player = new Player(controllerFactory.playerController(), pcd, appearance);		
 		
+		/**
+		 * Independent database reads are started at once, every one on its own connection
+		 */
+		Future<MacroList> macros = playerLoadService.submit("macros", new Callable<MacroList>(){
+			@Override
+			public MacroList call()
+			{
+				return DAOManager.getDAO(PlayerMacrossesDAO.class).restoreMacrosses(playerObjId);
+			}
+		});
+		Future<SkillList> skills = playerLoadService.submit("skills", new Callable<SkillList>(){
+			@Override
+			public SkillList call()
+			{
+				return DAOManager.getDAO(PlayerSkillListDAO.class).loadSkillList(playerObjId);
+			}
+		});
+		Future<FriendList> friends = playerLoadService.submit("friends", new Callable<FriendList>(){
+			@Override
+			public FriendList call()
+			{
+				return DAOManager.getDAO(FriendListDAO.class).load(player, world, playerInitialData);
+			}
+		});
+		Future<BlockList> blocks = playerLoadService.submit("blocks", new Callable<BlockList>(){
+			@Override
+			public BlockList call()
+			{
+				return DAOManager.getDAO(BlockListDAO.class).load(player, world, playerInitialData);
+			}
+		});
+		Future<TitleList> titles = playerLoadService.submit("titles", new Callable<TitleList>(){
+			@Override
+			public TitleList call()
+			{
+				return DAOManager.getDAO(PlayerTitleListDAO.class).loadTitleList(playerObjId);
+			}
+		});
+		Future<?> settings = playerLoadService.submit("settings", new Runnable(){
+			@Override
+			public void run()
+			{
+				DAOManager.getDAO(PlayerSettingsDAO.class).loadSettings(player);
+			}
+		});
+		Future<?> abyssRank = playerLoadService.submit("abyss rank", new Runnable(){
+			@Override
+			public void run()
+			{
+				DAOManager.getDAO(AbyssRankDAO.class).loadAbyssRank(player);
+			}
+		});
+		Future<QuestStateList> quests = playerLoadService.submit("quests", new Callable<QuestStateList>(){
+			@Override
+			public QuestStateList call()
+			{
+				return DAOManager.getDAO(PlayerQuestListDAO.class).load(player);
+			}
+		});
+		Future<RecipeList> recipes = playerLoadService.submit("recipes", new Callable<RecipeList>(){
+			@Override
+			public RecipeList call()
+			{
+				return DAOManager.getDAO(PlayerRecipesDAO.class).load(playerObjId);
+			}
+		});
+		/**
+		 * CUBE and WAREHOUSE storages are loaded only if missing in account
+		 */
+		Future<Storage> cube = playerAccountData.getInventory() != null ? null : playerLoadService.submit("cube",
+			new StorageLoader(player, StorageType.CUBE));
+		Future<Storage> regularWarehouse = playerAccountData.getWarehouse() != null ? null : playerLoadService.submit(
+			"warehouse", new StorageLoader(player, StorageType.REGULAR_WAREHOUSE));
+		Future<?> punishments = playerLoadService.submit("punishments", new Runnable(){
+			@Override
+			public void run()
+			{
+				DAOManager.getDAO(PlayerPunishmentsDAO.class).loadPlayerPunishments(player);
+			}
+		});
+
 		LegionMember legionMember = legionService.getLegionMember(player.getObjectId());
 		if(legionMember != null)
 			player.setLegionMember(legionMember);
@@ -213,17 +306,16 @@ public class PlayerService
 		if(groupService.isGroupMember(playerObjId))
 			groupService.setGroup(player);
 		
-		MacroList macroses = DAOManager.getDAO(PlayerMacrossesDAO.class).restoreMacrosses(playerObjId);
-		player.setMacroList(macroses);
+		player.setMacroList(playerLoadService.get(macros));
 
-		player.setSkillList(DAOManager.getDAO(PlayerSkillListDAO.class).loadSkillList(playerObjId));
+		player.setSkillList(playerLoadService.get(skills));
 		player.setKnownlist(new KnownList(player));
-		player.setFriendList(DAOManager.getDAO(FriendListDAO.class).load(player, world, playerInitialData));
-		player.setBlockList(DAOManager.getDAO(BlockListDAO.class).load(player, world, playerInitialData));
-		player.setTitleList(DAOManager.getDAO(PlayerTitleListDAO.class).loadTitleList(playerObjId));
+		player.setFriendList(playerLoadService.get(friends));
+		player.setBlockList(playerLoadService.get(blocks));
+		player.setTitleList(playerLoadService.get(titles));
 
-		DAOManager.getDAO(PlayerSettingsDAO.class).loadSettings(player);
-		DAOManager.getDAO(AbyssRankDAO.class).loadAbyssRank(player);
+		playerLoadService.get(settings);
+		playerLoadService.get(abyssRank);
 
 		player.setPlayerStatsTemplate(playerStatsData.getTemplate(player));
 
@@ -233,8 +325,8 @@ public class PlayerService
 		player.setEffectController(new PlayerEffectController(player));
 		player.setFlyController(new FlyController(player));
 		
-		player.setQuestStateList(DAOManager.getDAO(PlayerQuestListDAO.class).load(player));
-		player.setRecipeList(DAOManager.getDAO(PlayerRecipesDAO.class).load(player.getObjectId()));
+		player.setQuestStateList(playerLoadService.get(quests));
+		player.setRecipeList(playerLoadService.get(recipes));
 
 		/**
 		 * Equipment should be already loaded in account
@@ -252,23 +344,14 @@ public class PlayerService
 		/**
 		 * Check CUBE storage in account and if missing - load
 		 */
-		Storage inventory = playerAccountData.getInventory();
-		if(inventory == null)
-		{
-			inventory = DAOManager.getDAO(InventoryDAO.class).loadStorage(player, StorageType.CUBE);
-			itemService.loadItemStones(inventory.getStorageItems());
-		}
+		Storage inventory = cube == null ? playerAccountData.getInventory() : playerLoadService.get(cube);
 		player.setStorage(inventory, StorageType.CUBE);
 		
 		/**
 		 * Check WAREHOUSE storage in account and if missing - load
 		 */
-		Storage warehouse = playerAccountData.getWarehouse();
-		if(warehouse == null)
-		{
-			warehouse = DAOManager.getDAO(InventoryDAO.class).loadStorage(player, StorageType.REGULAR_WAREHOUSE);
-			itemService.loadItemStones(warehouse.getStorageItems());
-		}
+		Storage warehouse = regularWarehouse == null ? playerAccountData.getWarehouse() : playerLoadService
+			.get(regularWarehouse);
 		player.setStorage(warehouse, StorageType.REGULAR_WAREHOUSE);
 		
 		/**
@@ -276,7 +359,7 @@ public class PlayerService
 		 */
 		player.getEquipment().onLoadApplyEquipmentStats();
 		
-		DAOManager.getDAO(PlayerPunishmentsDAO.class).loadPlayerPunishments(player);
+		playerLoadService.get(punishments);
 
 		itemService.restoreKinah(player);
 
@@ -294,9 +377,33 @@ public class PlayerService
 		if(CacheConfig.CACHE_PLAYERS)
 			playerCache.put(playerObjId, player);
 
+		playerLoadService.record("total", System.nanoTime() - start);
 		return player;
 	}
 
+	/**
+	 * Loads storage of player with its manastones and godstones
+	 */
+	private class StorageLoader implements Callable<Storage>
+	{
+		private final Player		player;
+		private final StorageType	storageType;
+
+		private StorageLoader(Player player, StorageType storageType)
+		{
+			this.player = player;
+			this.storageType = storageType;
+		}
+
+		@Override
+		public Storage call()
+		{
+			Storage storage = DAOManager.getDAO(InventoryDAO.class).loadStorage(player, storageType);
+			itemService.loadItemStones(storage.getStorageItems());
+			return storage;
+		}
+	}
+
 	/**
 	 * This method is used for creating new players
 	 * 
@@ -421,11 +528,14 @@ public class PlayerService
 		player.getCommonData().setLastOnline(new Timestamp(System.currentTimeMillis()));
 
 		/**
-		 * Store regular warehouse and cube storages in account data
+		 * Store regular warehouse, cube storages, equipment and legion in account data - account may be cached and
+		 * shown on character selection screen again
 		 */
 		PlayerAccountData playerAccountData = player.getClientConnection().getAccount().getPlayerAccountData(player.getObjectId());
 		playerAccountData.setWarehouse(player.getWarehouse());
 		playerAccountData.setInventory(player.getInventory());
+		playerAccountData.setEquipment(player.getEquipment());
+		playerAccountData.setLegionMember(player.getLegionMember());
 		
 		player.setClientConnection(null);
 
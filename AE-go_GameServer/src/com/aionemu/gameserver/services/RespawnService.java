@@ -65,6 +65,8 @@ public class RespawnService
 	{
 		final World world = visibleObject.getPosition().getWorld();
 		final int interval = visibleObject.getSpawn().getSpawnGroup().getInterval();		
+		/* destroyed instance may be reused with another id until respawn, so it must be taken now */
+		final int instanceId = visibleObject.getInstanceId();
 	
 		return ThreadPoolManager.getInstance().schedule(new Runnable()
 		{
@@ -79,7 +81,6 @@ public class RespawnService
 						return;
 				}
 				
-				int instanceId = visibleObject.getInstanceId();
 				int worldId = visibleObject.getSpawn().getWorldId();
 				boolean instanceExists = instanceService.isInstanceExist(worldId, instanceId);
 				
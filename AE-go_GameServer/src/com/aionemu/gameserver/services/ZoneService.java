@@ -32,6 +32,7 @@ import com.aionemu.gameserver.taskmanager.AbstractFIFOPeriodicTaskManager;
 import com.aionemu.gameserver.utils.ThreadPoolManager;
 import com.aionemu.gameserver.world.MapRegion;
 import com.aionemu.gameserver.world.WorldPosition;
+import com.aionemu.gameserver.world.zone.ZoneGrid;
 import com.aionemu.gameserver.world.zone.ZoneInstance;
 import com.aionemu.gameserver.world.zone.ZoneName;
 import com.google.inject.Inject;
@@ -44,6 +45,7 @@ public final class ZoneService extends AbstractFIFOPeriodicTaskManager<Player>
 {
 	private Map<ZoneName, ZoneInstance> zoneMap = new HashMap<ZoneName, ZoneInstance>();
 	private Map<Integer, Collection<ZoneInstance>> zoneByMapIdMap = new HashMap<Integer, Collection<ZoneInstance>>();
+	private Map<Integer, ZoneGrid> zoneGridByMapIdMap = new HashMap<Integer, ZoneGrid>();
 	
 	private ZoneData zoneData;
 	
@@ -155,6 +157,11 @@ public final class ZoneService extends AbstractFIFOPeriodicTaskManager<Player>
 			}
 			zoneInstance.setNeighbors(neighbors);
 		}
+
+		for(Map.Entry<Integer, Collection<ZoneInstance>> entry : zoneByMapIdMap.entrySet())
+		{
+			zoneGridByMapIdMap.put(entry.getKey(), new ZoneGrid(entry.getValue()));
+		}
 	}
 
 	/**
@@ -163,7 +170,7 @@ public final class ZoneService extends AbstractFIFOPeriodicTaskManager<Player>
 	 * 
 	 * @return
 	 */
-	public Collection<ZoneInstance> createZoneSetCollection()
+	public static Collection<ZoneInstance> createZoneSetCollection()
 	{
 		SortedSet<ZoneInstance> collection = new TreeSet<ZoneInstance>(new Comparator<ZoneInstance>(){
 
@@ -215,21 +222,19 @@ public final class ZoneService extends AbstractFIFOPeriodicTaskManager<Player>
 		if(mapRegion == null)
 			return;
 		
-		Collection<ZoneInstance> zones = zoneByMapIdMap.get(mapRegion.getMapId());
-		if(zones == null)
+		ZoneGrid zoneGrid = zoneGridByMapIdMap.get(mapRegion.getMapId());
+		if(zoneGrid == null)
 		{
 			player.getController().resetZone();
 			return;
 		}			
 		
-		for(ZoneInstance zone : zones)
+		WorldPosition position = player.getPosition();
+		ZoneInstance zone = zoneGrid.findZone(position.getX(), position.getY(), position.getZ());
+		if(zone != null)
 		{
-			if(checkPointInZone(zone, player.getPosition()))
-			{
-				player.setZoneInstance(zone);
-				player.getController().onEnterZone(zone);
-				return;
-			}
+			player.setZoneInstance(zone);
+			player.getController().onEnterZone(zone);
 		}
 	}
 	
@@ -250,7 +255,7 @@ public final class ZoneService extends AbstractFIFOPeriodicTaskManager<Player>
 	}
 
 	/**
-	 *  Main algorithm that analyzes point-in-polygon
+	 *  Checks whether position is inside of zone polygon and its z limits
 	 *  
 	 * @param zone
 	 * @param position
@@ -258,40 +263,7 @@ public final class ZoneService extends AbstractFIFOPeriodicTaskManager<Player>
 	 */
 	private boolean checkPointInZone(ZoneInstance zone, WorldPosition position)
 	{
-		int corners = zone.getCorners();
-		float[] xCoords = zone.getxCoordinates();
-		float[] yCoords = zone.getyCoordinates();
-		
-		float top = zone.getTop();
-		float bottom = zone.getBottom();
-		
-		float x = position.getX();
-		float y = position.getY();
-		float z = position.getZ();
-		
-		//first z coordinate is checked
-		if(top != 0 || bottom != 0)//not defined
-		{
-			if(z > top || z < bottom)
-				return false;
-		}
-		
-		int i, j = corners-1;
-		boolean  inside = false;
-
-		for (i=0; i<corners; i++) 
-		{
-			if (yCoords[i] < y && yCoords[j] >= y || yCoords[j] < y && yCoords[i] >= y) 
-			{
-				if (xCoords[i]+(y-yCoords[i])/(yCoords[j]-yCoords[i])*(xCoords[j]-xCoords[i])<x) 
-				{
-					inside = !inside; 
-				}
-			}
-			j=i; 
-		}
-
-		return inside;
+		return zone.isInside(position.getX(), position.getY(), position.getZ());
 	}
 
 	/**
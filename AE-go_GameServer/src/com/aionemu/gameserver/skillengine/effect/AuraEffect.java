@@ -31,7 +31,7 @@ import com.aionemu.gameserver.skillengine.model.Effect;
 import com.aionemu.gameserver.skillengine.model.SkillTemplate;
 import com.aionemu.gameserver.utils.MathUtil;
 import com.aionemu.gameserver.utils.PacketSendUtility;
-import com.aionemu.gameserver.utils.ThreadPoolManager;
+import com.aionemu.gameserver.world.WorldTickEngine;
 
 /**
  * @author ATracer
@@ -94,7 +94,7 @@ public class AuraEffect extends EffectTemplate
 	@Override
 	public void startEffect(final Effect effect)
 	{
-		Future<?> task = ThreadPoolManager.getInstance().scheduleEffectAtFixedRate(new Runnable(){
+		Future<?> task = WorldTickEngine.getInstance().scheduleEffectAtFixedRate(effect.getEffected(), new Runnable(){
 
 			@Override
 			public void run()
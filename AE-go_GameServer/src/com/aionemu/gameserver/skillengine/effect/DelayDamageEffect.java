@@ -48,7 +48,7 @@ public class DelayDamageEffect extends DamageEffect
 	@Override
 	public void applyEffect(final Effect effect)
 	{
-		ThreadPoolManager.getInstance().schedule(new Runnable(){		
+		ThreadPoolManager.getInstance().scheduleEffect(new Runnable(){		
 			@Override
 			public void run()
 			{				
@@ -26,7 +26,7 @@ import javax.xml.bind.annotation.XmlType;
 import com.aionemu.gameserver.model.gameobjects.Creature;
 import com.aionemu.gameserver.skillengine.model.Effect;
 import com.aionemu.gameserver.skillengine.model.HealType;
-import com.aionemu.gameserver.utils.ThreadPoolManager;
+import com.aionemu.gameserver.world.WorldTickEngine;
 
 /**
  * @author ATracer
@@ -75,7 +75,7 @@ public class HealOverTimeEffect extends EffectTemplate
 	@Override
 	public void startEffect(final Effect effect)
 	{
-		Future<?> task = ThreadPoolManager.getInstance().scheduleEffectAtFixedRate(new Runnable(){
+		Future<?> task = WorldTickEngine.getInstance().scheduleEffectAtFixedRate(effect.getEffected(), new Runnable(){
 
 			@Override
 			public void run()
@@ -26,7 +26,7 @@ import javax.xml.bind.annotation.XmlType;
 import com.aionemu.gameserver.model.gameobjects.Creature;
 import com.aionemu.gameserver.model.gameobjects.stats.StatEnum;
 import com.aionemu.gameserver.skillengine.model.Effect;
-import com.aionemu.gameserver.utils.ThreadPoolManager;
+import com.aionemu.gameserver.world.WorldTickEngine;
 
 /**
  * @author ATracer
@@ -48,7 +48,7 @@ public class MpUseOverTimeEffect extends EffectTemplate
 		int maxMp = effected.getGameStats().getCurrentStat(StatEnum.MAXMP);
 		final int requiredMp = maxMp * value / 100;
 
-		Future<?> task = ThreadPoolManager.getInstance().scheduleEffectAtFixedRate(new Runnable(){
+		Future<?> task = WorldTickEngine.getInstance().scheduleEffectAtFixedRate(effect.getEffected(), new Runnable(){
 
 			@Override
 			public void run()
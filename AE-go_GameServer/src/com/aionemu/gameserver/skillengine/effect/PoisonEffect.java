@@ -26,8 +26,8 @@ import javax.xml.bind.annotation.XmlType;
 import com.aionemu.gameserver.model.gameobjects.Creature;
 import com.aionemu.gameserver.network.aion.serverpackets.SM_ATTACK_STATUS.TYPE;
 import com.aionemu.gameserver.skillengine.model.Effect;
-import com.aionemu.gameserver.utils.ThreadPoolManager;
 import com.aionemu.gameserver.utils.stats.StatFunctions;
+import com.aionemu.gameserver.world.WorldTickEngine;
 
 /**
  * @author ATracer
@@ -80,7 +80,7 @@ public class PoisonEffect extends EffectTemplate
 
 		effected.getEffectController().setAbnormal(EffectId.POISON.getEffectId());
 		
-		Future<?> task = ThreadPoolManager.getInstance().scheduleEffectAtFixedRate(new Runnable(){
+		Future<?> task = WorldTickEngine.getInstance().scheduleEffectAtFixedRate(effect.getEffected(), new Runnable(){
 
 			@Override
 			public void run()
@@ -276,7 +276,7 @@ public class Skill
 	 */
 	private void schedule(int delay)
 	{
-		ThreadPoolManager.getInstance().schedule(new Runnable() 
+		ThreadPoolManager.getInstance().scheduleEffect(new Runnable() 
 		{
 			public void run() 
 			{
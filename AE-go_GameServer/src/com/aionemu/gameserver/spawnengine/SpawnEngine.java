@@ -16,13 +16,23 @@
  */
 package com.aionemu.gameserver.spawnengine;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 
 import com.aionemu.commons.callbacks.EnhancedObject;
 import com.aionemu.gameserver.ai.events.Event;
+import com.aionemu.gameserver.configs.main.GSConfig;
 import com.aionemu.gameserver.controllers.ActionitemController;
 import com.aionemu.gameserver.controllers.BindpointController;
 import com.aionemu.gameserver.controllers.GatherableController;
@@ -58,6 +68,7 @@ import com.aionemu.gameserver.model.templates.WorldMapTemplate;
 import com.aionemu.gameserver.model.templates.spawn.SpawnGroup;
 import com.aionemu.gameserver.model.templates.spawn.SpawnTemplate;
 import com.aionemu.gameserver.model.templates.stats.SummonStatsTemplate;
+import com.aionemu.gameserver.utils.ThreadPoolManager.PriorityThreadFactory;
 import com.aionemu.gameserver.utils.gametime.DayTime;
 import com.aionemu.gameserver.utils.gametime.GameTime;
 import com.aionemu.gameserver.utils.gametime.GameTimeManager;
@@ -65,10 +76,13 @@ import com.aionemu.gameserver.utils.gametime.listeners.DayTimeListener;
 import com.aionemu.gameserver.utils.idfactory.IDFactory;
 import com.aionemu.gameserver.utils.idfactory.IDFactoryAionObject;
 import com.aionemu.gameserver.world.KnownList;
+import com.aionemu.gameserver.world.RegionSpawner;
 import com.aionemu.gameserver.world.StaticObjectKnownList;
 import com.aionemu.gameserver.world.World;
+import com.aionemu.gameserver.world.WorldMapInstance;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
+import com.google.inject.Provider;
 
 /**
  * 
@@ -110,10 +124,22 @@ public class SpawnEngine
 
 	private Injector					injector;
 
+	/** Controller providers, resolved once instead of injector lookup for every spawned object */
+	private Provider<MonsterController>		monsterControllers;
+	private Provider<PostboxController>		postboxControllers;
+	private Provider<BindpointController>	bindpointControllers;
+	private Provider<ActionitemController>	actionitemControllers;
+	private Provider<PortalController>		portalControllers;
+	private Provider<NpcController>			npcControllers;
+	private Provider<GatherableController>	gatherableControllers;
+
+	/** Spawner of objects postponed by lazily spawned instances */
+	private final RegionSpawner			regionSpawner		= new LazyRegionSpawner();
+
 	/** Counter counting number of npc spawns */
-	private int							npcCounter			= 0;
+	private final AtomicInteger			npcCounter			= new AtomicInteger();
 	/** Counter counting number of gatherable spawns */
-	private int							gatherableCounter	= 0;
+	private final AtomicInteger			gatherableCounter	= new AtomicInteger();
 
 	/**
 	 * @param injector
@@ -122,6 +148,13 @@ public class SpawnEngine
 	public void setInjector(Injector injector)
 	{
 		this.injector = injector;
+		this.monsterControllers = injector.getProvider(MonsterController.class);
+		this.postboxControllers = injector.getProvider(PostboxController.class);
+		this.bindpointControllers = injector.getProvider(BindpointController.class);
+		this.actionitemControllers = injector.getProvider(ActionitemController.class);
+		this.portalControllers = injector.getProvider(PortalController.class);
+		this.npcControllers = injector.getProvider(NpcController.class);
+		this.gatherableControllers = injector.getProvider(GatherableController.class);
 	}
 
 	/**
@@ -131,6 +164,20 @@ public class SpawnEngine
 	 * @return created and spawned VisibleObject
 	 */
 	public VisibleObject spawnObject(SpawnTemplate spawn, int instanceIndex)
+	{
+		return spawnObject(spawn, instanceIndex, null);
+	}
+
+	/**
+	 * Creates VisibleObject instance and spawns it. When batch is given, object id is taken from ids allocated for the
+	 * batch.
+	 * 
+	 * @param spawn
+	 * @param instanceIndex
+	 * @param batch
+	 * @return created and spawned VisibleObject
+	 */
+	private VisibleObject spawnObject(SpawnTemplate spawn, int instanceIndex, SpawnBatch batch)
 	{
 		VisibleObjectTemplate template = null;
 		int objectId = spawn.getSpawnGroup().getNpcid();
@@ -140,7 +187,7 @@ public class SpawnEngine
 			template = gatherableData.getGatherableTemplate(objectId);
 			if(template == null)
 				return null;
-			gatherableCounter++;
+			gatherableCounter.incrementAndGet();
 		}
 		else
 		// npc
@@ -148,9 +195,12 @@ public class SpawnEngine
 			template = npcData.getNpcTemplate(objectId);
 			if(template == null)
 				return null;
-			npcCounter++;
+			npcCounter.incrementAndGet();
 		}
 
+		int objId = batch != null ? batch.nextId() : aionObjectsIDFactory.nextId();
+		boolean updateKnownList = batch == null || batch.updateKnownList;
+
 		if(template instanceof NpcTemplate)
 		{
 			NpcType npcType = ((NpcTemplate) template).getNpcType();
@@ -160,34 +210,29 @@ public class SpawnEngine
 			{
 				case AGGRESSIVE:
 				case ATTACKABLE:
-					npc = new Monster(aionObjectsIDFactory.nextId(), injector.getInstance(MonsterController.class),
-						spawn, template);
+					npc = new Monster(objId, monsterControllers.get(), spawn, template);
 					npc.setKnownlist(new KnownList(npc));
 					break;
 				case POSTBOX:
-					npc = new Npc(aionObjectsIDFactory.nextId(), injector.getInstance(PostboxController.class), spawn,
-						template);
+					npc = new Npc(objId, postboxControllers.get(), spawn, template);
 					npc.setKnownlist(new StaticObjectKnownList(npc));
 					break;
 				case RESURRECT:
-					BindpointController bindPointController = injector.getInstance(BindpointController.class);
+					BindpointController bindPointController = bindpointControllers.get();
 					bindPointController.setBindPointTemplate(bindPointData.getBindPointTemplate(objectId));
-					npc = new Npc(aionObjectsIDFactory.nextId(), bindPointController, spawn, template);
+					npc = new Npc(objId, bindPointController, spawn, template);
 					npc.setKnownlist(new StaticObjectKnownList(npc));
 					break;
 				case USEITEM:
-					npc = new Npc(aionObjectsIDFactory.nextId(), injector.getInstance(ActionitemController.class),
-						spawn, template);
+					npc = new Npc(objId, actionitemControllers.get(), spawn, template);
 					npc.setKnownlist(new StaticObjectKnownList(npc));
 					break;
 				case PORTAL:
-					npc = new Npc(aionObjectsIDFactory.nextId(), injector.getInstance(PortalController.class), spawn,
-						template);
+					npc = new Npc(objId, portalControllers.get(), spawn, template);
 					npc.setKnownlist(new StaticObjectKnownList(npc));
 					break;
 				default: // NON_ATTACKABLE
-					npc = new Npc(aionObjectsIDFactory.nextId(), injector.getInstance(NpcController.class), spawn,
-						template);
+					npc = new Npc(objId, npcControllers.get(), spawn, template);
 					npc.setKnownlist(new StaticObjectKnownList(npc));
 
 			}
@@ -195,15 +240,14 @@ public class SpawnEngine
 			npc.setNpcSkillList(npcSkillData.getNpcSkillList(template.getTemplateId()));
 			npc.setEffectController(new EffectController(npc));
 			npc.getController().onRespawn();
-			bringIntoWorld(npc, spawn, instanceIndex);
+			bringIntoWorld(npc, spawn, instanceIndex, updateKnownList);
 			return npc;
 		}
 		else if(template instanceof GatherableTemplate)
 		{
-			Gatherable gatherable = new Gatherable(spawn, template, aionObjectsIDFactory.nextId(), injector
-				.getInstance(GatherableController.class));
+			Gatherable gatherable = new Gatherable(spawn, template, objId, gatherableControllers.get());
 			gatherable.setKnownlist(new StaticObjectKnownList(gatherable));
-			bringIntoWorld(gatherable, spawn, instanceIndex);
+			bringIntoWorld(gatherable, spawn, instanceIndex, updateKnownList);
 			return gatherable;
 		}
 		return null;
@@ -370,37 +414,85 @@ public class SpawnEngine
 	}
 
 	private void bringIntoWorld(VisibleObject visibleObject, SpawnTemplate spawn, int instanceIndex)
+	{
+		bringIntoWorld(visibleObject, spawn, instanceIndex, true);
+	}
+
+	private void bringIntoWorld(VisibleObject visibleObject, SpawnTemplate spawn, int instanceIndex,
+		boolean updateKnownList)
 	{
 		world.storeObject(visibleObject);
 		world.setPosition(visibleObject, spawn.getWorldId(), instanceIndex, spawn.getX(), spawn.getY(), spawn.getZ(),
 			spawn.getHeading());
-		world.spawn(visibleObject);
+		world.spawn(visibleObject, updateKnownList);
 	}
 
 	/**
-	 * Spawn all NPC's from templates
+	 * Spawn all NPC's from templates. Maps are spawned in parallel, every map (with all its twins) by one thread. If
+	 * there are no players in the world, known lists are not updated - they will be filled when players arrive.
 	 */
 	public void spawnAll()
 	{
-		this.npcCounter = 0;
-		this.gatherableCounter = 0;
-		
+		npcCounter.set(0);
+		gatherableCounter.set(0);
+
+		boolean updateKnownList = world.getPlayersIterator().hasNext();
+
+		List<MapSpawner> spawners = new ArrayList<MapSpawner>();
 		for(WorldMapTemplate worldMapTemplate : worldMapsData)
 		{
 			if(worldMapTemplate.isInstance())
 				continue;
-			int maxTwin = worldMapTemplate.getTwinCount();
-			final int mapId = worldMapTemplate.getMapId();
-			int numberToSpawn = maxTwin > 0 ? maxTwin : 1;
+			List<SpawnGroup> worldSpawns = spawnsData.getSpawnsForWorld(worldMapTemplate.getMapId());
+			if(worldSpawns == null || worldSpawns.size() == 0)
+				continue;
+			spawners.add(new MapSpawner(worldMapTemplate, worldSpawns, updateKnownList));
+		}
+		Collections.sort(spawners);
 
-			for(int i = 1; i <= numberToSpawn; i++)
+		long start = System.nanoTime();
+		int threads = Math.min(GSConfig.SPAWN_THREADS > 0 ? GSConfig.SPAWN_THREADS : Runtime.getRuntime()
+			.availableProcessors(), spawners.size());
+		if(threads > 1)
+		{
+			ExecutorService pool = Executors.newFixedThreadPool(threads, new PriorityThreadFactory("SpawnEngine",
+				Thread.NORM_PRIORITY, true));
+			try
 			{
-				spawnInstance(mapId, i);
+				for(Future<MapSpawner> result : pool.invokeAll(spawners))
+					result.get();
 			}
+			catch(Exception e)
+			{
+				throw new Error("Npc spawn failed", e);
+			}
+			finally
+			{
+				pool.shutdown();
+			}
+		}
+		else
+		{
+			for(MapSpawner spawner : spawners)
+				spawner.call();
 		}
+		long time = System.nanoTime() - start;
 
-		log.info("Loaded " + npcCounter + " npc spawns");
-		log.info("Loaded " + gatherableCounter + " gatherable spawns");
+		/* handlers are not thread safe, they are spawning only small amount of objects anyway */
+		for(MapSpawner spawner : spawners)
+		{
+			for(int i = 1; i <= spawner.instanceCount; i++)
+				spawnHandlerGroups(spawner.worldSpawns, i);
+		}
+
+		for(MapSpawner spawner : spawners)
+		{
+			log.info("Spawn of map " + spawner.mapId + ": " + spawner.spawnCount + " objects, " + spawner.time
+				/ 1000000 + " ms" + (spawner.allocated >= 0 ? ", " + spawner.allocated / 1024 + " KB allocated" : ""));
+		}
+		log.info("Maps spawned by " + Math.max(threads, 1) + " threads in " + time / 1000000 + " ms");
+		log.info("Loaded " + npcCounter.get() + " npc spawns");
+		log.info("Loaded " + gatherableCounter.get() + " gatherable spawns");
 
 		riftSpawnManager.startRiftPool();
 	}
@@ -418,35 +510,241 @@ public class SpawnEngine
 		if(worldSpawns == null || worldSpawns.size() == 0)
 			return;
 
-		int instanceSpawnCounter = 0;
+		spawnPools(worldId, worldSpawns, instanceIndex, true);
+		spawnHandlerGroups(worldSpawns, instanceIndex);
+	}
+
+	/**
+	 * Spawns instance lazily - objects of spawn groups without handler are spawned region by region, when first player
+	 * comes near the region. Objects of handled spawn groups are spawned immediately.
+	 * 
+	 * @param instance
+	 */
+	public void spawnInstanceLazily(WorldMapInstance instance)
+	{
+		List<SpawnGroup> worldSpawns = spawnsData.getSpawnsForWorld(instance.getMapId());
+
+		if(worldSpawns == null || worldSpawns.size() == 0)
+			return;
+
+		/* must be visible before first pending spawn, player may enter region meanwhile */
+		instance.setRegionSpawner(regionSpawner);
+
+		int instanceIndex = instance.getInstanceId();
 		for(SpawnGroup spawnGroup : worldSpawns)
 		{
-			spawnGroup.resetLastSpawnCounter(instanceIndex);
-			if(spawnGroup.getHandler() == null)
+			if(spawnGroup.getHandler() != null)
+				continue;
+
+			/* instances of one map may be created concurrently */
+			synchronized(spawnGroup)
 			{
+				spawnGroup.resetLastSpawnCounter(instanceIndex);
 				int pool = spawnGroup.getPool();
 				for(int i = 0; i < pool; i++)
 				{
-					spawnObject(spawnGroup.getNextAvailableTemplate(instanceIndex), instanceIndex);
-
-					instanceSpawnCounter++;
+					SpawnTemplate spawn = spawnGroup.getNextAvailableTemplate(instanceIndex);
+					if(spawn != null)
+						instance.addPendingSpawn(spawn);
 				}
 			}
-			else
+		}
+
+		synchronized(this)
+		{
+			spawnHandlerGroups(worldSpawns, instanceIndex);
+		}
+	}
+
+	/**
+	 * Spawns objects of spawn groups without handler. Object ids for whole instance are allocated at once.
+	 * 
+	 * @param worldId
+	 * @param worldSpawns
+	 * @param instanceIndex
+	 * @param updateKnownList
+	 * @return number of spawned objects
+	 */
+	private int spawnPools(int worldId, List<SpawnGroup> worldSpawns, int instanceIndex, boolean updateKnownList)
+	{
+		int count = 0;
+		for(SpawnGroup spawnGroup : worldSpawns)
+		{
+			if(spawnGroup.getHandler() == null)
+				count += spawnGroup.getPool();
+		}
+
+		SpawnBatch batch = new SpawnBatch(aionObjectsIDFactory.nextIds(count), updateKnownList);
+		int instanceSpawnCounter = 0;
+		try
+		{
+			for(SpawnGroup spawnGroup : worldSpawns)
 			{
-				switch(spawnGroup.getHandler())
+				if(spawnGroup.getHandler() != null)
+					continue;
+
+				spawnGroup.resetLastSpawnCounter(instanceIndex);
+				int pool = spawnGroup.getPool();
+				for(int i = 0; i < pool; i++)
 				{
-					case RIFT:
-						riftSpawnManager.addRiftSpawnGroup(spawnGroup);
-						break;
-					case STATIC:
-						staticObjectSpawnManager.spawnGroup(spawnGroup, instanceIndex);
-					default:
-						break;
+					spawnObject(spawnGroup.getNextAvailableTemplate(instanceIndex), instanceIndex, batch);
+
+					instanceSpawnCounter++;
 				}
 			}
 		}
+		finally
+		{
+			batch.releaseUnused();
+		}
 		log.info("Spawned " + worldId + " [" + instanceIndex + "] : " + instanceSpawnCounter);
+		return instanceSpawnCounter;
+	}
+
+	/**
+	 * 
+	 * @param worldSpawns
+	 * @param instanceIndex
+	 */
+	private void spawnHandlerGroups(List<SpawnGroup> worldSpawns, int instanceIndex)
+	{
+		for(SpawnGroup spawnGroup : worldSpawns)
+		{
+			if(spawnGroup.getHandler() == null)
+				continue;
+
+			spawnGroup.resetLastSpawnCounter(instanceIndex);
+			switch(spawnGroup.getHandler())
+			{
+				case RIFT:
+					riftSpawnManager.addRiftSpawnGroup(spawnGroup);
+					break;
+				case STATIC:
+					staticObjectSpawnManager.spawnGroup(spawnGroup, instanceIndex);
+				default:
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Returns amount of memory allocated by current thread or -1 if it's not supported by jvm
+	 * 
+	 * @return allocated bytes
+	 */
+	private static long allocatedBytes()
+	{
+		try
+		{
+			ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+			if(bean instanceof com.sun.management.ThreadMXBean)
+			{
+				com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+				if(sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled())
+					return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		catch(NoClassDefFoundError e)
+		{
+			// not a sun jvm
+		}
+		return -1;
+	}
+
+	/**
+	 * Object ids allocated for spawn of one instance
+	 */
+	private class SpawnBatch
+	{
+		private final int[]		ids;
+		private final boolean	updateKnownList;
+		private int				used;
+
+		private SpawnBatch(int[] ids, boolean updateKnownList)
+		{
+			this.ids = ids;
+			this.updateKnownList = updateKnownList;
+		}
+
+		private int nextId()
+		{
+			return used < ids.length ? ids[used++] : aionObjectsIDFactory.nextId();
+		}
+
+		/**
+		 * Ids of objects without template were not used
+		 */
+		private void releaseUnused()
+		{
+			for(int i = used; i < ids.length; i++)
+				aionObjectsIDFactory.releaseId(ids[i]);
+		}
+	}
+
+	/**
+	 * Spawns postponed objects of instance region
+	 */
+	private class LazyRegionSpawner implements RegionSpawner
+	{
+		@Override
+		public void spawnRegion(WorldMapInstance instance, List<SpawnTemplate> spawns)
+		{
+			SpawnBatch batch = new SpawnBatch(aionObjectsIDFactory.nextIds(spawns.size()), true);
+			try
+			{
+				for(SpawnTemplate spawn : spawns)
+					spawnObject(spawn, instance.getInstanceId(), batch);
+			}
+			finally
+			{
+				batch.releaseUnused();
+			}
+		}
+	}
+
+	/**
+	 * Spawns all instances of one map
+	 */
+	private class MapSpawner implements Callable<MapSpawner>, Comparable<MapSpawner>
+	{
+		private final int				mapId;
+		private final int				instanceCount;
+		private final List<SpawnGroup>	worldSpawns;
+		private final boolean			updateKnownList;
+		private int						spawnCount;
+		private long					time;
+		private long					allocated;
+
+		private MapSpawner(WorldMapTemplate worldMapTemplate, List<SpawnGroup> worldSpawns, boolean updateKnownList)
+		{
+			this.mapId = worldMapTemplate.getMapId();
+			this.instanceCount = worldMapTemplate.getTwinCount() > 0 ? worldMapTemplate.getTwinCount() : 1;
+			this.worldSpawns = worldSpawns;
+			this.updateKnownList = updateKnownList;
+		}
+
+		@Override
+		public MapSpawner call()
+		{
+			long start = System.nanoTime();
+			long allocatedBefore = allocatedBytes();
+			for(int i = 1; i <= instanceCount; i++)
+				spawnCount += spawnPools(mapId, worldSpawns, i, updateKnownList);
+			time = System.nanoTime() - start;
+			allocated = allocatedBefore >= 0 ? allocatedBytes() - allocatedBefore : -1;
+			return this;
+		}
+
+		/**
+		 * Larger first
+		 */
+		@Override
+		public int compareTo(MapSpawner o)
+		{
+			int size = worldSpawns.size() * instanceCount;
+			int otherSize = o.worldSpawns.size() * o.instanceCount;
+			return size > otherSize ? -1 : size < otherSize ? 1 : 0;
+		}
 	}
 
 	/**
@@ -82,7 +82,10 @@ public class PacketSendUtility
 	public static void broadcastPacket(Player player, AionServerPacket packet, boolean toSelf)
 	{
 		if(toSelf)
+		{
+			packet.prepareBroadcast();
 			sendPacket(player, packet);
+		}
 
 		broadcastPacket(player, packet);
 	}
@@ -96,23 +99,35 @@ public class PacketSendUtility
 	public static void broadcastPacketAndReceive(VisibleObject visibleObject, AionServerPacket packet)
 	{
 		if(visibleObject instanceof Player)
+		{
+			packet.prepareBroadcast();
 			sendPacket((Player)visibleObject, packet);
+		}
 
 		broadcastPacket(visibleObject, packet);
 	}
 
 	/**
-	 * Broadcast packet to all Players from knownList of the given visible object.
+	 * Broadcast packet to all Players from knownList of the given visible object. Packet data is written only once and
+	 * shared by all receivers.
 	 * 
 	 * @param visibleObject
 	 * @param packet
 	 */
 	public static void broadcastPacket(VisibleObject visibleObject, AionServerPacket packet)
 	{
+		boolean prepared = false;
 		for(VisibleObject obj : visibleObject.getKnownList())
 		{
 			if(obj instanceof Player)
+			{
+				if(!prepared)
+				{
+					packet.prepareBroadcast();
+					prepared = true;
+				}
 				sendPacket(((Player) obj), packet);
+			}
 		}
 	}
 
@@ -131,6 +146,8 @@ public class PacketSendUtility
 	public static void broadcastPacket(Player player, AionServerPacket packet, boolean toSelf,
 		ObjectFilter<Player> filter)
 	{
+		packet.prepareBroadcast();
+
 		if(toSelf)
 		{
 			sendPacket(player, packet);
@@ -157,6 +174,7 @@ public class PacketSendUtility
 	 */
 	public static void broadcastPacketToLegion(Legion legion, AionServerPacket packet, World world)
 	{
+		packet.prepareBroadcast();
 		for(Player onlineLegionMember : legion.getOnlineLegionMembers(world))
 		{
 			sendPacket(onlineLegionMember, packet);
@@ -165,6 +183,7 @@ public class PacketSendUtility
 
 	public static void broadcastPacketToLegion(Legion legion, AionServerPacket packet, World world, int playerObjId)
 	{
+		packet.prepareBroadcast();
 		for(Player onlineLegionMember : legion.getOnlineLegionMembers(world))
 		{
 			if(onlineLegionMember.getObjectId() != playerObjId)
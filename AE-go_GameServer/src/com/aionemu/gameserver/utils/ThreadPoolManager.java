@@ -23,8 +23,10 @@ import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 
@@ -33,6 +35,7 @@ import com.aionemu.commons.network.DisconnectionThreadPool;
 import com.aionemu.commons.utils.concurrent.AionRejectedExecutionHandler;
 import com.aionemu.commons.utils.concurrent.ExecuteWrapper;
 import com.aionemu.commons.utils.concurrent.ScheduledFutureWrapper;
+import com.aionemu.commons.utils.concurrent.TimerWheel;
 import com.aionemu.gameserver.configs.main.ThreadConfig;
 
 /**
@@ -48,6 +51,11 @@ public final class ThreadPoolManager implements DisconnectionThreadPool
 	private final ThreadPoolExecutor			instantPool;
 	private final ThreadPoolExecutor			longRunningPool;
 
+	/**
+	 * Timer of skills and effects, due tasks are executed by instant pool
+	 */
+	private final TimerWheel					effectTimer;
+
 	/**
 	 * Disconnection scheduled threads pool
 	 */
@@ -87,6 +95,9 @@ public final class ThreadPoolManager implements DisconnectionThreadPool
 		longRunningPool.setRejectedExecutionHandler(new AionRejectedExecutionHandler());
 		longRunningPool.prestartAllCoreThreads();
 
+		effectTimer = new TimerWheel("EffectTimer", ThreadConfig.EFFECT_TIMER_TICK, instantPool);
+		effectTimer.start();
+
 		disconnectionScheduledThreadPool = new ScheduledThreadPoolExecutor(4);
 		disconnectionScheduledThreadPool.setRejectedExecutionHandler(new AionRejectedExecutionHandler());
 		disconnectionScheduledThreadPool.prestartAllCoreThreads();
@@ -135,7 +146,10 @@ public final class ThreadPoolManager implements DisconnectionThreadPool
 
 	public final ScheduledFuture<?> scheduleEffect(Runnable r, long delay)
 	{
-		return schedule(r, delay);
+		r = new ThreadPoolExecuteWrapper(r);
+		delay = validate(delay);
+
+		return effectTimer.schedule(r, delay);
 	}
 
 	public final ScheduledFuture<?> scheduleGeneral(Runnable r, long delay)
@@ -161,7 +175,11 @@ public final class ThreadPoolManager implements DisconnectionThreadPool
 
 	public final ScheduledFuture<?> scheduleEffectAtFixedRate(Runnable r, long delay, long period)
 	{
-		return scheduleAtFixedRate(r, delay, period);
+		r = new ThreadPoolExecuteWrapper(r);
+		delay = validate(delay);
+		period = validate(period);
+
+		return effectTimer.scheduleAtFixedRate(r, delay, period);
 	}
 
 	public final ScheduledFuture<?> scheduleGeneralAtFixedRate(Runnable r, long delay, long period)
@@ -288,6 +306,7 @@ public final class ThreadPoolManager implements DisconnectionThreadPool
 		log.info("\t... executing " + getTaskCount(instantPool) + " instant tasks.");
 		log.info("\t... executing " + getTaskCount(longRunningPool) + " long running tasks.");
 
+		effectTimer.shutdown();
 		scheduledPool.shutdown();
 		instantPool.shutdown();
 		longRunningPool.shutdown();
@@ -368,6 +387,8 @@ public final class ThreadPoolManager implements DisconnectionThreadPool
 		list.add("\tgetQueuedTaskCount: .. " + disconnectionScheduledThreadPool.getQueue().size());
 		list.add("\tgetTaskCount: ........ " + disconnectionScheduledThreadPool.getTaskCount());
 		list.add("");
+		list.addAll(effectTimer.getStats());
+		list.add("");
 		
 		return list;
 	}
@@ -392,4 +413,60 @@ public final class ThreadPoolManager implements DisconnectionThreadPool
 
 		return false;
 	}
+
+	/**
+	 * PriorityThreadFactory creating named threads for pools outside of ThreadPoolManager
+	 */
+	public static final class PriorityThreadFactory implements ThreadFactory
+	{
+		/**
+		 * Priority of new threads
+		 */
+		private final int			prio;
+		/**
+		 * Thread group name
+		 */
+		private final String		name;
+		/**
+		 * Should created threads be daemons
+		 */
+		private final boolean		daemon;
+		/**
+		 * Number of created threads
+		 */
+		private final AtomicInteger	threadNumber	= new AtomicInteger(1);
+		/**
+		 * ThreadGroup for created threads
+		 */
+		private final ThreadGroup	group;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param name
+		 * @param prio
+		 * @param daemon
+		 */
+		public PriorityThreadFactory(String name, int prio, boolean daemon)
+		{
+			this.prio = prio;
+			this.name = name;
+			this.daemon = daemon;
+			group = new ThreadGroup(this.name);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Thread newThread(Runnable r)
+		{
+			Thread t = new Thread(group, r);
+			t.setName(name + "-" + threadNumber.getAndIncrement());
+			t.setPriority(prio);
+			t.setDaemon(daemon);
+			t.setUncaughtExceptionHandler(new ThreadUncaughtExceptionHandler());
+			return t;
+		}
+	}
 }
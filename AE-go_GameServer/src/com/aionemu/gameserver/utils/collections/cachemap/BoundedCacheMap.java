@@ -0,0 +1,395 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.utils.collections.cachemap;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+/**
+ * This class is a cache map with explicit capacity.<br>
+ * <br>
+ * Unlike {@link SoftCacheMap} and {@link WeakCacheMap}, values are not removed by gc. When capacity is exceeded, value
+ * is removed according to W-TinyLFU policy [or LRU if admission is disabled]: new values enter small LRU window, value
+ * leaving the window replaces least recently used value of main part only if it was requested more often. Frequency
+ * of requests is estimated by count-min sketch, which is periodically halved so old popularity fades out. If idle time
+ * is set, values that were not accessed for longer than idle time are removed too.<br>
+ * <br>
+ * Map is split into segments by hash of key, every segment has its own lock and its own part of capacity, so there is
+ * no global lock.
+ */
+class BoundedCacheMap<K, V> implements CacheMap<K, V>
+{
+	private static final Logger	log	= Logger.getLogger(BoundedCacheMap.class);
+
+	private final String		cacheName;
+	private final String		valueName;
+	private final int			capacity;
+	private final long			idleTime;
+	private final boolean		admission;
+
+	private final List<Segment>	segments;
+	private final int			segmentMask;
+
+	/**
+	 * @param cacheName
+	 * @param valueName
+	 * @param capacity
+	 *            max number of values
+	 * @param idleTime
+	 *            time in milliseconds after which not accessed value is removed, 0 - never
+	 * @param admission
+	 *            true - W-TinyLFU, false - LRU
+	 */
+	BoundedCacheMap(String cacheName, String valueName, int capacity, long idleTime, boolean admission)
+	{
+		this.cacheName = "#CACHE  [" + cacheName + "]#  ";
+		this.valueName = valueName;
+		this.capacity = Math.max(1, capacity);
+		this.idleTime = idleTime;
+		this.admission = admission;
+
+		/* at least 32 values per segment, at most 16 segments */
+		int count = Integer.highestOneBit(Math.max(1, Math.min(16, this.capacity / 32)));
+		segments = new ArrayList<Segment>(count);
+		for(int i = 0; i < count; i++)
+			segments.add(new Segment(this.capacity / count + (i < this.capacity % count ? 1 : 0)));
+		segmentMask = count - 1;
+	}
+
+	private Segment segmentFor(int hash)
+	{
+		return segments.get((hash >>> 16) & segmentMask);
+	}
+
+	/**
+	 * Spreads bits of hash code, so segments and sketch get different bits
+	 */
+	private static int hash(Object key)
+	{
+		int h = key.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 15);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void put(K key, V value)
+	{
+		int hash = hash(key);
+		segmentFor(hash).put(key, hash, value);
+
+		if(log.isDebugEnabled())
+			log.debug(cacheName + " : added " + valueName + " for key: " + key);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public V get(K key)
+	{
+		int hash = hash(key);
+		V value = segmentFor(hash).get(key, hash);
+
+		if(value != null && log.isDebugEnabled())
+			log.debug(cacheName + " : obtained " + valueName + " for key: " + key);
+
+		return value;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean contains(K key)
+	{
+		return segmentFor(hash(key)).contains(key);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void remove(K key)
+	{
+		segmentFor(hash(key)).remove(key);
+	}
+
+	/**
+	 * @return human readable statistics of this cache: size, hits, misses and removed values.
+	 */
+	public List<String> getStats()
+	{
+		long size = 0, hits = 0, misses = 0, evictions = 0, rejections = 0, expirations = 0;
+		for(Segment segment : segments)
+		{
+			synchronized(segment)
+			{
+				size += segment.window.size() + segment.main.size();
+				hits += segment.hits;
+				misses += segment.misses;
+				evictions += segment.evictions;
+				rejections += segment.rejections;
+				expirations += segment.expirations;
+			}
+		}
+
+		long requests = Math.max(1, hits + misses);
+		List<String> list = new ArrayList<String>();
+		list.add(cacheName.trim() + (admission ? " W-TinyLFU" : " LRU") + ", " + segments.size() + " segment(s)");
+		list.add("=================================================");
+		list.add("\tsize: ................ " + size + "/" + capacity);
+		list.add("\thits: ................ " + hits);
+		list.add("\tmisses: .............. " + misses);
+		list.add("\thit rate [%]: ........ " + String.format("%.2f", hits * 100.0 / requests));
+		list.add("\tevictions: ........... " + evictions);
+		if(admission)
+			list.add("\tnot admitted: ........ " + rejections);
+		list.add("\texpirations: ......... " + expirations);
+		return list;
+	}
+
+	/**
+	 * Part of the cache map with its own lock. Values are kept in LRU window and main LRU part, both in access order -
+	 * least recently used first.
+	 */
+	private class Segment
+	{
+		private final LinkedHashMap<K, CacheEntry<V>>	window	= new LinkedHashMap<K, CacheEntry<V>>(16, 0.75f, true);
+		private final LinkedHashMap<K, CacheEntry<V>>	main	= new LinkedHashMap<K, CacheEntry<V>>(16, 0.75f, true);
+		private final int								windowCapacity;
+		private final int								mainCapacity;
+		private final FrequencySketch					sketch;
+
+		private long									hits;
+		private long									misses;
+		private long									evictions;
+		private long									rejections;
+		private long									expirations;
+
+		private Segment(int capacity)
+		{
+			if(admission)
+			{
+				/* 1% of capacity for window, like in W-TinyLFU paper */
+				windowCapacity = Math.max(1, capacity / 100);
+				mainCapacity = Math.max(0, capacity - windowCapacity);
+				sketch = new FrequencySketch(capacity);
+			}
+			else
+			{
+				windowCapacity = capacity;
+				mainCapacity = 0;
+				sketch = null;
+			}
+		}
+
+		private synchronized V get(K key, int hash)
+		{
+			long now = System.currentTimeMillis();
+			removeExpired(now);
+			if(sketch != null)
+				sketch.increment(hash);
+
+			CacheEntry<V> entry = window.get(key);
+			if(entry == null)
+				entry = main.get(key);
+			if(entry == null)
+			{
+				misses++;
+				return null;
+			}
+
+			hits++;
+			entry.lastAccess = now;
+			return entry.value;
+		}
+
+		private synchronized void put(K key, int hash, V value)
+		{
+			long now = System.currentTimeMillis();
+			removeExpired(now);
+
+			if(window.containsKey(key) || main.containsKey(key))
+				throw new IllegalArgumentException("Key: " + key + " already exists in map");
+
+			if(sketch != null)
+				sketch.increment(hash);
+
+			window.put(key, new CacheEntry<V>(value, hash, now));
+			if(window.size() <= windowCapacity)
+				return;
+
+			/* value leaving window is a candidate for main part */
+			Map.Entry<K, CacheEntry<V>> candidate = removeEldest(window);
+			if(main.size() < mainCapacity)
+			{
+				main.put(candidate.getKey(), candidate.getValue());
+				return;
+			}
+			if(mainCapacity == 0)
+			{
+				evict(candidate.getKey());
+				return;
+			}
+
+			Map.Entry<K, CacheEntry<V>> victim = main.entrySet().iterator().next();
+			if(sketch.frequency(candidate.getValue().hash) > sketch.frequency(victim.getValue().hash))
+			{
+				main.remove(victim.getKey());
+				evict(victim.getKey());
+				main.put(candidate.getKey(), candidate.getValue());
+			}
+			else
+			{
+				rejections++;
+				evict(candidate.getKey());
+			}
+		}
+
+		private synchronized boolean contains(K key)
+		{
+			removeExpired(System.currentTimeMillis());
+			return window.containsKey(key) || main.containsKey(key);
+		}
+
+		private synchronized void remove(K key)
+		{
+			if(window.remove(key) == null)
+				main.remove(key);
+		}
+
+		private Map.Entry<K, CacheEntry<V>> removeEldest(LinkedHashMap<K, CacheEntry<V>> map)
+		{
+			Iterator<Map.Entry<K, CacheEntry<V>>> it = map.entrySet().iterator();
+			Map.Entry<K, CacheEntry<V>> eldest = it.next();
+			it.remove();
+			return eldest;
+		}
+
+		private void evict(K key)
+		{
+			evictions++;
+			if(log.isDebugEnabled())
+				log.debug(cacheName + " : evicted " + valueName + " for key: " + key);
+		}
+
+		/**
+		 * Removes values idle for longer than idle time. Entries are in access order, so only the oldest are checked.
+		 * 
+		 * @param now
+		 */
+		private void removeExpired(long now)
+		{
+			if(idleTime <= 0)
+				return;
+
+			removeExpired(window, now);
+			removeExpired(main, now);
+		}
+
+		private void removeExpired(LinkedHashMap<K, CacheEntry<V>> map, long now)
+		{
+			Iterator<CacheEntry<V>> it = map.values().iterator();
+			while(it.hasNext())
+			{
+				if(now - it.next().lastAccess < idleTime)
+					break;
+				it.remove();
+				expirations++;
+			}
+		}
+	}
+
+	private static class CacheEntry<V>
+	{
+		private final V		value;
+		private final int	hash;
+		private long		lastAccess;
+
+		private CacheEntry(V value, int hash, long lastAccess)
+		{
+			this.value = value;
+			this.hash = hash;
+			this.lastAccess = lastAccess;
+		}
+	}
+
+	/**
+	 * Count-min sketch of 4-bit counters, estimates how often keys were requested. After number of increments reaches
+	 * ten times the capacity, all counters are halved.
+	 */
+	private static class FrequencySketch
+	{
+		private static final int[]	SEEDS	= { 0x97CB3127, 0xB3B9C4A5, 0xC2B2AE35, 0x85EBCA6B };
+
+		/** Two 4-bit counters in every byte */
+		private final byte[]		table;
+		private final int			mask;
+		private final int			sampleSize;
+		private int					additions;
+
+		private FrequencySketch(int capacity)
+		{
+			int width = Integer.highestOneBit(Math.max(16, capacity) * 2 - 1);
+			table = new byte[width * 2];
+			mask = width * 4 - 1;
+			sampleSize = Math.max(10, capacity * 10);
+		}
+
+		private int index(int hash, int i)
+		{
+			int h = (hash + SEEDS[i]) * SEEDS[i];
+			return (h ^ (h >>> 16)) & mask;
+		}
+
+		private int counter(int index)
+		{
+			return (table[index >>> 1] >>> ((index & 1) << 2)) & 0xF;
+		}
+
+		private void increment(int hash)
+		{
+			boolean added = false;
+			for(int i = 0; i < SEEDS.length; i++)
+			{
+				int index = index(hash, i);
+				if(counter(index) < 15)
+				{
+					table[index >>> 1] += 1 << ((index & 1) << 2);
+					added = true;
+				}
+			}
+
+			if(added && ++additions >= sampleSize)
+				reset();
+		}
+
+		private int frequency(int hash)
+		{
+			int frequency = 15;
+			for(int i = 0; i < SEEDS.length; i++)
+				frequency = Math.min(frequency, counter(index(hash, i)));
+			return frequency;
+		}
+
+		private void reset()
+		{
+			for(int i = 0; i < table.length; i++)
+				table[i] = (byte) ((table[i] >>> 1) & 0x77);
+			additions /= 2;
+		}
+	}
+}
@@ -16,6 +16,10 @@
  */
 package com.aionemu.gameserver.utils.collections.cachemap;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import com.aionemu.gameserver.configs.main.CacheConfig;
 
 /**
@@ -24,6 +28,8 @@ import com.aionemu.gameserver.configs.main.CacheConfig;
  */
 public class CacheMapFactory
 {
+	/** Created bounded caches, for statistics */
+	private static final List<BoundedCacheMap<?, ?>>	boundedCaches	= new CopyOnWriteArrayList<BoundedCacheMap<?, ?>>();
 
 	/**
 	 * Returns new instance of either {@link WeakCacheMap} or {@link SoftCacheMap} depending on
@@ -73,4 +79,37 @@ public class CacheMapFactory
 	{
 		return new WeakCacheMap<K,V>(cacheName, valueName);
 	}
+
+	/**
+	 * Creates and returns an instance of {@link BoundedCacheMap}
+	 * 
+	 * @param <K> - Type of keys
+	 * @param <V> - Type of values
+	 * 
+	 * @param cacheName - The name for this cache map
+	 * @param valueName - Mnemonic name for values stored in the cache
+	 * @param capacity - Max number of values in the cache
+	 * @param idleTime - Time in milliseconds after which not accessed value is removed, 0 - never
+	 * @return CacheMap<K, V>
+	 * @see CacheConfig#TINYLFU_ADMISSION
+	 */
+	public static <K, V> CacheMap<K, V> createBoundedCacheMap(String cacheName, String valueName, int capacity,
+		long idleTime)
+	{
+		BoundedCacheMap<K, V> cacheMap = new BoundedCacheMap<K, V>(cacheName, valueName, capacity, idleTime,
+			CacheConfig.TINYLFU_ADMISSION);
+		boundedCaches.add(cacheMap);
+		return cacheMap;
+	}
+
+	/**
+	 * @return human readable statistics of all bounded caches: size, hits, misses and removed values.
+	 */
+	public static List<String> getStats()
+	{
+		List<String> list = new ArrayList<String>();
+		for(BoundedCacheMap<?, ?> cacheMap : boundedCaches)
+			list.addAll(cacheMap.getStats());
+		return list;
+	}
 }
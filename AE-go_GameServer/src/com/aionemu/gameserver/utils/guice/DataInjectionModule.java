@@ -60,8 +60,10 @@ import com.aionemu.gameserver.services.GroupService;
 import com.aionemu.gameserver.services.InstanceService;
 import com.aionemu.gameserver.services.ItemService;
 import com.aionemu.gameserver.services.LegionService;
+import com.aionemu.gameserver.services.LoginQueueService;
 import com.aionemu.gameserver.services.MailService;
 import com.aionemu.gameserver.services.PeriodicSaveService;
+import com.aionemu.gameserver.services.PlayerLoadService;
 import com.aionemu.gameserver.services.PlayerService;
 import com.aionemu.gameserver.services.PrivateStoreService;
 import com.aionemu.gameserver.services.PunishmentService;
@@ -113,6 +115,8 @@ public class DataInjectionModule extends AbstractModule
 		bind(QuestEngine.class).asEagerSingleton();
 		bind(PeriodicSaveService.class).in(Scopes.SINGLETON);
 		bind(PlayerService.class).in(Scopes.SINGLETON);
+		bind(PlayerLoadService.class).in(Scopes.SINGLETON);
+		bind(LoginQueueService.class).in(Scopes.SINGLETON);
 		bind(AccountService.class).in(Scopes.SINGLETON);
 		bind(SocialService.class).in(Scopes.SINGLETON);
 		bind(ScriptService.class).in(Scopes.SINGLETON);
@@ -83,7 +83,8 @@ public class NetworkInjectionModule extends AbstractModule
 		ServerCfg aion = new ServerCfg(NetworkConfig.GAME_BIND_ADDRESS, NetworkConfig.GAME_PORT, "Aion Connections",
 			connectionFactory);
 
-		return new NioServer(1, ThreadPoolManager.getInstance(), aion);
+		return new NioServer(NetworkConfig.NIO_READ_THREADS, NetworkConfig.NIO_ADAPTIVE_BUFFERS, ThreadPoolManager
+			.getInstance(), aion);
 	}
 
 }
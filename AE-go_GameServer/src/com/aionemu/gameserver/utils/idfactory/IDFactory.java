@@ -88,6 +88,35 @@ public class IDFactory
 		}
 	}
 
+	/**
+	 * Returns given amount of free ids. Whole range is taken under single lock, so it's cheaper than calling
+	 * {@link #nextId()} for every object when many objects are created at once.
+	 * 
+	 * @param count
+	 *            amount of ids
+	 * @return free ids
+	 * @throws IDFactoryError
+	 *             if there is not enough free id's
+	 */
+	public int[] nextIds(int count)
+	{
+		try
+		{
+			lock.lock();
+
+			int[] ids = new int[count];
+			for(int i = 0; i < count; i++)
+			{
+				ids[i] = nextId();
+			}
+			return ids;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
 	/**
 	 * Locks given ids.
 	 * 
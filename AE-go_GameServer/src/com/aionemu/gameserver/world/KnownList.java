@@ -16,12 +16,9 @@
  */
 package com.aionemu.gameserver.world;
 
-import java.util.Collection;
 import java.util.Iterator;
-import java.util.Map;
-
-import javolution.util.FastMap;
 
+import com.aionemu.commons.utils.collections.ConcurrentIntObjectMap;
 import com.aionemu.gameserver.model.gameobjects.AionObject;
 import com.aionemu.gameserver.model.gameobjects.VisibleObject;
 import com.aionemu.gameserver.utils.MathUtil;
@@ -52,7 +49,7 @@ public class KnownList implements Iterable<VisibleObject>
 	/**
 	 * List of objects that this KnownList owner known
 	 */
-	protected final Map<Integer, VisibleObject>	knownObjects	= new FastMap<Integer, VisibleObject>().shared();
+	protected final ConcurrentIntObjectMap<VisibleObject>	knownObjects	= new ConcurrentIntObjectMap<VisibleObject>(16, 4);
 
 	/**
 	 * COnstructor.
@@ -158,40 +155,69 @@ public class KnownList implements Iterable<VisibleObject>
 	}
 
 	/**
-	 * Find objects that are in visibility range.
+	 * Find objects that are in visibility range. Only map cells intersecting square around owner are checked.<br>
+	 * All those cells are scanned on every update, not only cells that entered the square since last update: visibility
+	 * is decided by distance, so when owner moves, objects of cells that stay in the square can get in range too. Cost
+	 * of the scan is bounded by known objects being skipped before distance check.
 	 */
 	protected void findVisibleObjects()
 	{
 		if(owner == null || !owner.isSpawned())
 			return;
-		
-		Iterator<MapRegion> neighboursIt = owner.getActiveRegion().getNeighboursIterator();
 
-		while(neighboursIt.hasNext())
-		{
-			MapRegion r = neighboursIt.next();
-			Collection<VisibleObject> objects = r.getObjects();
+		WorldMapInstance instance = owner.getActiveRegion().getParent();
+		int minX = WorldMapInstance.toCell(owner.getX() - VisibilityDistance);
+		int maxX = WorldMapInstance.toCell(owner.getX() + VisibilityDistance);
+		int minY = WorldMapInstance.toCell(owner.getY() - VisibilityDistance);
+		int maxY = WorldMapInstance.toCell(owner.getY() + VisibilityDistance);
 
-			for(VisibleObject newObject : objects)
+		for(int x = minX; x <= maxX; x++)
+		{
+			for(int y = minY; y <= maxY; y++)
 			{
-				if(newObject == owner || newObject == null)
-					continue;
-				
-				if(!checkObjectInRange(owner, newObject))
+				MapCell cell = instance.findCell(x, y);
+				if(cell == null)
 					continue;
 
-				/**
-				 * New object is not known.
-				 */
-				if(knownObjects.put(newObject.getObjectId(), newObject) == null)
+				for(VisibleObject newObject : cell.getObjects())
 				{
-					newObject.getKnownList().add(owner);
-					owner.getController().see(newObject);
+					if(newObject == owner || newObject == null)
+						continue;
+
+					/** already known objects are checked by forgetObjects() */
+					if(knownObjects.containsKey(newObject.getObjectId()))
+						continue;
+
+					if(!isVisibleType(newObject))
+						continue;
+
+					if(!checkObjectInRange(owner, newObject))
+						continue;
+
+					/**
+					 * New object is not known.
+					 */
+					if(knownObjects.put(newObject.getObjectId(), newObject) == null)
+					{
+						newObject.getKnownList().add(owner);
+						owner.getController().see(newObject);
+					}
 				}
 			}
 		}
 	}
 
+	/**
+	 * Check if owner of this KnownList is interested in objects of this type.
+	 * 
+	 * @param object
+	 * @return true if object can be known
+	 */
+	protected boolean isVisibleType(VisibleObject object)
+	{
+		return true;
+	}
+
 	protected boolean checkObjectInRange(VisibleObject owner, VisibleObject newObject)
 	{
 		//check if Z distance is greater than maxZvisibleDistance		
@@ -0,0 +1,96 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.world;
+
+import java.util.Collection;
+
+import com.aionemu.commons.utils.collections.ConcurrentIntObjectMap;
+import com.aionemu.gameserver.model.gameobjects.VisibleObject;
+
+/**
+ * Small square of {@link WorldMapInstance} [{@link WorldMapInstance#cellSize} units]. Used to find objects near given
+ * point without scanning whole {@link MapRegion}s.
+ */
+public class MapCell
+{
+	/**
+	 * Cell x coordinate [in cells].
+	 */
+	private final int								x;
+	/**
+	 * Cell y coordinate [in cells].
+	 */
+	private final int								y;
+	/**
+	 * Objects on this cell.
+	 */
+	private final ConcurrentIntObjectMap<VisibleObject>	objects	= new ConcurrentIntObjectMap<VisibleObject>(4, 1);
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param x
+	 * @param y
+	 */
+	MapCell(int x, int y)
+	{
+		this.x = x;
+		this.y = y;
+	}
+
+	/**
+	 * Check if given world coordinates are inside of this cell.
+	 * 
+	 * @param worldX
+	 * @param worldY
+	 * @return true if point belongs to this cell
+	 */
+	boolean contains(float worldX, float worldY)
+	{
+		return WorldMapInstance.toCell(worldX) == x && WorldMapInstance.toCell(worldY) == y;
+	}
+
+	/**
+	 * Returns objects on this cell
+	 * 
+	 * @return objects
+	 */
+	public Collection<VisibleObject> getObjects()
+	{
+		return objects.values();
+	}
+
+	/**
+	 * Add object to this cell.
+	 * 
+	 * @param object
+	 */
+	void add(VisibleObject object)
+	{
+		objects.put(object.getObjectId(), object);
+	}
+
+	/**
+	 * Remove object from this cell.
+	 * 
+	 * @param object
+	 */
+	void remove(VisibleObject object)
+	{
+		objects.remove(object.getObjectId());
+	}
+}
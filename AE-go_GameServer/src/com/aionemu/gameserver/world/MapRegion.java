@@ -16,14 +16,16 @@
  */
 package com.aionemu.gameserver.world;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import javolution.util.FastMap;
-
+import com.aionemu.commons.utils.collections.ConcurrentIntObjectMap;
+import com.aionemu.gameserver.model.gameobjects.Npc;
 import com.aionemu.gameserver.model.gameobjects.VisibleObject;
+import com.aionemu.gameserver.model.gameobjects.player.Player;
 
 /**
  * Just some part of map.
@@ -44,11 +46,23 @@ public class MapRegion
 	/**
 	 * Surrounding regions + self.
 	 */
-	private final List<MapRegion>		neighbours	= new ArrayList<MapRegion>(9);
+	private final List<MapRegion>		neighbours	= new CopyOnWriteArrayList<MapRegion>();
 	/**
 	 * Objects on this map region.
 	 */
-	private final FastMap<Integer, VisibleObject> 	objects	= new FastMap<Integer, VisibleObject>().shared();
+	private final ConcurrentIntObjectMap<VisibleObject>	objects	= new ConcurrentIntObjectMap<VisibleObject>();
+	/**
+	 * Number of players on this map region.
+	 */
+	private final AtomicInteger			playerCount	= new AtomicInteger();
+	/**
+	 * Number of npcs on this map region.
+	 */
+	private final AtomicInteger			npcCount	= new AtomicInteger();
+	/**
+	 * True if region was active in last tick of {@link WorldTickEngine}. Used only by engine thread of this region.
+	 */
+	boolean								awake;
 
 	/**
 	 * Constructor.
@@ -118,6 +132,31 @@ public class MapRegion
 		return objects.values();
 	}
 
+	/**
+	 * Returns true if there is any player on this region or on some of its neighbours.
+	 * 
+	 * @return true if region is active
+	 */
+	public boolean isActive()
+	{
+		for(MapRegion region : neighbours)
+		{
+			if(region.playerCount.get() > 0)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns number of npcs on this region.
+	 * 
+	 * @return npc count
+	 */
+	public int getNpcCount()
+	{
+		return npcCount.get();
+	}
+
 	/**
 	 * Add neighbour region to this region neighbours list.
 	 * 
@@ -135,7 +174,13 @@ public class MapRegion
 	 */
 	void add(VisibleObject object)
 	{
-		objects.put(object.getObjectId(), object);
+		if(objects.put(object.getObjectId(), object) == null)
+		{
+			if(object instanceof Player)
+				playerCount.incrementAndGet();
+			else if(object instanceof Npc)
+				npcCount.incrementAndGet();
+		}
 	}
 
 	/**
@@ -145,6 +190,12 @@ public class MapRegion
 	 */
 	void remove(VisibleObject object)
 	{
-		objects.remove(object.getObjectId());
+		if(objects.remove(object.getObjectId()) != null)
+		{
+			if(object instanceof Player)
+				playerCount.decrementAndGet();
+			else if(object instanceof Npc)
+				npcCount.decrementAndGet();
+		}
 	}
 }
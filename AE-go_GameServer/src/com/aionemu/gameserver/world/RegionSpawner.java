@@ -0,0 +1,34 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.world;
+
+import java.util.List;
+
+import com.aionemu.gameserver.model.templates.spawn.SpawnTemplate;
+
+/**
+ * Spawns objects of {@link WorldMapInstance} region, which were postponed until first player comes near the region.
+ */
+public interface RegionSpawner
+{
+	/**
+	 * @param instance
+	 * @param spawns
+	 *            postponed spawns of one region
+	 */
+	public void spawnRegion(WorldMapInstance instance, List<SpawnTemplate> spawns);
+}
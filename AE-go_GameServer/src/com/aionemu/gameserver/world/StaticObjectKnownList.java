@@ -16,9 +16,6 @@
  */
 package com.aionemu.gameserver.world;
 
-import java.util.Collection;
-import java.util.Iterator;
-
 import com.aionemu.gameserver.model.gameobjects.VisibleObject;
 import com.aionemu.gameserver.model.gameobjects.player.Player;
 
@@ -50,42 +47,11 @@ public class StaticObjectKnownList extends KnownList
 	}
 
 	/**
-	 * Find objects that are in visibility range.
+	 * Static objects see only players.
 	 */
 	@Override
-	protected void findVisibleObjects()
+	protected boolean isVisibleType(VisibleObject object)
 	{
-		if(owner == null || !owner.isSpawned())
-			return;
-		
-		Iterator<MapRegion> neighboursIt = owner.getActiveRegion().getNeighboursIterator();
-
-		while(neighboursIt.hasNext())
-		{
-			MapRegion r = neighboursIt.next();
-			Collection<VisibleObject> objects = r.getObjects();
-
-			for(VisibleObject newObject : objects)
-			{
-
-				if(newObject == owner || newObject == null)
-					continue;
-
-				if (!(newObject instanceof Player))
-					continue;
-
-				if(!checkObjectInRange(owner, newObject))
-					continue;
-
-				/**
-				 * New object is not known.
-				 */
-				if(knownObjects.put(newObject.getObjectId(), newObject) == null)
-				{
-					newObject.getKnownList().add(owner);
-					owner.getController().see(newObject);
-				}
-			}
-		}
+		return object instanceof Player;
 	}
 }
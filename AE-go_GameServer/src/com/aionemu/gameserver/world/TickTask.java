@@ -0,0 +1,166 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.world;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import com.aionemu.gameserver.model.gameobjects.Creature;
+
+/**
+ * Periodic task of one creature. It's executed by {@link WorldTickEngine} thread that ticks region of its owner, so
+ * it's not executed while owner is not spawned or there is no player near it.
+ */
+public final class TickTask implements Future<Object>
+{
+	private static final Logger		log		= Logger.getLogger(TickTask.class);
+
+	/**
+	 * Creature that owns this task.
+	 */
+	private final Creature			owner;
+
+	/**
+	 * Task to execute.
+	 */
+	private final Runnable			task;
+
+	/**
+	 * Period in ticks.
+	 */
+	private final long				period;
+
+	/**
+	 * Tick in witch this task should be executed next time.
+	 */
+	private final AtomicLong		nextTick;
+
+	/**
+	 * True if this task was cancelled.
+	 */
+	private volatile boolean		cancelled;
+
+	/**
+	 * Released when task is cancelled, waiters of {@link #get()} are blocked on it.
+	 */
+	private final CountDownLatch	done	= new CountDownLatch(1);
+
+	/**
+	 * @param owner
+	 * @param task
+	 * @param firstTick
+	 * @param period
+	 */
+	TickTask(Creature owner, Runnable task, long firstTick, long period)
+	{
+		this.owner = owner;
+		this.task = task;
+		this.period = period;
+		this.nextTick = new AtomicLong(firstTick);
+	}
+
+	/**
+	 * Execute task if it should be executed in given tick. If owner changed region during tick, task may be reached by
+	 * two engine threads - only one of them will succeed to move next tick and execute it.
+	 * 
+	 * @param tick
+	 * @return true if task was executed
+	 */
+	boolean tick(long tick)
+	{
+		long next = nextTick.get();
+		if(cancelled || next > tick || !nextTick.compareAndSet(next, tick + period))
+			return false;
+
+		try
+		{
+			task.run();
+		}
+		catch(Exception e)
+		{
+			log.error("Exception in tick task of " + owner.getName(), e);
+		}
+		return true;
+	}
+
+	/**
+	 * Cancel this task and remove it from owner tasks. Running execution is never interrupted.
+	 * 
+	 * @see java.util.concurrent.Future#cancel(boolean)
+	 */
+	@Override
+	public synchronized boolean cancel(boolean mayInterruptIfRunning)
+	{
+		if(cancelled)
+			return false;
+
+		cancelled = true;
+		owner.getTickTasks().remove(this);
+		done.countDown();
+		return true;
+	}
+
+	@Override
+	public boolean isCancelled()
+	{
+		return cancelled;
+	}
+
+	@Override
+	public boolean isDone()
+	{
+		return cancelled;
+	}
+
+	/**
+	 * Periodic task never completes normally, so like periodic task of ScheduledThreadPoolExecutor it blocks until task
+	 * is cancelled.
+	 * 
+	 * @throws CancellationException
+	 *             when task is cancelled
+	 * @see java.util.concurrent.Future#get()
+	 */
+	@Override
+	public Object get() throws InterruptedException
+	{
+		done.await();
+		throw new CancellationException();
+	}
+
+	/**
+	 * Waits until task is cancelled or timeout expires.
+	 * 
+	 * @throws CancellationException
+	 *             when task is cancelled
+	 * @throws TimeoutException
+	 *             if task was not cancelled in given time
+	 * @see java.util.concurrent.Future#get(long, java.util.concurrent.TimeUnit)
+	 */
+	@Override
+	public Object get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException
+	{
+		if(!done.await(timeout, unit))
+			throw new TimeoutException();
+		throw new CancellationException();
+	}
+}
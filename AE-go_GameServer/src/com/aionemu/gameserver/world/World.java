@@ -24,6 +24,7 @@ import javolution.util.FastMap;
 import org.apache.log4j.Logger;
 
 import com.aionemu.commons.callbacks.Enhancable;
+import com.aionemu.commons.utils.collections.ConcurrentIntObjectMap;
 import com.aionemu.gameserver.dataholders.WorldMapsData;
 import com.aionemu.gameserver.model.gameobjects.AionObject;
 import com.aionemu.gameserver.model.gameobjects.Npc;
@@ -62,7 +63,7 @@ public class World
 	/**
 	 * Container with all AionObjects in the world [ie Players, Npcs etc]
 	 */
-	private final Map<Integer, AionObject>	allObjects	= new FastMap<Integer, AionObject>().shared();
+	private final ConcurrentIntObjectMap<AionObject>	allObjects	= new ConcurrentIntObjectMap<AionObject>();
 	/**
 	 * World maps supported by server.
 	 */
@@ -236,6 +237,18 @@ public class World
 			newRegion.add(object);
 			object.getPosition().setMapRegion(newRegion);
 		}
+
+		MapCell oldCell = object.getPosition().getMapCell();
+		if(!oldCell.contains(newX, newY))
+		{
+			MapCell newCell = newRegion.getParent().getCell(newX, newY);
+			oldCell.remove(object);
+			newCell.add(object);
+			object.getPosition().setMapCell(newCell);
+		}
+
+		if(newRegion != oldRegion && object instanceof Player)
+			newRegion.getParent().spawnNear(newRegion);
 		
 		if(updateKnownList)
 		{
@@ -312,6 +325,21 @@ public class World
 	 *             when object is already spawned.
 	 */
 	public void spawn(VisibleObject object)
+	{
+		spawn(object, true);
+	}
+
+	/**
+	 * Spawn VisibleObject at current position [use setPosition ]. When <tt>updateKnownList</tt> is false, known lists
+	 * are not updated - object will be seen by others only after they update their own known lists. Used when a lot of
+	 * objects are spawned before any player is in the world.
+	 * 
+	 * @param object
+	 * @param updateKnownList
+	 * @throws AlreadySpawnedException
+	 *             when object is already spawned.
+	 */
+	public void spawn(VisibleObject object, boolean updateKnownList)
 	{
 		if(object.isSpawned())
 			throw new AlreadySpawnedException();
@@ -321,8 +349,15 @@ public class World
 			object.getSpawn().setSpawned(true, object.getInstanceId());
 		object.getActiveRegion().getParent().addObject(object);
 		object.getActiveRegion().add(object);
+		MapCell cell = object.getActiveRegion().getParent().getCell(object.getX(), object.getY());
+		cell.add(object);
+		object.getPosition().setMapCell(cell);
 
-		object.updateKnownlist();
+		if(object instanceof Player)
+			object.getActiveRegion().getParent().spawnNear(object.getActiveRegion());
+
+		if(updateKnownList)
+			object.updateKnownlist();
 	}
 
 	/**
@@ -336,6 +371,8 @@ public class World
 	{
 		object.getActiveRegion().getParent().removeObject(object);
 		object.getActiveRegion().remove(object);
+		object.getPosition().getMapCell().remove(object);
+		object.getPosition().setMapCell(null);
 		object.getPosition().setIsSpawned(false);
 		if(object.getSpawn() != null)
 			object.getSpawn().setSpawned(false, object.getInstanceId());
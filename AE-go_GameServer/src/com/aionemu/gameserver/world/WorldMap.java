@@ -18,6 +18,9 @@ package com.aionemu.gameserver.world;
 
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javolution.util.FastMap;
 
@@ -33,11 +36,15 @@ public class WorldMap
 {
 	private WorldMapTemplate				worldMapTemplate;
 
-	private int nextInstanceId = 1;
+	private final AtomicInteger				nextInstanceId	= new AtomicInteger(1);
 	/**
 	 * List of instances.
 	 */
 	private Map<Integer, WorldMapInstance>	instances	= new FastMap<Integer, WorldMapInstance>().shared();
+	/**
+	 * Destroyed instances waiting for reuse.
+	 */
+	private final Queue<WorldMapInstance>	freeInstances	= new ConcurrentLinkedQueue<WorldMapInstance>();
 
 	/** World to which belongs this WorldMap */
 	private World world;
@@ -48,9 +55,9 @@ public class WorldMap
 		this.worldMapTemplate = worldMapTemplate;
 		if(worldMapTemplate.getTwinCount() != 0)
 			for(int i = 1; i <= worldMapTemplate.getTwinCount(); i++)
-				addInstance(nextInstanceId, new WorldMapInstance(this, nextInstanceId));
+				addInstance(getNextInstanceId(), new WorldMapInstance(this, getNextInstanceId()));
 		else
-			addInstance(nextInstanceId, new WorldMapInstance(this, nextInstanceId));
+			addInstance(getNextInstanceId(), new WorldMapInstance(this, getNextInstanceId()));
 	}
 
 	/**
@@ -150,7 +157,9 @@ public class WorldMap
 	 */
 	public void removeWorldMapInstance(int instanceId)
 	{
-		instances.remove(instanceId);
+		WorldMapInstance instance = instances.remove(instanceId);
+		if(instance != null)
+			WorldTickEngine.getInstance().removeRegions(instance);
 	}
 	
 	/**
@@ -162,7 +171,46 @@ public class WorldMap
 	public void addInstance(int instanceId, WorldMapInstance instance)
 	{
 		instances.put(instanceId, instance);
-		nextInstanceId++;
+		nextInstanceId.incrementAndGet();
+	}
+
+	/**
+	 * Creates new instance with next free instanceId. Previously destroyed instance is reused if there is any.
+	 * 
+	 * @return WorldMapInstance
+	 */
+	public WorldMapInstance createInstance()
+	{
+		int instanceId = nextInstanceId.getAndIncrement();
+		WorldMapInstance instance = freeInstances.poll();
+		if(instance == null)
+			instance = new WorldMapInstance(this, instanceId);
+		else
+			instance.reuse(instanceId);
+		instances.put(instanceId, instance);
+		return instance;
+	}
+
+	/**
+	 * Puts removed instance to pool of free instances if there is no object left in it.
+	 * 
+	 * @param instance
+	 * @return true if instance will be reused
+	 */
+	public boolean recycleInstance(WorldMapInstance instance)
+	{
+		if(!instance.isEmpty())
+			return false;
+		freeInstances.add(instance);
+		return true;
+	}
+
+	/**
+	 * @return number of destroyed instances waiting for reuse
+	 */
+	public int getFreeInstanceCount()
+	{
+		return freeInstances.size();
 	}
 	/**
 	 * Returns the World containing this WorldMap.
@@ -177,7 +225,7 @@ public class WorldMap
 	 */
 	public int getNextInstanceId()
 	{
-		return nextInstanceId;
+		return nextInstanceId.get();
 	}
 
 	/**
@@ -16,17 +16,21 @@
  */
 package com.aionemu.gameserver.world;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Future;
 
 import javolution.util.FastMap;
 
+import com.aionemu.commons.utils.collections.ConcurrentIntObjectMap;
 import com.aionemu.gameserver.model.gameobjects.AionObject;
 import com.aionemu.gameserver.model.gameobjects.VisibleObject;
 import com.aionemu.gameserver.model.gameobjects.player.Player;
+import com.aionemu.gameserver.model.templates.spawn.SpawnTemplate;
 import com.aionemu.gameserver.world.exceptions.DuplicateAionObjectException;
 
 /**
@@ -41,6 +45,10 @@ public class WorldMapInstance
 	 * Size of region
 	 */
 	public static final int						regionSize			= 500;
+	/**
+	 * Size of map cell.
+	 */
+	public static final int						cellSize			= 32;
 	/**
 	 * Max world size - actually it must be some value bigger than world size. Used only for id generation.
 	 */
@@ -52,24 +60,38 @@ public class WorldMapInstance
 	/**
 	 * Map of active regions.
 	 */
-	private final Map<Integer, MapRegion>		regions				= new FastMap<Integer, MapRegion>().shared();
+	private final ConcurrentIntObjectMap<MapRegion>		regions				= new ConcurrentIntObjectMap<MapRegion>();
+	/**
+	 * Cells of this instance, created when first object enters them.
+	 */
+	private final ConcurrentIntObjectMap<MapCell>		cells				= new ConcurrentIntObjectMap<MapCell>();
 
 	/**
 	 * All objects spawned in this world map instance
 	 */
-	private final Map<Integer, VisibleObject>	worldMapObjects		= new FastMap<Integer, VisibleObject>().shared();
+	private final ConcurrentIntObjectMap<VisibleObject>	worldMapObjects		= new ConcurrentIntObjectMap<VisibleObject>();
 
 	/**
 	 * All players spawned in this world map instance
 	 */
-	private final Map<Integer, Player>			worldMapPlayers		= new FastMap<Integer, Player>().shared();
+	private final ConcurrentIntObjectMap<Player>		worldMapPlayers		= new ConcurrentIntObjectMap<Player>();
 
 	private final Set<Integer>					registeredObjects	= Collections.newSetFromMap(new FastMap<Integer, Boolean>().shared());
 
 	/**
-	 * Id of this instance (channel)
+	 * Spawns postponed until first player comes near their region, by region id.
+	 */
+	private final ConcurrentIntObjectMap<List<SpawnTemplate>>	pendingSpawns	= new ConcurrentIntObjectMap<List<SpawnTemplate>>();
+
+	/**
+	 * Spawner of postponed spawns
+	 */
+	private volatile RegionSpawner				regionSpawner;
+
+	/**
+	 * Id of this instance (channel), changes when destroyed instance is reused
 	 */
-	private int									instanceId;
+	private volatile int						instanceId;
 	/**
 	 * Destroy task of this instance
 	 */
@@ -142,6 +164,60 @@ public class WorldMapInstance
 		return region;
 	}
 
+	/**
+	 * @return all regions of this instance
+	 */
+	Collection<MapRegion> getRegions()
+	{
+		return regions.values();
+	}
+
+	/**
+	 * Returns MapCell that contains given x,y coordinates. If the cell doesn't exist, it's created.
+	 * 
+	 * @param x
+	 * @param y
+	 * @return a MapCell
+	 */
+	MapCell getCell(float x, float y)
+	{
+		int cx = toCell(x);
+		int cy = toCell(y);
+		int cellId = cx * maxWorldSize + cy;
+		MapCell cell = cells.get(cellId);
+		if(cell == null)
+		{
+			cell = new MapCell(cx, cy);
+			MapCell existing = cells.putIfAbsent(cellId, cell);
+			if(existing != null)
+				cell = existing;
+		}
+		return cell;
+	}
+
+	/**
+	 * Returns existing MapCell with given cell coordinates.
+	 * 
+	 * @param cx
+	 * @param cy
+	 * @return a MapCell or null if there was never any object
+	 */
+	MapCell findCell(int cx, int cy)
+	{
+		return cells.get(cx * maxWorldSize + cy);
+	}
+
+	/**
+	 * Convert world coordinate to cell coordinate.
+	 * 
+	 * @param coordinate
+	 * @return cell coordinate
+	 */
+	static int toCell(float coordinate)
+	{
+		return ((int) coordinate) / cellSize;
+	}
+
 	/**
 	 * Calculate region id from cords.
 	 *
@@ -164,6 +240,7 @@ public class WorldMapInstance
 	{
 		MapRegion r = new MapRegion(regionId, this);
 		regions.put(regionId, r);
+		WorldTickEngine.getInstance().addRegion(r);
 
 		int rx = regionId / maxWorldSize;
 		int ry = regionId % maxWorldSize;
@@ -287,4 +364,83 @@ public class WorldMapInstance
 	{
 		return registeredObjects.contains(objectId);
 	}
+
+	/**
+	 * Postpones spawn until first player comes near region of the spawn.
+	 * 
+	 * @param spawn
+	 */
+	public void addPendingSpawn(SpawnTemplate spawn)
+	{
+		int regionId = getRegionId(spawn.getX(), spawn.getY());
+		List<SpawnTemplate> spawns = pendingSpawns.get(regionId);
+		if(spawns == null)
+		{
+			spawns = new ArrayList<SpawnTemplate>();
+			pendingSpawns.put(regionId, spawns);
+		}
+		spawns.add(spawn);
+	}
+
+	/**
+	 * @param regionSpawner
+	 *            spawner of postponed spawns
+	 */
+	public void setRegionSpawner(RegionSpawner regionSpawner)
+	{
+		this.regionSpawner = regionSpawner;
+	}
+
+	/**
+	 * Spawns postponed spawns of given region and its neighbours. Called when player enters the region.
+	 * 
+	 * @param region
+	 */
+	void spawnNear(MapRegion region)
+	{
+		RegionSpawner spawner = regionSpawner;
+		if(spawner == null || pendingSpawns.isEmpty())
+			return;
+
+		int rx = region.getRegionId() / maxWorldSize;
+		int ry = region.getRegionId() % maxWorldSize;
+		for(int x = rx - 1; x <= rx + 1; x++)
+		{
+			for(int y = ry - 1; y <= ry + 1; y++)
+			{
+				/* removed atomically - only one of players coming at once will spawn them */
+				List<SpawnTemplate> spawns = pendingSpawns.remove(x * maxWorldSize + y);
+				if(spawns != null)
+					spawner.spawnRegion(this, spawns);
+			}
+		}
+	}
+
+	/**
+	 * @return true if there is no object in this instance
+	 */
+	boolean isEmpty()
+	{
+		return worldMapObjects.isEmpty();
+	}
+
+	/**
+	 * Prepares destroyed instance for reuse. Regions and cells are kept (empty), so they don't have to be created again.
+	 * 
+	 * @param instanceId
+	 *            new id of this instance
+	 */
+	void reuse(int instanceId)
+	{
+		this.instanceId = instanceId;
+		this.destroyTask = null;
+		this.regionSpawner = null;
+		registeredObjects.clear();
+		pendingSpawns.clear();
+		for(MapRegion region : regions.values())
+		{
+			region.awake = false;
+			WorldTickEngine.getInstance().addRegion(region);
+		}
+	}
 }
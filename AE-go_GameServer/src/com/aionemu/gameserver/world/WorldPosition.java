@@ -28,6 +28,10 @@ public class WorldPosition
 	 * Map Region.
 	 */
 	private MapRegion	mapRegion;
+	/**
+	 * Map cell [valid only when spawned].
+	 */
+	private MapCell		mapCell;
 	/**
 	 * World position x
 	 */
@@ -175,6 +179,27 @@ public class WorldPosition
 		mapRegion = r;
 	}
 
+	/**
+	 * Return map cell
+	 * 
+	 * @return map cell
+	 */
+	MapCell getMapCell()
+	{
+		return mapCell;
+	}
+
+	/**
+	 * Set map cell
+	 * 
+	 * @param c
+	 *            - map cell
+	 */
+	void setMapCell(MapCell c)
+	{
+		mapCell = c;
+	}
+
 	/**
 	 * Set world position.
 	 * 
@@ -0,0 +1,390 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.world;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.log4j.Logger;
+
+import com.aionemu.gameserver.GameServer;
+import com.aionemu.gameserver.GameServer.StartupHook;
+import com.aionemu.gameserver.configs.main.ThreadConfig;
+import com.aionemu.gameserver.model.gameobjects.Creature;
+import com.aionemu.gameserver.model.gameobjects.VisibleObject;
+import com.aionemu.gameserver.utils.ThreadPoolManager;
+
+/**
+ * World simulation loop. Map regions are partitioned between fixed number of threads, every tick each thread executes
+ * due {@link TickTask}s [AI, movement, regeneration, effects] of creatures on its regions. Regions without players on
+ * them or on their neighbours are skipped - their npcs are dormant. When player comes near, whole neighbourhood wakes
+ * up and overdue tasks are executed once in the next tick.<br>
+ * If world tick is disabled in config tasks are scheduled by effect timer of {@link ThreadPoolManager}.
+ */
+public class WorldTickEngine implements StartupHook
+{
+	private static final Logger	log	= Logger.getLogger(WorldTickEngine.class);
+
+	private static final class SingletonHolder
+	{
+		private static final WorldTickEngine	INSTANCE	= new WorldTickEngine();
+	}
+
+	public static WorldTickEngine getInstance()
+	{
+		return SingletonHolder.INSTANCE;
+	}
+
+	/**
+	 * True if tasks are executed by this engine.
+	 */
+	private final boolean		enabled;
+
+	/**
+	 * Tick period in ms.
+	 */
+	private final long			period;
+
+	/**
+	 * Start time of tick 0.
+	 */
+	private final long			startTime	= System.nanoTime();
+
+	/**
+	 * Threads with their regions.
+	 */
+	private final Worker[]		workers;
+
+	/**
+	 * Used to distribute new regions between workers.
+	 */
+	private final AtomicInteger	nextWorker	= new AtomicInteger();
+
+	private WorldTickEngine()
+	{
+		enabled = ThreadConfig.WORLD_TICK_ENABLED;
+		period = Math.max(1, ThreadConfig.WORLD_TICK_PERIOD);
+
+		int threads = ThreadConfig.WORLD_TICK_THREADS > 0 ? ThreadConfig.WORLD_TICK_THREADS : Runtime.getRuntime()
+			.availableProcessors();
+		workers = new Worker[enabled ? threads : 0];
+		for(int i = 0; i < workers.length; i++)
+			workers[i] = new Worker("WorldTick-" + i);
+
+		if(enabled)
+		{
+			GameServer.addStartupHook(this);
+			log.info("WorldTickEngine: Initialized with " + threads + " thread(s), tick " + period + " ms.");
+		}
+	}
+
+	@Override
+	public void onStartup()
+	{
+		for(Worker worker : workers)
+			worker.start();
+	}
+
+	/**
+	 * Schedule periodic task of given creature. If engine is disabled, task is scheduled in general pool of
+	 * {@link ThreadPoolManager}.
+	 * 
+	 * @param owner
+	 * @param r
+	 * @param delay
+	 *            in ms
+	 * @param period
+	 *            in ms
+	 * @return Future of the task
+	 */
+	public Future<?> scheduleAtFixedRate(Creature owner, Runnable r, long delay, long period)
+	{
+		if(!enabled)
+			return ThreadPoolManager.getInstance().scheduleAtFixedRate(r, delay, period);
+
+		return schedule(owner, r, delay, period);
+	}
+
+	/**
+	 * Schedule periodic AI or movement task of given creature. If engine is disabled, task is scheduled in AI pool of
+	 * {@link ThreadPoolManager}.
+	 * 
+	 * @param owner
+	 * @param r
+	 * @param delay
+	 *            in ms
+	 * @param period
+	 *            in ms
+	 * @return Future of the task
+	 */
+	public Future<?> scheduleAiAtFixedRate(Creature owner, Runnable r, long delay, long period)
+	{
+		if(!enabled)
+			return ThreadPoolManager.getInstance().scheduleAiAtFixedRate(r, delay, period);
+
+		return schedule(owner, r, delay, period);
+	}
+
+	/**
+	 * Schedule periodic effect task of given creature. If engine is disabled, task is scheduled in effect pool of
+	 * {@link ThreadPoolManager}.
+	 * 
+	 * @param owner
+	 * @param r
+	 * @param delay
+	 *            in ms
+	 * @param period
+	 *            in ms
+	 * @return Future of the task
+	 */
+	public Future<?> scheduleEffectAtFixedRate(Creature owner, Runnable r, long delay, long period)
+	{
+		if(!enabled)
+			return ThreadPoolManager.getInstance().scheduleEffectAtFixedRate(r, delay, period);
+
+		return schedule(owner, r, delay, period);
+	}
+
+	private Future<?> schedule(Creature owner, Runnable r, long delay, long period)
+	{
+		TickTask task = new TickTask(owner, r, getCurrentTick() + toTicks(delay), Math.max(1, toTicks(period)));
+		owner.getTickTasks().add(task);
+		return task;
+	}
+
+	/**
+	 * @return number of current tick
+	 */
+	private long getCurrentTick()
+	{
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) / period;
+	}
+
+	/**
+	 * @param millis
+	 * @return millis rounded to ticks
+	 */
+	private long toTicks(long millis)
+	{
+		return (millis + period / 2) / period;
+	}
+
+	/**
+	 * Assign newly created region to one of threads.
+	 * 
+	 * @param region
+	 */
+	void addRegion(MapRegion region)
+	{
+		if(!enabled)
+			return;
+
+		int index = (nextWorker.getAndIncrement() & Integer.MAX_VALUE) % workers.length;
+		workers[index].regions.add(region);
+	}
+
+	/**
+	 * Remove regions of destroyed instance.
+	 * 
+	 * @param instance
+	 */
+	void removeRegions(WorldMapInstance instance)
+	{
+		if(!enabled)
+			return;
+
+		for(Worker worker : workers)
+			worker.regions.removeAll(instance.getRegions());
+	}
+
+	/**
+	 * @return human readable statistics of every thread: ticked and all regions, tick duration, overruns and executed
+	 *         tasks; and active/dormant npcs of every map.
+	 */
+	public List<String> getStats()
+	{
+		List<String> list = new ArrayList<String>();
+		list.add("WorldTickEngine:");
+		list.add("=================================================");
+		list.add("\tenabled: ............. " + enabled);
+		list.add("\ttick period [ms]: .... " + period);
+		for(Worker worker : workers)
+			list.addAll(worker.getStats());
+		list.addAll(getNpcStats());
+		return list;
+	}
+
+	/**
+	 * @return active/dormant npc count of every map [all instances together]
+	 */
+	private List<String> getNpcStats()
+	{
+		/** mapId -> {active, dormant} */
+		Map<Integer, int[]> counts = new TreeMap<Integer, int[]>();
+		for(Worker worker : workers)
+		{
+			for(MapRegion region : worker.regions)
+			{
+				int[] count = counts.get(region.getMapId());
+				if(count == null)
+				{
+					count = new int[2];
+					counts.put(region.getMapId(), count);
+				}
+				count[region.isActive() ? 0 : 1] += region.getNpcCount();
+			}
+		}
+
+		List<String> list = new ArrayList<String>();
+		list.add("Npcs active/dormant:");
+		for(Map.Entry<Integer, int[]> e : counts.entrySet())
+			list.add("\tmap " + e.getKey() + ": ....... " + e.getValue()[0] + "/" + e.getValue()[1]);
+		return list;
+	}
+
+	/**
+	 * Thread ticking its part of regions.
+	 */
+	private final class Worker extends Thread
+	{
+		/**
+		 * Regions handled by this thread.
+		 */
+		private final List<MapRegion>	regions	= new CopyOnWriteArrayList<MapRegion>();
+
+		/**
+		 * Statistics - changed only by this thread.
+		 */
+		private volatile long			ticks;
+		private volatile long			tickTime;
+		private volatile long			maxTickTime;
+		private volatile long			overruns;
+		private volatile long			tasks;
+		private volatile int			activeRegions;
+		private volatile long			wakeUps;
+
+		/**
+		 * @param name
+		 */
+		private Worker(String name)
+		{
+			super(name);
+			setDaemon(true);
+		}
+
+		@Override
+		public void run()
+		{
+			long periodNanos = TimeUnit.MILLISECONDS.toNanos(period);
+			long nextTime = System.nanoTime();
+			for(;;)
+			{
+				long begin = System.nanoTime();
+				try
+				{
+					tick(getCurrentTick());
+				}
+				catch(Exception e)
+				{
+					log.error("Exception in " + getName(), e);
+				}
+				long duration = System.nanoTime() - begin;
+				ticks++;
+				tickTime += duration;
+				if(duration > maxTickTime)
+					maxTickTime = duration;
+
+				nextTime += periodNanos;
+				long now = System.nanoTime();
+				if(nextTime <= now)
+				{
+					/** tick took longer than period - missed ticks are skipped */
+					overruns++;
+					nextTime = now;
+					continue;
+				}
+				while((now = System.nanoTime()) < nextTime)
+					LockSupport.parkNanos(nextTime - now);
+			}
+		}
+
+		/**
+		 * Execute due tasks of creatures on regions with players nearby. Creatures on other regions are dormant - their
+		 * tasks are not executed until region becomes active again.
+		 * 
+		 * @param tick
+		 */
+		private void tick(long tick)
+		{
+			int active = 0;
+			long executed = 0;
+			for(MapRegion region : regions)
+			{
+				if(!region.isActive())
+				{
+					region.awake = false;
+					continue;
+				}
+
+				if(!region.awake)
+				{
+					region.awake = true;
+					wakeUps++;
+				}
+				active++;
+				for(VisibleObject object : region.getObjects())
+				{
+					if(!(object instanceof Creature))
+						continue;
+
+					for(TickTask task : ((Creature) object).getTickTasks())
+					{
+						if(task.tick(tick))
+							executed++;
+					}
+				}
+			}
+			activeRegions = active;
+			tasks += executed;
+		}
+
+		/**
+		 * @return human readable statistics of this thread.
+		 */
+		private List<String> getStats()
+		{
+			List<String> list = new ArrayList<String>();
+			long count = Math.max(1, ticks);
+			list.add(getName() + ":");
+			list.add("\tregions: ............. " + activeRegions + "/" + regions.size());
+			list.add("\tticks: ............... " + ticks);
+			list.add("\tavg tick [ms]: ....... " + String.format("%.3f", tickTime / count / 1000000.0));
+			list.add("\tmax tick [ms]: ....... " + String.format("%.3f", maxTickTime / 1000000.0));
+			list.add("\toverruns: ............ " + overruns);
+			list.add("\tregion wake-ups: ..... " + wakeUps);
+			list.add("\ttasks/tick: .......... " + tasks / count);
+			return list;
+		}
+	}
+}
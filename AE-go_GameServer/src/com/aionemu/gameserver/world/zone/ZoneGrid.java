@@ -0,0 +1,146 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.world.zone;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Uniform grid over zones of one map. Every cell holds zones whose bounding box overlaps the cell, in priority order,
+ * so finding zone of a point tests only few candidates instead of all zones of the map.
+ */
+public class ZoneGrid
+{
+	/**
+	 * Size of one cell in world units
+	 */
+	public static final int		CELL_SIZE	= 128;
+
+	private static final ZoneInstance[]	NO_ZONES	= new ZoneInstance[0];
+
+	private final float				originX;
+	private final float				originY;
+	private final int				width;
+	private final int				height;
+
+	/**
+	 * Cell y * width + x -> candidate zones
+	 */
+	private final ZoneInstance[][]	cells;
+
+	/**
+	 * @param zones
+	 *            zones of one map in priority order
+	 */
+	public ZoneGrid(Collection<ZoneInstance> zones)
+	{
+		float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+		float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+		for(ZoneInstance zone : zones)
+		{
+			minX = Math.min(minX, zone.getMinX());
+			minY = Math.min(minY, zone.getMinY());
+			maxX = Math.max(maxX, zone.getMaxX());
+			maxY = Math.max(maxY, zone.getMaxY());
+		}
+
+		if(minX > maxX || minY > maxY)
+		{
+			originX = originY = 0;
+			width = height = 0;
+			cells = new ZoneInstance[0][];
+			return;
+		}
+
+		originX = minX;
+		originY = minY;
+		width = toCell(maxX, originX) + 1;
+		height = toCell(maxY, originY) + 1;
+
+		List<List<ZoneInstance>> lists = new ArrayList<List<ZoneInstance>>(width * height);
+		for(int i = 0; i < width * height; i++)
+			lists.add(null);
+
+		for(ZoneInstance zone : zones)
+		{
+			if(zone.getMinX() > zone.getMaxX())
+				continue;
+
+			for(int cy = toCell(zone.getMinY(), originY); cy <= toCell(zone.getMaxY(), originY); cy++)
+			{
+				for(int cx = toCell(zone.getMinX(), originX); cx <= toCell(zone.getMaxX(), originX); cx++)
+				{
+					List<ZoneInstance> list = lists.get(cy * width + cx);
+					if(list == null)
+					{
+						list = new ArrayList<ZoneInstance>();
+						lists.set(cy * width + cx, list);
+					}
+					list.add(zone);
+				}
+			}
+		}
+
+		cells = new ZoneInstance[width * height][];
+		for(int i = 0; i < cells.length; i++)
+		{
+			List<ZoneInstance> list = lists.get(i);
+			cells[i] = list == null ? NO_ZONES : list.toArray(new ZoneInstance[list.size()]);
+		}
+	}
+
+	private static int toCell(float coordinate, float origin)
+	{
+		return (int) ((coordinate - origin) / CELL_SIZE);
+	}
+
+	/**
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return zone with the highest priority containing the point or null
+	 */
+	public ZoneInstance findZone(float x, float y, float z)
+	{
+		if(x < originX || y < originY)
+			return null;
+
+		int cx = toCell(x, originX);
+		int cy = toCell(y, originY);
+		if(cx >= width || cy >= height)
+			return null;
+
+		for(ZoneInstance zone : cells[cy * width + cx])
+		{
+			if(zone.isInside(x, y, z))
+				return zone;
+		}
+		return null;
+	}
+
+	/**
+	 * @return max count of zones in one cell
+	 */
+	public int getMaxCandidates()
+	{
+		int max = 0;
+		for(ZoneInstance[] cell : cells)
+			max = Math.max(max, cell.length);
+		return max;
+	}
+}
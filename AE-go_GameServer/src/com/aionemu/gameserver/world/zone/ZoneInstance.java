@@ -31,6 +31,19 @@ public class ZoneInstance
 	private float						xCoordinates[];
 	private float						yCoordinates[];
 
+	/**
+	 * Bounding box
+	 */
+	private float						minX, maxX, minY, maxY;
+
+	/**
+	 * Edge table: edge i goes from corner i-1 to corner i, min/max y of edge and x/y deltas
+	 */
+	private float						edgeMinY[];
+	private float						edgeMaxY[];
+	private float						edgeDx[];
+	private float						edgeDy[];
+
 	private ZoneTemplate				template;
 
 	private Collection<ZoneInstance>	neighbors;
@@ -47,6 +60,101 @@ public class ZoneInstance
 			xCoordinates[i] = point.getX();
 			yCoordinates[i] = point.getY();
 		}
+		initEdges();
+	}
+
+	/**
+	 * Precompute bounding box and edges used by {@link #isInside(float, float, float)}
+	 */
+	private void initEdges()
+	{
+		minX = minY = Float.MAX_VALUE;
+		maxX = maxY = -Float.MAX_VALUE;
+		edgeMinY = new float[corners];
+		edgeMaxY = new float[corners];
+		edgeDx = new float[corners];
+		edgeDy = new float[corners];
+		for(int i = 0, j = corners - 1; i < corners; j = i++)
+		{
+			minX = Math.min(minX, xCoordinates[i]);
+			maxX = Math.max(maxX, xCoordinates[i]);
+			minY = Math.min(minY, yCoordinates[i]);
+			maxY = Math.max(maxY, yCoordinates[i]);
+
+			edgeMinY[i] = Math.min(yCoordinates[i], yCoordinates[j]);
+			edgeMaxY[i] = Math.max(yCoordinates[i], yCoordinates[j]);
+			edgeDx[i] = xCoordinates[j] - xCoordinates[i];
+			edgeDy[i] = yCoordinates[j] - yCoordinates[i];
+		}
+	}
+
+	/**
+	 * Point-in-polygon test [crossing number], points outside of bounding box or z limits are rejected without
+	 * walking the edges.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return true if point is inside of this zone
+	 */
+	public boolean isInside(float x, float y, float z)
+	{
+		float top = getTop();
+		float bottom = getBottom();
+		//first z coordinate is checked
+		if(top != 0 || bottom != 0)//not defined
+		{
+			if(z > top || z < bottom)
+				return false;
+		}
+
+		if(x < minX || x > maxX || y < minY || y > maxY)
+			return false;
+
+		boolean inside = false;
+		for(int i = 0; i < corners; i++)
+		{
+			if(edgeMinY[i] < y && edgeMaxY[i] >= y)
+			{
+				if(xCoordinates[i] + (y - yCoordinates[i]) / edgeDy[i] * edgeDx[i] < x)
+				{
+					inside = !inside;
+				}
+			}
+		}
+		return inside;
+	}
+
+	/**
+	 * @return the minX
+	 */
+	public float getMinX()
+	{
+		return minX;
+	}
+
+	/**
+	 * @return the maxX
+	 */
+	public float getMaxX()
+	{
+		return maxX;
+	}
+
+	/**
+	 * @return the minY
+	 */
+	public float getMinY()
+	{
+		return minY;
+	}
+
+	/**
+	 * @return the maxY
+	 */
+	public float getMaxY()
+	{
+		return maxY;
 	}
 
 	/**
@@ -0,0 +1,250 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.dataholders.loadingutils;
+
+import java.io.File;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.ValidatorHandler;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+/**
+ * Compares reading of static data from merged xml file, with schema validation, with replaying of
+ * {@link StaticDataSnapshot}, whole or by sections in parallel. All are read to handler that only computes digest of
+ * events, so the time of JAXB unmarshalling is not included.<br>
+ * Run as standalone application from game server directory:
+ * java com.aionemu.gameserver.dataholders.loadingutils.StaticDataSnapshotBenchmark
+ */
+public class StaticDataSnapshotBenchmark
+{
+	private static final int	ROUNDS	= 5;
+
+	public static void main(String[] args) throws Exception
+	{
+		File dir = new File(System.getProperty("java.io.tmpdir"), "static_data_benchmark");
+		dir.mkdirs();
+		File xml = new File(dir, "static_data.xml");
+		File snapshot = new File(dir, "static_data.bin");
+
+		long begin = System.nanoTime();
+		new XmlMerger(new File("./data/static_data/static_data.xml"), xml).process();
+		System.out.println("merge [ms]: " + (System.nanoTime() - begin) / 1000000);
+
+		begin = System.nanoTime();
+		byte[] hash = StaticDataSnapshot.hash(new File("./data/static_data"));
+		System.out.println("hash [ms]: " + (System.nanoTime() - begin) / 1000000);
+
+		StaticDataSnapshot.Recorder recorder = new StaticDataSnapshot.Recorder(snapshot, hash);
+		EventDigest parsed = new EventDigest();
+		parsed.setContentHandler(newValidator());
+		recorder.setContentHandler(parsed);
+		try
+		{
+			parse(xml, recorder);
+			if(!recorder.commit())
+				throw new IllegalStateException("Snapshot was not written");
+		}
+		finally
+		{
+			recorder.abort();
+		}
+		System.out.println("xml: " + xml.length() / 1024 + " kB, snapshot: " + snapshot.length() / 1024 + " kB");
+
+		final StaticDataSnapshot data = new StaticDataSnapshot(snapshot);
+		EventDigest replayed = new EventDigest();
+		data.replay(replayed);
+		if(!StaticDataSnapshot.isUpToDate(snapshot, hash) || !Arrays.equals(parsed.digest(), replayed.digest()))
+			throw new IllegalStateException("Snapshot differs from xml");
+
+		EventDigest separately = new EventDigest();
+		for(StaticDataSnapshot.Section section : data.getSections())
+			data.replay(separately, Collections.singleton(section.getName()));
+		if(!Arrays.equals(replayed.sectionsDigest(), separately.sectionsDigest()))
+			throw new IllegalStateException("Sections replayed separately differ from snapshot");
+		System.out.println("sections: " + data.getSections().size());
+
+		ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		long xmlTime = Long.MAX_VALUE, snapshotTime = Long.MAX_VALUE, parallelTime = Long.MAX_VALUE;
+		for(int i = 0; i < ROUNDS; i++)
+		{
+			begin = System.nanoTime();
+			EventDigest validated = new EventDigest();
+			validated.setContentHandler(newValidator());
+			parse(xml, validated);
+			xmlTime = Math.min(xmlTime, System.nanoTime() - begin);
+
+			begin = System.nanoTime();
+			data.replay(new EventDigest());
+			snapshotTime = Math.min(snapshotTime, System.nanoTime() - begin);
+
+			begin = System.nanoTime();
+			List<Future<?>> results = new ArrayList<Future<?>>();
+			for(final StaticDataSnapshot.Section section : data.getSections())
+			{
+				results.add(pool.submit(new Callable<Object>(){
+					@Override
+					public Object call() throws Exception
+					{
+						data.replay(new EventDigest(), Collections.singleton(section.getName()));
+						return null;
+					}
+				}));
+			}
+			for(Future<?> result : results)
+				result.get();
+			parallelTime = Math.min(parallelTime, System.nanoTime() - begin);
+		}
+		pool.shutdown();
+		System.out.println("parse and validate xml [ms]: " + xmlTime / 1000000);
+		System.out.println("replay snapshot [ms]: " + snapshotTime / 1000000);
+		System.out.println("replay sections by " + Runtime.getRuntime().availableProcessors() + " threads [ms]: "
+			+ parallelTime / 1000000);
+	}
+
+	private static ValidatorHandler newValidator() throws Exception
+	{
+		ValidatorHandler validator = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(
+			new File("./data/static_data/static_data.xsd")).newValidatorHandler();
+		validator.setErrorHandler(new DefaultHandler(){
+			@Override
+			public void error(SAXParseException e) throws SAXException
+			{
+				System.out.println(e.getMessage());
+			}
+		});
+		return validator;
+	}
+
+	private static void parse(File xml, ContentHandler handler) throws Exception
+	{
+		SAXParserFactory factory = SAXParserFactory.newInstance();
+		factory.setNamespaceAware(true);
+		XMLReader reader = factory.newSAXParser().getXMLReader();
+		reader.setContentHandler(handler);
+		reader.parse(new InputSource(xml.toURI().toString()));
+	}
+
+	/**
+	 * Computes digest of events, ignoring whitespaces around text, and digest of only events inside of sections.
+	 * Events are passed to content handler, if it's set.
+	 */
+	private static class EventDigest extends XMLFilterImpl
+	{
+		private final MessageDigest	digest;
+		private final MessageDigest	sectionsDigest;
+		private final StringBuilder	text	= new StringBuilder();
+		private int					depth;
+
+		private EventDigest() throws Exception
+		{
+			digest = MessageDigest.getInstance("MD5");
+			sectionsDigest = MessageDigest.getInstance("MD5");
+		}
+
+		@Override
+		public void startPrefixMapping(String prefix, String uri) throws SAXException
+		{
+			update("P", prefix, uri);
+			super.startPrefixMapping(prefix, uri);
+		}
+
+		@Override
+		public void endPrefixMapping(String prefix) throws SAXException
+		{
+			update("p", prefix);
+			super.endPrefixMapping(prefix);
+		}
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException
+		{
+			updateText();
+			depth++;
+			update("S", uri, localName, qName);
+			for(int i = 0; i < atts.getLength(); i++)
+				update("A", atts.getURI(i), atts.getLocalName(i), atts.getQName(i), atts.getType(i), atts.getValue(i));
+			super.startElement(uri, localName, qName, atts);
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName) throws SAXException
+		{
+			updateText();
+			update("E", uri, localName, qName);
+			depth--;
+			super.endElement(uri, localName, qName);
+		}
+
+		@Override
+		public void characters(char[] ch, int start, int length) throws SAXException
+		{
+			text.append(ch, start, length);
+			super.characters(ch, start, length);
+		}
+
+		private void updateText()
+		{
+			String value = text.toString().trim();
+			if(value.length() != 0)
+				update("T", value);
+			text.setLength(0);
+		}
+
+		private void update(String... values)
+		{
+			for(String value : values)
+			{
+				digest.update(value.getBytes());
+				digest.update((byte) 0);
+				if(depth >= 2)
+				{
+					sectionsDigest.update(value.getBytes());
+					sectionsDigest.update((byte) 0);
+				}
+			}
+		}
+
+		private byte[] digest()
+		{
+			return digest.digest();
+		}
+
+		private byte[] sectionsDigest()
+		{
+			return sectionsDigest.digest();
+		}
+	}
+}
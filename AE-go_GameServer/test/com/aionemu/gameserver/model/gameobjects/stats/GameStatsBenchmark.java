@@ -0,0 +1,173 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.model.gameobjects.stats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import com.aionemu.gameserver.controllers.PlayerController;
+import com.aionemu.gameserver.model.gameobjects.player.Equipment;
+import com.aionemu.gameserver.model.gameobjects.player.Player;
+import com.aionemu.gameserver.model.gameobjects.player.PlayerCommonData;
+import com.aionemu.gameserver.model.gameobjects.stats.id.ItemStatEffectId;
+import com.aionemu.gameserver.model.gameobjects.stats.id.SkillEffectId;
+import com.aionemu.gameserver.model.gameobjects.stats.id.StatEffectId;
+import com.aionemu.gameserver.model.gameobjects.stats.modifiers.AddModifier;
+import com.aionemu.gameserver.model.gameobjects.stats.modifiers.RateModifier;
+import com.aionemu.gameserver.model.gameobjects.stats.modifiers.StatModifier;
+import com.aionemu.gameserver.model.items.ItemSlot;
+
+/**
+ * Applies and ends 50 effects on a geared player, comparing recomputation of all stats on every change with
+ * incremental recomputation of stats touched by the changed effect.<br>
+ * Run as standalone application: java com.aionemu.gameserver.model.gameobjects.stats.GameStatsBenchmark
+ */
+public class GameStatsBenchmark
+{
+	private static final int			EFFECTS		= 50;
+	private static final int			WARMUP		= 2000;
+	private static final int			ROUNDS		= 2000;
+
+	private static final ItemSlot[]		GEAR		= { ItemSlot.MAIN_HAND, ItemSlot.SUB_HAND, ItemSlot.HELMET,
+		ItemSlot.TORSO, ItemSlot.GLOVES, ItemSlot.BOOTS, ItemSlot.EARRINGS_LEFT, ItemSlot.EARRINGS_RIGHT,
+		ItemSlot.RING_LEFT, ItemSlot.RING_RIGHT, ItemSlot.NECKLACE, ItemSlot.SHOULDER, ItemSlot.PANTS, ItemSlot.WINGS };
+
+	private static final StatEnum[]		GEAR_STATS	= { StatEnum.PHYSICAL_ATTACK, StatEnum.PHYSICAL_ACCURACY,
+		StatEnum.PHYSICAL_CRITICAL, StatEnum.PHYSICAL_DEFENSE, StatEnum.MAXHP, StatEnum.MAXMP, StatEnum.MAGICAL_RESIST,
+		StatEnum.EVASION, StatEnum.PARRY, StatEnum.BLOCK, StatEnum.MAGICAL_ACCURACY, StatEnum.BOOST_MAGICAL_SKILL };
+
+	private static final StatEnum[]		BUFF_STATS	= { StatEnum.SPEED, StatEnum.FLY_SPEED, StatEnum.ATTACK_SPEED,
+		StatEnum.PHYSICAL_ATTACK, StatEnum.PHYSICAL_DEFENSE, StatEnum.MAXHP, StatEnum.MAGICAL_RESIST, StatEnum.EVASION,
+		StatEnum.PARRY, StatEnum.BOOST_CASTING_TIME, StatEnum.EARTH_RESISTANCE, StatEnum.FIRE_RESISTANCE,
+		StatEnum.WATER_RESISTANCE, StatEnum.WIND_RESISTANCE, StatEnum.REGEN_HP, StatEnum.REGEN_MP };
+
+	public static void main(String[] args)
+	{
+		Random rnd = new Random(0);
+		List<StatEffectId> ids = new ArrayList<StatEffectId>();
+		List<TreeSet<StatModifier>> effects = new ArrayList<TreeSet<StatModifier>>();
+		for(int i = 0; i < EFFECTS; i++)
+		{
+			ids.add(SkillEffectId.getInstance(1000 + i, 1, 1));
+			effects.add(modifiers(rnd, BUFF_STATS, 1 + rnd.nextInt(3)));
+		}
+
+		PlayerGameStats full = createStats(1, true, new Random(1));
+		PlayerGameStats incremental = createStats(2, false, new Random(1));
+
+		run(full, ids, effects, WARMUP);
+		run(incremental, ids, effects, WARMUP);
+
+		long fullTime = run(full, ids, effects, ROUNDS);
+		long incrementalTime = run(incremental, ids, effects, ROUNDS);
+
+		for(int i = 0; i < EFFECTS; i++)
+		{
+			full.addModifiers(ids.get(i), effects.get(i));
+			incremental.addModifiers(ids.get(i), effects.get(i));
+		}
+		for(StatEnum stat : StatEnum.values())
+		{
+			if(full.getCurrentStat(stat) != incremental.getCurrentStat(stat))
+			{
+				System.out.println("Stat " + stat + " differs: " + full.getCurrentStat(stat) + " != "
+					+ incremental.getCurrentStat(stat));
+				System.exit(1);
+			}
+		}
+
+		long changes = (long) EFFECTS * 2 * ROUNDS;
+		System.out.println("items: " + GEAR.length + ", effects: " + EFFECTS + ", changes: " + changes);
+		System.out.println("full recompute [ns/change]:        " + fullTime / changes);
+		System.out.println("incremental recompute [ns/change]: " + incrementalTime / changes);
+		System.exit(0);
+	}
+
+	/**
+	 * Create stats of player wearing full gear.
+	 */
+	private static PlayerGameStats createStats(int objectId, boolean fullRecompute, Random rnd)
+	{
+		Player player = new Player(new PlayerController(), new PlayerCommonData(objectId), null);
+		player.setEquipment(new Equipment(player));
+
+		PlayerGameStats stats = fullRecompute ? new FullRecomputeGameStats(player) : new PlayerGameStats(player);
+		stats.initStats(5000, 2000, 110, 110, 110, 110, 110, 110, 80, 2, 1500, 1500, 6000, 9000);
+		for(int i = 0; i < GEAR.length; i++)
+		{
+			stats.addModifiers(ItemStatEffectId.getInstance(100000 + i, GEAR[i].getSlotIdMask()), modifiers(rnd,
+				GEAR_STATS, 6));
+		}
+		return stats;
+	}
+
+	/**
+	 * @return count of modifiers of random stats
+	 */
+	private static TreeSet<StatModifier> modifiers(Random rnd, StatEnum[] statPool, int count)
+	{
+		TreeSet<StatModifier> modifiers = new TreeSet<StatModifier>();
+		for(int i = 0; i < count; i++)
+		{
+			StatEnum stat = statPool[rnd.nextInt(statPool.length)];
+			if(rnd.nextBoolean())
+				modifiers.add(AddModifier.newInstance(stat, 10 + rnd.nextInt(100), true));
+			else
+				modifiers.add(RateModifier.newInstance(stat, 5 + rnd.nextInt(20), true));
+		}
+		return modifiers;
+	}
+
+	/**
+	 * Apply all effects one by one and end them one by one, rounds times.
+	 * 
+	 * @return time spent in stat changes
+	 */
+	private static long run(PlayerGameStats stats, List<StatEffectId> ids, List<TreeSet<StatModifier>> effects,
+		int rounds)
+	{
+		long begin = System.nanoTime();
+		for(int round = 0; round < rounds; round++)
+		{
+			for(int i = 0; i < ids.size(); i++)
+				stats.addModifiers(ids.get(i), effects.get(i));
+			for(StatEffectId id : ids)
+				stats.endEffect(id);
+		}
+		return System.nanoTime() - begin;
+	}
+
+	/**
+	 * Recomputes all stats from all active effects on every change, as it was done before incremental recomputation.
+	 */
+	private static class FullRecomputeGameStats extends PlayerGameStats
+	{
+		FullRecomputeGameStats(Player owner)
+		{
+			super(owner);
+		}
+
+		@Override
+		protected void recomputeStats()
+		{
+			invalidateStats();
+			super.recomputeStats();
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.network.aion;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.aionemu.commons.network.AcceptReadWriteDispatcherImpl;
+import com.aionemu.commons.network.Dispatcher;
+import com.aionemu.gameserver.model.ChatType;
+import com.aionemu.gameserver.network.aion.serverpackets.SM_MESSAGE;
+
+/**
+ * Compares writing broadcast packet separately for every receiver with writing it once by
+ * {@link AionServerPacket#prepareBroadcast()} and only encrypting it for every receiver.<br>
+ * Run as standalone application: java com.aionemu.gameserver.network.aion.BroadcastPacketBenchmark
+ */
+public class BroadcastPacketBenchmark
+{
+	private static final int[]	CROWDS		= { 10, 100, 500 };
+	private static final int	WARMUP		= 2000;
+	private static final int	ITERATIONS	= 5000;
+	private static final String	MESSAGE		= "Everybody to the north gate, siege starts in five minutes!";
+
+	public static void main(String[] args) throws Exception
+	{
+		ServerSocketChannel server = ServerSocketChannel.open();
+		server.socket().bind(new InetSocketAddress("127.0.0.1", 0));
+
+		/* not started - packets queued by connections (SM_KEY) will never be sent */
+		Dispatcher dispatcher = new AcceptReadWriteDispatcherImpl("Benchmark Dispatcher", null, null);
+
+		List<AionConnection> connections = new ArrayList<AionConnection>();
+		int max = CROWDS[CROWDS.length - 1];
+		for(int i = 0; i < max; i++)
+		{
+			SocketChannel.open(server.socket().getLocalSocketAddress());
+			SocketChannel sc = server.accept();
+			sc.configureBlocking(false);
+
+			AionConnection con = new AionConnection(sc, dispatcher, null, null, null, null);
+			con.enableCryptKey();
+			/* first packet is never encrypted */
+			con.encrypt(ByteBuffer.allocate(0));
+			connections.add(con);
+		}
+
+		ByteBuffer buf = ByteBuffer.allocate(8192 * 2);
+		buf.order(ByteOrder.LITTLE_ENDIAN);
+
+		System.out.println("crowd\tper receiver [ns/broadcast]\tshared [ns/broadcast]");
+		for(int crowd : CROWDS)
+		{
+			List<AionConnection> receivers = connections.subList(0, crowd);
+
+			run(receivers, buf, false, WARMUP);
+			run(receivers, buf, true, WARMUP);
+
+			long perReceiver = run(receivers, buf, false, ITERATIONS);
+			long shared = run(receivers, buf, true, ITERATIONS);
+
+			System.out.println(crowd + "\t" + perReceiver / ITERATIONS + "\t\t\t\t" + shared / ITERATIONS);
+		}
+		System.exit(0);
+	}
+
+	private static long run(List<AionConnection> receivers, ByteBuffer buf, boolean shared, int iterations)
+	{
+		long begin = System.nanoTime();
+		for(int i = 0; i < iterations; i++)
+		{
+			AionServerPacket packet = new SM_MESSAGE(i, "Benchmark", MESSAGE, ChatType.SHOUT);
+			if(shared)
+				packet.prepareBroadcast();
+
+			for(AionConnection con : receivers)
+			{
+				buf.clear();
+				packet.write(con, buf);
+			}
+		}
+		return System.nanoTime() - begin;
+	}
+}
@@ -0,0 +1,302 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.services;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aionemu.commons.network.AcceptReadWriteDispatcherImpl;
+import com.aionemu.commons.network.Dispatcher;
+import com.aionemu.gameserver.network.aion.AionConnection;
+
+/**
+ * Loads are fake tasks that advance clock of the queue. Loads running at once are simulated by entering other clients
+ * while load is in progress, admitted tasks are executed by test thread.
+ */
+public class LoginQueueServiceTest
+{
+	private ServerSocketChannel	server;
+	private Dispatcher			dispatcher;
+	private List<SocketChannel>	channels	= new ArrayList<SocketChannel>();
+
+	private TestQueue			queue;
+
+	/**
+	 * Names of loads in order of start
+	 */
+	private List<String>		started		= new ArrayList<String>();
+
+	@Before
+	public void setUp() throws IOException
+	{
+		server = ServerSocketChannel.open();
+		server.socket().bind(new InetSocketAddress("127.0.0.1", 0));
+		/* not started - packets sent to connections are only queued */
+		dispatcher = new AcceptReadWriteDispatcherImpl("Test Dispatcher", null, null);
+	}
+
+	@After
+	public void tearDown() throws IOException
+	{
+		for(SocketChannel channel : channels)
+			channel.close();
+		server.close();
+	}
+
+	@Test
+	public void testDisabled() throws IOException
+	{
+		queue = new TestQueue(0, 1, 100);
+		queue.enter(connect(), new Load("1", 10));
+		Assert.assertEquals(Arrays.asList("1"), started);
+		Assert.assertEquals(0, queue.getActiveCount());
+	}
+
+	@Test
+	public void testFifoAndDrain() throws IOException
+	{
+		queue = new TestQueue(2, 1, 100);
+		Load second = new Load("2", 10).enter(connect(), new Load("3", 10)).enter(connect(), new Load("4", 10)).enter(
+			connect(), new Load("5", 10));
+		queue.enter(connect(), new Load("1", 10).enter(connect(), second));
+
+		Assert.assertEquals(2, second.active);
+		Assert.assertEquals(3, second.queued);
+		Assert.assertEquals(Arrays.asList("1", "2"), started);
+		/* both finished loads admitted one queued client each */
+		Assert.assertEquals(2, queue.getActiveCount());
+		Assert.assertEquals(1, queue.getQueueSize());
+
+		queue.runExecuted();
+		Assert.assertEquals(Arrays.asList("1", "2", "3", "4", "5"), started);
+		Assert.assertEquals(0, queue.getActiveCount());
+		Assert.assertEquals(0, queue.getQueueSize());
+	}
+
+	@Test
+	public void testRepeatedEnterAndRemove() throws IOException
+	{
+		queue = new TestQueue(1, 1, 100);
+		AionConnection disconnected = connect();
+		AionConnection repeated = connect();
+		Load first = new Load("1", 10).enter(disconnected, new Load("2", 10)).enter(repeated, new Load("3", 10)).enter(
+			repeated, new Load("3 again", 10)).enter(connect(), new Load("4", 10)).remove(disconnected);
+		queue.enter(connect(), first);
+
+		Assert.assertEquals(2, first.queued);
+		queue.runExecuted();
+		Assert.assertEquals(Arrays.asList("1", "3", "4"), started);
+		Assert.assertEquals(0, queue.getQueueSize());
+	}
+
+	@Test
+	public void testLimitShrinksToMin() throws IOException
+	{
+		queue = new TestQueue(8, 2, 100);
+		List<Integer> limits = new ArrayList<Integer>();
+		for(int i = 0; i < 6; i++)
+		{
+			queue.enter(connect(), new Load("slow", 200));
+			limits.add(queue.getLimit());
+		}
+		Assert.assertEquals(Arrays.asList(6, 4, 3, 2, 2, 2), limits);
+	}
+
+	@Test
+	public void testLimitLoweredOncePerLatency() throws IOException
+	{
+		queue = new TestQueue(8, 1, 100);
+		/* both loads end at once, second slow load doesn't lower limit again */
+		queue.enter(connect(), new Load("1", 0).enter(connect(), new Load("2", 150)));
+		Assert.assertEquals(6, queue.getLimit());
+
+		queue.enter(connect(), new Load("3", 150));
+		Assert.assertEquals(4, queue.getLimit());
+	}
+
+	@Test
+	public void testLimitGrows() throws IOException
+	{
+		queue = new TestQueue(4, 1, 100);
+		for(int i = 0; i < 5; i++)
+			queue.enter(connect(), new Load("slow", 200));
+		Assert.assertEquals(1, queue.getLimit());
+
+		/* limit grows by one per limit fast loads */
+		List<Integer> limits = new ArrayList<Integer>();
+		for(int i = 0; i < 7; i++)
+		{
+			queue.enter(connect(), new Load("fast", 10));
+			limits.add(queue.getLimit());
+		}
+		Assert.assertEquals(Arrays.asList(2, 2, 2, 3, 3, 3, 4), limits);
+
+		for(int i = 0; i < 100; i++)
+			queue.enter(connect(), new Load("fast", 10));
+		Assert.assertEquals(4, queue.getLimit());
+	}
+
+	@Test
+	public void testQueuedNotStranded() throws IOException
+	{
+		queue = new TestQueue(4, 1, 100);
+		Load fourth = new Load("4", 300);
+		for(int i = 5; i <= 8; i++)
+			fourth.enter(connect(), new Load(String.valueOf(i), 300, i == 6));
+		Load first = new Load("1", 300).enter(connect(), new Load("2", 300).enter(connect(), new Load("3", 300).enter(
+			connect(), fourth)));
+		queue.enter(connect(), first);
+
+		Assert.assertEquals(4, fourth.active);
+		Assert.assertEquals(4, fourth.queued);
+		/* limit was lowered below number of running loads, last finished load admits queued client anyway */
+		Assert.assertEquals(1, queue.getLimit());
+		Assert.assertEquals(1, queue.getActiveCount());
+		Assert.assertEquals(3, queue.getQueueSize());
+
+		/* failed load releases its slot too */
+		queue.runExecuted();
+		Assert.assertEquals(Arrays.asList("1", "2", "3", "4", "5", "6", "7", "8"), started);
+		Assert.assertEquals(0, queue.getActiveCount());
+		Assert.assertEquals(0, queue.getQueueSize());
+		Assert.assertEquals(1, queue.getLimit());
+	}
+
+	private AionConnection connect() throws IOException
+	{
+		SocketChannel client = SocketChannel.open(server.socket().getLocalSocketAddress());
+		SocketChannel sc = server.accept();
+		sc.configureBlocking(false);
+		channels.add(client);
+		channels.add(sc);
+		return new AionConnection(sc, dispatcher, null, null, null, null);
+	}
+
+	/**
+	 * Queue with manual clock, admitted tasks are kept until {@link #runExecuted()}
+	 */
+	private static class TestQueue extends LoginQueueService
+	{
+		private long					time;
+		private final List<Runnable>	executed	= new ArrayList<Runnable>();
+
+		private TestQueue(int maxLimit, int minLimit, int targetLatency)
+		{
+			super(maxLimit, minLimit, targetLatency);
+		}
+
+		@Override
+		long nanoTime()
+		{
+			return time;
+		}
+
+		@Override
+		void execute(Runnable task)
+		{
+			executed.add(task);
+		}
+
+		/**
+		 * Runs admitted tasks, including tasks admitted meanwhile
+		 */
+		private void runExecuted()
+		{
+			while(!executed.isEmpty())
+			{
+				try
+				{
+					executed.remove(0).run();
+				}
+				catch(RuntimeException e)
+				{
+					/* failed load */
+				}
+			}
+		}
+	}
+
+	/**
+	 * Fake character load, enters or removes other clients while in progress
+	 */
+	private class Load implements Runnable
+	{
+		private final String			name;
+		private final long				time;
+		private final boolean			fail;
+		private final List<Object[]>	actions	= new ArrayList<Object[]>();
+
+		/**
+		 * Number of running loads and queued clients after actions
+		 */
+		private int						active;
+		private int						queued;
+
+		private Load(String name, long time)
+		{
+			this(name, time, false);
+		}
+
+		private Load(String name, long time, boolean fail)
+		{
+			this.name = name;
+			this.time = time;
+			this.fail = fail;
+		}
+
+		private Load enter(AionConnection client, Load load)
+		{
+			actions.add(new Object[] { client, load });
+			return this;
+		}
+
+		private Load remove(AionConnection client)
+		{
+			actions.add(new Object[] { client, null });
+			return this;
+		}
+
+		@Override
+		public void run()
+		{
+			started.add(name);
+			for(Object[] action : actions)
+			{
+				if(action[1] != null)
+					queue.enter((AionConnection) action[0], (Load) action[1]);
+				else
+					queue.remove((AionConnection) action[0]);
+			}
+			active = queue.getActiveCount();
+			queued = queue.getQueueSize();
+			queue.time += time * 1000000;
+			if(fail)
+				throw new RuntimeException("Load " + name + " failed");
+		}
+	}
+}
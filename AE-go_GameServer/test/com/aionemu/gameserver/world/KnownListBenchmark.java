@@ -0,0 +1,197 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.world;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import com.aionemu.gameserver.controllers.VisibleObjectController;
+import com.aionemu.gameserver.dataholders.WorldMapsData;
+import com.aionemu.gameserver.model.gameobjects.VisibleObject;
+import com.aionemu.gameserver.model.templates.WorldMapTemplate;
+
+/**
+ * Replays crowded town [1000 players walking randomly] and compares known list updates scanning all objects of
+ * neighbour {@link MapRegion}s with updates scanning only {@link MapCell}s around player. Both worlds are replayed with
+ * the same moves and resulting known lists are compared.<br>
+ * Run as standalone application: java com.aionemu.gameserver.world.KnownListBenchmark
+ */
+public class KnownListBenchmark
+{
+	private static final int	PLAYERS		= 1000;
+	private static final float	TOWN_X		= 1300;
+	private static final float	TOWN_Y		= 1300;
+	private static final float	TOWN_SIZE	= 600;
+	private static final float	STEP		= 6;
+	private static final int	WARMUP		= 100;
+	private static final int	ROUNDS		= 50;
+
+	public static void main(String[] args) throws Exception
+	{
+		World world = new World(new WorldMapsData(){
+			@Override
+			public Iterator<WorldMapTemplate> iterator()
+			{
+				return Collections.<WorldMapTemplate> emptyList().iterator();
+			}
+		}, null);
+
+		List<VisibleObject> regionPlayers = spawn(world, true);
+		List<VisibleObject> cellPlayers = spawn(world, false);
+
+		move(world, regionPlayers, new Random(1), WARMUP);
+		move(world, cellPlayers, new Random(1), WARMUP);
+
+		long regionTime = move(world, regionPlayers, new Random(2), ROUNDS);
+		long cellTime = move(world, cellPlayers, new Random(2), ROUNDS);
+
+		long moves = (long) PLAYERS * ROUNDS;
+		System.out.println("players: " + PLAYERS + ", town: " + (int) TOWN_SIZE + "x" + (int) TOWN_SIZE + ", moves: "
+			+ moves);
+		System.out.println("regions [ns/move]: " + regionTime / moves + ", known: " + countKnown(regionPlayers));
+		System.out.println("cells [ns/move]:   " + cellTime / moves + ", known: " + countKnown(cellPlayers));
+
+		for(int i = 0; i < PLAYERS; i++)
+		{
+			if(!sameKnownList(regionPlayers.get(i), cellPlayers.get(i)))
+			{
+				System.out.println("Known lists of player " + i + " differ!");
+				System.exit(1);
+			}
+		}
+		System.exit(0);
+	}
+
+	/**
+	 * Spawn players on separate map instance.
+	 */
+	private static List<VisibleObject> spawn(World world, boolean regionScan)
+	{
+		WorldMapInstance instance = new WorldMap(new WorldMapTemplate(), world).getWorldMapInstance();
+		Random rnd = new Random(0);
+		List<VisibleObject> players = new ArrayList<VisibleObject>(PLAYERS);
+		for(int i = 0; i < PLAYERS; i++)
+		{
+			VisibleObject player = new BenchmarkObject(i + 1);
+			player.setKnownlist(regionScan ? new RegionKnownList(player) : new KnownList(player));
+			float x = TOWN_X + rnd.nextFloat() * TOWN_SIZE;
+			float y = TOWN_Y + rnd.nextFloat() * TOWN_SIZE;
+			player.getPosition().setXYZH(x, y, 100, (byte) 0);
+			player.getPosition().setMapRegion(instance.getRegion(x, y));
+			world.spawn(player);
+			players.add(player);
+		}
+		return players;
+	}
+
+	/**
+	 * Move every player one step in random direction [staying inside of town], rounds times.
+	 * 
+	 * @return time spent in position updates
+	 */
+	private static long move(World world, List<VisibleObject> players, Random rnd, int rounds)
+	{
+		long time = 0;
+		for(int round = 0; round < rounds; round++)
+		{
+			for(VisibleObject player : players)
+			{
+				double angle = rnd.nextDouble() * 2 * Math.PI;
+				float x = clamp(player.getX() + (float) Math.cos(angle) * STEP, TOWN_X);
+				float y = clamp(player.getY() + (float) Math.sin(angle) * STEP, TOWN_Y);
+
+				long begin = System.nanoTime();
+				world.updatePosition(player, x, y, player.getZ(), player.getHeading());
+				time += System.nanoTime() - begin;
+			}
+		}
+		return time;
+	}
+
+	private static float clamp(float value, float min)
+	{
+		return Math.max(min, Math.min(min + TOWN_SIZE, value));
+	}
+
+	private static long countKnown(List<VisibleObject> players)
+	{
+		long count = 0;
+		for(VisibleObject player : players)
+			count += player.getKnownList().knownObjects.size();
+		return count;
+	}
+
+	private static boolean sameKnownList(VisibleObject a, VisibleObject b)
+	{
+		return objectIds(a.getKnownList()).equals(objectIds(b.getKnownList()));
+	}
+
+	private static Set<Integer> objectIds(KnownList knownList)
+	{
+		Set<Integer> ids = new HashSet<Integer>();
+		for(VisibleObject object : knownList)
+			ids.add(object.getObjectId());
+		return ids;
+	}
+
+	/**
+	 * Known list finding objects the old way - scanning all objects of 3x3 regions.
+	 */
+	private static class RegionKnownList extends KnownList
+	{
+		public RegionKnownList(VisibleObject owner)
+		{
+			super(owner);
+		}
+
+		@Override
+		protected void findVisibleObjects()
+		{
+			Iterator<MapRegion> neighboursIt = owner.getActiveRegion().getNeighboursIterator();
+			while(neighboursIt.hasNext())
+			{
+				for(VisibleObject newObject : neighboursIt.next().getObjects())
+				{
+					if(newObject == owner || !checkObjectInRange(owner, newObject))
+						continue;
+
+					if(knownObjects.put(newObject.getObjectId(), newObject) == null)
+						newObject.getKnownList().add(owner);
+				}
+			}
+		}
+	}
+
+	private static class BenchmarkObject extends VisibleObject
+	{
+		public BenchmarkObject(int objId)
+		{
+			super(objId, new VisibleObjectController<VisibleObject>(){}, null, null, new WorldPosition());
+		}
+
+		@Override
+		public String getName()
+		{
+			return "Player" + getObjectId();
+		}
+	}
+}
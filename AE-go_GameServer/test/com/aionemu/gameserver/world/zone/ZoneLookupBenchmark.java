@@ -0,0 +1,233 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.world.zone;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Unmarshaller;
+
+import com.aionemu.gameserver.dataholders.ZoneData;
+import com.aionemu.gameserver.model.templates.zone.ZoneTemplate;
+import com.aionemu.gameserver.services.ZoneService;
+
+/**
+ * Compares finding zone of a point by testing all zones of the map in priority order with lookup in {@link ZoneGrid},
+ * over zones of all maps from data/static_data/zones.<br>
+ * Run as standalone application from game server directory: java com.aionemu.gameserver.world.zone.ZoneLookupBenchmark
+ */
+public class ZoneLookupBenchmark
+{
+	private static final int	POINTS	= 100000;
+	private static final int	WARMUP	= 10;
+	private static final int	ROUNDS	= 20;
+
+	public static void main(String[] args) throws Exception
+	{
+		Unmarshaller unmarshaller = JAXBContext.newInstance(ZoneData.class).createUnmarshaller();
+		List<ZoneTemplate> templates = new ArrayList<ZoneTemplate>();
+		for(File file : new File("data/static_data/zones").listFiles())
+		{
+			if(file.getName().endsWith(".xml"))
+			{
+				for(ZoneTemplate template : (ZoneData) unmarshaller.unmarshal(file))
+					templates.add(template);
+			}
+		}
+		run(templates);
+	}
+
+	/**
+	 * @param templates
+	 *            zones of all maps
+	 */
+	static void run(List<ZoneTemplate> templates)
+	{
+		Map<Integer, Collection<ZoneInstance>> zonesByMap = new HashMap<Integer, Collection<ZoneInstance>>();
+		for(ZoneTemplate template : templates)
+		{
+			Collection<ZoneInstance> zones = zonesByMap.get(template.getMapid());
+			if(zones == null)
+			{
+				zones = ZoneService.createZoneSetCollection();
+				zonesByMap.put(template.getMapid(), zones);
+			}
+			zones.add(new ZoneInstance(template));
+		}
+
+		Random rnd = new Random(0);
+		int maps = zonesByMap.size();
+		List<Collection<ZoneInstance>> mapZones = new ArrayList<Collection<ZoneInstance>>(maps);
+		ZoneGrid[] grids = new ZoneGrid[maps];
+		float[][] points = new float[maps][];
+		int m = 0;
+		int maxCandidates = 0;
+		for(Collection<ZoneInstance> zones : zonesByMap.values())
+		{
+			mapZones.add(zones);
+			grids[m] = new ZoneGrid(zones);
+			maxCandidates = Math.max(maxCandidates, grids[m].getMaxCandidates());
+			points[m] = randomPoints(zones, rnd);
+			m++;
+		}
+
+		for(int i = 0; i < maps; i++)
+		{
+			for(int p = 0; p < POINTS * 3; p += 3)
+			{
+				if(findLinear(mapZones.get(i), points[i], p) != grids[i].findZone(points[i][p], points[i][p + 1],
+					points[i][p + 2]))
+				{
+					System.out.println("Results differ for point " + points[i][p] + ", " + points[i][p + 1]);
+					System.exit(1);
+				}
+			}
+		}
+
+		for(int i = 0; i < WARMUP; i++)
+		{
+			linear(mapZones, points);
+			grid(grids, points);
+		}
+		long linearTime = 0, gridTime = 0;
+		int found = 0;
+		for(int i = 0; i < ROUNDS; i++)
+		{
+			long begin = System.nanoTime();
+			found = linear(mapZones, points);
+			linearTime += System.nanoTime() - begin;
+
+			begin = System.nanoTime();
+			grid(grids, points);
+			gridTime += System.nanoTime() - begin;
+		}
+
+		long lookups = (long) maps * POINTS * ROUNDS;
+		System.out.println("maps: " + maps + ", zones: " + templates.size() + ", points inside zones: " + found + "/"
+			+ (maps * POINTS) + ", max zones in grid cell: " + maxCandidates);
+		System.out.println("all zones [lookups/s]: " + lookups * 1000000000L / linearTime);
+		System.out.println("zone grid [lookups/s]: " + lookups * 1000000000L / gridTime);
+		System.exit(0);
+	}
+
+	/**
+	 * @return POINTS x, y, z triples inside of bounds of all zones [extended by 10%]
+	 */
+	private static float[] randomPoints(Collection<ZoneInstance> zones, Random rnd)
+	{
+		float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+		float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+		for(ZoneInstance zone : zones)
+		{
+			minX = Math.min(minX, zone.getMinX());
+			minY = Math.min(minY, zone.getMinY());
+			maxX = Math.max(maxX, zone.getMaxX());
+			maxY = Math.max(maxY, zone.getMaxY());
+		}
+		float marginX = (maxX - minX) / 10;
+		float marginY = (maxY - minY) / 10;
+
+		float[] points = new float[POINTS * 3];
+		for(int p = 0; p < points.length; p += 3)
+		{
+			points[p] = minX - marginX + rnd.nextFloat() * (maxX - minX + 2 * marginX);
+			points[p + 1] = minY - marginY + rnd.nextFloat() * (maxY - minY + 2 * marginY);
+			points[p + 2] = rnd.nextFloat() * 1000;
+		}
+		return points;
+	}
+
+	private static int linear(List<Collection<ZoneInstance>> mapZones, float[][] points)
+	{
+		int found = 0;
+		for(int i = 0; i < mapZones.size(); i++)
+		{
+			for(int p = 0; p < POINTS * 3; p += 3)
+			{
+				if(findLinear(mapZones.get(i), points[i], p) != null)
+					found++;
+			}
+		}
+		return found;
+	}
+
+	private static int grid(ZoneGrid[] grids, float[][] points)
+	{
+		int found = 0;
+		for(int i = 0; i < grids.length; i++)
+		{
+			for(int p = 0; p < POINTS * 3; p += 3)
+			{
+				if(grids[i].findZone(points[i][p], points[i][p + 1], points[i][p + 2]) != null)
+					found++;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Zone lookup as it was done before zone grid: every zone of map is tested in priority order.
+	 */
+	private static ZoneInstance findLinear(Collection<ZoneInstance> zones, float[] points, int p)
+	{
+		for(ZoneInstance zone : zones)
+		{
+			if(isInside(zone, points[p], points[p + 1], points[p + 2]))
+				return zone;
+		}
+		return null;
+	}
+
+	/**
+	 * Point-in-polygon test as it was done before edge tables.
+	 */
+	private static boolean isInside(ZoneInstance zone, float x, float y, float z)
+	{
+		int corners = zone.getCorners();
+		float[] xCoords = zone.getxCoordinates();
+		float[] yCoords = zone.getyCoordinates();
+
+		float top = zone.getTop();
+		float bottom = zone.getBottom();
+		if(top != 0 || bottom != 0)
+		{
+			if(z > top || z < bottom)
+				return false;
+		}
+
+		int i, j = corners - 1;
+		boolean inside = false;
+		for(i = 0; i < corners; i++)
+		{
+			if(yCoords[i] < y && yCoords[j] >= y || yCoords[j] < y && yCoords[i] >= y)
+			{
+				if(xCoords[i] + (y - yCoords[i]) / (yCoords[j] - yCoords[i]) * (xCoords[j] - xCoords[i]) < x)
+				{
+					inside = !inside;
+				}
+			}
+			j = i;
+		}
+		return inside;
+	}
+}
@@ -0,0 +1,240 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package mysql5;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aionemu.commons.database.DatabaseFactory;
+import com.aionemu.gameserver.model.gameobjects.Item;
+import com.aionemu.gameserver.model.gameobjects.PersistentState;
+import com.aionemu.gameserver.model.templates.item.ItemTemplate;
+
+/**
+ * Checks that items stay dirty when batched flush of items fails. Database is replaced by proxy that fails given
+ * statement or commit.
+ */
+public class MySQL5InventoryDAOTest
+{
+	private MySQL5InventoryDAO	dao;
+
+	private List<Item>			items;
+
+	/**
+	 * Statement that fails on executeBatch, null if none
+	 */
+	private String				failingQuery;
+
+	private boolean				failCommit;
+
+	private int					commits;
+
+	private int					rollbacks;
+
+	/**
+	 * Executed on commit, simulates changes of items during flush
+	 */
+	private Runnable			commitHook;
+
+	@Before
+	public void setup() throws Exception
+	{
+		setDataSource((DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+			new Class<?>[] { DataSource.class }, new InvocationHandler(){
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+				{
+					if(method.getName().equals("getConnection"))
+						return newConnection();
+					throw new UnsupportedOperationException(method.getName());
+				}
+			}));
+
+		dao = new MySQL5InventoryDAO();
+		items = new ArrayList<Item>();
+		items.add(newItem(1, PersistentState.NEW));
+		items.add(newItem(2, PersistentState.UPDATE_REQUIRED));
+		items.add(newItem(3, PersistentState.DELETED));
+		items.add(null);
+	}
+
+	@After
+	public void tearDown() throws Exception
+	{
+		setDataSource(null);
+	}
+
+	@Test
+	public void testStore()
+	{
+		Assert.assertTrue(dao.store(Collections.singletonMap(100, items)));
+		Assert.assertEquals(1, commits);
+		for(Item item : items)
+		{
+			if(item != null)
+				Assert.assertEquals(PersistentState.UPDATED, item.getPersistentState());
+		}
+	}
+
+	@Test
+	public void testFailedStatement()
+	{
+		failingQuery = MySQL5InventoryDAO.UPDATE_QUERY;
+		Assert.assertFalse(dao.store(Collections.singletonMap(100, items)));
+		Assert.assertEquals(0, commits);
+		Assert.assertEquals(1, rollbacks);
+		assertDirty();
+
+		// next flush stores them
+		failingQuery = null;
+		Assert.assertTrue(dao.store(Collections.singletonMap(100, items)));
+		Assert.assertEquals(PersistentState.UPDATED, items.get(1).getPersistentState());
+	}
+
+	@Test
+	public void testFailedCommit()
+	{
+		failCommit = true;
+		Assert.assertFalse(dao.store(Collections.singletonMap(100, items)));
+		assertDirty();
+	}
+
+	@Test
+	public void testChangedWhileStored()
+	{
+		// item is deleted after its update was sent, but before commit
+		commitHook = new Runnable(){
+			@Override
+			public void run()
+			{
+				items.get(1).setPersistentState(PersistentState.DELETED);
+			}
+		};
+		Assert.assertTrue(dao.store(Collections.singletonMap(100, items)));
+		Assert.assertEquals(PersistentState.UPDATED, items.get(0).getPersistentState());
+		Assert.assertEquals(PersistentState.DELETED, items.get(1).getPersistentState());
+	}
+
+	@Test
+	public void testChangedWhileStoredInSameState()
+	{
+		final Item deletedNew = newItem(4, PersistentState.NEW);
+		items.add(deletedNew);
+		// changes, that don't change state of item
+		commitHook = new Runnable(){
+			@Override
+			public void run()
+			{
+				items.get(0).setItemCount(5);
+				items.get(1).setItemCount(7);
+				deletedNew.setPersistentState(PersistentState.DELETED);
+			}
+		};
+		Assert.assertTrue(dao.store(Collections.singletonMap(100, items)));
+		// inserted items are in db already, their changes must be updated [or deleted]
+		Assert.assertEquals(PersistentState.UPDATE_REQUIRED, items.get(0).getPersistentState());
+		Assert.assertEquals(PersistentState.UPDATE_REQUIRED, items.get(1).getPersistentState());
+		Assert.assertEquals(PersistentState.UPDATED, items.get(2).getPersistentState());
+		Assert.assertEquals(PersistentState.DELETED, deletedNew.getPersistentState());
+	}
+
+	private void assertDirty()
+	{
+		Assert.assertEquals(PersistentState.NEW, items.get(0).getPersistentState());
+		Assert.assertEquals(PersistentState.UPDATE_REQUIRED, items.get(1).getPersistentState());
+		Assert.assertEquals(PersistentState.DELETED, items.get(2).getPersistentState());
+	}
+
+	private static Item newItem(int objectId, PersistentState state)
+	{
+		ItemTemplate template = new ItemTemplate();
+		template.setItemId(objectId);
+		Item item = new Item(objectId, template, 1, false, 0);
+		if(state != PersistentState.NEW)
+		{
+			item.setPersistentState(PersistentState.UPDATED);
+			item.setPersistentState(state);
+		}
+		return item;
+	}
+
+	private static void setDataSource(DataSource dataSource) throws Exception
+	{
+		Field f = DatabaseFactory.class.getDeclaredField("dataSource");
+		f.setAccessible(true);
+		f.set(null, dataSource);
+	}
+
+	private Connection newConnection()
+	{
+		return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+			new InvocationHandler(){
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+				{
+					String name = method.getName();
+					if(name.equals("prepareStatement"))
+						return newStatement((String) args[0]);
+					if(name.equals("commit"))
+					{
+						if(failCommit)
+							throw new SQLException("commit failed");
+						if(commitHook != null)
+							commitHook.run();
+						commits++;
+					}
+					else if(name.equals("rollback"))
+						rollbacks++;
+					return null;
+				}
+			});
+	}
+
+	private PreparedStatement newStatement(final String sql)
+	{
+		return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+			new Class<?>[] { PreparedStatement.class }, new InvocationHandler(){
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+				{
+					if(method.getName().equals("executeBatch"))
+					{
+						if(sql.equals(failingQuery))
+							throw new SQLException("batch failed");
+						return new int[0];
+					}
+					return null;
+				}
+			});
+	}
+}
@@ -73,7 +73,14 @@ public class Config
 	public static int				WRONG_LOGIN_BAN_TIME;
 
 	/**
-	 * Number of Threads that will handle io read (>= 0)
+	 * If true then connections from banned ips are closed right after accept, otherwise they are refused at login
+	 */
+	@Property(key = "loginserver.network.client.acceptfilter", defaultValue = "true")
+	public static boolean			IP_BAN_ACCEPT_FILTER;
+
+	/**
+	 * Number of Threads that will handle io read and write. 0 - accept Thread handles io too, -1 - one Thread per
+	 * available processor
 	 */
 	@Property(key = "loginserver.network.nio.threads.read", defaultValue = "0")
 	public static int				NIO_READ_THREADS;
@@ -84,6 +91,54 @@ public class Config
 	@Property(key = "loginserver.network.nio.threads.write", defaultValue = "0")
 	public static int				NIO_WRITE_THREADS;
 
+	/**
+	 * If true read buffers of connections are sized by observed traffic, otherwise all buffers have 16 KB
+	 */
+	@Property(key = "loginserver.network.nio.buffers.adaptive", defaultValue = "false")
+	public static boolean			NIO_ADAPTIVE_BUFFERS;
+
+	/**
+	 * If true client packets are executed by QueuedPacketProcessor (per connection queues) instead of PacketProcessor
+	 */
+	@Property(key = "loginserver.network.packetprocessor.queued", defaultValue = "false")
+	public static boolean			PACKET_PROCESSOR_QUEUED;
+
+	/**
+	 * Minimum number of Threads that will execute client packets
+	 */
+	@Property(key = "loginserver.network.packetprocessor.threads.min", defaultValue = "1")
+	public static int				PACKET_PROCESSOR_MIN_THREADS;
+
+	/**
+	 * Maximum number of Threads that will execute client packets
+	 */
+	@Property(key = "loginserver.network.packetprocessor.threads.max", defaultValue = "8")
+	public static int				PACKET_PROCESSOR_MAX_THREADS;
+
+	/**
+	 * Number of threads that decrypt RSA login data, 0 - one thread per available processor
+	 */
+	@Property(key = "loginserver.crypt.threads", defaultValue = "0")
+	public static int				CRYPT_THREADS;
+
+	/**
+	 * Number of RSA key pairs given randomly to new connections
+	 */
+	@Property(key = "loginserver.crypt.rsa.keypairs", defaultValue = "10")
+	public static int				RSA_KEYPAIRS;
+
+	/**
+	 * Interval in seconds in which one RSA key pair is replaced by new one, 0 - key pairs are not replaced
+	 */
+	@Property(key = "loginserver.crypt.rsa.rotation", defaultValue = "60")
+	public static int				RSA_ROTATION_INTERVAL;
+
+	/**
+	 * Interval in minutes in which login handshake statistics are logged, 0 - never
+	 */
+	@Property(key = "loginserver.crypt.stats.interval", defaultValue = "10")
+	public static int				CRYPT_STATS_INTERVAL;
+
 	/**
 	 * Should server automaticly create accounts for users or not?
 	 */
@@ -16,15 +16,16 @@
  */
 package com.aionemu.loginserver.controller;
 
+import java.net.InetAddress;
 import java.sql.Timestamp;
-import java.util.Iterator;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
 
 import org.apache.log4j.Logger;
 
 import com.aionemu.commons.database.dao.DAOManager;
-import com.aionemu.commons.utils.NetworkUtils;
+import com.aionemu.commons.network.IPFilter;
+import com.aionemu.commons.network.IPMaskTrie;
 import com.aionemu.loginserver.dao.BannedIpDAO;
 import com.aionemu.loginserver.model.BannedIP;
 
@@ -45,6 +46,22 @@ public class BannedIpController
 	 */
 	private static Set<BannedIP>	banList;
 
+	/**
+	 * Active bans compiled from {@link #banList}, replaced as a whole on every change
+	 */
+	private static volatile IPMaskTrie	banTrie	= new IPMaskTrie();
+
+	/**
+	 * Filter for accepted connections, always checks current {@link #banTrie}
+	 */
+	private static final IPFilter	filter	= new IPFilter(){
+		@Override
+		public boolean isAllowed(InetAddress address)
+		{
+			return !banTrie.matches(address.getAddress());
+		}
+	};
+
 	/**
 	 * Loads list of banned ips
 	 */
@@ -60,6 +77,7 @@ public class BannedIpController
 	{
 		// we are not going to make ip ban every minute, so it's ok to simplify a concurrent code a bit
 		banList = new CopyOnWriteArraySet<BannedIP>(getDAO().getAllBans());
+		compile();
 		log.info("BannedIpController loaded " + banList.size() + " IP bans.");
 	}
 
@@ -72,12 +90,17 @@ public class BannedIpController
 	 */
 	public static boolean isBanned(String ip)
 	{
-		for (BannedIP ipBan : banList)
-		{
-			if (ipBan.isActive() && NetworkUtils.checkIPMatching(ipBan.getMask(), ip))
-				return true;
-		}
-		return false;
+		return banTrie.matches(ip);
+	}
+
+	/**
+	 * Returns filter that closes connections from banned ips right after accept
+	 * 
+	 * @return ip filter
+	 */
+	public static IPFilter getFilter()
+	{
+		return filter;
 	}
 
 	/**
@@ -109,6 +132,7 @@ public class BannedIpController
 		if (getDAO().insert(ipBan))
 		{
 			banList.add(ipBan);
+			compile();
 			return true;
 		}
 		return false;
@@ -128,13 +152,21 @@ public class BannedIpController
 			if (getDAO().insert(ipBan))
 			{
 				banList.add(ipBan);
+				compile();
 				return true;
 			}
 			else
 				return false;
 		}
+		else if (getDAO().update(ipBan))
+		{
+			banList.remove(ipBan);
+			banList.add(ipBan);
+			compile();
+			return true;
+		}
 		else
-			return getDAO().update(ipBan);
+			return false;
 	}
 
 	/**
@@ -146,15 +178,15 @@ public class BannedIpController
 	 */
 	public static boolean unbanIp(String ip)
 	{
-		Iterator<BannedIP> it = banList.iterator();
-		while (it.hasNext())
+		for (BannedIP ipBan : banList)
 		{
-			BannedIP ipBan = it.next();
 			if (ipBan.getMask().equals(ip))
 			{
 				if (getDAO().remove(ipBan))
 				{
-					it.remove();
+					// iterator of CopyOnWriteArraySet doesn't support remove
+					banList.remove(ipBan);
+					compile();
 					return true;
 				}
 				else
@@ -164,6 +196,24 @@ public class BannedIpController
 		return false;
 	}
 
+	/**
+	 * Compiles active bans into new trie and replaces the current one, so checks in progress are not affected
+	 */
+	private static synchronized void compile()
+	{
+		IPMaskTrie trie = new IPMaskTrie();
+		for (BannedIP ipBan : banList)
+		{
+			if (!ipBan.isActive())
+				continue;
+
+			long expireTime = ipBan.getTimeEnd() == null ? IPMaskTrie.NEVER_EXPIRES : ipBan.getTimeEnd().getTime();
+			if (!trie.add(ipBan.getMask(), expireTime))
+				log.warn("Invalid IP ban mask: " + ipBan.getMask());
+		}
+		banTrie = trie;
+	}
+
 	/**
 	 * Retuns {@link com.aionemu.loginserver.dao.BannedIpDAO} , just a shortcut
 	 * 
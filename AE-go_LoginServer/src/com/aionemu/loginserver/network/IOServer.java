@@ -19,6 +19,7 @@ package com.aionemu.loginserver.network;
 import com.aionemu.commons.network.NioServer;
 import com.aionemu.commons.network.ServerCfg;
 import com.aionemu.loginserver.configs.Config;
+import com.aionemu.loginserver.controller.BannedIpController;
 import com.aionemu.loginserver.network.aion.AionConnectionFactoryImpl;
 import com.aionemu.loginserver.network.gameserver.GsConnectionFactoryImpl;
 import com.aionemu.loginserver.utils.ThreadPoolManager;
@@ -38,12 +39,13 @@ public class IOServer
 	static
 	{
 		ServerCfg aion = new ServerCfg(Config.LOGIN_BIND_ADDRESS, Config.LOGIN_PORT, "Aion Connections",
-			new AionConnectionFactoryImpl());
+			new AionConnectionFactoryImpl(), Config.IP_BAN_ACCEPT_FILTER ? BannedIpController.getFilter() : null);
 
 		ServerCfg gs = new ServerCfg(Config.GAME_BIND_ADDRESS, Config.GAME_PORT, "Gs Connections",
 			new GsConnectionFactoryImpl());
 
-		instance = new NioServer(Config.NIO_READ_THREADS, ThreadPoolManager.getInstance(), gs, aion);
+		instance = new NioServer(Config.NIO_READ_THREADS, Config.NIO_ADAPTIVE_BUFFERS, ThreadPoolManager.getInstance(),
+			gs, aion);
 	}
 
 	/**
@@ -19,7 +19,10 @@ package com.aionemu.loginserver.network.aion;
 
 import com.aionemu.commons.network.AConnection;
 import com.aionemu.commons.network.Dispatcher;
+import com.aionemu.commons.network.PacketExecutor;
 import com.aionemu.commons.network.PacketProcessor;
+import com.aionemu.commons.network.QueuedPacketProcessor;
+import com.aionemu.loginserver.configs.Config;
 import com.aionemu.loginserver.controller.AccountController;
 import com.aionemu.loginserver.controller.AccountTimeController;
 import com.aionemu.loginserver.model.Account;
@@ -31,6 +34,7 @@ import org.apache.log4j.Logger;
 
 import javax.crypto.SecretKey;
 import java.io.IOException;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 import java.security.interfaces.RSAPrivateKey;
@@ -51,7 +55,14 @@ public class AionConnection extends AConnection
 	/**
 	 * PacketProcessor for executing packets.
 	 */
-	private final static PacketProcessor<AionConnection>	processor		= new PacketProcessor<AionConnection>(1, 8);
+	private final static PacketExecutor<AionConnection>	processor		= Config.PACKET_PROCESSOR_QUEUED
+																				? new QueuedPacketProcessor<AionConnection>(
+																					"PacketProcessor",
+																					Config.PACKET_PROCESSOR_MIN_THREADS,
+																					Config.PACKET_PROCESSOR_MAX_THREADS)
+																				: new PacketProcessor<AionConnection>(
+																					Config.PACKET_PROCESSOR_MIN_THREADS,
+																					Config.PACKET_PROCESSOR_MAX_THREADS);
 	/**
 	 * Server Packet "to send" Queue
 	 */
@@ -171,26 +182,42 @@ public class AionConnection extends AConnection
 	}
 
 	/**
-	 * This method will be called by Dispatcher, and will be repeated till return false.
+	 * This method will be called by Dispatcher, and will be repeated till return false. Next packet from queue is
+	 * appended to given buffer, if it does not fit it stays in queue and will be written by next socket write.
 	 * 
 	 * @param data
-	 * @return True if data was written to buffer, False indicating that there are not any more data to write.
+	 * @return True if data was written to buffer, False indicating that there are not any more data to write or that
+	 *         buffer is full.
 	 */
 	@Override
 	protected final boolean writeData(ByteBuffer data)
 	{
 		synchronized (guard)
 		{
-			AionServerPacket packet = sendMsgQueue.pollFirst();
-
-			if (packet == null)
+			for (;;)
 			{
-				return false;
+				AionServerPacket packet = sendMsgQueue.pollFirst();
+				if (packet == null)
+					return false;
+
+				int position = data.position();
+				try
+				{
+					packet.write(this, data);
+					return true;
+				}
+				catch (BufferOverflowException e)
+				{
+					data.position(position);
+					if (position > 0)
+					{
+						sendMsgQueue.addFirst(packet);
+						return false;
+					}
+					/** packet is bigger than whole write buffer, it will never be send */
+					log.warn("Packet " + packet + " doesn't fit into write buffer, dropped!", e);
+				}
 			}
-
-			packet.write(this, data);
-
-			return true;
 		}
 	}
 
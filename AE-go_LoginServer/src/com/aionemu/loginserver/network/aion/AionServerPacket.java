@@ -18,6 +18,7 @@ package com.aionemu.loginserver.network.aion;
 
 import com.aionemu.commons.network.packet.BaseServerPacket;
 
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 
 /**
@@ -27,6 +28,11 @@ import java.nio.ByteBuffer;
  */
 public abstract class AionServerPacket extends BaseServerPacket
 {
+	/**
+	 * Max number of bytes that encryption may add to packet: checksum, xor key of first packet and padding.
+	 */
+	private static final int	MAX_ENCRYPTION_OVERHEAD	= 16;
+
 	/**
 	 * Constructs a new server packet with specified id.
 	 *
@@ -38,22 +44,27 @@ public abstract class AionServerPacket extends BaseServerPacket
 	}
 
 	/**
-	 * Write and encrypt this packet data for given connection, to given buffer.
+	 * Write and encrypt this packet data for given connection, to given buffer. Packet is written at current position
+	 * of buffer and position is moved to the end of it.
 	 * 
 	 * @param con
 	 * @param buf
 	 */
 	public final void write(AionConnection con, ByteBuffer buf)
 	{
+		int start = buf.position();
 		buf.putShort((short) 0);
 		writeImpl(con, buf);
-		buf.flip();
-		buf.putShort((short) 0);
-		ByteBuffer b = buf.slice();
+		ByteBuffer b = buf.duplicate();
+		b.limit(b.position()).position(start + 2);
+
+		/** encryption appends checksum and padding after the data, so make sure they fit into buffer */
+		if (b.limit() + MAX_ENCRYPTION_OVERHEAD > b.capacity())
+			throw new BufferOverflowException();
 
-		short size = (short) (con.encrypt(b) + 2);
-		buf.putShort(0, size);
-		buf.position(0).limit(size);
+		short size = (short) (con.encrypt(b.slice()) + 2);
+		buf.putShort(start, size);
+		buf.position(start + size);
 	}
 
 	/**
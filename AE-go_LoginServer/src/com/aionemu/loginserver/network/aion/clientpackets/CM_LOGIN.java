@@ -24,11 +24,10 @@ import com.aionemu.loginserver.network.aion.AionConnection.State;
 import com.aionemu.loginserver.network.aion.SessionKey;
 import com.aionemu.loginserver.network.aion.serverpackets.SM_LOGIN_FAIL;
 import com.aionemu.loginserver.network.aion.serverpackets.SM_LOGIN_OK;
+import com.aionemu.loginserver.network.ncrypt.RSACrypt;
 import org.apache.log4j.Logger;
 
-import javax.crypto.Cipher;
 import java.nio.ByteBuffer;
-import java.security.GeneralSecurityException;
 
 /**
  * @author -Nemesiss-, KID
@@ -77,16 +76,27 @@ public class CM_LOGIN extends AionClientPacket
 		if (data == null)
 			return;
 
-		byte[] decrypted;
-		try
-		{
-			Cipher rsaCipher = Cipher.getInstance("RSA/ECB/nopadding");
-			rsaCipher.init(Cipher.DECRYPT_MODE, getConnection().getRSAPrivateKey());
-			decrypted = rsaCipher.doFinal(data, 0, 128);
-		}
-		catch (GeneralSecurityException e)
+		/* decryption is executed by crypt threads, login continues in login threads */
+		RSACrypt.decrypt(getConnection().getRSAPrivateKey(), data, new RSACrypt.DecryptCallback(){
+			@Override
+			public void onDecrypted(byte[] decrypted)
+			{
+				login(decrypted);
+			}
+		});
+	}
+
+	/**
+	 * Authenticates client with decrypted login and password.
+	 * 
+	 * @param decrypted
+	 *            decrypted data, null if decryption failed
+	 */
+	private void login(byte[] decrypted)
+	{
+		if (decrypted == null)
 		{
-			log.warn("Error while decripting data on user auth." + e, e);
+			log.warn("Error while decripting data on user auth.");
 			sendPacket(new SM_LOGIN_FAIL(AionAuthResponse.SYSTEM_ERROR));
 			return;
 		}
@@ -18,14 +18,17 @@
 package com.aionemu.loginserver.network.ncrypt;
 
 import com.aionemu.commons.utils.Rnd;
+import com.aionemu.loginserver.configs.Config;
+import com.aionemu.loginserver.utils.ThreadPoolManager;
 import org.apache.log4j.Logger;
 
-import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
 import java.security.GeneralSecurityException;
 import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
 import java.security.spec.RSAKeyGenParameterSpec;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Key generator. It generates keys or keyPairs for Blowfish and RSA
@@ -46,9 +49,19 @@ public class KeyGen
 	private static KeyGenerator		blowfishKeyGen;
 
 	/**
-	 *  Public/Static RSA KeyPairs with encrypted modulus N
+	 * Key pair generator for RSA, used only by init and rotation task
 	 */
-	private static EncryptedRSAKeyPair[] encryptedRSAKeyPairs;
+	private static KeyPairGenerator		rsaKeyPairGenerator;
+
+	/**
+	 *  Public/Static RSA KeyPairs with encrypted modulus N, replaced one by one by rotation task
+	 */
+	private static AtomicReferenceArray<EncryptedRSAKeyPair> encryptedRSAKeyPairs;
+
+	/**
+	 * Index of key pair that will be replaced next
+	 */
+	private static int					rotationIndex;
 
     /**
 	 * Initialize Key Generator (Blowfish keygen and RSA keygen)
@@ -61,23 +74,49 @@ public class KeyGen
 
 		blowfishKeyGen = KeyGenerator.getInstance("Blowfish");
 
-		KeyPairGenerator		rsaKeyPairGenerator = KeyPairGenerator.getInstance("RSA");
+		rsaKeyPairGenerator = KeyPairGenerator.getInstance("RSA");
 
 		RSAKeyGenParameterSpec	spec                = new RSAKeyGenParameterSpec(1024, RSAKeyGenParameterSpec.F4);
 
 		rsaKeyPairGenerator.initialize(spec);
 
-		encryptedRSAKeyPairs = new EncryptedRSAKeyPair[10];
+		int count = Math.max(1, Config.RSA_KEYPAIRS);
 
-		for(int i = 0; i < 10; i++)
+		encryptedRSAKeyPairs = new AtomicReferenceArray<EncryptedRSAKeyPair>(count);
+
+		for(int i = 0; i < count; i++)
 		{
-			encryptedRSAKeyPairs[i] = new EncryptedRSAKeyPair(rsaKeyPairGenerator.generateKeyPair());
+			encryptedRSAKeyPairs.set(i, new EncryptedRSAKeyPair(rsaKeyPairGenerator.generateKeyPair()));
 		}
 
-		// Pre-init RSA cipher.. saving about 300ms
-		Cipher	rsaCipher = Cipher.getInstance("RSA/ECB/nopadding");
+		// Pre-init RSA cipher of every crypt thread.. saving about 300ms
+		RSACrypt.init((RSAPrivateKey) encryptedRSAKeyPairs.get(0).getRSAKeyPair().getPrivate());
+
+		if(Config.RSA_ROTATION_INTERVAL > 0)
+		{
+			long interval = Config.RSA_ROTATION_INTERVAL * 1000L;
+			ThreadPoolManager.getInstance().scheduleAtFixedRate(new Runnable(){
+				@Override
+				public void run()
+				{
+					rotateRSAKeyPair();
+				}
+			}, interval, interval);
+		}
+	}
+
+	/**
+	 * Replaces the oldest RSA key pair by newly generated one. Connections that already got the old pair keep using it.
+	 */
+	private static void rotateRSAKeyPair()
+	{
+		long start = System.nanoTime();
+		EncryptedRSAKeyPair keyPair = new EncryptedRSAKeyPair(rsaKeyPairGenerator.generateKeyPair());
+		encryptedRSAKeyPairs.set(rotationIndex, keyPair);
+		rotationIndex = (rotationIndex + 1) % encryptedRSAKeyPairs.length();
 
-		rsaCipher.init(Cipher.DECRYPT_MODE, encryptedRSAKeyPairs[0].getRSAKeyPair().getPrivate());
+		if(log.isDebugEnabled())
+			log.debug("RSA key pair replaced in " + (System.nanoTime() - start) / 1000000 + " ms.");
 	}
 
 	/**
@@ -96,6 +135,6 @@ public class KeyGen
 	 */
 	public static EncryptedRSAKeyPair getEncryptedRSAKeyPair()
 	{
-		return encryptedRSAKeyPairs[Rnd.nextInt(10)];
+		return encryptedRSAKeyPairs.get(Rnd.nextInt(encryptedRSAKeyPairs.length()));
 	}
 }
@@ -0,0 +1,278 @@
+/**
+ * This file is part of aion-emu <aion-emu.com>.
+ *
+ *  aion-emu is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-emu is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-emu.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.loginserver.network.ncrypt;
+
+import java.security.GeneralSecurityException;
+import java.security.interfaces.RSAPrivateKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.crypto.Cipher;
+
+import org.apache.log4j.Logger;
+
+import com.aionemu.loginserver.configs.Config;
+import com.aionemu.loginserver.utils.ThreadPoolManager;
+
+/**
+ * RSA decryption of client login data. Decryption is executed by crypt thread pool, so packet processor threads are
+ * not blocked by it, every crypt thread has its own initialized cipher. Result is handed to login thread pool.
+ */
+public class RSACrypt
+{
+	/**
+	 * Logger for this class.
+	 */
+	private static final Logger				log				= Logger.getLogger(RSACrypt.class);
+
+	/**
+	 * Cipher of current crypt thread
+	 */
+	private static final ThreadLocal<Cipher>	rsaCipher		= new ThreadLocal<Cipher>(){
+		@Override
+		protected Cipher initialValue()
+		{
+			try
+			{
+				return Cipher.getInstance("RSA/ECB/nopadding");
+			}
+			catch(GeneralSecurityException e)
+			{
+				throw new Error("RSA cipher not available", e);
+			}
+		}
+	};
+
+	/**
+	 * Time from submission till decryption is started
+	 */
+	private static final LatencyStats		waitStats		= new LatencyStats("queue wait");
+	/**
+	 * Time of decryption
+	 */
+	private static final LatencyStats		decryptStats	= new LatencyStats("decrypt");
+	/**
+	 * Time of login after decryption
+	 */
+	private static final LatencyStats		loginStats		= new LatencyStats("login");
+	/**
+	 * Time from submission till login is finished
+	 */
+	private static final LatencyStats		totalStats		= new LatencyStats("handshake");
+
+	/**
+	 * Initializes cipher of every crypt thread, so first logins don't pay for it, and schedules logging of statistics.
+	 * 
+	 * @param key
+	 *            any RSA private key
+	 */
+	public static void init(final RSAPrivateKey key)
+	{
+		int threads = ThreadPoolManager.getInstance().getCryptThreads();
+		final CountDownLatch latch = new CountDownLatch(threads);
+		for(int i = 0; i < threads; i++)
+		{
+			ThreadPoolManager.getInstance().executeCrypt(new Runnable(){
+				@Override
+				public void run()
+				{
+					try
+					{
+						rsaCipher.get().init(Cipher.DECRYPT_MODE, key);
+						/* wait for others, so every thread initializes its own cipher */
+						latch.countDown();
+						latch.await(10, TimeUnit.SECONDS);
+					}
+					catch(Exception e)
+					{
+						log.warn("Can't initialize RSA cipher", e);
+					}
+				}
+			});
+		}
+		try
+		{
+			latch.await(10, TimeUnit.SECONDS);
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		log.info("RSA cipher initialized for " + threads + " crypt threads.");
+
+		if(Config.CRYPT_STATS_INTERVAL > 0)
+		{
+			long interval = Config.CRYPT_STATS_INTERVAL * 60 * 1000L;
+			ThreadPoolManager.getInstance().scheduleAtFixedRate(new Runnable(){
+				@Override
+				public void run()
+				{
+					for(String line : getStats())
+						log.info(line);
+				}
+			}, interval, interval);
+		}
+	}
+
+	/**
+	 * Decrypts data in crypt thread pool and passes result to callback in login thread pool.
+	 * 
+	 * @param key
+	 *            RSA private key of connection
+	 * @param data
+	 *            encrypted data
+	 * @param callback
+	 *            callback that will get decrypted data
+	 */
+	public static void decrypt(final RSAPrivateKey key, final byte[] data, final DecryptCallback callback)
+	{
+		final long submitted = System.nanoTime();
+		ThreadPoolManager.getInstance().executeCrypt(new Runnable(){
+			@Override
+			public void run()
+			{
+				long started = System.nanoTime();
+				waitStats.record(started - submitted);
+
+				byte[] decrypted;
+				try
+				{
+					Cipher cipher = rsaCipher.get();
+					cipher.init(Cipher.DECRYPT_MODE, key);
+					decrypted = cipher.doFinal(data, 0, data.length);
+				}
+				catch(GeneralSecurityException e)
+				{
+					log.warn("Error while decrypting data: " + e, e);
+					decrypted = null;
+				}
+				decryptStats.record(System.nanoTime() - started);
+
+				final byte[] result = decrypted;
+				ThreadPoolManager.getInstance().executeLogin(new Runnable(){
+					@Override
+					public void run()
+					{
+						long loginStarted = System.nanoTime();
+						try
+						{
+							callback.onDecrypted(result);
+						}
+						finally
+						{
+							long now = System.nanoTime();
+							loginStats.record(now - loginStarted);
+							totalStats.record(now - submitted);
+						}
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * @return human readable statistics of login handshakes: count, average and percentiles of every stage.
+	 */
+	public static List<String> getStats()
+	{
+		List<String> list = new ArrayList<String>();
+		list.add("RSA handshakes, " + ThreadPoolManager.getInstance().getCryptThreads() + " crypt threads:");
+		list.add("=================================================");
+		for(LatencyStats stats : new LatencyStats[] { waitStats, decryptStats, loginStats, totalStats })
+			list.add(stats.toString());
+		return list;
+	}
+
+	/**
+	 * Callback of {@link RSACrypt#decrypt}
+	 */
+	public static interface DecryptCallback
+	{
+		/**
+		 * Called in login thread pool.
+		 * 
+		 * @param data
+		 *            decrypted data, null if decryption failed
+		 */
+		public void onDecrypted(byte[] data);
+	}
+
+	/**
+	 * Histogram of times with power of two buckets: bucket n counts times from 2^(n-1) to 2^n - 1 microseconds.
+	 * Percentiles are upper bounds of buckets, so they are at most two times bigger than real values.
+	 */
+	private static class LatencyStats
+	{
+		private final String			name;
+		private final AtomicLongArray	buckets	= new AtomicLongArray(40);
+		private final AtomicLong		count	= new AtomicLong();
+		private final AtomicLong		total	= new AtomicLong();
+		private final AtomicLong		max		= new AtomicLong();
+
+		private LatencyStats(String name)
+		{
+			this.name = name;
+		}
+
+		private void record(long nanos)
+		{
+			long micros = Math.max(0, nanos / 1000);
+			buckets.incrementAndGet(Math.min(buckets.length() - 1, 64 - Long.numberOfLeadingZeros(micros)));
+			count.incrementAndGet();
+			total.addAndGet(micros);
+
+			long current;
+			while((current = max.get()) < micros && !max.compareAndSet(current, micros))
+				;
+		}
+
+		/**
+		 * @param percent
+		 * @param n
+		 *            number of recorded times
+		 * @return upper bound of percentile in microseconds
+		 */
+		private long percentile(double percent, long n)
+		{
+			long rank = (long) Math.ceil(n * percent / 100);
+			long sum = 0;
+			for(int i = 0; i < buckets.length(); i++)
+			{
+				sum += buckets.get(i);
+				if(sum >= rank)
+					return i == 0 ? 0 : Math.min((1L << i) - 1, max.get());
+			}
+			return max.get();
+		}
+
+		@Override
+		public String toString()
+		{
+			long n = count.get();
+			if(n == 0)
+				return "\t" + name + ": no data";
+
+			return String.format("\t%s: count %d, avg %.2f ms, 50%% <= %.2f ms, 90%% <= %.2f ms, 99%% <= %.2f ms, max %.2f ms",
+				name, n, total.get() / 1000.0 / n, percentile(50, n) / 1000.0, percentile(90, n) / 1000.0,
+				percentile(99, n) / 1000.0, max.get() / 1000.0);
+		}
+	}
+}
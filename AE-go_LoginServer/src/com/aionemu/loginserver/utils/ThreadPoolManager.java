@@ -29,6 +29,7 @@ import org.apache.log4j.Logger;
 import com.aionemu.commons.network.DisconnectionTask;
 import com.aionemu.commons.network.DisconnectionThreadPool;
 import com.aionemu.commons.utils.ScheduledThreadPoolExecutorAE;
+import com.aionemu.loginserver.configs.Config;
 
 /**
  * @author -Nemesiss-
@@ -57,6 +58,14 @@ public class ThreadPoolManager implements DisconnectionThreadPool
 	 * TPE for execution of gameserver client packets
 	 */
 	private ThreadPoolExecutor				gameServerPacketsThreadPool;
+	/**
+	 * TPE for RSA decryption of client login data, one thread per processor by default
+	 */
+	private ThreadPoolExecutor				cryptThreadPool;
+	/**
+	 * TPE for authentication of client after login data is decrypted
+	 */
+	private ThreadPoolExecutor				loginThreadPool;
 
 	/**
 	 * @return ThreadPoolManager instance.
@@ -83,6 +92,13 @@ public class ThreadPoolManager implements DisconnectionThreadPool
 			new LinkedBlockingQueue<Runnable>(), new PriorityThreadFactory("Game Server Packet Pool",
 				Thread.NORM_PRIORITY + 3));
 
+		int cryptThreads = Config.CRYPT_THREADS > 0 ? Config.CRYPT_THREADS : Runtime.getRuntime().availableProcessors();
+		cryptThreadPool = new ThreadPoolExecutor(cryptThreads, cryptThreads, 0L, TimeUnit.MILLISECONDS,
+			new LinkedBlockingQueue<Runnable>(), new PriorityThreadFactory("Crypt Pool", Thread.NORM_PRIORITY + 2));
+		cryptThreadPool.prestartAllCoreThreads();
+
+		loginThreadPool = new ThreadPoolExecutor(4, Integer.MAX_VALUE, 5L, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>(), new PriorityThreadFactory("Login Pool", Thread.NORM_PRIORITY + 2));
 	}
 
 	/**
@@ -145,6 +161,34 @@ public class ThreadPoolManager implements DisconnectionThreadPool
 		gameServerPacketsThreadPool.execute(pkt);
 	}
 
+	/**
+	 * Executes Runnable - RSA decryption of client data.
+	 * 
+	 * @param r
+	 */
+	public void executeCrypt(Runnable r)
+	{
+		cryptThreadPool.execute(r);
+	}
+
+	/**
+	 * @return number of threads executing RSA decryption.
+	 */
+	public int getCryptThreads()
+	{
+		return cryptThreadPool.getCorePoolSize();
+	}
+
+	/**
+	 * Executes Runnable - authentication of client.
+	 * 
+	 * @param r
+	 */
+	public void executeLogin(Runnable r)
+	{
+		loginThreadPool.execute(r);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -231,8 +275,12 @@ public class ThreadPoolManager implements DisconnectionThreadPool
 		{
 			scheduledThreadPool.shutdown();
 			gameServerPacketsThreadPool.shutdown();
+			cryptThreadPool.shutdown();
+			loginThreadPool.shutdown();
 			scheduledThreadPool.awaitTermination(2, TimeUnit.SECONDS);
 			gameServerPacketsThreadPool.awaitTermination(2, TimeUnit.SECONDS);
+			cryptThreadPool.awaitTermination(2, TimeUnit.SECONDS);
+			loginThreadPool.awaitTermination(2, TimeUnit.SECONDS);
 			log.info("All ThreadPools are now stopped");
 		}
 		catch (InterruptedException e)